@@ -22,6 +22,12 @@ public interface CustomerEventConstants {
 
   String SELECTOR_NAME = "action";
 
+  // Snapshot events are published in addition to the events above, using the same action values
+  // under a separate selector name, so existing subscriptions are unaffected.  Consumers opt in by
+  // subscribing with the SELECTOR_SNAPSHOT_* selectors and receive a *SnapshotEvent payload.
+  String SNAPSHOT_SELECTOR_NAME = "snapshot-action";
+  int SNAPSHOT_VERSION = 1;
+
   String INITIALIZE = "initialize";
 
   String POST_CUSTOMER = "post-customer";
@@ -51,6 +57,7 @@ public interface CustomerEventConstants {
   String PUT_DOCUMENT = "put-document";
   String DELETE_DOCUMENT = "delete-document";
   String POST_DOCUMENT_PAGE = "post-document-page";
+  String POST_DOCUMENT_PAGES = "post-document-pages";
   String DELETE_DOCUMENT_PAGE = "delete-document-page";
   String POST_DOCUMENT_COMPLETE = "post-document-complete";
 
@@ -84,6 +91,23 @@ public interface CustomerEventConstants {
   String SELECTOR_PUT_DOCUMENT = SELECTOR_NAME + " = '" + PUT_DOCUMENT + "'";
   String SELECTOR_DELETE_DOCUMENT = SELECTOR_NAME + " = '" + DELETE_DOCUMENT + "'";
   String SELECTOR_POST_DOCUMENT_PAGE = SELECTOR_NAME + " = '" + POST_DOCUMENT_PAGE + "'";
+  String SELECTOR_POST_DOCUMENT_PAGES = SELECTOR_NAME + " = '" + POST_DOCUMENT_PAGES + "'";
   String SELECTOR_DELETE_DOCUMENT_PAGE = SELECTOR_NAME + " = '" + DELETE_DOCUMENT_PAGE + "'";
   String SELECTOR_POST_DOCUMENT_COMPLETE = SELECTOR_NAME + " = '" + POST_DOCUMENT_COMPLETE + "'";
+
+  String SELECTOR_SNAPSHOT_POST_CUSTOMER = SNAPSHOT_SELECTOR_NAME + " = '" + POST_CUSTOMER + "'";
+  String SELECTOR_SNAPSHOT_PUT_CUSTOMER = SNAPSHOT_SELECTOR_NAME + " = '" + PUT_CUSTOMER + "'";
+  String SELECTOR_SNAPSHOT_PUT_ADDRESS = SNAPSHOT_SELECTOR_NAME + " = '" + PUT_ADDRESS + "'";
+  String SELECTOR_SNAPSHOT_PUT_CONTACT_DETAILS = SNAPSHOT_SELECTOR_NAME + " = '" + PUT_CONTACT_DETAILS + "'";
+  String SELECTOR_SNAPSHOT_ACTIVATE_CUSTOMER = SNAPSHOT_SELECTOR_NAME + " = '" + ACTIVATE_CUSTOMER + "'";
+  String SELECTOR_SNAPSHOT_LOCK_CUSTOMER = SNAPSHOT_SELECTOR_NAME + " = '" + LOCK_CUSTOMER + "'";
+  String SELECTOR_SNAPSHOT_UNLOCK_CUSTOMER = SNAPSHOT_SELECTOR_NAME + " = '" + UNLOCK_CUSTOMER + "'";
+  String SELECTOR_SNAPSHOT_CLOSE_CUSTOMER = SNAPSHOT_SELECTOR_NAME + " = '" + CLOSE_CUSTOMER + "'";
+  String SELECTOR_SNAPSHOT_REOPEN_CUSTOMER = SNAPSHOT_SELECTOR_NAME + " = '" + REOPEN_CUSTOMER + "'";
+
+  String SELECTOR_SNAPSHOT_POST_IDENTIFICATION_CARD_SCAN = SNAPSHOT_SELECTOR_NAME + " = '" + POST_IDENTIFICATION_CARD_SCAN + "'";
+
+  String SELECTOR_SNAPSHOT_POST_DOCUMENT = SNAPSHOT_SELECTOR_NAME + " = '" + POST_DOCUMENT + "'";
+  String SELECTOR_SNAPSHOT_PUT_DOCUMENT = SNAPSHOT_SELECTOR_NAME + " = '" + PUT_DOCUMENT + "'";
+  String SELECTOR_SNAPSHOT_POST_DOCUMENT_COMPLETE = SNAPSHOT_SELECTOR_NAME + " = '" + POST_DOCUMENT_COMPLETE + "'";
 }
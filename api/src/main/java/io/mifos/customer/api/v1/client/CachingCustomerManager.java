@@ -0,0 +1,259 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.api.v1.client;
+
+import io.mifos.customer.api.v1.domain.Address;
+import io.mifos.customer.api.v1.domain.AuditEntryPage;
+import io.mifos.customer.api.v1.domain.Command;
+import io.mifos.customer.api.v1.domain.ContactDetail;
+import io.mifos.customer.api.v1.domain.Customer;
+import io.mifos.customer.api.v1.domain.CustomerPage;
+import io.mifos.customer.api.v1.domain.IdentificationCard;
+import io.mifos.customer.api.v1.domain.IdentificationCardScan;
+import io.mifos.customer.api.v1.domain.ProcessStep;
+import io.mifos.customer.api.v1.domain.StorageUsage;
+import io.mifos.customer.api.v1.domain.TaskDefinition;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+
+/**
+ * Serves {@link #findCustomer(String)} from a {@link CustomerClientCache} and passes all other
+ * calls on to the wrapped {@link CustomerManager}.  Changes made through this manager invalidate
+ * the cached customer right away, changes made elsewhere once their event arrives, see
+ * {@link CustomerCacheEventListener}.
+ */
+public class CachingCustomerManager implements CustomerManager {
+
+  private final CustomerManager customerManager;
+  private final CustomerClientCache customerClientCache;
+
+  public CachingCustomerManager(final CustomerManager customerManager, final CustomerClientCache customerClientCache) {
+    super();
+    this.customerManager = customerManager;
+    this.customerClientCache = customerClientCache;
+  }
+
+  @Override
+  public void createCustomer(final Customer customer) {
+    this.customerManager.createCustomer(customer);
+  }
+
+  @Override
+  public CustomerPage fetchCustomers(final String term, final Boolean includeClosed, final Integer pageIndex,
+                                     final Integer size, final String sortColumn, final String sortDirection) {
+    return this.customerManager.fetchCustomers(term, includeClosed, pageIndex, size, sortColumn, sortDirection);
+  }
+
+  @Override
+  public Customer findCustomer(final String identifier) {
+    return this.customerClientCache.customers().get(CustomerClientCache.key(identifier),
+        () -> this.customerManager.findCustomer(identifier));
+  }
+
+  @Override
+  public CustomerPage fetchCustomerProjections(final String term, final Boolean includeClosed, final Integer pageIndex,
+                                               final Integer size, final String sortColumn, final String sortDirection,
+                                               final String fields) {
+    return this.customerManager.fetchCustomerProjections(term, includeClosed, pageIndex, size, sortColumn,
+        sortDirection, fields);
+  }
+
+  @Override
+  public Customer findCustomerProjection(final String identifier, final String fields) {
+    return this.customerManager.findCustomerProjection(identifier, fields);
+  }
+
+  @Override
+  public Customer findCustomerAsOf(final String identifier, final String asOf) {
+    return this.customerManager.findCustomerAsOf(identifier, asOf);
+  }
+
+  @Override
+  public List<Customer> batchGetCustomers(final List<String> identifiers) {
+    return this.customerManager.batchGetCustomers(identifiers);
+  }
+
+  @Override
+  public void updateCustomer(final String identifier, final Customer customer) {
+    this.invalidate(identifier);
+    this.customerManager.updateCustomer(identifier, customer);
+  }
+
+  @Override
+  public void customerCommand(final String identifier, final Command command) {
+    this.invalidate(identifier);
+    this.customerManager.customerCommand(identifier, command);
+  }
+
+  @Override
+  public List<Command> fetchCustomerCommands(final String identifier) {
+    return this.customerManager.fetchCustomerCommands(identifier);
+  }
+
+  @Override
+  public AuditEntryPage fetchCustomerAudit(final String identifier, final String from, final String to,
+                                           final String cursor, final Integer size) {
+    return this.customerManager.fetchCustomerAudit(identifier, from, to, cursor, size);
+  }
+
+  @Override
+  public void addTaskToCustomer(final String identifier, final String taskIdentifier) {
+    this.customerManager.addTaskToCustomer(identifier, taskIdentifier);
+  }
+
+  @Override
+  public void taskForCustomerExecuted(final String identifier, final String taskIdentifier) {
+    this.invalidate(identifier);
+    this.customerManager.taskForCustomerExecuted(identifier, taskIdentifier);
+  }
+
+  @Override
+  public List<TaskDefinition> findTasksForCustomer(final String identifier, final Boolean includeExecuted) {
+    return this.customerManager.findTasksForCustomer(identifier, includeExecuted);
+  }
+
+  @Override
+  public void putAddress(final String identifier, final Address address) {
+    this.invalidate(identifier);
+    this.customerManager.putAddress(identifier, address);
+  }
+
+  @Override
+  public void putContactDetails(final String identifier, final List<ContactDetail> contactDetails) {
+    this.invalidate(identifier);
+    this.customerManager.putContactDetails(identifier, contactDetails);
+  }
+
+  @Override
+  public List<IdentificationCard> fetchIdentificationCards(final String identifier) {
+    return this.customerManager.fetchIdentificationCards(identifier);
+  }
+
+  @Override
+  public IdentificationCard findIdentificationCard(final String identifier, final String number) {
+    return this.customerManager.findIdentificationCard(identifier, number);
+  }
+
+  @Override
+  public void createIdentificationCard(final String identifier, final IdentificationCard identificationCard) {
+    this.customerManager.createIdentificationCard(identifier, identificationCard);
+  }
+
+  @Override
+  public void updateIdentificationCard(final String identifier, final String number,
+                                       final IdentificationCard identificationCard) {
+    this.customerManager.updateIdentificationCard(identifier, number, identificationCard);
+  }
+
+  @Override
+  public void deleteIdentificationCard(final String identifier, final String number) {
+    this.customerManager.deleteIdentificationCard(identifier, number);
+  }
+
+  @Override
+  public List<IdentificationCardScan> fetchIdentificationCardScans(final String identifier, final String number) {
+    return this.customerManager.fetchIdentificationCardScans(identifier, number);
+  }
+
+  @Override
+  public IdentificationCardScan findIdentificationCardScan(final String identifier, final String number,
+                                                           final String scanIdentifier) {
+    return this.customerManager.findIdentificationCardScan(identifier, number, scanIdentifier);
+  }
+
+  @Override
+  public byte[] fetchIdentificationCardScanImage(final String identifier, final String number,
+                                                 final String scanIdentifier) {
+    return this.customerManager.fetchIdentificationCardScanImage(identifier, number, scanIdentifier);
+  }
+
+  @Override
+  public byte[] fetchIdentificationCardScanImage(final String identifier, final String number,
+                                                 final String scanIdentifier, final Integer size) {
+    return this.customerManager.fetchIdentificationCardScanImage(identifier, number, scanIdentifier, size);
+  }
+
+  @Override
+  public void postIdentificationCardScan(final String identifier, final String number, final String scanIdentifier,
+                                         final String description, final MultipartFile image) {
+    this.customerManager.postIdentificationCardScan(identifier, number, scanIdentifier, description, image);
+  }
+
+  @Override
+  public void deleteScan(final String identifier, final String number, final String scanIdentifier) {
+    this.customerManager.deleteScan(identifier, number, scanIdentifier);
+  }
+
+  @Override
+  public byte[] getPortrait(final String identifier) {
+    return this.customerManager.getPortrait(identifier);
+  }
+
+  @Override
+  public byte[] getPortrait(final String identifier, final Integer size) {
+    return this.customerManager.getPortrait(identifier, size);
+  }
+
+  @Override
+  public void postPortrait(final String identifier, final MultipartFile portrait) {
+    this.customerManager.postPortrait(identifier, portrait);
+  }
+
+  @Override
+  public void deletePortrait(final String identifier) {
+    this.customerManager.deletePortrait(identifier);
+  }
+
+  @Override
+  public void createTask(final TaskDefinition taskDefinition) {
+    this.customerManager.createTask(taskDefinition);
+  }
+
+  @Override
+  public List<TaskDefinition> fetchAllTasks() {
+    return this.customerManager.fetchAllTasks();
+  }
+
+  @Override
+  public TaskDefinition findTask(final String identifier) {
+    return this.customerManager.findTask(identifier);
+  }
+
+  @Override
+  public void updateTask(final String identifier, final TaskDefinition taskDefinition) {
+    this.customerManager.updateTask(identifier, taskDefinition);
+  }
+
+  @Override
+  public List<ProcessStep> fetchProcessSteps(final String customerIdentifier) {
+    return this.customerManager.fetchProcessSteps(customerIdentifier);
+  }
+
+  @Override
+  public StorageUsage getStorageUsage() {
+    return this.customerManager.getStorageUsage();
+  }
+
+  @Override
+  public StorageUsage getCustomerStorageUsage(final String identifier) {
+    return this.customerManager.getCustomerStorageUsage(identifier);
+  }
+
+  private void invalidate(final String identifier) {
+    this.customerClientCache.customers().invalidate(CustomerClientCache.key(identifier));
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.api.v1.client;
+
+import com.google.gson.Gson;
+import io.mifos.core.lang.config.TenantHeaderFilter;
+import io.mifos.customer.api.v1.CustomerEventConstants;
+import io.mifos.customer.catalog.api.v1.CatalogEventConstants;
+import org.springframework.jms.annotation.JmsListener;
+import org.springframework.messaging.handler.annotation.Header;
+
+/**
+ * Drops cached responses of the {@link CustomerClientCache} when the customer service announces
+ * a change, so the cache stays current with changes made by other clients.
+ */
+public class CustomerCacheEventListener {
+
+  private static final String SELECTOR_CUSTOMER_CHANGED = CustomerEventConstants.SELECTOR_NAME + " IN ('"
+      + String.join("', '",
+          CustomerEventConstants.PUT_CUSTOMER,
+          CustomerEventConstants.PUT_ADDRESS,
+          CustomerEventConstants.PUT_CONTACT_DETAILS,
+          CustomerEventConstants.ACTIVATE_CUSTOMER,
+          CustomerEventConstants.LOCK_CUSTOMER,
+          CustomerEventConstants.UNLOCK_CUSTOMER,
+          CustomerEventConstants.CLOSE_CUSTOMER,
+          CustomerEventConstants.REOPEN_CUSTOMER)
+      + "')";
+
+  private final CustomerClientCache customerClientCache;
+  private final Gson gson;
+
+  public CustomerCacheEventListener(final CustomerClientCache customerClientCache) {
+    super();
+    this.customerClientCache = customerClientCache;
+    this.gson = new Gson();
+  }
+
+  @JmsListener(
+      destination = CustomerEventConstants.DESTINATION,
+      selector = SELECTOR_CUSTOMER_CHANGED
+  )
+  public void customerChanged(@Header(TenantHeaderFilter.TENANT_HEADER) final String tenant,
+                              final String payload) {
+    this.customerClientCache.invalidateCustomer(tenant, this.gson.fromJson(payload, String.class));
+  }
+
+  @JmsListener(
+      destination = CatalogEventConstants.DESTINATION,
+      selector = CatalogEventConstants.SELECTOR_NAME + " IS NOT NULL"
+  )
+  public void catalogChanged(@Header(TenantHeaderFilter.TENANT_HEADER) final String tenant,
+                             final String payload) {
+    this.customerClientCache.invalidateCatalogs(tenant);
+  }
+}
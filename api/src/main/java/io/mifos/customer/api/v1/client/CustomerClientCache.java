@@ -0,0 +1,81 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.api.v1.client;
+
+import io.mifos.core.lang.TenantContextHolder;
+import io.mifos.customer.api.v1.config.CustomerClientProperties;
+import io.mifos.customer.api.v1.domain.Customer;
+import io.mifos.customer.catalog.api.v1.domain.Catalog;
+
+import java.util.List;
+
+/**
+ * The response caches shared by {@link CachingCustomerManager} and
+ * {@link io.mifos.customer.catalog.api.v1.client.CachingCatalogManager}, keyed by tenant.
+ *
+ * Cached responses are shared by all callers of a tenant and must not be modified.
+ */
+public class CustomerClientCache {
+
+  private static final String ALL_CATALOGS = "";
+
+  private final ResponseCache<Customer> customers;
+  private final ResponseCache<Catalog> catalogs;
+  private final ResponseCache<List<Catalog>> catalogLists;
+
+  public CustomerClientCache(final CustomerClientProperties customerClientProperties) {
+    super();
+    final long timeToLive = customerClientProperties.getCacheTimeToLive();
+    final int maxEntries = customerClientProperties.getCacheMaxEntries();
+    this.customers = new ResponseCache<>(timeToLive, maxEntries);
+    this.catalogs = new ResponseCache<>(timeToLive, maxEntries);
+    this.catalogLists = new ResponseCache<>(timeToLive, maxEntries);
+  }
+
+  public ResponseCache<Customer> customers() {
+    return this.customers;
+  }
+
+  public ResponseCache<Catalog> catalogs() {
+    return this.catalogs;
+  }
+
+  public ResponseCache<List<Catalog>> catalogLists() {
+    return this.catalogLists;
+  }
+
+  public static String key(final String identifier) {
+    return key(TenantContextHolder.checkedGetIdentifier(), identifier);
+  }
+
+  public static String allCatalogsKey() {
+    return key(ALL_CATALOGS);
+  }
+
+  public void invalidateCustomer(final String tenantIdentifier, final String customerIdentifier) {
+    this.customers.invalidate(key(tenantIdentifier, customerIdentifier));
+  }
+
+  public void invalidateCatalogs(final String tenantIdentifier) {
+    final String tenantPrefix = key(tenantIdentifier, "");
+    this.catalogs.invalidateIf(key -> key.startsWith(tenantPrefix));
+    this.catalogLists.invalidateIf(key -> key.startsWith(tenantPrefix));
+  }
+
+  private static String key(final String tenantIdentifier, final String identifier) {
+    return tenantIdentifier + "/" + identifier;
+  }
+}
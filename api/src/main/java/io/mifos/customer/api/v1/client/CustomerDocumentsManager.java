@@ -19,6 +19,7 @@ import io.mifos.core.api.annotation.ThrowsException;
 import io.mifos.core.api.annotation.ThrowsExceptions;
 import io.mifos.customer.api.v1.config.CustomerFeignClientConfig;
 import io.mifos.customer.api.v1.domain.CustomerDocument;
+import io.mifos.customer.api.v1.domain.Upload;
 import org.hibernate.validator.constraints.Range;
 import org.springframework.cloud.netflix.feign.FeignClient;
 import org.springframework.http.HttpStatus;
@@ -136,6 +137,21 @@ public interface CustomerDocumentsManager {
 
 
 
+  /**
+   * All pages of the document as a ZIP archive, one entry per page in page order.
+   */
+  @RequestMapping(
+      value = "/customers/{customeridentifier}/documents/{documentidentifier}/archive",
+      method = RequestMethod.GET,
+      produces = MediaType.ALL_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  byte[] getDocumentArchive(
+      @PathVariable("customeridentifier") final String customerIdentifier,
+      @PathVariable("documentidentifier") final String documentIdentifier);
+
+
+
   @RequestMapping(
       value = "/customers/{customeridentifier}/documents/{documentidentifier}/pages/{pagenumber}",
       method = RequestMethod.GET,
@@ -158,6 +174,7 @@ public interface CustomerDocumentsManager {
   @ThrowsExceptions({
       @ThrowsException(status = HttpStatus.CONFLICT, exception = CompletedDocumentCannotBeChangedException.class),
       @ThrowsException(status = HttpStatus.BAD_REQUEST, exception = DocumentValidationException.class),
+      @ThrowsException(status = HttpStatus.PAYLOAD_TOO_LARGE, exception = StorageQuotaExceededException.class),
   })
   void createDocumentPage(
       @PathVariable("customeridentifier") final String customerIdentifier,
@@ -166,6 +183,30 @@ public interface CustomerDocumentsManager {
       @RequestBody final MultipartFile page);
 
 
+  /**
+   * Creates the pages in one request, numbered consecutively from firstPageNumber in the order
+   * given, and optionally completes the document with them.  The service reads the parts named
+   * "pages", so the files have to carry that name.
+   */
+  @RequestMapping(
+      value = "/customers/{customeridentifier}/documents/{documentidentifier}/pages",
+      method = RequestMethod.POST,
+      produces = MediaType.ALL_VALUE,
+      consumes = MediaType.MULTIPART_FORM_DATA_VALUE
+  )
+  @ThrowsExceptions({
+      @ThrowsException(status = HttpStatus.CONFLICT, exception = CompletedDocumentCannotBeChangedException.class),
+      @ThrowsException(status = HttpStatus.BAD_REQUEST, exception = DocumentValidationException.class),
+      @ThrowsException(status = HttpStatus.PAYLOAD_TOO_LARGE, exception = StorageQuotaExceededException.class),
+  })
+  void createDocumentPages(
+      @PathVariable("customeridentifier") final String customerIdentifier,
+      @PathVariable("documentidentifier") final String documentIdentifier,
+      @RequestParam("firstPageNumber") @Range(min=0) final Integer firstPageNumber,
+      @RequestParam("complete") final Boolean complete,
+      @RequestBody final MultipartFile[] pages);
+
+
   @RequestMapping(
       value = "/customers/{customeridentifier}/documents/{documentidentifier}/pages/{pagenumber}",
       method = RequestMethod.DELETE,
@@ -179,4 +220,192 @@ public interface CustomerDocumentsManager {
       @PathVariable("customeridentifier") final String customerIdentifier,
       @PathVariable("documentidentifier") final String documentIdentifier,
       @PathVariable("pagenumber") @Range(min=0) final Integer pageNumber);
-}
\ No newline at end of file
+
+
+  @RequestMapping(
+      value = "/customers/{customeridentifier}/documents/{documentidentifier}/pages/{pagenumber}/uploads",
+      method = RequestMethod.POST,
+      produces = MediaType.APPLICATION_JSON_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  @ThrowsExceptions({
+      @ThrowsException(status = HttpStatus.CONFLICT, exception = CompletedDocumentCannotBeChangedException.class),
+      @ThrowsException(status = HttpStatus.BAD_REQUEST, exception = DocumentValidationException.class),
+      @ThrowsException(status = HttpStatus.PAYLOAD_TOO_LARGE, exception = StorageQuotaExceededException.class),
+  })
+  Upload initiateDocumentPageUpload(
+      @PathVariable("customeridentifier") final String customerIdentifier,
+      @PathVariable("documentidentifier") final String documentIdentifier,
+      @PathVariable("pagenumber") @Range(min=0) final Integer pageNumber,
+      @RequestBody final Upload upload);
+
+
+  @RequestMapping(
+      value = "/customers/{customeridentifier}/identifications/{number}/scans/{scanidentifier}/uploads",
+      method = RequestMethod.POST,
+      produces = MediaType.APPLICATION_JSON_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  @ThrowsExceptions({
+      @ThrowsException(status = HttpStatus.NOT_FOUND, exception = IdentificationCardNotFoundException.class),
+      @ThrowsException(status = HttpStatus.CONFLICT, exception = ScanAlreadyExistsException.class),
+      @ThrowsException(status = HttpStatus.BAD_REQUEST, exception = DocumentValidationException.class),
+      @ThrowsException(status = HttpStatus.PAYLOAD_TOO_LARGE, exception = StorageQuotaExceededException.class),
+  })
+  Upload initiateIdentificationCardScanUpload(
+      @PathVariable("customeridentifier") final String customerIdentifier,
+      @PathVariable("number") final String number,
+      @PathVariable("scanidentifier") final String scanIdentifier,
+      @RequestParam("description") final String description,
+      @RequestBody final Upload upload);
+
+
+  @RequestMapping(
+      value = "/customers/{customeridentifier}/documents/{documentidentifier}/pages/{pagenumber}/uploads/{uploadidentifier}",
+      method = RequestMethod.GET,
+      produces = MediaType.ALL_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  @ThrowsException(status = HttpStatus.NOT_FOUND, exception = UploadNotFoundException.class)
+  Upload getDocumentPageUpload(
+      @PathVariable("customeridentifier") final String customerIdentifier,
+      @PathVariable("documentidentifier") final String documentIdentifier,
+      @PathVariable("pagenumber") final Integer pageNumber,
+      @PathVariable("uploadidentifier") final String uploadIdentifier);
+
+
+  /**
+   * Appends the chunk to the upload.  The offset has to match the bytes received so far, if it
+   * doesn't, the upload is left unchanged, {@link #getDocumentPageUpload(String, String, Integer, String)} tells where to
+   * resume.
+   */
+  @RequestMapping(
+      value = "/customers/{customeridentifier}/documents/{documentidentifier}/pages/{pagenumber}/uploads/{uploadidentifier}",
+      method = RequestMethod.PUT,
+      produces = MediaType.APPLICATION_JSON_VALUE,
+      consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE
+  )
+  @ThrowsExceptions({
+      @ThrowsException(status = HttpStatus.NOT_FOUND, exception = UploadNotFoundException.class),
+      @ThrowsException(status = HttpStatus.CONFLICT, exception = UploadOffsetMismatchException.class),
+      @ThrowsException(status = HttpStatus.BAD_REQUEST, exception = DocumentValidationException.class),
+  })
+  Upload uploadDocumentPageChunk(
+      @PathVariable("customeridentifier") final String customerIdentifier,
+      @PathVariable("documentidentifier") final String documentIdentifier,
+      @PathVariable("pagenumber") final Integer pageNumber,
+      @PathVariable("uploadidentifier") final String uploadIdentifier,
+      @RequestParam("offset") final Long offset,
+      @RequestBody final byte[] chunk);
+
+
+  /**
+   * Stores the uploaded content as the page it was initiated for.
+   */
+  @RequestMapping(
+      value = "/customers/{customeridentifier}/documents/{documentidentifier}/pages/{pagenumber}/uploads/{uploadidentifier}/finalize",
+      method = RequestMethod.POST,
+      produces = MediaType.APPLICATION_JSON_VALUE,
+      consumes = MediaType.ALL_VALUE
+  )
+  @ThrowsExceptions({
+      @ThrowsException(status = HttpStatus.NOT_FOUND, exception = UploadNotFoundException.class),
+      @ThrowsException(status = HttpStatus.CONFLICT, exception = CompletedDocumentCannotBeChangedException.class),
+      @ThrowsException(status = HttpStatus.BAD_REQUEST, exception = DocumentValidationException.class),
+      @ThrowsException(status = HttpStatus.PAYLOAD_TOO_LARGE, exception = StorageQuotaExceededException.class),
+  })
+  void finalizeDocumentPageUpload(
+      @PathVariable("customeridentifier") final String customerIdentifier,
+      @PathVariable("documentidentifier") final String documentIdentifier,
+      @PathVariable("pagenumber") final Integer pageNumber,
+      @PathVariable("uploadidentifier") final String uploadIdentifier);
+
+
+  @RequestMapping(
+      value = "/customers/{customeridentifier}/documents/{documentidentifier}/pages/{pagenumber}/uploads/{uploadidentifier}",
+      method = RequestMethod.DELETE,
+      produces = MediaType.ALL_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  @ThrowsException(status = HttpStatus.NOT_FOUND, exception = UploadNotFoundException.class)
+  void cancelDocumentPageUpload(
+      @PathVariable("customeridentifier") final String customerIdentifier,
+      @PathVariable("documentidentifier") final String documentIdentifier,
+      @PathVariable("pagenumber") final Integer pageNumber,
+      @PathVariable("uploadidentifier") final String uploadIdentifier);
+
+
+  @RequestMapping(
+      value = "/customers/{customeridentifier}/identifications/{number}/scans/{scanidentifier}/uploads/{uploadidentifier}",
+      method = RequestMethod.GET,
+      produces = MediaType.ALL_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  @ThrowsException(status = HttpStatus.NOT_FOUND, exception = UploadNotFoundException.class)
+  Upload getIdentificationCardScanUpload(
+      @PathVariable("customeridentifier") final String customerIdentifier,
+      @PathVariable("number") final String number,
+      @PathVariable("scanidentifier") final String scanIdentifier,
+      @PathVariable("uploadidentifier") final String uploadIdentifier);
+
+
+  /**
+   * Appends the chunk to the upload.  The offset has to match the bytes received so far, if it
+   * doesn't, the upload is left unchanged, {@link #getIdentificationCardScanUpload(String, String, String, String)} tells where to
+   * resume.
+   */
+  @RequestMapping(
+      value = "/customers/{customeridentifier}/identifications/{number}/scans/{scanidentifier}/uploads/{uploadidentifier}",
+      method = RequestMethod.PUT,
+      produces = MediaType.APPLICATION_JSON_VALUE,
+      consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE
+  )
+  @ThrowsExceptions({
+      @ThrowsException(status = HttpStatus.NOT_FOUND, exception = UploadNotFoundException.class),
+      @ThrowsException(status = HttpStatus.CONFLICT, exception = UploadOffsetMismatchException.class),
+      @ThrowsException(status = HttpStatus.BAD_REQUEST, exception = DocumentValidationException.class),
+  })
+  Upload uploadIdentificationCardScanChunk(
+      @PathVariable("customeridentifier") final String customerIdentifier,
+      @PathVariable("number") final String number,
+      @PathVariable("scanidentifier") final String scanIdentifier,
+      @PathVariable("uploadidentifier") final String uploadIdentifier,
+      @RequestParam("offset") final Long offset,
+      @RequestBody final byte[] chunk);
+
+
+  /**
+   * Stores the uploaded content as the scan it was initiated for.
+   */
+  @RequestMapping(
+      value = "/customers/{customeridentifier}/identifications/{number}/scans/{scanidentifier}/uploads/{uploadidentifier}/finalize",
+      method = RequestMethod.POST,
+      produces = MediaType.APPLICATION_JSON_VALUE,
+      consumes = MediaType.ALL_VALUE
+  )
+  @ThrowsExceptions({
+      @ThrowsException(status = HttpStatus.NOT_FOUND, exception = UploadNotFoundException.class),
+      @ThrowsException(status = HttpStatus.CONFLICT, exception = ScanAlreadyExistsException.class),
+      @ThrowsException(status = HttpStatus.BAD_REQUEST, exception = DocumentValidationException.class),
+      @ThrowsException(status = HttpStatus.PAYLOAD_TOO_LARGE, exception = StorageQuotaExceededException.class),
+  })
+  void finalizeIdentificationCardScanUpload(
+      @PathVariable("customeridentifier") final String customerIdentifier,
+      @PathVariable("number") final String number,
+      @PathVariable("scanidentifier") final String scanIdentifier,
+      @PathVariable("uploadidentifier") final String uploadIdentifier);
+
+
+  @RequestMapping(
+      value = "/customers/{customeridentifier}/identifications/{number}/scans/{scanidentifier}/uploads/{uploadidentifier}",
+      method = RequestMethod.DELETE,
+      produces = MediaType.ALL_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  @ThrowsException(status = HttpStatus.NOT_FOUND, exception = UploadNotFoundException.class)
+  void cancelIdentificationCardScanUpload(
+      @PathVariable("customeridentifier") final String customerIdentifier,
+      @PathVariable("number") final String number,
+      @PathVariable("scanidentifier") final String scanIdentifier,
+      @PathVariable("uploadidentifier") final String uploadIdentifier);
+}
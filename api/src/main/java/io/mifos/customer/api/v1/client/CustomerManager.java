@@ -20,6 +20,7 @@ import io.mifos.core.api.annotation.ThrowsExceptions;
 import io.mifos.core.lang.validation.constraints.ValidIdentifier;
 import io.mifos.customer.api.v1.config.CustomerFeignClientConfig;
 import io.mifos.customer.api.v1.domain.Address;
+import io.mifos.customer.api.v1.domain.AuditEntryPage;
 import io.mifos.customer.api.v1.domain.Command;
 import io.mifos.customer.api.v1.domain.ContactDetail;
 import io.mifos.customer.api.v1.domain.Customer;
@@ -27,6 +28,7 @@ import io.mifos.customer.api.v1.domain.CustomerPage;
 import io.mifos.customer.api.v1.domain.IdentificationCard;
 import io.mifos.customer.api.v1.domain.IdentificationCardScan;
 import io.mifos.customer.api.v1.domain.ProcessStep;
+import io.mifos.customer.api.v1.domain.StorageUsage;
 import io.mifos.customer.api.v1.domain.TaskDefinition;
 import org.springframework.cloud.netflix.feign.FeignClient;
 import org.springframework.http.HttpStatus;
@@ -79,6 +81,56 @@ public interface CustomerManager {
   @ThrowsException(status = HttpStatus.NOT_FOUND, exception = CustomerNotFoundException.class)
   Customer findCustomer(@PathVariable("identifier") final String identifier);
 
+  @RequestMapping(
+      value = "/customers",
+      method = RequestMethod.GET,
+      produces = MediaType.ALL_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  @ThrowsException(status = HttpStatus.BAD_REQUEST, exception = CustomerValidationException.class)
+  CustomerPage fetchCustomerProjections(@RequestParam(value = "term", required = false) final String term,
+                                        @RequestParam(value = "includeClosed", required = false) final Boolean includeClosed,
+                                        @RequestParam(value = "pageIndex", required = false) final Integer pageIndex,
+                                        @RequestParam(value = "size", required = false) final Integer size,
+                                        @RequestParam(value = "sortColumn", required = false) final String sortColumn,
+                                        @RequestParam(value = "sortDirection", required = false) final String sortDirection,
+                                        @RequestParam(value = "fields") final String fields);
+
+  @RequestMapping(
+      value = "/customers/{identifier}",
+      method = RequestMethod.GET,
+      produces = MediaType.ALL_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  @ThrowsExceptions({
+      @ThrowsException(status = HttpStatus.NOT_FOUND, exception = CustomerNotFoundException.class),
+      @ThrowsException(status = HttpStatus.BAD_REQUEST, exception = CustomerValidationException.class)
+  })
+  Customer findCustomerProjection(@PathVariable("identifier") final String identifier,
+                                  @RequestParam(value = "fields") final String fields);
+
+  @RequestMapping(
+      value = "/customers/{identifier}",
+      method = RequestMethod.GET,
+      produces = MediaType.ALL_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  @ThrowsExceptions({
+      @ThrowsException(status = HttpStatus.NOT_FOUND, exception = CustomerNotFoundException.class),
+      @ThrowsException(status = HttpStatus.BAD_REQUEST, exception = CustomerValidationException.class)
+  })
+  Customer findCustomerAsOf(@PathVariable("identifier") final String identifier,
+                            @RequestParam(value = "asOf") final String asOf);
+
+  @RequestMapping(
+      value = "/customers:batchGet",
+      method = RequestMethod.POST,
+      produces = MediaType.APPLICATION_JSON_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  @ThrowsException(status = HttpStatus.BAD_REQUEST, exception = CustomerValidationException.class)
+  List<Customer> batchGetCustomers(@RequestBody final List<String> identifiers);
+
   default boolean isCustomerInGoodStanding(final String customerIdentifier) {
     final Customer customer;
     try {
@@ -124,6 +176,22 @@ public interface CustomerManager {
   @ThrowsException(status = HttpStatus.NOT_FOUND, exception = CustomerNotFoundException.class)
   List<Command> fetchCustomerCommands(@PathVariable("identifier") final String identifier);
 
+  @RequestMapping(
+      value = "/customers/{identifier}/audit",
+      method = RequestMethod.GET,
+      produces = MediaType.ALL_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  @ThrowsExceptions({
+      @ThrowsException(status = HttpStatus.NOT_FOUND, exception = CustomerNotFoundException.class),
+      @ThrowsException(status = HttpStatus.BAD_REQUEST, exception = CustomerValidationException.class)
+  })
+  AuditEntryPage fetchCustomerAudit(@PathVariable("identifier") final String identifier,
+                                    @RequestParam(value = "from", required = false) final String from,
+                                    @RequestParam(value = "to", required = false) final String to,
+                                    @RequestParam(value = "cursor", required = false) final String cursor,
+                                    @RequestParam(value = "size", required = false) final Integer size);
+
   @RequestMapping(
       value = "/customers/{identifier}/tasks/{taskIdentifier}",
       method = RequestMethod.POST,
@@ -284,6 +352,21 @@ public interface CustomerManager {
                                           @PathVariable("number") final String number,
                                           @PathVariable("scanIdentifier") final String scanIdentifier);
 
+  @RequestMapping(
+          value = "/customers/{identifier}/identifications/{number}/scans/{scanIdentifier}/image",
+          method = RequestMethod.GET,
+          produces = MediaType.ALL_VALUE,
+          consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  @ThrowsExceptions({
+          @ThrowsException(status = HttpStatus.NOT_FOUND, exception = ScanNotFoundException.class),
+          @ThrowsException(status = HttpStatus.BAD_REQUEST, exception = ScanValidationException.class)
+  })
+  byte[] fetchIdentificationCardScanImage(@PathVariable("identifier") final String identifier,
+                                          @PathVariable("number") final String number,
+                                          @PathVariable("scanIdentifier") final String scanIdentifier,
+                                          @RequestParam("size") final Integer size);
+
   @RequestMapping(
           value = "/customers/{identifier}/identifications/{number}/scans",
           method = RequestMethod.POST,
@@ -293,7 +376,8 @@ public interface CustomerManager {
   @ThrowsExceptions({
           @ThrowsException(status = HttpStatus.NOT_FOUND, exception = IdentificationCardNotFoundException.class),
           @ThrowsException(status = HttpStatus.BAD_REQUEST, exception = ScanValidationException.class),
-          @ThrowsException(status = HttpStatus.CONFLICT, exception = ScanAlreadyExistsException.class)
+          @ThrowsException(status = HttpStatus.CONFLICT, exception = ScanAlreadyExistsException.class),
+          @ThrowsException(status = HttpStatus.PAYLOAD_TOO_LARGE, exception = StorageQuotaExceededException.class)
   })
   void postIdentificationCardScan(@PathVariable("identifier") final String identifier,
                                   @PathVariable("number") final String number,
@@ -321,6 +405,18 @@ public interface CustomerManager {
   })
   byte[] getPortrait(@PathVariable("identifier") final String identifier);
 
+  @RequestMapping(
+          value = "/customers/{identifier}/portrait",
+          method = RequestMethod.GET,
+          produces = MediaType.ALL_VALUE
+  )
+  @ThrowsExceptions({
+          @ThrowsException(status = HttpStatus.NOT_FOUND, exception = PortraitNotFoundException.class),
+          @ThrowsException(status = HttpStatus.BAD_REQUEST, exception = DocumentValidationException.class)
+  })
+  byte[] getPortrait(@PathVariable("identifier") final String identifier,
+                     @RequestParam("size") final Integer size);
+
   @RequestMapping(
           value = "/customers/{identifier}/portrait",
           method = RequestMethod.POST,
@@ -330,6 +426,7 @@ public interface CustomerManager {
   @ThrowsExceptions({
           @ThrowsException(status = HttpStatus.NOT_FOUND, exception = CustomerNotFoundException.class),
           @ThrowsException(status = HttpStatus.BAD_REQUEST, exception = DocumentValidationException.class),
+          @ThrowsException(status = HttpStatus.PAYLOAD_TOO_LARGE, exception = StorageQuotaExceededException.class),
   })
   void postPortrait(@PathVariable("identifier") final String identifier,
                    @RequestBody final MultipartFile portrait);
@@ -391,4 +488,24 @@ public interface CustomerManager {
   )
   @ThrowsException(status = HttpStatus.NOT_FOUND, exception = CustomerNotFoundException.class)
   List<ProcessStep> fetchProcessSteps(@PathVariable(value = "identifier") final String customerIdentifier);
+
+  /**
+   * The number and size of the portraits, scans and document pages stored for the tenant.
+   */
+  @RequestMapping(
+      value = "/storage",
+      method = RequestMethod.GET,
+      produces = MediaType.ALL_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  StorageUsage getStorageUsage();
+
+  @RequestMapping(
+      value = "/customers/{identifier}/storage",
+      method = RequestMethod.GET,
+      produces = MediaType.ALL_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  @ThrowsException(status = HttpStatus.NOT_FOUND, exception = CustomerNotFoundException.class)
+  StorageUsage getCustomerStorageUsage(@PathVariable("identifier") final String identifier);
 }
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.api.v1.client;
+
+import io.mifos.customer.api.v1.config.EntityTagContext;
+import io.mifos.customer.api.v1.config.NotModifiedException;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Caches responses of the customer service by key for a time to live.
+ *
+ * Concurrent requests for the same key are coalesced into a single call.  Once a response has
+ * expired it is revalidated with its entity tag, and kept if the service answers
+ * {@code 304 Not Modified}.  A response loaded while its key was invalidated is not cached.
+ */
+public final class ResponseCache<V> {
+
+  private final long timeToLive;
+  private final int maxEntries;
+  private final Map<String, Entry<V>> entries = new ConcurrentHashMap<>();
+  private final Map<String, CompletableFuture<V>> pendingLoads = new ConcurrentHashMap<>();
+  private final AtomicLong invalidations = new AtomicLong();
+
+  public ResponseCache(final long timeToLive, final int maxEntries) {
+    super();
+    this.timeToLive = timeToLive;
+    this.maxEntries = maxEntries;
+  }
+
+  public V get(final String key, final Supplier<V> loader) {
+    final Entry<V> entry = this.entries.get(key);
+    if (entry != null && entry.expiresOn > System.currentTimeMillis()) {
+      return entry.value;
+    }
+
+    final CompletableFuture<V> pendingLoad = new CompletableFuture<>();
+    final CompletableFuture<V> otherLoad = this.pendingLoads.putIfAbsent(key, pendingLoad);
+    if (otherLoad != null) {
+      return join(otherLoad);
+    }
+
+    try {
+      final V value = this.load(key, entry, loader);
+      pendingLoad.complete(value);
+      return value;
+    } catch (final RuntimeException ex) {
+      pendingLoad.completeExceptionally(ex);
+      throw ex;
+    } finally {
+      this.pendingLoads.remove(key, pendingLoad);
+    }
+  }
+
+  public void invalidate(final String key) {
+    this.invalidations.incrementAndGet();
+    this.entries.remove(key);
+  }
+
+  public void invalidateIf(final Predicate<String> keyPredicate) {
+    this.invalidations.incrementAndGet();
+    this.entries.keySet().removeIf(keyPredicate);
+  }
+
+  private V load(final String key, final Entry<V> expiredEntry, final Supplier<V> loader) {
+    final long invalidationsBefore = this.invalidations.get();
+    EntityTagContext.begin(expiredEntry != null ? expiredEntry.entityTag : null);
+    try {
+      final V value = loader.get();
+      if (this.invalidations.get() == invalidationsBefore) {
+        this.store(key, new Entry<>(value, EntityTagContext.received().orElse(null), this.expiresOn()));
+      }
+      return value;
+    } catch (final NotModifiedException ex) {
+      if (expiredEntry == null) {
+        throw ex;
+      }
+      this.store(key, new Entry<>(expiredEntry.value, expiredEntry.entityTag, this.expiresOn()));
+      return expiredEntry.value;
+    } finally {
+      EntityTagContext.end();
+    }
+  }
+
+  private void store(final String key, final Entry<V> entry) {
+    if (this.entries.size() >= this.maxEntries) {
+      final long now = System.currentTimeMillis();
+      this.entries.values().removeIf(existing -> existing.expiresOn <= now);
+      final Iterator<String> keys = this.entries.keySet().iterator();
+      while (this.entries.size() >= this.maxEntries && keys.hasNext()) {
+        keys.next();
+        keys.remove();
+      }
+    }
+    this.entries.put(key, entry);
+  }
+
+  private long expiresOn() {
+    return System.currentTimeMillis() + this.timeToLive;
+  }
+
+  private static <V> V join(final CompletableFuture<V> load) {
+    try {
+      return load.join();
+    } catch (final CompletionException ex) {
+      if (ex.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) ex.getCause();
+      }
+      throw ex;
+    }
+  }
+
+  private static class Entry<V> {
+    private final V value;
+    private final String entityTag;
+    private final long expiresOn;
+
+    private Entry(final V value, final String entityTag, final long expiresOn) {
+      this.value = value;
+      this.entityTag = entityTag;
+      this.expiresOn = expiresOn;
+    }
+  }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.api.v1.config;
+
+import io.mifos.customer.api.v1.client.CustomerCacheEventListener;
+import io.mifos.customer.api.v1.client.CustomerClientCache;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties({CustomerClientProperties.class})
+public class CustomerClientCacheConfiguration {
+
+  public CustomerClientCacheConfiguration() {
+    super();
+  }
+
+  @Bean
+  public CustomerClientCache customerClientCache(final CustomerClientProperties customerClientProperties) {
+    return new CustomerClientCache(customerClientProperties);
+  }
+
+  @Bean
+  public CustomerCacheEventListener customerCacheEventListener(final CustomerClientCache customerClientCache) {
+    return new CustomerCacheEventListener(customerClientCache);
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.api.v1.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of the HTTP client behind {@link io.mifos.customer.api.v1.client.CustomerManager} and
+ * {@link io.mifos.customer.api.v1.client.CustomerDocumentsManager}, see
+ * {@link EnableCustomerHttpClient}, and of the response cache, see {@link EnableCustomerClientCache}.
+ * Times are in milliseconds.
+ */
+@ConfigurationProperties(prefix = "customer.client")
+public class CustomerClientProperties {
+  private int maxConnections = 200;
+  private int maxConnectionsPerRoute = 50;
+  private long connectionTimeToLive = 60000L;
+  private int connectTimeout = 2000;
+  private int readTimeout = 10000;
+  private int maxAttempts = 3;
+  private long retryPeriod = 100L;
+  private long maxRetryPeriod = 1000L;
+  private boolean compression = true;
+  private long cacheTimeToLive = 30000L;
+  private int cacheMaxEntries = 10000;
+
+  public CustomerClientProperties() {
+    super();
+  }
+
+  public int getMaxConnections() {
+    return maxConnections;
+  }
+
+  public void setMaxConnections(int maxConnections) {
+    this.maxConnections = maxConnections;
+  }
+
+  public int getMaxConnectionsPerRoute() {
+    return maxConnectionsPerRoute;
+  }
+
+  public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+    this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+  }
+
+  public long getConnectionTimeToLive() {
+    return connectionTimeToLive;
+  }
+
+  public void setConnectionTimeToLive(long connectionTimeToLive) {
+    this.connectionTimeToLive = connectionTimeToLive;
+  }
+
+  public int getConnectTimeout() {
+    return connectTimeout;
+  }
+
+  public void setConnectTimeout(int connectTimeout) {
+    this.connectTimeout = connectTimeout;
+  }
+
+  public int getReadTimeout() {
+    return readTimeout;
+  }
+
+  public void setReadTimeout(int readTimeout) {
+    this.readTimeout = readTimeout;
+  }
+
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  public void setMaxAttempts(int maxAttempts) {
+    this.maxAttempts = maxAttempts;
+  }
+
+  public long getRetryPeriod() {
+    return retryPeriod;
+  }
+
+  public void setRetryPeriod(long retryPeriod) {
+    this.retryPeriod = retryPeriod;
+  }
+
+  public long getMaxRetryPeriod() {
+    return maxRetryPeriod;
+  }
+
+  public void setMaxRetryPeriod(long maxRetryPeriod) {
+    this.maxRetryPeriod = maxRetryPeriod;
+  }
+
+  public boolean isCompression() {
+    return compression;
+  }
+
+  public void setCompression(boolean compression) {
+    this.compression = compression;
+  }
+
+  public long getCacheTimeToLive() {
+    return cacheTimeToLive;
+  }
+
+  public void setCacheTimeToLive(long cacheTimeToLive) {
+    this.cacheTimeToLive = cacheTimeToLive;
+  }
+
+  public int getCacheMaxEntries() {
+    return cacheMaxEntries;
+  }
+
+  public void setCacheMaxEntries(int cacheMaxEntries) {
+    this.cacheMaxEntries = cacheMaxEntries;
+  }
+}
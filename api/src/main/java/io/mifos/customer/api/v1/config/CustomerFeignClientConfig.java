@@ -30,6 +30,10 @@ package io.mifos.customer.api.v1.config;/*
  */
 
 import feign.Feign;
+import feign.InvocationHandlerFactory;
+import feign.Request;
+import feign.RetryableException;
+import feign.Retryer;
 import feign.Target;
 import feign.codec.Decoder;
 import feign.codec.Encoder;
@@ -43,12 +47,23 @@ import io.mifos.customer.api.v1.config.encoder.CustomDecoder;
 import io.mifos.customer.api.v1.config.encoder.CustomEncoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.cloud.netflix.feign.FeignClientsConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.Scope;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class CustomerFeignClientConfig extends FeignClientsConfiguration {
 
@@ -64,6 +79,12 @@ public class CustomerFeignClientConfig extends FeignClientsConfiguration {
         return new TokenedTargetInterceptor();
     }
 
+    @Bean
+    @ConditionalOnMissingBean
+    public EntityTagInterceptor entityTagInterceptor() {
+        return new EntityTagInterceptor();
+    }
+
     @Bean(
             name = {"api-logger"}
     )
@@ -74,23 +95,77 @@ public class CustomerFeignClientConfig extends FeignClientsConfiguration {
     @Bean
     @Scope("prototype")
     @ConditionalOnMissingBean
-    public Feign.Builder feignBuilder(@Qualifier("api-logger") Logger logger) {
-        return new CustomerFeignClientConfig.AnnotatedErrorDecoderFeignBuilder(logger);
+    public Feign.Builder feignBuilder(@Qualifier("api-logger") Logger logger,
+                                      ObjectProvider<CustomerHttpClientConfiguration> customerHttpClientConfiguration,
+                                      ObjectProvider<CustomerClientProperties> customerClientProperties) {
+        // GET requests are only retried with the tuned client, see EnableCustomerHttpClient
+        final CustomerClientProperties retryProperties = customerHttpClientConfiguration.getIfAvailable() != null
+            ? customerClientProperties.getIfAvailable()
+            : null;
+        return new CustomerFeignClientConfig.AnnotatedErrorDecoderFeignBuilder(logger, retryProperties);
     }
 
     private static class AnnotatedErrorDecoderFeignBuilder extends Feign.Builder {
         private final Logger logger;
+        private final CustomerClientProperties retryProperties;
 
-        AnnotatedErrorDecoderFeignBuilder(Logger logger) {
+        AnnotatedErrorDecoderFeignBuilder(Logger logger, CustomerClientProperties retryProperties) {
             this.logger = logger;
+            this.retryProperties = retryProperties;
         }
 
         public <T> T target(Target<T> target) {
-            this.errorDecoder(new AnnotatedErrorDecoder(this.logger, target.type()));
+            final AnnotatedErrorDecoder annotatedErrorDecoder = new AnnotatedErrorDecoder(this.logger, target.type());
+            this.errorDecoder((methodKey, response) -> response.status() == 304
+                ? new NotModifiedException()
+                : annotatedErrorDecoder.decode(methodKey, response));
+            if (this.retryProperties != null) {
+                this.invocationHandlerFactory(new IdempotentRetryInvocationHandlerFactory(this.retryProperties));
+            }
             return this.build().newInstance(target);
         }
     }
 
+    /**
+     * Retries the GET methods of a client, the client's own {@link Retryer} does not know which
+     * request failed and is left at never retrying.
+     */
+    private static class IdempotentRetryInvocationHandlerFactory implements InvocationHandlerFactory {
+        private final CustomerClientProperties retryProperties;
+        private final InvocationHandlerFactory delegate = new InvocationHandlerFactory.Default();
+
+        IdempotentRetryInvocationHandlerFactory(CustomerClientProperties retryProperties) {
+            this.retryProperties = retryProperties;
+        }
+
+        @Override
+        public InvocationHandler create(Target target, Map<Method, MethodHandler> dispatch) {
+            final Map<Method, MethodHandler> retryingDispatch = new LinkedHashMap<>();
+            dispatch.forEach((method, methodHandler) ->
+                retryingDispatch.put(method, isGet(method) ? this.retrying(methodHandler) : methodHandler));
+            return this.delegate.create(target, retryingDispatch);
+        }
+
+        private MethodHandler retrying(MethodHandler methodHandler) {
+            return argv -> {
+                final Retryer retryer = new Retryer.Default(this.retryProperties.getRetryPeriod(),
+                    this.retryProperties.getMaxRetryPeriod(), this.retryProperties.getMaxAttempts());
+                while (true) {
+                    try {
+                        return methodHandler.invoke(argv);
+                    } catch (RetryableException ex) {
+                        retryer.continueOrPropagate(ex);
+                    }
+                }
+            };
+        }
+
+        private static boolean isGet(Method method) {
+            final RequestMapping requestMapping = AnnotatedElementUtils.findMergedAnnotation(method, RequestMapping.class);
+            return requestMapping != null && Arrays.asList(requestMapping.method()).contains(RequestMethod.GET);
+        }
+    }
+
     @Bean
     @Primary
     @Scope("prototype")
@@ -105,4 +180,10 @@ public class CustomerFeignClientConfig extends FeignClientsConfiguration {
         return new CustomDecoder(new GsonDecoder());
     }
 
+    @Bean
+    @ConditionalOnBean(CustomerHttpClientConfiguration.class)
+    public Request.Options customerRequestOptions(final CustomerClientProperties customerClientProperties) {
+        return new Request.Options(customerClientProperties.getConnectTimeout(), customerClientProperties.getReadTimeout());
+    }
+
 }
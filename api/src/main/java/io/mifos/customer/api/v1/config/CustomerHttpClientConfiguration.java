@@ -0,0 +1,60 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.api.v1.config;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+@EnableConfigurationProperties({CustomerClientProperties.class})
+public class CustomerHttpClientConfiguration {
+
+  public CustomerHttpClientConfiguration() {
+    super();
+  }
+
+  @Bean(destroyMethod = "close")
+  @ConditionalOnMissingBean
+  public CloseableHttpClient customerHttpClient(final CustomerClientProperties customerClientProperties) {
+    final PoolingHttpClientConnectionManager connectionManager =
+        new PoolingHttpClientConnectionManager(customerClientProperties.getConnectionTimeToLive(), TimeUnit.MILLISECONDS);
+    connectionManager.setMaxTotal(customerClientProperties.getMaxConnections());
+    connectionManager.setDefaultMaxPerRoute(customerClientProperties.getMaxConnectionsPerRoute());
+
+    final HttpClientBuilder httpClientBuilder = HttpClientBuilder.create()
+        .setConnectionManager(connectionManager)
+        .setDefaultRequestConfig(RequestConfig.custom()
+            .setConnectTimeout(customerClientProperties.getConnectTimeout())
+            .setConnectionRequestTimeout(customerClientProperties.getConnectTimeout())
+            .setSocketTimeout(customerClientProperties.getReadTimeout())
+            .build())
+        .evictExpiredConnections()
+        // retries are left to Feign, see CustomerFeignClientConfig
+        .disableAutomaticRetries();
+    if (!customerClientProperties.isCompression()) {
+      httpClientBuilder.disableContentCompression();
+    }
+    return httpClientBuilder.build();
+  }
+}
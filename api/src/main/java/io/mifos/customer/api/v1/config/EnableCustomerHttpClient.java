@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.api.v1.config;
+
+import org.springframework.context.annotation.Import;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Backs the customer Feign clients with a pooled Apache HTTP client that keeps connections alive
+ * and negotiates gzip compressed responses, configured by {@link CustomerClientProperties}.
+ *
+ * The client is registered in the application context, so Spring Cloud will use it for the other
+ * Feign clients of the application as well.  The application has to depend on
+ * {@code com.netflix.feign:feign-httpclient} itself.  The customer clients then also take their
+ * timeouts from the properties, and retry idempotent GET requests that failed with an I/O error;
+ * other requests are never retried.
+ */
+@SuppressWarnings("unused")
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@Documented
+@Inherited
+@Import({CustomerHttpClientConfiguration.class})
+public @interface EnableCustomerHttpClient {
+}
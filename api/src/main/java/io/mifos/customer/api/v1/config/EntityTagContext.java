@@ -0,0 +1,58 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.api.v1.config;
+
+import java.util.Optional;
+
+/**
+ * Carries entity tags between a caller revalidating a cached response and the Feign client on the
+ * same thread: the tag to send as {@code If-None-Match}, and the tag the response came with.
+ */
+public final class EntityTagContext {
+
+  private static final ThreadLocal<EntityTagContext> CURRENT = new ThreadLocal<>();
+
+  private final String ifNoneMatch;
+  private String received;
+
+  private EntityTagContext(final String ifNoneMatch) {
+    super();
+    this.ifNoneMatch = ifNoneMatch;
+  }
+
+  public static void begin(final String ifNoneMatch) {
+    CURRENT.set(new EntityTagContext(ifNoneMatch));
+  }
+
+  public static void end() {
+    CURRENT.remove();
+  }
+
+  public static Optional<String> ifNoneMatch() {
+    return Optional.ofNullable(CURRENT.get()).map(context -> context.ifNoneMatch);
+  }
+
+  public static Optional<String> received() {
+    return Optional.ofNullable(CURRENT.get()).map(context -> context.received);
+  }
+
+  static void received(final String entityTag) {
+    final EntityTagContext context = CURRENT.get();
+    if (context != null) {
+      context.received = entityTag;
+    }
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.api.v1.config;
+
+import feign.RequestInterceptor;
+import feign.RequestTemplate;
+import feign.Response;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Adds the entity tag of a cached response to a revalidating GET request.
+ */
+public class EntityTagInterceptor implements RequestInterceptor {
+
+  public EntityTagInterceptor() {
+    super();
+  }
+
+  @Override
+  public void apply(final RequestTemplate template) {
+    if ("GET".equals(template.method())) {
+      EntityTagContext.ifNoneMatch().ifPresent(entityTag -> template.header("If-None-Match", entityTag));
+    }
+  }
+
+  public static void recordEntityTag(final Response response) {
+    for (final Map.Entry<String, Collection<String>> header : response.headers().entrySet()) {
+      if ("ETag".equalsIgnoreCase(header.getKey()) && !header.getValue().isEmpty()) {
+        EntityTagContext.received(header.getValue().iterator().next());
+        return;
+      }
+    }
+  }
+}
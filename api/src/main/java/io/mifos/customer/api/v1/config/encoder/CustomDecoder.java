@@ -19,14 +19,20 @@ import feign.FeignException;
 import feign.Response;
 import feign.codec.Decoder;
 import feign.gson.GsonDecoder;
+import io.mifos.customer.api.v1.config.EntityTagInterceptor;
 import org.springframework.stereotype.Component;
 
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Type;
 
 @Component
 public class CustomDecoder implements Decoder {
 
+  private static final int BUFFER_SIZE = 8192;
+
   private final Decoder defaultDecoder;
   private final GsonDecoder gsonDecoder;
 
@@ -37,11 +43,45 @@ public class CustomDecoder implements Decoder {
 
   @Override
   public Object decode(Response response, Type type) throws IOException, FeignException {
+    EntityTagInterceptor.recordEntityTag(response);
     if (byte[].class.equals(type)) {
-      return this.defaultDecoder.decode(response, type);
+      if (response.status() == 404 || response.body() == null) {
+        return this.defaultDecoder.decode(response, type);
+      }
+      return readBody(response.body());
     }
 
     return this.gsonDecoder.decode(response, type);
   }
 
+  /**
+   * Reads the body straight into an array of the announced length if there is one, saving the
+   * intermediate copies of growing a buffer.
+   */
+  private static byte[] readBody(final Response.Body body) throws IOException {
+    final Integer length = body.length();
+    try (final InputStream inputStream = body.asInputStream()) {
+      if (length != null && length >= 0) {
+        final byte[] bytes = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+          final int read = inputStream.read(bytes, offset, length - offset);
+          if (read < 0) {
+            throw new EOFException("Response body ended after " + offset + " of " + length + " bytes.");
+          }
+          offset += read;
+        }
+        return bytes;
+      }
+
+      final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(BUFFER_SIZE);
+      final byte[] buffer = new byte[BUFFER_SIZE];
+      int read;
+      while ((read = inputStream.read(buffer)) != -1) {
+        outputStream.write(buffer, 0, read);
+      }
+      return outputStream.toByteArray();
+    }
+  }
+
 }
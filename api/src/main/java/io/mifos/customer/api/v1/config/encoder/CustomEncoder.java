@@ -23,11 +23,17 @@ import feign.gson.GsonEncoder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
 
 @Component
 public class CustomEncoder implements Encoder {
 
+  private static final String CRLF = "\r\n";
+
   private final Encoder defaultEncoder;
   private final GsonEncoder gsonEncoder;
   private final SpringFormEncoder springFormEncoder;
@@ -42,8 +48,38 @@ public class CustomEncoder implements Encoder {
   public void encode(Object object, Type bodyType, RequestTemplate template) throws EncodeException {
     if (bodyType.equals(MultipartFile.class)) {
       this.springFormEncoder.encode(object, bodyType, template);
-    }else {
+    } else if (bodyType.equals(MultipartFile[].class)) {
+      this.encodeMultipartFiles((MultipartFile[]) object, template);
+    } else if (bodyType.equals(byte[].class)) {
+      this.defaultEncoder.encode(object, bodyType, template);
+    } else {
       this.gsonEncoder.encode(object, bodyType, template);
     }
   }
+
+  /**
+   * The form encoder only takes a single file, several files are written as one part each,
+   * named after the file, in the order given.
+   */
+  private void encodeMultipartFiles(final MultipartFile[] files, final RequestTemplate template) {
+    final String boundary = UUID.randomUUID().toString();
+    final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    try {
+      for (final MultipartFile file : files) {
+        body.write(("--" + boundary + CRLF
+            + "Content-Disposition: form-data; name=\"" + file.getName() + "\"; filename=\"" + file.getOriginalFilename() + "\"" + CRLF
+            + "Content-Type: " + file.getContentType() + CRLF
+            + CRLF).getBytes(StandardCharsets.UTF_8));
+        body.write(file.getBytes());
+        body.write(CRLF.getBytes(StandardCharsets.UTF_8));
+      }
+      body.write(("--" + boundary + "--" + CRLF).getBytes(StandardCharsets.UTF_8));
+    } catch (final IOException ex) {
+      throw new EncodeException("Could not encode files.", ex);
+    }
+
+    template.header("Content-Type");
+    template.header("Content-Type", "multipart/form-data; boundary=" + boundary);
+    template.body(body.toByteArray(), null);
+  }
 }
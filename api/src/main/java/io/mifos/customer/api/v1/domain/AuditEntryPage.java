@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.api.v1.domain;
+
+import java.util.List;
+
+/**
+ * A page of audit entries, newest first.  To fetch the next page, pass {@link #getNextCursor()}
+ * as the cursor of the following request; it is null on the last page.
+ */
+public class AuditEntryPage {
+
+  private List<AuditEntry> entries;
+  private String nextCursor;
+
+  public AuditEntryPage() {
+    super();
+  }
+
+  public List<AuditEntry> getEntries() {
+    return this.entries;
+  }
+
+  public void setEntries(final List<AuditEntry> entries) {
+    this.entries = entries;
+  }
+
+  public String getNextCursor() {
+    return this.nextCursor;
+  }
+
+  public void setNextCursor(final String nextCursor) {
+    this.nextCursor = nextCursor;
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.api.v1.domain;
+
+import java.util.Objects;
+
+/**
+ * The number and total size of the portraits, scans and document pages stored for a tenant or
+ * a customer, with the limits configured for them.  A limit is null if there is none.
+ */
+public class StorageUsage {
+  private Long objects;
+  private Long bytes;
+  private Long maxObjects;
+  private Long maxBytes;
+
+  public StorageUsage() {
+  }
+
+  public Long getObjects() {
+    return objects;
+  }
+
+  public void setObjects(Long objects) {
+    this.objects = objects;
+  }
+
+  public Long getBytes() {
+    return bytes;
+  }
+
+  public void setBytes(Long bytes) {
+    this.bytes = bytes;
+  }
+
+  public Long getMaxObjects() {
+    return maxObjects;
+  }
+
+  public void setMaxObjects(Long maxObjects) {
+    this.maxObjects = maxObjects;
+  }
+
+  public Long getMaxBytes() {
+    return maxBytes;
+  }
+
+  public void setMaxBytes(Long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    StorageUsage that = (StorageUsage) o;
+    return Objects.equals(objects, that.objects) &&
+        Objects.equals(bytes, that.bytes) &&
+        Objects.equals(maxObjects, that.maxObjects) &&
+        Objects.equals(maxBytes, that.maxBytes);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(objects, bytes, maxObjects, maxBytes);
+  }
+
+  @Override
+  public String toString() {
+    return "StorageUsage{" +
+        "objects=" + objects +
+        ", bytes=" + bytes +
+        ", maxObjects=" + maxObjects +
+        ", maxBytes=" + maxBytes +
+        '}';
+  }
+}
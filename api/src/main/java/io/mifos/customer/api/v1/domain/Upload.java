@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.api.v1.domain;
+
+import org.hibernate.validator.constraints.NotBlank;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.util.Objects;
+
+/**
+ * A resumable upload of a document page or an identification card scan.  The client announces
+ * content type and size, then sends the content in chunks at increasing offsets, and finalizes
+ * the upload once {@link #getReceived()} reached {@link #getSize()}.  After an interruption
+ * the upload is resumed at the offset reported by the service.
+ */
+public class Upload {
+  private String identifier;
+
+  @NotBlank
+  private String contentType;
+
+  @NotNull
+  @Min(1)
+  private Long size;
+
+  private Long received;
+
+  public Upload() {
+  }
+
+  public String getIdentifier() {
+    return identifier;
+  }
+
+  public void setIdentifier(String identifier) {
+    this.identifier = identifier;
+  }
+
+  public String getContentType() {
+    return contentType;
+  }
+
+  public void setContentType(String contentType) {
+    this.contentType = contentType;
+  }
+
+  public Long getSize() {
+    return size;
+  }
+
+  public void setSize(Long size) {
+    this.size = size;
+  }
+
+  public Long getReceived() {
+    return received;
+  }
+
+  public void setReceived(Long received) {
+    this.received = received;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    Upload upload = (Upload) o;
+    return Objects.equals(identifier, upload.identifier) &&
+        Objects.equals(contentType, upload.contentType) &&
+        Objects.equals(size, upload.size) &&
+        Objects.equals(received, upload.received);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(identifier, contentType, size, received);
+  }
+
+  @Override
+  public String toString() {
+    return "Upload{" +
+        "identifier='" + identifier + '\'' +
+        ", contentType='" + contentType + '\'' +
+        ", size=" + size +
+        ", received=" + received +
+        '}';
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.api.v1.events;
+
+import io.mifos.customer.api.v1.domain.Customer;
+
+import java.util.Objects;
+
+/**
+ * Published alongside the identifier-only customer events if snapshot payloads are enabled.  Carries
+ * the state of the customer as committed by the command, so consumers do not need to fetch it.
+ * Subscribe with {@link io.mifos.customer.api.v1.CustomerEventConstants#SNAPSHOT_SELECTOR_NAME}.
+ */
+@SuppressWarnings("unused")
+public class CustomerSnapshotEvent {
+
+  private int version;
+
+  private Customer customer;
+
+  public CustomerSnapshotEvent() {
+    super();
+  }
+
+  public CustomerSnapshotEvent(final int version, final Customer customer) {
+    this.version = version;
+    this.customer = customer;
+  }
+
+  public int getVersion() {
+    return version;
+  }
+
+  public void setVersion(int version) {
+    this.version = version;
+  }
+
+  public Customer getCustomer() {
+    return customer;
+  }
+
+  public void setCustomer(Customer customer) {
+    this.customer = customer;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    CustomerSnapshotEvent that = (CustomerSnapshotEvent) o;
+    return version == that.version &&
+        Objects.equals(customerIdentifier(), that.customerIdentifier()) &&
+        Objects.equals(customerLastModifiedOn(), that.customerLastModifiedOn());
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(version, customerIdentifier(), customerLastModifiedOn());
+  }
+
+  @Override
+  public String toString() {
+    return "CustomerSnapshotEvent{" +
+        "version=" + version +
+        ", customer='" + customerIdentifier() + '\'' +
+        '}';
+  }
+
+  private String customerIdentifier() {
+    return customer == null ? null : customer.getIdentifier();
+  }
+
+  private String customerLastModifiedOn() {
+    return customer == null ? null : customer.getLastModifiedOn();
+  }
+}
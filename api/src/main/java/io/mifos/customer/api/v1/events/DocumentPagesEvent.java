@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.api.v1.events;
+
+import java.util.List;
+import java.util.Objects;
+
+@SuppressWarnings("unused")
+public class DocumentPagesEvent {
+
+  private String customerIdentifier;
+
+  private String documentIdentifier;
+
+  private List<Integer> pageNumbers;
+
+  public DocumentPagesEvent(String customerIdentifier, String documentIdentifier, List<Integer> pageNumbers) {
+    this.customerIdentifier = customerIdentifier;
+    this.documentIdentifier = documentIdentifier;
+    this.pageNumbers = pageNumbers;
+  }
+
+  public String getCustomerIdentifier() {
+    return customerIdentifier;
+  }
+
+  public void setCustomerIdentifier(String customerIdentifier) {
+    this.customerIdentifier = customerIdentifier;
+  }
+
+  public String getDocumentIdentifier() {
+    return documentIdentifier;
+  }
+
+  public void setDocumentIdentifier(String documentIdentifier) {
+    this.documentIdentifier = documentIdentifier;
+  }
+
+  public List<Integer> getPageNumbers() {
+    return pageNumbers;
+  }
+
+  public void setPageNumbers(List<Integer> pageNumbers) {
+    this.pageNumbers = pageNumbers;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    DocumentPagesEvent that = (DocumentPagesEvent) o;
+    return Objects.equals(customerIdentifier, that.customerIdentifier) &&
+        Objects.equals(documentIdentifier, that.documentIdentifier) &&
+        Objects.equals(pageNumbers, that.pageNumbers);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(customerIdentifier, documentIdentifier, pageNumbers);
+  }
+
+  @Override
+  public String toString() {
+    return "DocumentPagesEvent{" +
+        "customerIdentifier='" + customerIdentifier + '\'' +
+        ", documentIdentifier='" + documentIdentifier + '\'' +
+        ", pageNumbers=" + pageNumbers +
+        '}';
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.api.v1.events;
+
+import io.mifos.customer.api.v1.domain.CustomerDocument;
+
+import java.util.Objects;
+
+/**
+ * Snapshot counterpart of {@link DocumentEvent}, carrying the document's metadata.
+ */
+@SuppressWarnings("unused")
+public class DocumentSnapshotEvent {
+
+  private int version;
+
+  private String customerIdentifier;
+
+  private CustomerDocument document;
+
+  public DocumentSnapshotEvent() {
+    super();
+  }
+
+  public DocumentSnapshotEvent(final int version, final String customerIdentifier, final CustomerDocument document) {
+    this.version = version;
+    this.customerIdentifier = customerIdentifier;
+    this.document = document;
+  }
+
+  public int getVersion() {
+    return version;
+  }
+
+  public void setVersion(int version) {
+    this.version = version;
+  }
+
+  public String getCustomerIdentifier() {
+    return customerIdentifier;
+  }
+
+  public void setCustomerIdentifier(String customerIdentifier) {
+    this.customerIdentifier = customerIdentifier;
+  }
+
+  public CustomerDocument getDocument() {
+    return document;
+  }
+
+  public void setDocument(CustomerDocument document) {
+    this.document = document;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    DocumentSnapshotEvent that = (DocumentSnapshotEvent) o;
+    return version == that.version &&
+        Objects.equals(customerIdentifier, that.customerIdentifier) &&
+        Objects.equals(document, that.document);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(version, customerIdentifier, document);
+  }
+
+  @Override
+  public String toString() {
+    return "DocumentSnapshotEvent{" +
+        "version=" + version +
+        ", customerIdentifier='" + customerIdentifier + '\'' +
+        ", document=" + document +
+        '}';
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.api.v1.events;
+
+import io.mifos.customer.api.v1.domain.IdentificationCardScan;
+
+import java.util.Objects;
+
+/**
+ * Snapshot counterpart of {@link ScanEvent}, carrying the scan's metadata.  The image itself is
+ * not included.
+ */
+@SuppressWarnings("unused")
+public class ScanSnapshotEvent {
+
+  private int version;
+
+  private String customerIdentifier;
+
+  private String number;
+
+  private IdentificationCardScan scan;
+
+  public ScanSnapshotEvent() {
+    super();
+  }
+
+  public ScanSnapshotEvent(final int version, final String customerIdentifier, final String number, final IdentificationCardScan scan) {
+    this.version = version;
+    this.customerIdentifier = customerIdentifier;
+    this.number = number;
+    this.scan = scan;
+  }
+
+  public int getVersion() {
+    return version;
+  }
+
+  public void setVersion(int version) {
+    this.version = version;
+  }
+
+  public String getCustomerIdentifier() {
+    return customerIdentifier;
+  }
+
+  public void setCustomerIdentifier(String customerIdentifier) {
+    this.customerIdentifier = customerIdentifier;
+  }
+
+  public String getNumber() {
+    return number;
+  }
+
+  public void setNumber(String number) {
+    this.number = number;
+  }
+
+  public IdentificationCardScan getScan() {
+    return scan;
+  }
+
+  public void setScan(IdentificationCardScan scan) {
+    this.scan = scan;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    ScanSnapshotEvent that = (ScanSnapshotEvent) o;
+    return version == that.version &&
+        Objects.equals(customerIdentifier, that.customerIdentifier) &&
+        Objects.equals(number, that.number) &&
+        Objects.equals(scanIdentifier(), that.scanIdentifier());
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(version, customerIdentifier, number, scanIdentifier());
+  }
+
+  @Override
+  public String toString() {
+    return "ScanSnapshotEvent{" +
+        "version=" + version +
+        ", customerIdentifier='" + customerIdentifier + '\'' +
+        ", number='" + number + '\'' +
+        ", scan='" + scanIdentifier() + '\'' +
+        '}';
+  }
+
+  private String scanIdentifier() {
+    return scan == null ? null : scan.getIdentifier();
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.catalog.api.v1.client;
+
+import io.mifos.core.lang.TenantContextHolder;
+import io.mifos.customer.api.v1.client.CustomerClientCache;
+import io.mifos.customer.catalog.api.v1.domain.Catalog;
+import io.mifos.customer.catalog.api.v1.domain.Field;
+
+import java.util.List;
+
+/**
+ * Serves {@link #fetchCatalogs()} and {@link #findCatalog(String)} from a
+ * {@link CustomerClientCache} and passes all other calls on to the wrapped {@link CatalogManager}.
+ */
+public class CachingCatalogManager implements CatalogManager {
+
+  private final CatalogManager catalogManager;
+  private final CustomerClientCache customerClientCache;
+
+  public CachingCatalogManager(final CatalogManager catalogManager, final CustomerClientCache customerClientCache) {
+    super();
+    this.catalogManager = catalogManager;
+    this.customerClientCache = customerClientCache;
+  }
+
+  @Override
+  public void createCatalog(final Catalog catalog) {
+    this.invalidate();
+    this.catalogManager.createCatalog(catalog);
+  }
+
+  @Override
+  public List<Catalog> fetchCatalogs() {
+    return this.customerClientCache.catalogLists().get(CustomerClientCache.allCatalogsKey(),
+        this.catalogManager::fetchCatalogs);
+  }
+
+  @Override
+  public Catalog findCatalog(final String identifier) {
+    return this.customerClientCache.catalogs().get(CustomerClientCache.key(identifier),
+        () -> this.catalogManager.findCatalog(identifier));
+  }
+
+  @Override
+  public void deleteCatalog(final String identifier) {
+    this.invalidate();
+    this.catalogManager.deleteCatalog(identifier);
+  }
+
+  @Override
+  public void updateField(final String catalogIdentifier, final String fieldIdentifier, final Field field) {
+    this.invalidate();
+    this.catalogManager.updateField(catalogIdentifier, fieldIdentifier, field);
+  }
+
+  @Override
+  public void deleteField(final String catalogIdentifier, final String fieldIdentifier) {
+    this.invalidate();
+    this.catalogManager.deleteField(catalogIdentifier, fieldIdentifier);
+  }
+
+  private void invalidate() {
+    this.customerClientCache.invalidateCatalogs(TenantContextHolder.checkedGetIdentifier());
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.api.v1.events;
+
+import io.mifos.customer.api.v1.domain.Customer;
+import io.mifos.customer.api.v1.domain.IdentificationCardScan;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SnapshotEventTest {
+
+  @Test
+  public void shouldCompareCustomerSnapshotsWithoutCustomer() {
+    final CustomerSnapshotEvent empty = new CustomerSnapshotEvent();
+    final CustomerSnapshotEvent withCustomer = new CustomerSnapshotEvent(1, customer("customer"));
+
+    Assert.assertEquals(empty, new CustomerSnapshotEvent());
+    Assert.assertEquals(empty.hashCode(), new CustomerSnapshotEvent().hashCode());
+    Assert.assertNotEquals(empty, withCustomer);
+    Assert.assertNotEquals(withCustomer, empty);
+    Assert.assertNotNull(empty.toString());
+    Assert.assertEquals(withCustomer, new CustomerSnapshotEvent(1, customer("customer")));
+  }
+
+  @Test
+  public void shouldCompareScanSnapshotsWithoutScan() {
+    final ScanSnapshotEvent empty = new ScanSnapshotEvent();
+    final ScanSnapshotEvent withScan = new ScanSnapshotEvent(1, "customer", "number", scan("scan"));
+
+    Assert.assertEquals(empty, new ScanSnapshotEvent());
+    Assert.assertEquals(empty.hashCode(), new ScanSnapshotEvent().hashCode());
+    Assert.assertNotEquals(empty, withScan);
+    Assert.assertNotEquals(withScan, empty);
+    Assert.assertNotNull(empty.toString());
+    Assert.assertEquals(withScan, new ScanSnapshotEvent(1, "customer", "number", scan("scan")));
+  }
+
+  @Test
+  public void shouldCompareDocumentSnapshotsWithoutDocument() {
+    final DocumentSnapshotEvent empty = new DocumentSnapshotEvent();
+
+    Assert.assertEquals(empty, new DocumentSnapshotEvent());
+    Assert.assertEquals(empty.hashCode(), new DocumentSnapshotEvent().hashCode());
+    Assert.assertNotNull(empty.toString());
+  }
+
+  private static Customer customer(final String identifier) {
+    final Customer customer = new Customer();
+    customer.setIdentifier(identifier);
+    customer.setLastModifiedOn("2017-01-01T00:00:00Z");
+    return customer;
+  }
+
+  private static IdentificationCardScan scan(final String identifier) {
+    final IdentificationCardScan scan = new IdentificationCardScan();
+    scan.setIdentifier(identifier);
+    return scan;
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.benchmark;
+
+import io.mifos.core.api.util.UserContextHolder;
+import io.mifos.core.lang.DateOfBirth;
+import io.mifos.customer.api.v1.domain.Address;
+import io.mifos.customer.api.v1.domain.ContactDetail;
+import io.mifos.customer.api.v1.domain.Customer;
+import io.mifos.customer.api.v1.domain.CustomerPage;
+import io.mifos.customer.catalog.api.v1.domain.Value;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Creates the data used by the benchmarks.  Unlike the generators of the component tests, the
+ * data is derived from a fixed seed, so that every run measures exactly the same input.
+ */
+final class BenchmarkData {
+
+  static final String USER = "benchmark";
+
+  private static final char[] ALPHANUMERIC = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789".toCharArray();
+
+  private BenchmarkData() {
+    super();
+  }
+
+  static void setUserContext() {
+    UserContextHolder.setAccessToken(USER, "benchmark-token");
+  }
+
+  static String text(final Random random, final int length) {
+    final char[] chars = new char[length];
+    for (int i = 0; i < length; i++) {
+      chars[i] = ALPHANUMERIC[random.nextInt(ALPHANUMERIC.length)];
+    }
+    return new String(chars);
+  }
+
+  static Customer customer(final Random random) {
+    final Customer customer = new Customer();
+    customer.setIdentifier(text(random, 8));
+    customer.setType(Customer.Type.PERSON.name());
+    customer.setGivenName(text(random, 32));
+    customer.setMiddleName(text(random, 32));
+    customer.setSurname(text(random, 32));
+    customer.setDateOfBirth(DateOfBirth.fromLocalDate(LocalDate.of(1980, 1, 1).plusDays(random.nextInt(10000))));
+    customer.setMember(Boolean.TRUE);
+    customer.setAssignedOffice(text(random, 8));
+    customer.setAssignedEmployee(text(random, 8));
+    customer.setCurrentState(Customer.State.ACTIVE.name());
+    customer.setApplicationDate("2017-01-01");
+    customer.setAddress(address(random));
+    customer.setContactDetails(Arrays.asList(contactDetail(random), contactDetail(random)));
+    customer.setCustomValues(Arrays.asList(value(random), value(random), value(random)));
+    return customer;
+  }
+
+  static CustomerPage customerPage(final Random random, final int size) {
+    final List<Customer> customers = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      customers.add(customer(random));
+    }
+    final CustomerPage customerPage = new CustomerPage();
+    customerPage.setCustomers(customers);
+    customerPage.setTotalPages(10);
+    customerPage.setTotalElements(10L * size);
+    return customerPage;
+  }
+
+  private static Address address(final Random random) {
+    final Address address = new Address();
+    address.setStreet(text(random, 64));
+    address.setCity(text(random, 32));
+    address.setPostalCode(text(random, 8));
+    address.setRegion(text(random, 32));
+    address.setCountryCode(text(random, 2));
+    address.setCountry(text(random, 32));
+    return address;
+  }
+
+  private static ContactDetail contactDetail(final Random random) {
+    final ContactDetail contactDetail = new ContactDetail();
+    contactDetail.setType(ContactDetail.Type.MOBILE.name());
+    contactDetail.setGroup(ContactDetail.Group.PRIVATE.name());
+    contactDetail.setValue(text(random, 16));
+    contactDetail.setPreferenceLevel(1);
+    contactDetail.setValidated(Boolean.FALSE);
+    return contactDetail;
+  }
+
+  private static Value value(final Random random) {
+    final Value value = new Value();
+    value.setCatalogIdentifier(text(random, 8));
+    value.setFieldIdentifier(text(random, 8));
+    value.setValue(text(random, 16));
+    return value;
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.benchmark;
+
+import io.mifos.customer.catalog.api.v1.domain.Field;
+import io.mifos.customer.catalog.api.v1.domain.Value;
+import io.mifos.customer.catalog.service.internal.repository.CatalogEntity;
+import io.mifos.customer.catalog.service.internal.repository.CatalogRepository;
+import io.mifos.customer.catalog.service.internal.repository.FieldEntity;
+import io.mifos.customer.catalog.service.internal.repository.FieldRepository;
+import io.mifos.customer.catalog.service.internal.repository.OptionEntity;
+import io.mifos.customer.catalog.service.internal.service.FieldValueValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Measures the validation of custom values, without the cost of the database lookups: catalog and
+ * field are served from memory.
+ */
+@State(Scope.Benchmark)
+public class FieldValueValidatorBenchmark {
+
+  @Param({"TEXT", "NUMBER", "DATE", "SINGLE_SELECTION", "MULTI_SELECTION"})
+  public Field.DataType dataType;
+
+  @Param({"1", "10"})
+  public int valueCount;
+
+  private FieldValueValidator fieldValueValidator;
+  private List<Value> values;
+
+  @Setup
+  public void setup() {
+    final CatalogEntity catalogEntity = new CatalogEntity();
+    catalogEntity.setIdentifier("catalog");
+
+    final FieldEntity fieldEntity = new FieldEntity();
+    fieldEntity.setCatalog(catalogEntity);
+    fieldEntity.setIdentifier("field");
+    fieldEntity.setLabel("Field");
+    fieldEntity.setDataType(this.dataType.name());
+    fieldEntity.setLength(16);
+    fieldEntity.setPrecision(4);
+    fieldEntity.setMinValue(0.0D);
+    fieldEntity.setMaxValue(1000000.0D);
+    fieldEntity.setOptions(IntStream.rangeClosed(1, 10).mapToObj(i -> {
+      final OptionEntity optionEntity = new OptionEntity();
+      optionEntity.setField(fieldEntity);
+      optionEntity.setLabel("Option " + i);
+      optionEntity.setValue(i);
+      return optionEntity;
+    }).collect(Collectors.toList()));
+
+    final CatalogRepository catalogRepository = repository(CatalogRepository.class, "findByIdentifier", catalogEntity);
+    final FieldRepository fieldRepository = repository(FieldRepository.class, "findByCatalogAndIdentifier", fieldEntity);
+    this.fieldValueValidator =
+        new FieldValueValidator(LoggerFactory.getLogger(FieldValueValidatorBenchmark.class), catalogRepository, fieldRepository);
+
+    this.values = new ArrayList<>(Collections.nCopies(this.valueCount, this.validValue()));
+  }
+
+  @Benchmark
+  public List<Value> validateValues() {
+    this.fieldValueValidator.validateValues(this.values);
+    return this.values;
+  }
+
+  private Value validValue() {
+    final Value value = new Value();
+    value.setCatalogIdentifier("catalog");
+    value.setFieldIdentifier("field");
+    switch (this.dataType) {
+      case TEXT:
+        value.setValue("benchmark value");
+        break;
+      case NUMBER:
+        value.setValue("12345.678");
+        break;
+      case DATE:
+        value.setValue("2017-01-01T00:00:00.000Z");
+        break;
+      case SINGLE_SELECTION:
+        value.setValue("3");
+        break;
+      case MULTI_SELECTION:
+        value.setValue("1,3,5,7");
+        break;
+      default:
+        throw new IllegalStateException("Unsupported data type " + this.dataType);
+    }
+    return value;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <R> R repository(final Class<R> repositoryType, final String finder, final Object result) {
+    return (R) Proxy.newProxyInstance(repositoryType.getClassLoader(), new Class<?>[]{repositoryType},
+        (proxy, method, args) -> {
+          if (method.getName().equals(finder)) {
+            return Optional.of(result);
+          }
+          throw new UnsupportedOperationException(method.getName());
+        });
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.benchmark;
+
+import feign.RequestTemplate;
+import feign.Response;
+import feign.codec.Decoder;
+import feign.codec.Encoder;
+import feign.gson.GsonDecoder;
+import feign.gson.GsonEncoder;
+import io.mifos.customer.api.v1.domain.Customer;
+import io.mifos.customer.api.v1.domain.CustomerPage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * Measures encoding and decoding of the customer payloads with the Gson codecs configured by
+ * {@link io.mifos.customer.api.v1.config.CustomerFeignClientConfig}.
+ */
+@State(Scope.Benchmark)
+public class GsonCodecBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class Page {
+
+    @Param({"20", "100"})
+    public int size;
+
+    private CustomerPage customerPage;
+    private byte[] encodedCustomerPage;
+
+    @Setup
+    public void setup() {
+      this.customerPage = BenchmarkData.customerPage(new Random(42L), this.size);
+
+      final RequestTemplate requestTemplate = new RequestTemplate();
+      new GsonEncoder().encode(this.customerPage, CustomerPage.class, requestTemplate);
+      this.encodedCustomerPage = requestTemplate.body();
+    }
+  }
+
+  private Encoder encoder;
+  private Decoder decoder;
+  private Customer customer;
+  private byte[] encodedCustomer;
+
+  @Setup
+  public void setup() {
+    this.encoder = new GsonEncoder();
+    this.decoder = new GsonDecoder();
+    this.customer = BenchmarkData.customer(new Random(42L));
+    this.encodedCustomer = this.encodeCustomer().body();
+  }
+
+  @Benchmark
+  public RequestTemplate encodeCustomer() {
+    final RequestTemplate requestTemplate = new RequestTemplate();
+    this.encoder.encode(this.customer, Customer.class, requestTemplate);
+    return requestTemplate;
+  }
+
+  @Benchmark
+  public Object decodeCustomer() throws Exception {
+    return this.decoder.decode(response(this.encodedCustomer), Customer.class);
+  }
+
+  @Benchmark
+  public RequestTemplate encodeCustomerPage(final Page page) {
+    final RequestTemplate requestTemplate = new RequestTemplate();
+    this.encoder.encode(page.customerPage, CustomerPage.class, requestTemplate);
+    return requestTemplate;
+  }
+
+  @Benchmark
+  public Object decodeCustomerPage(final Page page) throws Exception {
+    return this.decoder.decode(response(page.encodedCustomerPage), CustomerPage.class);
+  }
+
+  private static Response response(final byte[] body) {
+    return Response.create(200, "OK", Collections.emptyMap(), body);
+  }
+}
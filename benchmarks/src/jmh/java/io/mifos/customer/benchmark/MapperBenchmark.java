@@ -0,0 +1,118 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.benchmark;
+
+import io.mifos.customer.api.v1.domain.Command;
+import io.mifos.customer.api.v1.domain.Customer;
+import io.mifos.customer.api.v1.domain.CustomerDocument;
+import io.mifos.customer.service.internal.mapper.AuditEntryMapper;
+import io.mifos.customer.service.internal.mapper.CommandMapper;
+import io.mifos.customer.service.internal.mapper.CustomerMapper;
+import io.mifos.customer.service.internal.mapper.DocumentMapper;
+import io.mifos.customer.service.internal.repository.CommandLogEntity;
+import io.mifos.customer.service.internal.repository.CustomerEntity;
+import io.mifos.customer.service.internal.repository.DocumentEntity;
+import io.mifos.customer.service.internal.repository.DocumentPageEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+@State(Scope.Thread)
+public class MapperBenchmark {
+
+  @State(Scope.Thread)
+  public static class Page {
+
+    @Param({"65536", "524288"})
+    public int size;
+
+    private MultipartFile file;
+
+    @Setup
+    public void setup() {
+      final byte[] image = new byte[this.size];
+      new Random(42L).nextBytes(image);
+      this.file = new MockMultipartFile("page", "page.png", "image/png", image);
+    }
+  }
+
+  private Customer customer;
+  private CustomerEntity customerEntity;
+  private CustomerDocument customerDocument;
+  private DocumentEntity documentEntity;
+  private CommandLogEntity commandLogEntity;
+
+  @Setup
+  public void setup() {
+    BenchmarkData.setUserContext();
+
+    final Random random = new Random(42L);
+    this.customer = BenchmarkData.customer(random);
+    this.customerEntity = CustomerMapper.map(this.customer);
+
+    this.customerDocument = new CustomerDocument();
+    this.customerDocument.setIdentifier(BenchmarkData.text(random, 8));
+    this.customerDocument.setDescription(BenchmarkData.text(random, 256));
+    this.documentEntity = DocumentMapper.map(this.customerDocument, this.customerEntity);
+
+    this.commandLogEntity = AuditEntryMapper.create(this.customer.getIdentifier(), Command.Action.ACTIVATE.name(), BenchmarkData.text(random, 32));
+    this.commandLogEntity.setCreatedOn(LocalDateTime.now(Clock.systemUTC()));
+  }
+
+  @Benchmark
+  public CustomerEntity customerToEntity() {
+    return CustomerMapper.map(this.customer);
+  }
+
+  @Benchmark
+  public Customer customerFromEntity() {
+    return CustomerMapper.map(this.customerEntity);
+  }
+
+  @Benchmark
+  public DocumentEntity documentToEntity() {
+    return DocumentMapper.map(this.customerDocument, this.customerEntity);
+  }
+
+  @Benchmark
+  public CustomerDocument documentFromEntity() {
+    return DocumentMapper.map(this.documentEntity);
+  }
+
+  @Benchmark
+  public DocumentPageEntity documentPageToEntity(final Page page) throws IOException {
+    return DocumentMapper.map(page.file, 1, this.documentEntity);
+  }
+
+  @Benchmark
+  public CommandLogEntity commandCreate() {
+    return AuditEntryMapper.create(this.customer.getIdentifier(), Command.Action.ACTIVATE.name(), "benchmark");
+  }
+
+  @Benchmark
+  public Command commandFromEntity() {
+    return CommandMapper.map(this.commandLogEntity);
+  }
+}
@@ -47,7 +47,8 @@ import org.springframework.test.context.junit4.SpringRunner;
  */
 @RunWith(SpringRunner.class)
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT,
-    classes = {AbstractCustomerTest.TestConfiguration.class})
+    classes = {AbstractCustomerTest.TestConfiguration.class},
+    properties = {"upload.image.processing.max-pixels=1000000"})
 public class AbstractCustomerTest extends SuiteTestEnvironment {
   static final String TEST_USER = "maatkare";
   private static final String LOGGER_NAME = "test-logger";
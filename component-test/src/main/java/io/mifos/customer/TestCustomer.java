@@ -23,29 +23,46 @@ import io.mifos.customer.api.v1.client.CustomerValidationException;
 import io.mifos.customer.api.v1.client.PortraitNotFoundException;
 import io.mifos.customer.api.v1.client.DocumentValidationException;
 import io.mifos.customer.api.v1.domain.Address;
+import io.mifos.customer.api.v1.domain.AuditEntryPage;
 import io.mifos.customer.api.v1.domain.Command;
 import io.mifos.customer.api.v1.domain.ContactDetail;
 import io.mifos.customer.api.v1.domain.Customer;
 import io.mifos.customer.api.v1.domain.CustomerPage;
 import io.mifos.customer.api.v1.domain.ProcessStep;
+import io.mifos.customer.api.v1.domain.StorageUsage;
+import io.mifos.customer.service.internal.jdbc.SqlTracer;
 import io.mifos.customer.util.AddressGenerator;
 import io.mifos.customer.util.CommandGenerator;
 import io.mifos.customer.util.ContactDetailGenerator;
 import io.mifos.customer.util.CustomerGenerator;
+import io.mifos.customer.util.QueryBudget;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.Assert;
 import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.time.Clock;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 import java.util.stream.Stream;
 
 public class TestCustomer extends AbstractCustomerTest {
 
+  @SuppressWarnings("SpringAutowiredFieldsWarningInspection")
+  @Autowired
+  private SqlTracer sqlTracer;
+
   @Test
   public void shouldCreateCustomer() throws Exception {
     final Customer customer = CustomerGenerator.createRandomCustomer();
@@ -104,6 +121,71 @@ public class TestCustomer extends AbstractCustomerTest {
     Assert.assertEquals(customer.getMember(), foundCustomer.getMember());
   }
 
+  @Test
+  public void shouldFindCustomerWithinQueryBudget() throws Exception {
+    final Customer customer = CustomerGenerator.createRandomCustomer();
+    this.customerManager.createCustomer(customer);
+
+    this.eventRecorder.wait(CustomerEventConstants.POST_CUSTOMER, customer.getIdentifier());
+
+    this.sqlTracer.reset();
+    this.customerManager.findCustomer(customer.getIdentifier());
+
+    // customer, address, contact details and custom values
+    QueryBudget.assertStatements(this.sqlTracer, "CustomerRestController.findCustomer", 4);
+  }
+
+  @Test
+  public void shouldBatchGetCustomers() throws Exception {
+    final Customer firstCustomer = CustomerGenerator.createRandomCustomer();
+    this.customerManager.createCustomer(firstCustomer);
+    final Customer secondCustomer = CustomerGenerator.createRandomCustomer();
+    this.customerManager.createCustomer(secondCustomer);
+
+    this.eventRecorder.wait(CustomerEventConstants.POST_CUSTOMER, firstCustomer.getIdentifier());
+    this.eventRecorder.wait(CustomerEventConstants.POST_CUSTOMER, secondCustomer.getIdentifier());
+
+    this.sqlTracer.reset();
+    final List<Customer> customers = this.customerManager.batchGetCustomers(
+        Arrays.asList(secondCustomer.getIdentifier(), RandomStringUtils.randomAlphanumeric(8), firstCustomer.getIdentifier()));
+
+    Assert.assertEquals(2, customers.size());
+    Assert.assertEquals(secondCustomer.getIdentifier(), customers.get(0).getIdentifier());
+    Assert.assertEquals(firstCustomer.getIdentifier(), customers.get(1).getIdentifier());
+    Assert.assertNotNull(customers.get(1).getAddress());
+
+    // customers with addresses, contact details and custom values
+    QueryBudget.assertStatements(this.sqlTracer, "CustomerRestController.batchGetCustomers", 3);
+  }
+
+  @Test
+  public void shouldFindCustomerProjection() throws Exception {
+    final Customer customer = CustomerGenerator.createRandomCustomer();
+    this.customerManager.createCustomer(customer);
+
+    this.eventRecorder.wait(CustomerEventConstants.POST_CUSTOMER, customer.getIdentifier());
+
+    this.sqlTracer.reset();
+    final Customer projectedCustomer =
+        this.customerManager.findCustomerProjection(customer.getIdentifier(), "givenName,surname,currentState");
+
+    Assert.assertEquals(customer.getIdentifier(), projectedCustomer.getIdentifier());
+    Assert.assertEquals(customer.getGivenName(), projectedCustomer.getGivenName());
+    Assert.assertEquals(customer.getSurname(), projectedCustomer.getSurname());
+    Assert.assertEquals(Customer.State.PENDING.name(), projectedCustomer.getCurrentState());
+    Assert.assertNull(projectedCustomer.getAddress());
+    Assert.assertNull(projectedCustomer.getContactDetails());
+
+    QueryBudget.assertStatements(this.sqlTracer, "CustomerRestController.findCustomer", 1);
+
+    try {
+      this.customerManager.findCustomerProjection(customer.getIdentifier(), "givenName,password");
+      Assert.fail();
+    } catch (final CustomerValidationException ex) {
+      // do nothing, expected
+    }
+  }
+
   @Test
   public void shouldNotFindCustomerNotFound() throws Exception {
     try {
@@ -167,6 +249,47 @@ public class TestCustomer extends AbstractCustomerTest {
     Assert.assertEquals(customer.getSurname(), updatedCustomer.getSurname());
   }
 
+  @Test
+  public void shouldFindCustomerAsOf() throws Exception {
+    final Customer customer = CustomerGenerator.createRandomCustomer();
+    this.customerManager.createCustomer(customer);
+
+    this.eventRecorder.wait(CustomerEventConstants.POST_CUSTOMER, customer.getIdentifier());
+
+    final String beforeUpdate = DateConverter.toIsoString(LocalDateTime.now(Clock.systemUTC()));
+    final String originalSurname = customer.getSurname();
+    customer.setSurname(RandomStringUtils.randomAlphanumeric(256));
+
+    this.customerManager.updateCustomer(customer.getIdentifier(), customer);
+
+    this.eventRecorder.wait(CustomerEventConstants.PUT_CUSTOMER, customer.getIdentifier());
+
+    final Customer historicCustomer = this.customerManager.findCustomerAsOf(customer.getIdentifier(), beforeUpdate);
+    Assert.assertEquals(originalSurname, historicCustomer.getSurname());
+
+    final Customer currentCustomer = this.customerManager.findCustomerAsOf(customer.getIdentifier(),
+        DateConverter.toIsoString(LocalDateTime.now(Clock.systemUTC())));
+    Assert.assertEquals(customer.getSurname(), currentCustomer.getSurname());
+  }
+
+  @Test
+  public void shouldRecordPortraitChangeInHistory() throws Exception {
+    final Customer customer = CustomerGenerator.createRandomCustomer();
+    this.customerManager.createCustomer(customer);
+
+    this.eventRecorder.wait(CustomerEventConstants.POST_CUSTOMER, customer.getIdentifier());
+
+    final String beforePortrait = DateConverter.toIsoString(LocalDateTime.now(Clock.systemUTC()));
+    this.customerManager.postPortrait(customer.getIdentifier(), portrait());
+
+    this.eventRecorder.wait(CustomerEventConstants.POST_PORTRAIT, customer.getIdentifier());
+
+    final Customer historicCustomer = this.customerManager.findCustomerAsOf(customer.getIdentifier(), beforePortrait);
+    final Customer currentCustomer = this.customerManager.findCustomerAsOf(customer.getIdentifier(),
+        DateConverter.toIsoString(LocalDateTime.now(Clock.systemUTC())));
+    Assert.assertNotEquals(historicCustomer.getLastModifiedOn(), currentCustomer.getLastModifiedOn());
+  }
+
   @Test
   public void shouldNotUpdateCustomerNotFound() throws Exception {
     try {
@@ -303,6 +426,32 @@ public class TestCustomer extends AbstractCustomerTest {
 
     final List<Command> commands = this.customerManager.fetchCustomerCommands(customer.getIdentifier());
     Assert.assertTrue(commands.size() == 1);
+    Assert.assertEquals(Command.Action.ACTIVATE.name(), commands.get(0).getAction());
+    Assert.assertEquals("Test", commands.get(0).getComment());
+  }
+
+  @Test
+  public void shouldFetchAuditPages() throws Exception {
+    final Customer customer = CustomerGenerator.createRandomCustomer();
+    this.customerManager.createCustomer(customer);
+    this.eventRecorder.wait(CustomerEventConstants.POST_CUSTOMER, customer.getIdentifier());
+
+    this.customerManager.customerCommand(customer.getIdentifier(), CommandGenerator.create(Command.Action.ACTIVATE, "Test"));
+    this.eventRecorder.wait(CustomerEventConstants.ACTIVATE_CUSTOMER, customer.getIdentifier());
+
+    this.customerManager.customerCommand(customer.getIdentifier(), CommandGenerator.create(Command.Action.LOCK, "Test"));
+    this.eventRecorder.wait(CustomerEventConstants.LOCK_CUSTOMER, customer.getIdentifier());
+
+    final AuditEntryPage firstPage = this.customerManager.fetchCustomerAudit(customer.getIdentifier(), null, null, null, 2);
+    Assert.assertEquals(2, firstPage.getEntries().size());
+    Assert.assertEquals(Command.Action.LOCK.name(), firstPage.getEntries().get(0).getAction());
+    Assert.assertEquals(Command.Action.ACTIVATE.name(), firstPage.getEntries().get(1).getAction());
+    Assert.assertNotNull(firstPage.getNextCursor());
+
+    final AuditEntryPage secondPage = this.customerManager.fetchCustomerAudit(customer.getIdentifier(), null, null, firstPage.getNextCursor(), 2);
+    Assert.assertEquals(1, secondPage.getEntries().size());
+    Assert.assertEquals("CREATE", secondPage.getEntries().get(0).getAction());
+    Assert.assertNull(secondPage.getNextCursor());
   }
 
   @Test
@@ -399,6 +548,36 @@ public class TestCustomer extends AbstractCustomerTest {
     Assert.assertArrayEquals(secondFile.getBytes(), portrait);
   }
 
+  @Test
+  public void shouldGetPortraitRendition() throws Exception {
+    final Customer customer = CustomerGenerator.createRandomCustomer();
+
+    this.customerManager.createCustomer(customer);
+
+    this.eventRecorder.wait(CustomerEventConstants.POST_CUSTOMER, customer.getIdentifier());
+
+    final ByteArrayOutputStream original = new ByteArrayOutputStream();
+    ImageIO.write(new BufferedImage(600, 400, BufferedImage.TYPE_INT_RGB), "png", original);
+    final MockMultipartFile file = new MockMultipartFile("portrait", "test.png", MediaType.IMAGE_PNG_VALUE, original.toByteArray());
+
+    this.customerManager.postPortrait(customer.getIdentifier(), file);
+
+    this.eventRecorder.wait(CustomerEventConstants.POST_PORTRAIT, customer.getIdentifier());
+
+    final BufferedImage thumbnail =
+        ImageIO.read(new ByteArrayInputStream(this.customerManager.getPortrait(customer.getIdentifier(), 64)));
+
+    Assert.assertEquals(64, thumbnail.getWidth());
+    Assert.assertEquals(43, thumbnail.getHeight());
+
+    try {
+      this.customerManager.getPortrait(customer.getIdentifier(), 100);
+      Assert.fail();
+    } catch (final DocumentValidationException ex) {
+      // do nothing, expected
+    }
+  }
+
   @Test(expected = DocumentValidationException.class)
   public void shouldThrowIfPortraitExceedsMaxSize() throws Exception {
     final Customer customer = CustomerGenerator.createRandomCustomer();
@@ -412,6 +591,22 @@ public class TestCustomer extends AbstractCustomerTest {
     this.customerManager.postPortrait(customer.getIdentifier(), firstFile);
   }
 
+  @Test(expected = DocumentValidationException.class)
+  public void shouldThrowIfPortraitExceedsMaxPixels() throws Exception {
+    final Customer customer = CustomerGenerator.createRandomCustomer();
+
+    this.customerManager.createCustomer(customer);
+
+    this.eventRecorder.wait(CustomerEventConstants.POST_CUSTOMER, customer.getIdentifier());
+
+    // a blank image compresses to a few kilobytes, but has more pixels than the tests allow
+    final ByteArrayOutputStream original = new ByteArrayOutputStream();
+    ImageIO.write(new BufferedImage(1100, 1000, BufferedImage.TYPE_BYTE_GRAY), "png", original);
+    final MockMultipartFile file = new MockMultipartFile("portrait", "test.png", MediaType.IMAGE_PNG_VALUE, original.toByteArray());
+
+    this.customerManager.postPortrait(customer.getIdentifier(), file);
+  }
+
   @Test(expected = PortraitNotFoundException.class)
   public void shouldDeletePortrait() throws Exception {
     final Customer customer = CustomerGenerator.createRandomCustomer();
@@ -433,6 +628,38 @@ public class TestCustomer extends AbstractCustomerTest {
     this.customerManager.getPortrait(customer.getIdentifier());
   }
 
+  @Test
+  public void shouldAccountPortraitStorage() throws Exception {
+    final Customer customer = CustomerGenerator.createRandomCustomer();
+
+    this.customerManager.createCustomer(customer);
+
+    Assert.assertTrue(this.eventRecorder.wait(CustomerEventConstants.POST_CUSTOMER, customer.getIdentifier()));
+
+    final StorageUsage emptyUsage = this.customerManager.getCustomerStorageUsage(customer.getIdentifier());
+    Assert.assertEquals(Long.valueOf(0L), emptyUsage.getObjects());
+    Assert.assertEquals(Long.valueOf(0L), emptyUsage.getBytes());
+
+    this.customerManager.postPortrait(customer.getIdentifier(), portrait());
+
+    Assert.assertTrue(this.eventRecorder.wait(CustomerEventConstants.POST_PORTRAIT, customer.getIdentifier()));
+
+    final StorageUsage customerUsage = this.customerManager.getCustomerStorageUsage(customer.getIdentifier());
+    Assert.assertEquals(Long.valueOf(1L), customerUsage.getObjects());
+    Assert.assertTrue(customerUsage.getBytes() > 0L);
+
+    final StorageUsage tenantUsage = this.customerManager.getStorageUsage();
+    Assert.assertTrue(tenantUsage.getBytes() >= customerUsage.getBytes());
+
+    this.customerManager.deletePortrait(customer.getIdentifier());
+
+    Assert.assertTrue(this.eventRecorder.wait(CustomerEventConstants.DELETE_PORTRAIT, customer.getIdentifier()));
+
+    final StorageUsage deletedUsage = this.customerManager.getCustomerStorageUsage(customer.getIdentifier());
+    Assert.assertEquals(Long.valueOf(0L), deletedUsage.getObjects());
+    Assert.assertEquals(Long.valueOf(0L), deletedUsage.getBytes());
+  }
+
   @Test
   public void shouldReturnAvailableProcessSteps() throws Exception {
     final Customer customer = CustomerGenerator.createRandomCustomer();
@@ -477,4 +704,17 @@ public class TestCustomer extends AbstractCustomerTest {
     Assert.assertEquals(1, closedProcessSteps.size());
     Assert.assertEquals(Command.Action.REOPEN.name(), closedProcessSteps.get(0).getCommand().getAction());
   }
+
+  private static MockMultipartFile portrait() throws IOException {
+    final Random random = new Random();
+    final BufferedImage image = new BufferedImage(200, 150, BufferedImage.TYPE_INT_RGB);
+    for (int y = 0; y < image.getHeight(); y++) {
+      for (int x = 0; x < image.getWidth(); x++) {
+        image.setRGB(x, y, random.nextInt(0x1000000));
+      }
+    }
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ImageIO.write(image, "png", output);
+    return new MockMultipartFile("portrait", "test.png", MediaType.IMAGE_PNG_VALUE, output.toByteArray());
+  }
 }
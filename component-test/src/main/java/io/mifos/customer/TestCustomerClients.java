@@ -0,0 +1,101 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer;
+
+import io.mifos.customer.api.v1.CustomerEventConstants;
+import io.mifos.customer.api.v1.client.CachingCustomerManager;
+import io.mifos.customer.api.v1.client.CustomerClientCache;
+import io.mifos.customer.api.v1.config.EnableCustomerClientCache;
+import io.mifos.customer.api.v1.config.EnableCustomerHttpClient;
+import io.mifos.customer.api.v1.domain.Customer;
+import io.mifos.customer.api.v1.domain.CustomerPage;
+import io.mifos.customer.util.CustomerGenerator;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Runs the customer clients with the pooled HTTP client and the response cache, the other
+ * component tests use the stock Feign client.
+ *
+ * The context of this class starts the service on the test port as well, so it can't share a
+ * run with the other component tests and is left out of {@link TestSuite}; run it by itself.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT,
+    classes = {TestCustomerClients.ClientConfiguration.class},
+    properties = {"upload.image.processing.max-pixels=1000000"})
+public class TestCustomerClients extends AbstractCustomerTest {
+
+  @Configuration
+  @EnableCustomerHttpClient
+  @EnableCustomerClientCache
+  @Import({AbstractCustomerTest.TestConfiguration.class})
+  public static class ClientConfiguration {
+    public ClientConfiguration() {
+      super();
+    }
+  }
+
+  @SuppressWarnings("SpringAutowiredFieldsWarningInspection")
+  @Autowired
+  private CloseableHttpClient customerHttpClient;
+
+  @SuppressWarnings("SpringAutowiredFieldsWarningInspection")
+  @Autowired
+  private CustomerClientCache customerClientCache;
+
+  @Test
+  public void shouldFindCustomersThroughPooledClient() throws Exception {
+    Assert.assertNotNull(this.customerHttpClient);
+
+    final Customer customer = CustomerGenerator.createRandomCustomer();
+    this.customerManager.createCustomer(customer);
+
+    this.eventRecorder.wait(CustomerEventConstants.POST_CUSTOMER, customer.getIdentifier());
+
+    final Customer foundCustomer = this.customerManager.findCustomer(customer.getIdentifier());
+    Assert.assertEquals(customer.getIdentifier(), foundCustomer.getIdentifier());
+
+    final CustomerPage customerPage = this.customerManager.fetchCustomers(customer.getIdentifier(), Boolean.FALSE, 0, 20, null, null);
+    Assert.assertTrue(customerPage.getCustomers().stream()
+        .anyMatch(pagedCustomer -> pagedCustomer.getIdentifier().equals(customer.getIdentifier())));
+  }
+
+  @Test
+  public void shouldFindCachedCustomer() throws Exception {
+    final Customer customer = CustomerGenerator.createRandomCustomer();
+    this.customerManager.createCustomer(customer);
+
+    this.eventRecorder.wait(CustomerEventConstants.POST_CUSTOMER, customer.getIdentifier());
+
+    final CachingCustomerManager cachingCustomerManager =
+        new CachingCustomerManager(this.customerManager, this.customerClientCache);
+    final Customer firstFoundCustomer = cachingCustomerManager.findCustomer(customer.getIdentifier());
+    Assert.assertSame(firstFoundCustomer, cachingCustomerManager.findCustomer(customer.getIdentifier()));
+
+    customer.setMember(!customer.getMember());
+    cachingCustomerManager.updateCustomer(customer.getIdentifier(), customer);
+
+    this.eventRecorder.wait(CustomerEventConstants.PUT_CUSTOMER, customer.getIdentifier());
+
+    final Customer updatedCustomer = cachingCustomerManager.findCustomer(customer.getIdentifier());
+    Assert.assertNotSame(firstFoundCustomer, updatedCustomer);
+  }
+}
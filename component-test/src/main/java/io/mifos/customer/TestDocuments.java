@@ -20,10 +20,14 @@ import io.mifos.core.test.domain.TimeStampChecker;
 import io.mifos.customer.api.v1.CustomerEventConstants;
 import io.mifos.customer.api.v1.client.CompletedDocumentCannotBeChangedException;
 import io.mifos.customer.api.v1.client.DocumentValidationException;
+import io.mifos.customer.api.v1.client.UploadNotFoundException;
+import io.mifos.customer.api.v1.client.UploadOffsetMismatchException;
 import io.mifos.customer.api.v1.domain.Customer;
 import io.mifos.customer.api.v1.domain.CustomerDocument;
+import io.mifos.customer.api.v1.domain.Upload;
 import io.mifos.customer.api.v1.events.DocumentEvent;
 import io.mifos.customer.api.v1.events.DocumentPageEvent;
+import io.mifos.customer.api.v1.events.DocumentPagesEvent;
 import io.mifos.customer.util.CustomerDocumentGenerator;
 import io.mifos.customer.util.CustomerGenerator;
 import org.apache.commons.lang3.RandomStringUtils;
@@ -31,12 +35,16 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.StreamUtils;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 /**
  * @author Myrle Krantz
@@ -190,6 +198,13 @@ public class TestDocuments extends AbstractCustomerTest {
     catch (final CompletedDocumentCannotBeChangedException ignored) {}
 
 
+    logger.info("Check that a completed document can be completed again");
+    customerDocumentsManager.completeDocument(customer.getIdentifier(), customerDocument.getIdentifier(), true);
+    Assert.assertTrue(eventRecorder.wait(CustomerEventConstants.POST_DOCUMENT_COMPLETE,
+        new DocumentEvent(customer.getIdentifier(), customerDocument.getIdentifier())));
+    Assert.assertTrue(customerDocumentsManager.getDocument(customer.getIdentifier(), customerDocument.getIdentifier()).isCompleted());
+
+
     logger.info("Check that document is in the list");
     final List<CustomerDocument> documents = customerDocumentsManager.getDocuments(customer.getIdentifier());
     final boolean documentIsInList = documents.stream().anyMatch(x ->
@@ -199,6 +214,162 @@ public class TestDocuments extends AbstractCustomerTest {
   }
 
 
+  @Test
+  public void shouldKeepSharedPageContentUntilLastReferenceIsDeleted() throws InterruptedException, IOException {
+    logger.info("Prepare test");
+    final Customer customer = CustomerGenerator.createRandomCustomer();
+    customerManager.createCustomer(customer);
+    Assert.assertTrue(eventRecorder.wait(CustomerEventConstants.POST_CUSTOMER, customer.getIdentifier()));
+
+    final CustomerDocument firstDocument = CustomerDocumentGenerator.createRandomCustomerDocument();
+    final CustomerDocument secondDocument = CustomerDocumentGenerator.createRandomCustomerDocument();
+    for (final CustomerDocument customerDocument : Arrays.asList(firstDocument, secondDocument)) {
+      customerDocumentsManager.createDocument(customer.getIdentifier(), customerDocument.getIdentifier(), customerDocument);
+      Assert.assertTrue(eventRecorder.wait(CustomerEventConstants.POST_DOCUMENT,
+          new DocumentEvent(customer.getIdentifier(), customerDocument.getIdentifier())));
+    }
+
+    logger.info("Upload the same page to both documents");
+    final MockMultipartFile page = new MockMultipartFile(
+        "page",
+        "test.png",
+        MediaType.IMAGE_PNG_VALUE,
+        RandomStringUtils.randomAlphanumeric(20).getBytes());
+    for (final CustomerDocument customerDocument : Arrays.asList(firstDocument, secondDocument)) {
+      customerDocumentsManager.createDocumentPage(customer.getIdentifier(), customerDocument.getIdentifier(), 0, page);
+      Assert.assertTrue(eventRecorder.wait(CustomerEventConstants.POST_DOCUMENT_PAGE,
+          new DocumentPageEvent(customer.getIdentifier(), customerDocument.getIdentifier(), 0)));
+    }
+
+    logger.info("Delete the first document");
+    customerDocumentsManager.deleteDocument(customer.getIdentifier(), firstDocument.getIdentifier());
+    Assert.assertTrue(eventRecorder.wait(CustomerEventConstants.DELETE_DOCUMENT,
+        new DocumentEvent(customer.getIdentifier(), firstDocument.getIdentifier())));
+
+    final byte[] remainingPage = customerDocumentsManager.getDocumentPage(customer.getIdentifier(), secondDocument.getIdentifier(), 0);
+    Assert.assertTrue(Arrays.equals(page.getBytes(), remainingPage));
+  }
+
+  @Test
+  public void shouldUploadAndCompleteDocumentPagesAtOnce() throws InterruptedException, IOException {
+    logger.info("Prepare test");
+    final Customer customer = CustomerGenerator.createRandomCustomer();
+    customerManager.createCustomer(customer);
+    Assert.assertTrue(eventRecorder.wait(CustomerEventConstants.POST_CUSTOMER, customer.getIdentifier()));
+
+    final CustomerDocument customerDocument = CustomerDocumentGenerator.createRandomCustomerDocument();
+    customerDocumentsManager.createDocument(customer.getIdentifier(), customerDocument.getIdentifier(), customerDocument);
+    Assert.assertTrue(eventRecorder.wait(CustomerEventConstants.POST_DOCUMENT,
+        new DocumentEvent(customer.getIdentifier(), customerDocument.getIdentifier())));
+
+    final MockMultipartFile[] pages = IntStream.range(0, 3)
+        .mapToObj(i -> new MockMultipartFile(
+            "pages",
+            "test" + i + ".png",
+            MediaType.IMAGE_PNG_VALUE,
+            RandomStringUtils.randomAlphanumeric(20).getBytes()))
+        .toArray(MockMultipartFile[]::new);
+
+    customerDocumentsManager.createDocumentPages(customer.getIdentifier(), customerDocument.getIdentifier(), 0, true, pages);
+    Assert.assertTrue(eventRecorder.wait(CustomerEventConstants.POST_DOCUMENT_PAGES,
+        new DocumentPagesEvent(customer.getIdentifier(), customerDocument.getIdentifier(), Arrays.asList(0, 1, 2))));
+    Assert.assertTrue(eventRecorder.wait(CustomerEventConstants.POST_DOCUMENT_COMPLETE,
+        new DocumentEvent(customer.getIdentifier(), customerDocument.getIdentifier())));
+
+    for (int i = 0; i < pages.length; i++) {
+      final byte[] uploadedPage = customerDocumentsManager.getDocumentPage(customer.getIdentifier(), customerDocument.getIdentifier(), i);
+      Assert.assertTrue("Page " + i, Arrays.equals(pages[i].getBytes(), uploadedPage));
+    }
+    Assert.assertTrue(customerDocumentsManager.getDocument(customer.getIdentifier(), customerDocument.getIdentifier()).isCompleted());
+  }
+
+  @Test
+  public void shouldDownloadDocumentArchive() throws InterruptedException, IOException {
+    logger.info("Prepare test");
+    final Customer customer = CustomerGenerator.createRandomCustomer();
+    customerManager.createCustomer(customer);
+    Assert.assertTrue(eventRecorder.wait(CustomerEventConstants.POST_CUSTOMER, customer.getIdentifier()));
+
+    final CustomerDocument customerDocument = CustomerDocumentGenerator.createRandomCustomerDocument();
+    customerDocumentsManager.createDocument(customer.getIdentifier(), customerDocument.getIdentifier(), customerDocument);
+    Assert.assertTrue(eventRecorder.wait(CustomerEventConstants.POST_DOCUMENT,
+        new DocumentEvent(customer.getIdentifier(), customerDocument.getIdentifier())));
+
+    for (int i = 0; i < 3; i++) {
+      createDocumentPage(customer.getIdentifier(), customerDocument.getIdentifier(), i);
+    }
+
+    final byte[] archive = customerDocumentsManager.getDocumentArchive(customer.getIdentifier(), customerDocument.getIdentifier());
+
+    try (final ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(archive))) {
+      for (int i = 0; i < 3; i++) {
+        final ZipEntry zipEntry = zipInputStream.getNextEntry();
+        Assert.assertNotNull("Page " + i, zipEntry);
+        Assert.assertEquals(String.format("page-%04d.png", i), zipEntry.getName());
+        final byte[] page = customerDocumentsManager.getDocumentPage(customer.getIdentifier(), customerDocument.getIdentifier(), i);
+        Assert.assertTrue("Page " + i, Arrays.equals(page, StreamUtils.copyToByteArray(zipInputStream)));
+      }
+      Assert.assertNull(zipInputStream.getNextEntry());
+    }
+  }
+
+  @Test
+  public void shouldUploadDocumentPageInChunks() throws InterruptedException {
+    logger.info("Prepare test");
+    final Customer customer = CustomerGenerator.createRandomCustomer();
+    customerManager.createCustomer(customer);
+    Assert.assertTrue(eventRecorder.wait(CustomerEventConstants.POST_CUSTOMER, customer.getIdentifier()));
+
+    final CustomerDocument customerDocument = CustomerDocumentGenerator.createRandomCustomerDocument();
+    customerDocumentsManager.createDocument(customer.getIdentifier(), customerDocument.getIdentifier(), customerDocument);
+    Assert.assertTrue(eventRecorder.wait(CustomerEventConstants.POST_DOCUMENT,
+        new DocumentEvent(customer.getIdentifier(), customerDocument.getIdentifier())));
+
+    final byte[] content = RandomStringUtils.randomAlphanumeric(3000).getBytes();
+    final Upload upload = new Upload();
+    upload.setContentType(MediaType.IMAGE_PNG_VALUE);
+    upload.setSize((long) content.length);
+
+    logger.info("Upload the first two chunks");
+    final Upload initiated = customerDocumentsManager.initiateDocumentPageUpload(
+        customer.getIdentifier(), customerDocument.getIdentifier(), 0, upload);
+    Assert.assertEquals(Long.valueOf(0L), initiated.getReceived());
+    customerDocumentsManager.uploadDocumentPageChunk(customer.getIdentifier(), customerDocument.getIdentifier(), 0,
+        initiated.getIdentifier(), 0L, Arrays.copyOfRange(content, 0, 1000));
+    customerDocumentsManager.uploadDocumentPageChunk(customer.getIdentifier(), customerDocument.getIdentifier(), 0,
+        initiated.getIdentifier(), 1000L, Arrays.copyOfRange(content, 1000, 2000));
+
+    logger.info("Check that a chunk at the wrong offset is rejected");
+    try {
+      customerDocumentsManager.uploadDocumentPageChunk(customer.getIdentifier(), customerDocument.getIdentifier(), 0,
+          initiated.getIdentifier(), 1000L, Arrays.copyOfRange(content, 1000, 2000));
+      Assert.fail("Resending a chunk shouldn't be possible.");
+    }
+    catch (final UploadOffsetMismatchException ignored) {}
+
+    logger.info("Resume and finalize the upload");
+    final Upload resumed = customerDocumentsManager.getDocumentPageUpload(customer.getIdentifier(),
+        customerDocument.getIdentifier(), 0, initiated.getIdentifier());
+    Assert.assertEquals(Long.valueOf(2000L), resumed.getReceived());
+    customerDocumentsManager.uploadDocumentPageChunk(customer.getIdentifier(), customerDocument.getIdentifier(), 0,
+        initiated.getIdentifier(), resumed.getReceived(), Arrays.copyOfRange(content, 2000, content.length));
+    customerDocumentsManager.finalizeDocumentPageUpload(customer.getIdentifier(), customerDocument.getIdentifier(), 0,
+        initiated.getIdentifier());
+    Assert.assertTrue(eventRecorder.wait(CustomerEventConstants.POST_DOCUMENT_PAGE,
+        new DocumentPageEvent(customer.getIdentifier(), customerDocument.getIdentifier(), 0)));
+
+    final byte[] uploadedPage = customerDocumentsManager.getDocumentPage(customer.getIdentifier(), customerDocument.getIdentifier(), 0);
+    Assert.assertTrue(Arrays.equals(content, uploadedPage));
+
+    try {
+      customerDocumentsManager.getDocumentPageUpload(customer.getIdentifier(), customerDocument.getIdentifier(), 0,
+          initiated.getIdentifier());
+      Assert.fail("A finalized upload should not be findable");
+    }
+    catch (final UploadNotFoundException ignored) {}
+  }
+
+
   private void createDocumentPage(
       final String customerIdentifier,
       final String documentIdentifier,
@@ -32,6 +32,10 @@ import org.junit.Test;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.util.List;
 import java.util.stream.Stream;
 
@@ -177,6 +181,31 @@ public class TestIdentificationCards extends AbstractCustomerTest {
     Assert.assertArrayEquals(imageInBytes, persistedImageInBytes);
   }
 
+  @Test
+  public void shouldNormalizeScanImage() throws Exception {
+    final String customerIdentifier = this.createCustomer();
+
+    final String identificationCardNumber = this.createIdentificationCard(customerIdentifier);
+
+    final IdentificationCardScan scan = ScanGenerator.createRandomScan(null);
+
+    // wider than an A4 page at 300 DPI
+    final ByteArrayOutputStream screenshot = new ByteArrayOutputStream();
+    ImageIO.write(new BufferedImage(4000, 100, BufferedImage.TYPE_INT_RGB), "png", screenshot);
+
+    final MockMultipartFile image = new MockMultipartFile("image", "test.png", MediaType.IMAGE_PNG_VALUE, screenshot.toByteArray());
+
+    this.customerManager.postIdentificationCardScan(customerIdentifier, identificationCardNumber, scan.getIdentifier(), scan.getDescription(), image);
+
+    this.eventRecorder.wait(CustomerEventConstants.POST_IDENTIFICATION_CARD_SCAN, new ScanEvent(identificationCardNumber, scan.getIdentifier()));
+
+    final byte[] persistedImageInBytes = this.customerManager.fetchIdentificationCardScanImage(customerIdentifier, identificationCardNumber, scan.getIdentifier());
+
+    Assert.assertEquals(0xFF, persistedImageInBytes[0] & 0xFF);
+    Assert.assertEquals(0xD8, persistedImageInBytes[1] & 0xFF);
+    Assert.assertEquals(3508, ImageIO.read(new ByteArrayInputStream(persistedImageInBytes)).getWidth());
+  }
+
   @Test(expected = ScanAlreadyExistsException.class)
   public void shouldThrowIfScanAlreadyExists() throws Exception {
     final String customerIdentifier = this.createCustomer();
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer;
+
+import io.mifos.customer.api.v1.CustomerEventConstants;
+import io.mifos.customer.api.v1.domain.Command;
+import io.mifos.customer.api.v1.domain.Customer;
+import io.mifos.customer.service.internal.archive.ImageArchive;
+import io.mifos.customer.service.internal.blob.BlobDeduplicator;
+import io.mifos.customer.service.internal.repository.CustomerRepository;
+import io.mifos.customer.service.internal.repository.PortraitEntity;
+import io.mifos.customer.service.internal.repository.PortraitRepository;
+import io.mifos.customer.util.CommandGenerator;
+import io.mifos.customer.util.CustomerGenerator;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+
+public class TestImageArchive extends AbstractCustomerTest {
+
+  @Autowired
+  private ImageArchive imageArchive;
+
+  @Autowired
+  private BlobDeduplicator blobDeduplicator;
+
+  @Autowired
+  private CustomerRepository customerRepository;
+
+  @Autowired
+  private PortraitRepository portraitRepository;
+
+  @Test
+  public void shouldArchiveAndRestorePortrait() throws Exception {
+    final Customer customer = this.createClosedCustomerWithPortrait("closed portrait");
+
+    this.imageArchive.archivePortraits(this.inAMinute(), 100);
+    final PortraitEntity archivedPortrait = this.findPortrait(customer);
+    Assert.assertNotNull(archivedPortrait.getArchiveId());
+    Assert.assertNull(archivedPortrait.getBlobId());
+    Assert.assertArrayEquals("closed portrait".getBytes(), this.customerManager.getPortrait(customer.getIdentifier()));
+
+    this.reopen(customer);
+    final PortraitEntity restoredPortrait = this.findPortrait(customer);
+    Assert.assertNull(restoredPortrait.getArchiveId());
+    Assert.assertNotNull(restoredPortrait.getBlobId());
+    Assert.assertArrayEquals("closed portrait".getBytes(), this.customerManager.getPortrait(customer.getIdentifier()));
+  }
+
+  @Test
+  public void shouldNotArchivePortraitOfReopenedCustomer() throws Exception {
+    final Customer customer = this.createClosedCustomerWithPortrait("reopened portrait");
+    this.reopen(customer);
+
+    this.imageArchive.archivePortraits(this.inAMinute(), 100);
+    final PortraitEntity portrait = this.findPortrait(customer);
+    Assert.assertNull(portrait.getArchiveId());
+    Assert.assertNotNull(portrait.getBlobId());
+  }
+
+  @Test
+  public void shouldKeepArchivedPortraitOnInitialize() throws Exception {
+    final Customer customer = this.createClosedCustomerWithPortrait("archived portrait");
+
+    this.imageArchive.archivePortraits(this.inAMinute(), 100);
+    Assert.assertNotNull(this.findPortrait(customer).getArchiveId());
+
+    // initializing the service again deduplicates images, archived ones have to stay archived
+    this.blobDeduplicator.deduplicate();
+    final PortraitEntity archivedPortrait = this.findPortrait(customer);
+    Assert.assertNotNull(archivedPortrait.getArchiveId());
+    Assert.assertNull(archivedPortrait.getBlobId());
+
+    this.reopen(customer);
+    final PortraitEntity restoredPortrait = this.findPortrait(customer);
+    Assert.assertNull(restoredPortrait.getArchiveId());
+    Assert.assertNotNull(restoredPortrait.getBlobId());
+    Assert.assertArrayEquals("archived portrait".getBytes(), this.customerManager.getPortrait(customer.getIdentifier()));
+  }
+
+  private Customer createClosedCustomerWithPortrait(final String portrait) throws Exception {
+    final Customer customer = CustomerGenerator.createRandomCustomer();
+    this.customerManager.createCustomer(customer);
+    this.eventRecorder.wait(CustomerEventConstants.POST_CUSTOMER, customer.getIdentifier());
+
+    this.customerManager.postPortrait(customer.getIdentifier(),
+        new MockMultipartFile("portrait", "test.png", MediaType.IMAGE_PNG_VALUE, portrait.getBytes()));
+    this.eventRecorder.wait(CustomerEventConstants.POST_PORTRAIT, customer.getIdentifier());
+
+    this.customerManager.customerCommand(customer.getIdentifier(), CommandGenerator.create(Command.Action.CLOSE, "Test"));
+    this.eventRecorder.wait(CustomerEventConstants.CLOSE_CUSTOMER, customer.getIdentifier());
+    return customer;
+  }
+
+  private void reopen(final Customer customer) throws Exception {
+    this.customerManager.customerCommand(customer.getIdentifier(), CommandGenerator.create(Command.Action.REOPEN, "Test"));
+    this.eventRecorder.wait(CustomerEventConstants.REOPEN_CUSTOMER, customer.getIdentifier());
+  }
+
+  private PortraitEntity findPortrait(final Customer customer) {
+    return this.portraitRepository.findByCustomer(
+        this.customerRepository.findByIdentifier(customer.getIdentifier()).orElseThrow(AssertionError::new));
+  }
+
+  private LocalDateTime inAMinute() {
+    return LocalDateTime.now(Clock.systemUTC()).plusMinutes(1L);
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer;
+
+import io.mifos.core.api.util.UserContextHolder;
+import io.mifos.core.lang.TenantContextHolder;
+import io.mifos.customer.api.v1.CustomerEventConstants;
+import io.mifos.customer.api.v1.domain.Command;
+import io.mifos.customer.api.v1.domain.Customer;
+import io.mifos.customer.load.LatencyRecorder;
+import io.mifos.customer.load.LoadGenerator;
+import io.mifos.customer.load.LoadProfile;
+import io.mifos.customer.load.Operation;
+import io.mifos.customer.util.CommandGenerator;
+import io.mifos.customer.util.CustomerGenerator;
+import org.junit.Assume;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Drives the service with a configurable mix of operations at a fixed arrival rate and reports
+ * the latency percentiles of each operation, see {@link LoadProfile} for the options.
+ *
+ * The service runs against the same local MariaDB and Cassandra as the component tests.  The run
+ * is skipped unless enabled with {@code -Dload.enabled=true}.
+ */
+public class TestLoad extends AbstractCustomerTest {
+
+  @Test
+  public void shouldReportLatencies() throws Exception {
+    Assume.assumeTrue(Boolean.getBoolean("load.enabled"));
+
+    final LoadProfile loadProfile = LoadProfile.fromSystemProperties();
+    this.logger.info("Starting load run: {}", loadProfile);
+
+    final List<String> customerIdentifiers = this.createCustomers(loadProfile.getCustomers());
+    final Map<String, Boolean> lockedCustomers = new ConcurrentHashMap<>();
+    final byte[] portrait = createPortrait(loadProfile.getUploadSize(), new SplittableRandom(loadProfile.getSeed()));
+
+    final Map<Operation, Consumer<SplittableRandom>> operations = new EnumMap<>(Operation.class);
+    operations.put(Operation.CREATE, random -> this.customerManager.createCustomer(CustomerGenerator.createRandomCustomer()));
+    operations.put(Operation.SEARCH, random -> this.customerManager.fetchCustomers(
+        pick(customerIdentifiers, random).substring(0, 3), Boolean.FALSE, 0, 20, null, null));
+    operations.put(Operation.READ, random -> this.customerManager.findCustomer(pick(customerIdentifiers, random)));
+    operations.put(Operation.UPDATE, random -> {
+      final Customer customer = CustomerGenerator.createRandomCustomer();
+      customer.setIdentifier(pick(customerIdentifiers, random));
+      this.customerManager.updateCustomer(customer.getIdentifier(), customer);
+    });
+    operations.put(Operation.UPLOAD, random -> this.customerManager.postPortrait(pick(customerIdentifiers, random),
+        new MockMultipartFile("portrait", "portrait.png", MediaType.IMAGE_PNG_VALUE, portrait)));
+    operations.put(Operation.LIFECYCLE, random -> {
+      final String identifier = pick(customerIdentifiers, random);
+      final boolean locked = lockedCustomers.getOrDefault(identifier, Boolean.FALSE);
+      lockedCustomers.put(identifier, !locked);
+      this.customerManager.customerCommand(identifier,
+          CommandGenerator.create(locked ? Command.Action.UNLOCK : Command.Action.LOCK, "load"));
+    });
+
+    final LatencyRecorder latencyRecorder = new LatencyRecorder();
+    new LoadGenerator(loadProfile, this.withCallerContext(operations), latencyRecorder).run();
+
+    final LatencyRecorder.Report report = latencyRecorder.report(loadProfile.getDuration(),
+        new File(System.getProperty("load.report-dir", "build/reports/load")));
+    this.logger.info("Load run finished, {} operations, {} failed:\n{}",
+        report.getTotalCount(), report.getTotalFailures(), report);
+  }
+
+  private List<String> createCustomers(final int count) throws InterruptedException {
+    final List<String> customerIdentifiers = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      final Customer customer = CustomerGenerator.createRandomCustomer();
+      this.customerManager.createCustomer(customer);
+      customerIdentifiers.add(customer.getIdentifier());
+    }
+    for (final String customerIdentifier : customerIdentifiers) {
+      this.eventRecorder.wait(CustomerEventConstants.POST_CUSTOMER, customerIdentifier);
+    }
+    return customerIdentifiers;
+  }
+
+  private Map<Operation, Consumer<SplittableRandom>> withCallerContext(
+      final Map<Operation, Consumer<SplittableRandom>> operations) {
+    // Tenant and user are thread bound, the workers need the ones of the test.
+    final String tenantIdentifier = TenantContextHolder.checkedGetIdentifier();
+    final String user = UserContextHolder.checkedGetUser();
+    final String accessToken = UserContextHolder.checkedGetAccessToken();
+
+    final Map<Operation, Consumer<SplittableRandom>> operationsWithContext = new EnumMap<>(Operation.class);
+    operations.forEach((operation, consumer) -> operationsWithContext.put(operation, random -> {
+      TenantContextHolder.clear();
+      TenantContextHolder.setIdentifier(tenantIdentifier);
+      UserContextHolder.setAccessToken(user, accessToken);
+      consumer.accept(random);
+    }));
+    return operationsWithContext;
+  }
+
+  private static String pick(final List<String> customerIdentifiers, final SplittableRandom random) {
+    return customerIdentifiers.get(random.nextInt(customerIdentifiers.size()));
+  }
+
+  /**
+   * Creates a PNG of random pixels, which does not compress, so the file is about the given size.
+   */
+  private static byte[] createPortrait(final int size, final SplittableRandom random) throws IOException {
+    final int side = Math.max(1, (int) Math.sqrt(size / 3.0D));
+    final BufferedImage image = new BufferedImage(side, side, BufferedImage.TYPE_INT_RGB);
+    for (int y = 0; y < side; y++) {
+      for (int x = 0; x < side; x++) {
+        image.setRGB(x, y, random.nextInt(0x1000000));
+      }
+    }
+
+    final ByteArrayOutputStream output = new ByteArrayOutputStream(size);
+    ImageIO.write(image, "png", output);
+    return output.toByteArray();
+  }
+}
@@ -28,7 +28,8 @@ import org.junit.runners.Suite;
     TestInfrastructure.class,
     TestTaskDefinition.class,
     TestTaskInstance.class,
-    TestDocuments.class
+    TestDocuments.class,
+    TestImageArchive.class
 })
 public class TestSuite extends SuiteTestEnvironment {
 }
@@ -20,6 +20,7 @@ import io.mifos.core.test.listener.EventRecorder;
 import io.mifos.customer.api.v1.CustomerEventConstants;
 import io.mifos.customer.api.v1.events.DocumentEvent;
 import io.mifos.customer.api.v1.events.DocumentPageEvent;
+import io.mifos.customer.api.v1.events.DocumentPagesEvent;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jms.annotation.JmsListener;
 import org.springframework.messaging.handler.annotation.Header;
@@ -79,6 +80,16 @@ public class DocumentEventListener {
     this.eventRecorder.event(tenant, CustomerEventConstants.POST_DOCUMENT_PAGE, payload, DocumentPageEvent.class);
   }
 
+  @JmsListener(
+      destination = CustomerEventConstants.DESTINATION,
+      selector = CustomerEventConstants.SELECTOR_POST_DOCUMENT_PAGES
+  )
+  public void postDocumentPagesEvent(
+      @Header(TenantHeaderFilter.TENANT_HEADER) final String tenant,
+      final String payload) {
+    this.eventRecorder.event(tenant, CustomerEventConstants.POST_DOCUMENT_PAGES, payload, DocumentPagesEvent.class);
+  }
+
   @JmsListener(
       destination = CustomerEventConstants.DESTINATION,
       selector = CustomerEventConstants.SELECTOR_DELETE_DOCUMENT_PAGE
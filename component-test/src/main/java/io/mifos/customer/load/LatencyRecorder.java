@@ -0,0 +1,121 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.load;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the latency of every operation in a HdrHistogram, measured from the moment the
+ * operation was scheduled to start.  Time spent waiting for a free client thread therefore counts
+ * as latency, which avoids hiding a saturated service behind a slow client.
+ */
+public final class LatencyRecorder {
+
+  private static final long HIGHEST_TRACKABLE_LATENCY = TimeUnit.MINUTES.toNanos(5L);
+  private static final double NANOS_PER_MILLI = 1_000_000.0D;
+
+  private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+  private final Map<Operation, AtomicLong> failures = new EnumMap<>(Operation.class);
+
+  public LatencyRecorder() {
+    super();
+    for (final Operation operation : Operation.values()) {
+      this.recorders.put(operation, new Recorder(HIGHEST_TRACKABLE_LATENCY, 3));
+      this.failures.put(operation, new AtomicLong());
+    }
+  }
+
+  public void record(final Operation operation, final long latencyNanos, final boolean succeeded) {
+    this.recorders.get(operation).recordValue(Math.min(latencyNanos, HIGHEST_TRACKABLE_LATENCY));
+    if (!succeeded) {
+      this.failures.get(operation).incrementAndGet();
+    }
+  }
+
+  /**
+   * Summarizes the latencies recorded so far.  In addition, the full percentile
+   * distribution of each operation is written to the report directory, if one is given.
+   */
+  public Report report(final int durationSeconds, final File reportDirectory) throws FileNotFoundException {
+    final Report report = new Report();
+    for (final Operation operation : Operation.values()) {
+      final Histogram histogram = this.recorders.get(operation).getIntervalHistogram();
+      if (histogram.getTotalCount() == 0L) {
+        continue;
+      }
+      report.add(operation, histogram, this.failures.get(operation).get(), durationSeconds);
+
+      if (reportDirectory != null) {
+        if (!reportDirectory.exists() && !reportDirectory.mkdirs()) {
+          throw new FileNotFoundException("Could not create " + reportDirectory);
+        }
+        try (final PrintStream printStream = new PrintStream(new File(reportDirectory, operation.name().toLowerCase() + ".hgrm"))) {
+          histogram.outputPercentileDistribution(printStream, NANOS_PER_MILLI);
+        }
+      }
+    }
+    return report;
+  }
+
+  public static final class Report {
+
+    private final StringBuilder summary = new StringBuilder(String.format(
+        "%-10s %9s %9s %9s %9s %9s %9s %9s %9s%n", "operation", "count", "failed", "ops/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+    private long totalCount;
+    private long totalFailures;
+
+    private Report() {
+      super();
+    }
+
+    private void add(final Operation operation, final Histogram histogram, final long failures, final int durationSeconds) {
+      this.totalCount += histogram.getTotalCount();
+      this.totalFailures += failures;
+      this.summary.append(String.format("%-10s %9d %9d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+          operation.name().toLowerCase(),
+          histogram.getTotalCount(),
+          failures,
+          (double) histogram.getTotalCount() / durationSeconds,
+          histogram.getValueAtPercentile(50.0D) / NANOS_PER_MILLI,
+          histogram.getValueAtPercentile(90.0D) / NANOS_PER_MILLI,
+          histogram.getValueAtPercentile(99.0D) / NANOS_PER_MILLI,
+          histogram.getValueAtPercentile(99.9D) / NANOS_PER_MILLI,
+          histogram.getMaxValue() / NANOS_PER_MILLI));
+    }
+
+    public long getTotalCount() {
+      return this.totalCount;
+    }
+
+    public long getTotalFailures() {
+      return this.totalFailures;
+    }
+
+    @Override
+    public String toString() {
+      return this.summary.toString();
+    }
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.load;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Issues operations at the fixed rate of a {@link LoadProfile} (open loop).  Operations are picked
+ * by a random generator seeded from the profile, so every run issues the same sequence.  Each
+ * operation is handed a generator split off the seeded one in that sequence, so the choices made
+ * by the operations do not depend on which worker happens to run them either.
+ */
+public final class LoadGenerator {
+
+  private final LoadProfile loadProfile;
+  private final Map<Operation, Consumer<SplittableRandom>> operations;
+  private final LatencyRecorder latencyRecorder;
+
+  public LoadGenerator(final LoadProfile loadProfile,
+                       final Map<Operation, Consumer<SplittableRandom>> operations,
+                       final LatencyRecorder latencyRecorder) {
+    super();
+    this.loadProfile = loadProfile;
+    this.operations = operations;
+    this.latencyRecorder = latencyRecorder;
+  }
+
+  public void run() throws InterruptedException {
+    final AtomicInteger threadCount = new AtomicInteger();
+    final ExecutorService workers = Executors.newFixedThreadPool(this.loadProfile.getWorkers(), runnable -> {
+      final Thread thread = new Thread(runnable, "load-worker-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    try {
+      final SplittableRandom random = new SplittableRandom(this.loadProfile.getSeed());
+      final long interval = (long) (TimeUnit.SECONDS.toNanos(1L) / this.loadProfile.getRate());
+      final long start = System.nanoTime();
+      final long measurementStart = start + TimeUnit.SECONDS.toNanos(this.loadProfile.getWarmup());
+      final long end = measurementStart + TimeUnit.SECONDS.toNanos(this.loadProfile.getDuration());
+
+      for (long next = start; next < end; next += interval) {
+        final long delay = next - System.nanoTime();
+        if (delay > 0L) {
+          LockSupport.parkNanos(delay);
+        }
+
+        final Operation operation = this.loadProfile.pick(random);
+        final SplittableRandom operationRandom = random.split();
+        final long intendedStart = next;
+        // Operations scheduled during the warm up are executed, but not recorded.
+        final boolean recorded = intendedStart >= measurementStart;
+        workers.execute(() -> this.execute(operation, operationRandom, intendedStart, recorded));
+      }
+    } finally {
+      workers.shutdown();
+      workers.awaitTermination(1L, TimeUnit.MINUTES);
+    }
+  }
+
+  private void execute(final Operation operation, final SplittableRandom random, final long intendedStart,
+                       final boolean recorded) {
+    boolean succeeded = false;
+    try {
+      this.operations.get(operation).accept(random);
+      succeeded = true;
+    } catch (final RuntimeException ignored) {
+      // counted as failure below
+    } finally {
+      if (recorded) {
+        this.latencyRecorder.record(operation, System.nanoTime() - intendedStart, succeeded);
+      }
+    }
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.load;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Describes a load run.  All values can be set through system properties, e.g.
+ * {@code -Dload.rate=200 -Dload.mix=create:10,search:20,read:40,update:10,upload:10,lifecycle:10}.
+ *
+ * <ul>
+ *   <li>load.rate - operations per second, issued at a fixed rate whether or not earlier
+ *   operations have completed (default 50)</li>
+ *   <li>load.duration - seconds measured (default 60)</li>
+ *   <li>load.warmup - seconds run before measuring (default 10)</li>
+ *   <li>load.workers - client threads executing the operations (default 64)</li>
+ *   <li>load.customers - customers created before the run, used by all but create (default 100)</li>
+ *   <li>load.upload-size - approximate size of the uploaded PNG portraits in bytes (default 65536)</li>
+ *   <li>load.seed - seed of the operation sequence (default 42)</li>
+ *   <li>load.mix - relative weights of the operations</li>
+ * </ul>
+ */
+public final class LoadProfile {
+
+  private static final String DEFAULT_MIX = "create:10,search:20,read:40,update:10,upload:10,lifecycle:10";
+
+  private final double rate;
+  private final int duration;
+  private final int warmup;
+  private final int workers;
+  private final int customers;
+  private final int uploadSize;
+  private final long seed;
+  private final Map<Operation, Integer> mix;
+  private final int totalWeight;
+
+  private LoadProfile(final double rate, final int duration, final int warmup, final int workers,
+                      final int customers, final int uploadSize, final long seed, final Map<Operation, Integer> mix) {
+    super();
+    if (rate <= 0.0D) {
+      throw new IllegalArgumentException("Rate must be positive.");
+    }
+    this.rate = rate;
+    this.duration = duration;
+    this.warmup = warmup;
+    this.workers = workers;
+    this.customers = customers;
+    this.uploadSize = uploadSize;
+    this.seed = seed;
+    this.mix = Collections.unmodifiableMap(mix);
+    this.totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+    if (this.totalWeight <= 0) {
+      throw new IllegalArgumentException("Mix must contain at least one operation.");
+    }
+  }
+
+  public static LoadProfile fromSystemProperties() {
+    return new LoadProfile(
+        Double.parseDouble(System.getProperty("load.rate", "50")),
+        Integer.getInteger("load.duration", 60),
+        Integer.getInteger("load.warmup", 10),
+        Integer.getInteger("load.workers", 64),
+        Integer.getInteger("load.customers", 100),
+        Integer.getInteger("load.upload-size", 65536),
+        Long.getLong("load.seed", 42L),
+        parseMix(System.getProperty("load.mix", DEFAULT_MIX)));
+  }
+
+  static Map<Operation, Integer> parseMix(final String mix) {
+    final Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+    for (final String entry : mix.split(",")) {
+      final String[] operationAndWeight = entry.trim().split(":");
+      if (operationAndWeight.length != 2) {
+        throw new IllegalArgumentException("Invalid mix entry " + entry + ", expected operation:weight.");
+      }
+      final int weight = Integer.parseInt(operationAndWeight[1].trim());
+      if (weight > 0) {
+        weights.put(Operation.valueOf(operationAndWeight[0].trim().toUpperCase()), weight);
+      }
+    }
+    return weights;
+  }
+
+  public Operation pick(final SplittableRandom random) {
+    int remaining = random.nextInt(this.totalWeight);
+    for (final Map.Entry<Operation, Integer> entry : this.mix.entrySet()) {
+      remaining -= entry.getValue();
+      if (remaining < 0) {
+        return entry.getKey();
+      }
+    }
+    throw new IllegalStateException("Weights do not add up.");
+  }
+
+  public double getRate() {
+    return this.rate;
+  }
+
+  public int getDuration() {
+    return this.duration;
+  }
+
+  public int getWarmup() {
+    return this.warmup;
+  }
+
+  public int getWorkers() {
+    return this.workers;
+  }
+
+  public int getCustomers() {
+    return this.customers;
+  }
+
+  public int getUploadSize() {
+    return this.uploadSize;
+  }
+
+  public long getSeed() {
+    return this.seed;
+  }
+
+  public Map<Operation, Integer> getMix() {
+    return this.mix;
+  }
+
+  @Override
+  public String toString() {
+    return "rate=" + this.rate + "/s, duration=" + this.duration + "s, warmup=" + this.warmup
+        + "s, workers=" + this.workers + ", customers=" + this.customers + ", seed=" + this.seed + ", mix=" + this.mix;
+  }
+}
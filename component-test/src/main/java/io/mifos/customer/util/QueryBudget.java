@@ -0,0 +1,56 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.util;
+
+import io.mifos.customer.service.internal.jdbc.SqlTracer;
+import io.mifos.customer.service.internal.jdbc.StatementStatistics;
+import org.junit.Assert;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pins the number of SQL statements a request or command may issue.  Reset the tracer before the
+ * call under test, scopes are named {@code <Controller>.<method>} or after the command.
+ */
+public final class QueryBudget {
+
+  private static final long WAIT_MILLIS = TimeUnit.SECONDS.toMillis(5L);
+
+  private QueryBudget() {
+    super();
+  }
+
+  public static StatementStatistics assertStatements(final SqlTracer sqlTracer, final String scope,
+                                                     final int maxStatements) throws InterruptedException {
+    final StatementStatistics statistics = await(sqlTracer, scope);
+    Assert.assertTrue("Query budget exceeded by " + statistics + ", statements issued: " + statistics.getStatementCounts(),
+        statistics.getStatements() <= maxStatements);
+    return statistics;
+  }
+
+  private static StatementStatistics await(final SqlTracer sqlTracer, final String scope) throws InterruptedException {
+    // The scope of a request ends after the response has been written.
+    final long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+    Optional<StatementStatistics> statistics = sqlTracer.lastCompleted(scope);
+    while (!statistics.isPresent() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(20L);
+      statistics = sqlTracer.lastCompleted(scope);
+    }
+    Assert.assertTrue("No SQL traced for " + scope, statistics.isPresent());
+    return statistics.get();
+  }
+}
@@ -17,8 +17,11 @@ package io.mifos.customer.catalog.service.internal.repository;
 
 import io.mifos.customer.service.internal.repository.CustomerEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,6 +30,12 @@ public interface FieldValueRepository extends JpaRepository<FieldValueEntity, Lo
 
   List<FieldValueEntity> findByCustomer(final CustomerEntity customer);
 
+  @Query("SELECT fv FROM FieldValueEntity fv JOIN FETCH fv.field f JOIN FETCH f.catalog WHERE fv.customer IN :customers")
+  List<FieldValueEntity> findByCustomerIn(@Param("customers") final Collection<CustomerEntity> customers);
+
+  @Query("SELECT fv FROM FieldValueEntity fv JOIN FETCH fv.customer c JOIN FETCH fv.field f JOIN FETCH f.catalog WHERE c.identifier IN :identifiers")
+  List<FieldValueEntity> findByCustomerIdentifierIn(@Param("identifiers") final Collection<String> identifiers);
+
   void deleteByCustomer(final CustomerEntity customer);
 
   Optional<FieldValueEntity> findByField(final FieldEntity fieldEntity);
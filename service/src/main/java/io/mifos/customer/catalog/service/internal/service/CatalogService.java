@@ -25,6 +25,7 @@ import io.mifos.customer.catalog.service.internal.repository.FieldEntity;
 import io.mifos.customer.catalog.service.internal.repository.FieldRepository;
 import io.mifos.customer.catalog.service.internal.repository.FieldValueRepository;
 import io.mifos.customer.service.ServiceConstants;
+import io.mifos.customer.service.internal.jdbc.ReplicaRead;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -59,6 +60,7 @@ public class CatalogService {
     return this.catalogRepository.findByIdentifier(identifier).isPresent();
   }
 
+  @ReplicaRead
   public List<Catalog> fetchAllCatalogs() {
     return this.catalogRepository.findAll()
         .stream()
@@ -75,6 +77,7 @@ public class CatalogService {
         .collect(Collectors.toList());
   }
 
+  @ReplicaRead
   public Optional<Catalog> findCatalog(final String identifier) {
     return this.catalogRepository.findByIdentifier(identifier)
         .map(catalogEntity -> {
@@ -17,7 +17,6 @@ package io.mifos.customer.catalog.service.rest.controller;
 
 import io.mifos.anubis.annotation.AcceptedTokenType;
 import io.mifos.anubis.annotation.Permittable;
-import io.mifos.core.command.gateway.CommandGateway;
 import io.mifos.core.lang.ServiceException;
 import io.mifos.customer.PermittableGroupIds;
 import io.mifos.customer.catalog.api.v1.domain.Catalog;
@@ -28,6 +27,7 @@ import io.mifos.customer.catalog.service.internal.command.DeleteCatalogCommand;
 import io.mifos.customer.catalog.service.internal.command.DeleteFieldCommand;
 import io.mifos.customer.catalog.service.internal.service.CatalogService;
 import io.mifos.customer.service.ServiceConstants;
+import io.mifos.customer.service.internal.command.scheduler.CommandScheduler;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -48,16 +48,16 @@ import java.util.List;
 public class CatalogRestController {
 
   private final Logger logger;
-  private final CommandGateway commandGateway;
+  private final CommandScheduler commandScheduler;
   private final CatalogService catalogService;
 
   @Autowired
   public CatalogRestController(@Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger,
-                               final CommandGateway commandGateway,
+                               final CommandScheduler commandScheduler,
                                final CatalogService catalogService) {
     super();
     this.logger = logger;
-    this.commandGateway = commandGateway;
+    this.commandScheduler = commandScheduler;
     this.catalogService = catalogService;
   }
 
@@ -74,7 +74,7 @@ public class CatalogRestController {
     if (this.catalogService.catalogExists(catalog.getIdentifier())) {
       throw ServiceException.conflict("Catalog {0} already exists.", catalog.getIdentifier());
     }
-    this.commandGateway.process(new CreateCatalogCommand(catalog));
+    this.commandScheduler.process(new CreateCatalogCommand(catalog));
     return ResponseEntity.accepted().build();
   }
 
@@ -121,7 +121,7 @@ public class CatalogRestController {
       throw ServiceException.conflict("Catalog {0} in use.", identifier);
     }
 
-    this.commandGateway.process(new DeleteCatalogCommand(identifier));
+    this.commandScheduler.process(new DeleteCatalogCommand(identifier));
 
     return ResponseEntity.accepted().build();
   }
@@ -142,7 +142,7 @@ public class CatalogRestController {
       throw ServiceException.conflict("Field {0} in use.", fieldIdentifier);
     }
 
-    this.commandGateway.process(new ChangeFieldCommand(catalogIdentifier, field));
+    this.commandScheduler.process(new ChangeFieldCommand(catalogIdentifier, field));
 
     return ResponseEntity.accepted().build();
   }
@@ -162,7 +162,7 @@ public class CatalogRestController {
       throw ServiceException.conflict("Field {0} in use.", fieldIdentifier);
     }
 
-    this.commandGateway.process(new DeleteFieldCommand(catalogIdentifier, fieldIdentifier));
+    this.commandScheduler.process(new DeleteFieldCommand(catalogIdentifier, fieldIdentifier));
 
     return ResponseEntity.accepted().build();
   }
@@ -0,0 +1,424 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.archive;
+
+import io.mifos.customer.api.v1.domain.Customer;
+import io.mifos.customer.service.internal.blob.BlobStore;
+import io.mifos.customer.service.internal.repository.ArchivedContentRepository;
+import io.mifos.customer.service.internal.repository.ArchivedImageEntity;
+import io.mifos.customer.service.internal.repository.ArchivedImageRepository;
+import io.mifos.customer.service.internal.repository.CustomerEntity;
+import io.mifos.customer.service.internal.repository.CustomerRepository;
+import io.mifos.customer.service.internal.repository.DocumentPageEntity;
+import io.mifos.customer.service.internal.repository.DocumentPageRepository;
+import io.mifos.customer.service.internal.repository.IdentificationCardScanEntity;
+import io.mifos.customer.service.internal.repository.IdentificationCardScanRepository;
+import io.mifos.customer.service.internal.repository.PortraitEntity;
+import io.mifos.customer.service.internal.repository.PortraitRepository;
+import io.mifos.customer.service.internal.repository.RenditionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Moves the images of long closed customers out of the MariaDB blobs and rows active customers
+ * are read from into {@link ArchivedContentRepository}, and back once a customer is reopened.
+ * Only the archive's metadata stays in MariaDB.
+ *
+ * JPEG and PNG images are stored as they are, they do not get any smaller.  Other content is
+ * deflated, and kept deflated only if that saves at least a tenth of its size.
+ *
+ * An archived image is still read through its portrait, scan or page, after {@link #load}ing it
+ * from the archive.  Renditions of archived images are dropped, they are rendered again on
+ * request.
+ *
+ * Archiving and restoring lock the customer's row, so a customer reopened while its images are
+ * archived either has them restored or keeps them in place.  Archived content is deleted from
+ * Cassandra only once the transaction letting go of it has committed.
+ */
+@Component
+public class ImageArchive {
+
+  private static final String METRIC_ARCHIVED = "customer.archive.archived";
+  private static final String METRIC_RESTORED = "customer.archive.restored";
+
+  private static final long MIN_SAVING_DIVISOR = 10L;
+
+  private final CustomerRepository customerRepository;
+  private final PortraitRepository portraitRepository;
+  private final IdentificationCardScanRepository identificationCardScanRepository;
+  private final DocumentPageRepository documentPageRepository;
+  private final RenditionRepository renditionRepository;
+  private final ArchivedImageRepository archivedImageRepository;
+  private final ArchivedContentRepository archivedContentRepository;
+  private final BlobStore blobStore;
+  private final CounterService counterService;
+
+  @Autowired
+  public ImageArchive(final CustomerRepository customerRepository,
+                      final PortraitRepository portraitRepository,
+                      final IdentificationCardScanRepository identificationCardScanRepository,
+                      final DocumentPageRepository documentPageRepository,
+                      final RenditionRepository renditionRepository,
+                      final ArchivedImageRepository archivedImageRepository,
+                      final ArchivedContentRepository archivedContentRepository,
+                      final BlobStore blobStore,
+                      final CounterService counterService) {
+    super();
+    this.customerRepository = customerRepository;
+    this.portraitRepository = portraitRepository;
+    this.identificationCardScanRepository = identificationCardScanRepository;
+    this.documentPageRepository = documentPageRepository;
+    this.renditionRepository = renditionRepository;
+    this.archivedImageRepository = archivedImageRepository;
+    this.archivedContentRepository = archivedContentRepository;
+    this.blobStore = blobStore;
+    this.counterService = counterService;
+  }
+
+  @Transactional(readOnly = true)
+  public long countPending(final LocalDateTime closedBefore) {
+    final String closed = Customer.State.CLOSED.name();
+    return this.portraitRepository.countUnarchivedByCustomerStateClosedBefore(closed, closedBefore)
+        + this.identificationCardScanRepository.countUnarchivedByCustomerStateClosedBefore(closed, closedBefore)
+        + this.documentPageRepository.countUnarchivedByCustomerStateClosedBefore(closed, closedBefore);
+  }
+
+  @Transactional
+  public Archived archivePortraits(final LocalDateTime closedBefore, final int batchSize) {
+    final List<PortraitEntity> portraitEntities = this.lockClosedCustomers(
+        this.portraitRepository.findUnarchivedByCustomerStateClosedBefore(
+            Customer.State.CLOSED.name(), closedBefore, new PageRequest(0, batchSize)),
+        PortraitEntity::getCustomer, closedBefore);
+
+    final Archived archived = new Archived();
+    final List<Long> portraitIds = new ArrayList<>(portraitEntities.size());
+    final List<Long> blobIds = new ArrayList<>(portraitEntities.size());
+    portraitEntities.forEach(portraitEntity -> {
+      final byte[] image = portraitEntity.getImage();
+      portraitIds.add(portraitEntity.getId());
+      blobIds.add(portraitEntity.getBlobId());
+      portraitEntity.setArchiveId(this.store(image, portraitEntity.getContentType(), archived));
+      archived.reclaimed(portraitEntity.getBlobId() == null ? image.length : 0L);
+      portraitEntity.setBlobId(null);
+      portraitEntity.setImage(null);
+    });
+    archived.reclaimed(this.blobStore.release(blobIds));
+    if (!portraitIds.isEmpty()) {
+      this.renditionRepository.deleteByPortraitIdIn(portraitIds);
+    }
+    return archived;
+  }
+
+  @Transactional
+  public Archived archiveIdentificationCardScans(final LocalDateTime closedBefore, final int batchSize) {
+    final List<IdentificationCardScanEntity> scanEntities = this.lockClosedCustomers(
+        this.identificationCardScanRepository.findUnarchivedByCustomerStateClosedBefore(
+            Customer.State.CLOSED.name(), closedBefore, new PageRequest(0, batchSize)),
+        scanEntity -> scanEntity.getIdentificationCard().getCustomer(), closedBefore);
+
+    final Archived archived = new Archived();
+    final List<Long> scanIds = new ArrayList<>(scanEntities.size());
+    final List<Long> blobIds = new ArrayList<>(scanEntities.size());
+    scanEntities.forEach(scanEntity -> {
+      final byte[] image = scanEntity.getImage();
+      scanIds.add(scanEntity.getId());
+      blobIds.add(scanEntity.getBlobId());
+      scanEntity.setArchiveId(this.store(image, scanEntity.getContentType(), archived));
+      archived.reclaimed(scanEntity.getBlobId() == null ? image.length : 0L);
+      scanEntity.setBlobId(null);
+      scanEntity.setImage(null);
+    });
+    archived.reclaimed(this.blobStore.release(blobIds));
+    if (!scanIds.isEmpty()) {
+      this.renditionRepository.deleteByScanIdIn(scanIds);
+    }
+    return archived;
+  }
+
+  @Transactional
+  public Archived archiveDocumentPages(final LocalDateTime closedBefore, final int batchSize) {
+    final List<DocumentPageEntity> pageEntities = this.lockClosedCustomers(
+        this.documentPageRepository.findUnarchivedByCustomerStateClosedBefore(
+            Customer.State.CLOSED.name(), closedBefore, new PageRequest(0, batchSize)),
+        pageEntity -> pageEntity.getDocument().getCustomer(), closedBefore);
+
+    final Archived archived = new Archived();
+    final List<Long> blobIds = new ArrayList<>(pageEntities.size());
+    pageEntities.forEach(pageEntity -> {
+      final byte[] image = pageEntity.getImage();
+      blobIds.add(pageEntity.getBlobId());
+      pageEntity.setArchiveId(this.store(image, pageEntity.getContentType(), archived));
+      archived.reclaimed(pageEntity.getBlobId() == null ? image.length : 0L);
+      pageEntity.setBlobId(null);
+      pageEntity.setImage(null);
+    });
+    archived.reclaimed(this.blobStore.release(blobIds));
+    return archived;
+  }
+
+  /**
+   * Removes the archived images of portraits, scans and pages deleted since they were archived.
+   */
+  @Transactional
+  public int purge() {
+    final List<Long> archiveIds = this.archivedImageRepository.findUnreferencedIds().stream()
+        .map(Number::longValue)
+        .collect(Collectors.toList());
+    if (archiveIds.isEmpty()) {
+      return 0;
+    }
+    this.archivedImageRepository.deleteByIdIn(archiveIds);
+    this.deleteContentAfterCommit(archiveIds);
+    return archiveIds.size();
+  }
+
+  /**
+   * Moves the archived images of the customer back into blobs, as part of reopening it.  Does
+   * nothing for customers which were never archived.
+   */
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void restore(final CustomerEntity customerEntity) {
+    // waits for an archive batch holding the customer, and lets the next batches skip it
+    this.customerRepository.lockById(customerEntity.getId());
+
+    final List<Long> archiveIds = new ArrayList<>();
+
+    this.portraitRepository.findArchivedByCustomer(customerEntity).forEach(portraitEntity -> {
+      archiveIds.add(portraitEntity.getArchiveId());
+      portraitEntity.setBlobId(this.blobStore.acquire(this.load(portraitEntity).getImage()));
+      portraitEntity.setArchiveId(null);
+    });
+    this.identificationCardScanRepository.findArchivedByCustomer(customerEntity).forEach(scanEntity -> {
+      archiveIds.add(scanEntity.getArchiveId());
+      scanEntity.setBlobId(this.blobStore.acquire(this.load(scanEntity).getImage()));
+      scanEntity.setArchiveId(null);
+    });
+    this.documentPageRepository.findArchivedByCustomer(customerEntity).forEach(pageEntity -> {
+      archiveIds.add(pageEntity.getArchiveId());
+      pageEntity.setBlobId(this.blobStore.acquire(this.load(pageEntity).getImage()));
+      pageEntity.setArchiveId(null);
+    });
+
+    if (archiveIds.isEmpty()) {
+      return;
+    }
+    // the referring rows have to let go of the archived images before they can be deleted
+    this.archivedImageRepository.flush();
+    this.archivedImageRepository.deleteByIdIn(archiveIds);
+    this.deleteContentAfterCommit(archiveIds);
+    archiveIds.forEach(archiveId -> this.counterService.increment(METRIC_RESTORED));
+  }
+
+  /**
+   * Reads the image of an archived portrait from the archive, does nothing for any other.
+   */
+  public PortraitEntity load(final PortraitEntity portraitEntity) {
+    if (portraitEntity != null && portraitEntity.getArchiveId() != null) {
+      portraitEntity.setArchivedImage(this.read(portraitEntity.getArchiveId()));
+    }
+    return portraitEntity;
+  }
+
+  /**
+   * Reads the image of an archived scan from the archive, does nothing for any other.
+   */
+  public IdentificationCardScanEntity load(final IdentificationCardScanEntity scanEntity) {
+    if (scanEntity != null && scanEntity.getArchiveId() != null) {
+      scanEntity.setArchivedImage(this.read(scanEntity.getArchiveId()));
+    }
+    return scanEntity;
+  }
+
+  /**
+   * Reads the image of an archived page from the archive, does nothing for any other.
+   */
+  public DocumentPageEntity load(final DocumentPageEntity pageEntity) {
+    if (pageEntity != null && pageEntity.getArchiveId() != null) {
+      pageEntity.setArchivedImage(this.read(pageEntity.getArchiveId()));
+    }
+    return pageEntity;
+  }
+
+  public byte[] read(final Long archiveId) {
+    final ArchivedImageEntity archivedImageEntity = this.archivedImageRepository.findOne(archiveId);
+    final byte[] content = this.archivedContentRepository.read(archiveId);
+    if (archivedImageEntity == null || content == null) {
+      throw new IllegalStateException("Archived image " + archiveId + " not found.");
+    }
+    return Boolean.TRUE.equals(archivedImageEntity.getDeflated()) ? inflate(content) : content;
+  }
+
+  /**
+   * Locks the customers of the images found for a batch, and keeps only the images of customers
+   * which are still closed; one reopened since the images were found keeps its images.
+   */
+  private <T> List<T> lockClosedCustomers(final List<T> entities, final Function<T, CustomerEntity> customer,
+                                          final LocalDateTime closedBefore) {
+    if (entities.isEmpty()) {
+      return entities;
+    }
+    final Set<Long> customerIds = entities.stream()
+        .map(entity -> customer.apply(entity).getId())
+        .collect(Collectors.toSet());
+    final Set<Long> closedCustomerIds = this.customerRepository.lockByIdInAndStateClosedBefore(
+        customerIds, Customer.State.CLOSED.name(), closedBefore).stream()
+        .map(CustomerEntity::getId)
+        .collect(Collectors.toSet());
+    return entities.stream()
+        .filter(entity -> closedCustomerIds.contains(customer.apply(entity).getId()))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Stores the content in Cassandra before the transaction commits; should it roll back, the
+   * content is left behind unreferenced, but never lost.
+   */
+  private Long store(final byte[] image, final String contentType, final Archived archived) {
+    final byte[] deflated = isCompressed(contentType) ? null : deflate(image);
+    final boolean keepDeflated = deflated != null
+        && deflated.length <= image.length - image.length / MIN_SAVING_DIVISOR;
+    final byte[] content = keepDeflated ? deflated : image;
+
+    final ArchivedImageEntity archivedImageEntity = new ArchivedImageEntity();
+    archivedImageEntity.setSize((long) image.length);
+    archivedImageEntity.setStoredSize((long) content.length);
+    archivedImageEntity.setDeflated(keepDeflated);
+    archivedImageEntity.setArchivedOn(LocalDateTime.now(Clock.systemUTC()));
+    final Long archiveId = this.archivedImageRepository.save(archivedImageEntity).getId();
+
+    this.archivedContentRepository.write(archiveId, content);
+    this.counterService.increment(METRIC_ARCHIVED);
+    archived.add(image.length, content.length);
+    return archiveId;
+  }
+
+  private void deleteContentAfterCommit(final List<Long> archiveIds) {
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+      @Override
+      public void afterCommit() {
+        archivedContentRepository.delete(archiveIds);
+      }
+    });
+  }
+
+  private static boolean isCompressed(final String contentType) {
+    return contentType != null
+        && (contentType.contains(MediaType.IMAGE_JPEG_VALUE) || contentType.contains(MediaType.IMAGE_PNG_VALUE));
+  }
+
+  private static byte[] deflate(final byte[] content) {
+    final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    final ByteArrayOutputStream deflated = new ByteArrayOutputStream(content.length / 2 + 64);
+    try (final DeflaterOutputStream outputStream = new DeflaterOutputStream(deflated, deflater)) {
+      outputStream.write(content);
+    } catch (final IOException ex) {
+      throw new UncheckedIOException(ex);
+    } finally {
+      deflater.end();
+    }
+    return deflated.toByteArray();
+  }
+
+  private static byte[] inflate(final byte[] content) {
+    final ByteArrayOutputStream inflated = new ByteArrayOutputStream(content.length * 2);
+    try (final InflaterInputStream inputStream = new InflaterInputStream(new ByteArrayInputStream(content))) {
+      final byte[] buffer = new byte[8192];
+      int read;
+      while ((read = inputStream.read(buffer)) != -1) {
+        inflated.write(buffer, 0, read);
+      }
+    } catch (final IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+    return inflated.toByteArray();
+  }
+
+  public static class Archived {
+    private int images;
+    private long bytes;
+    private long storedBytes;
+    private long reclaimedBytes;
+
+    Archived() {
+      super();
+    }
+
+    void add(final long size, final long storedSize) {
+      this.images++;
+      this.bytes += size;
+      this.storedBytes += storedSize;
+    }
+
+    void reclaimed(final long size) {
+      this.reclaimedBytes += size;
+    }
+
+    void add(final Archived archived) {
+      this.images += archived.images;
+      this.bytes += archived.bytes;
+      this.storedBytes += archived.storedBytes;
+      this.reclaimedBytes += archived.reclaimedBytes;
+    }
+
+    public int getImages() {
+      return this.images;
+    }
+
+    /**
+     * @return the size of the images moved to the archive
+     */
+    public long getBytes() {
+      return this.bytes;
+    }
+
+    /**
+     * @return the space the images take up in the archive
+     */
+    public long getStoredBytes() {
+      return this.storedBytes;
+    }
+
+    /**
+     * @return the space freed in MariaDB, images still shared with a blob of an active customer
+     * do not count
+     */
+    public long getReclaimedBytes() {
+      return this.reclaimedBytes;
+    }
+  }
+}
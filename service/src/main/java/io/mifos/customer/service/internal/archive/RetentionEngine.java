@@ -0,0 +1,144 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.archive;
+
+import io.mifos.core.lang.TenantContextHolder;
+import io.mifos.customer.service.ServiceConstants;
+import io.mifos.customer.service.internal.config.ArchiveProperties;
+import io.mifos.customer.service.internal.event.EventOutboxRelay;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * Archives the portraits, scans and document pages of customers closed for longer than the
+ * configured number of days, in the background and a batch at a time.  A customer counts as
+ * closed since the time recorded when it was closed.  Reopening a customer restores its images.
+ *
+ * Per tenant the images left to archive and the bytes the last sweep freed in MariaDB are
+ * published as gauges.  Images whose blob is still shared with an active customer are archived
+ * but free nothing.  Tenants are swept once they are known to the {@link EventOutboxRelay}.
+ * Disabled by default.
+ */
+@Component
+public class RetentionEngine {
+
+  private static final String METRIC_PENDING = "customer.archive.pending.";
+  private static final String METRIC_RECLAIMED = "customer.archive.reclaimed.";
+
+  private final Logger logger;
+  private final ImageArchive imageArchive;
+  private final EventOutboxRelay eventOutboxRelay;
+  private final ArchiveProperties archiveProperties;
+  private final GaugeService gaugeService;
+  private ScheduledExecutorService executorService;
+
+  @Autowired
+  public RetentionEngine(@Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger,
+                         final ImageArchive imageArchive,
+                         final EventOutboxRelay eventOutboxRelay,
+                         final ArchiveProperties archiveProperties,
+                         final GaugeService gaugeService) {
+    super();
+    this.logger = logger;
+    this.imageArchive = imageArchive;
+    this.eventOutboxRelay = eventOutboxRelay;
+    this.archiveProperties = archiveProperties;
+    this.gaugeService = gaugeService;
+  }
+
+  @PostConstruct
+  public void start() {
+    if (!this.archiveProperties.isEnabled()) {
+      return;
+    }
+    this.executorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      final Thread thread = new Thread(runnable, "retention-engine");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.executorService.scheduleWithFixedDelay(this::sweep, this.archiveProperties.getInterval(),
+        this.archiveProperties.getInterval(), TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void stop() {
+    if (this.executorService != null) {
+      this.executorService.shutdownNow();
+    }
+  }
+
+  private void sweep() {
+    this.eventOutboxRelay.knownTenants().forEach(this::archive);
+  }
+
+  private void archive(final String tenantIdentifier) {
+    TenantContextHolder.clear();
+    TenantContextHolder.setIdentifier(tenantIdentifier);
+    try {
+      final String metricSuffix = tenantIdentifier.replace('.', '_');
+      final LocalDateTime closedBefore =
+          LocalDateTime.now(Clock.systemUTC()).minusDays(this.archiveProperties.getClosedForDays());
+
+      final long pending = this.imageArchive.countPending(closedBefore);
+      this.gaugeService.submit(METRIC_PENDING + metricSuffix, pending);
+      if (pending == 0L) {
+        return;
+      }
+
+      final ImageArchive.Archived archived = new ImageArchive.Archived();
+      this.archiveAll(this.imageArchive::archivePortraits, closedBefore, archived, pending, metricSuffix);
+      this.archiveAll(this.imageArchive::archiveIdentificationCardScans, closedBefore, archived, pending, metricSuffix);
+      this.archiveAll(this.imageArchive::archiveDocumentPages, closedBefore, archived, pending, metricSuffix);
+      final int purged = this.imageArchive.purge();
+
+      this.gaugeService.submit(METRIC_RECLAIMED + metricSuffix, archived.getReclaimedBytes());
+      this.logger.info("Archived {} images ({} bytes, {} bytes stored) of closed customers for tenant {}, " +
+              "reclaimed {} bytes, purged {} archived images.",
+          archived.getImages(), archived.getBytes(), archived.getStoredBytes(), tenantIdentifier,
+          archived.getReclaimedBytes(), purged);
+    } catch (final RuntimeException ex) {
+      this.logger.warn("Could not archive images of closed customers for tenant {}.", tenantIdentifier, ex);
+    } finally {
+      TenantContextHolder.clear();
+    }
+  }
+
+  private void archiveAll(final BiFunction<LocalDateTime, Integer, ImageArchive.Archived> batch,
+                          final LocalDateTime closedBefore,
+                          final ImageArchive.Archived archived,
+                          final long pending,
+                          final String metricSuffix) {
+    final int batchSize = this.archiveProperties.getBatchSize();
+    ImageArchive.Archived batchArchived;
+    do {
+      batchArchived = batch.apply(closedBefore, batchSize);
+      archived.add(batchArchived);
+      this.gaugeService.submit(METRIC_PENDING + metricSuffix, Math.max(0L, pending - archived.getImages()));
+    } while (batchArchived.getImages() == batchSize && !Thread.currentThread().isInterrupted());
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.audit;
+
+import com.datastax.driver.core.utils.UUIDs;
+import io.mifos.customer.service.ServiceConstants;
+import io.mifos.customer.service.internal.repository.CommandEntity;
+import io.mifos.customer.service.internal.repository.CommandLogEntity;
+import io.mifos.customer.service.internal.repository.CommandLogRepository;
+import io.mifos.customer.service.internal.repository.CommandRepository;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Moves the commands recorded in maat_commands before the command log existed into the command
+ * log, a few rows per transaction.  A row is deleted once it was appended, and its entry id is
+ * derived from the row, so running it again after a failure appends the same entries.
+ */
+@Component
+public class CommandLogMigrator {
+
+  private static final int BATCH_SIZE = 100;
+
+  private final Logger logger;
+  private final CommandRepository commandRepository;
+  private final CommandLogRepository commandLogRepository;
+  private final TransactionTemplate transactionTemplate;
+
+  @Autowired
+  public CommandLogMigrator(@Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger,
+                            final CommandRepository commandRepository,
+                            final CommandLogRepository commandLogRepository,
+                            final PlatformTransactionManager transactionManager) {
+    super();
+    this.logger = logger;
+    this.commandRepository = commandRepository;
+    this.commandLogRepository = commandLogRepository;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  public void migrate() {
+    long total = 0L;
+    int processed;
+    do {
+      processed = this.transactionTemplate.execute(status -> this.migrateBatch());
+      total += processed;
+    } while (processed == BATCH_SIZE);
+    this.logger.info("Moved {} commands to the command log.", total);
+  }
+
+  private int migrateBatch() {
+    final List<CommandEntity> commandEntities = this.commandRepository.findWithCustomer(new PageRequest(0, BATCH_SIZE));
+    commandEntities.forEach(commandEntity -> this.commandLogRepository.append(map(commandEntity)));
+    if (!commandEntities.isEmpty()) {
+      this.commandRepository.deleteByIdIn(
+          commandEntities.stream().map(CommandEntity::getId).collect(Collectors.toList()));
+    }
+    return commandEntities.size();
+  }
+
+  private static CommandLogEntity map(final CommandEntity commandEntity) {
+    final LocalDateTime createdOn = commandEntity.getCreatedOn() != null
+        ? commandEntity.getCreatedOn()
+        : commandEntity.getCustomer().getCreatedOn();
+
+    final CommandLogEntity commandLogEntity = new CommandLogEntity();
+    commandLogEntity.setCustomerIdentifier(commandEntity.getCustomer().getIdentifier());
+    commandLogEntity.setEntryId(entryId(createdOn, commandEntity.getId()));
+    commandLogEntity.setAction(commandEntity.getType());
+    commandLogEntity.setComment(commandEntity.getComment());
+    commandLogEntity.setCreatedBy(commandEntity.getCreatedBy());
+    return commandLogEntity;
+  }
+
+  // time of the command, made unique by the row id in place of clock sequence and node
+  private static UUID entryId(final LocalDateTime createdOn, final Long id) {
+    final UUID timeBased = UUIDs.startOf(createdOn.toInstant(ZoneOffset.UTC).toEpochMilli());
+    return new UUID(timeBased.getMostSignificantBits(), Long.MIN_VALUE | id);
+  }
+}
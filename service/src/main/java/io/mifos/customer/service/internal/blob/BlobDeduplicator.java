@@ -0,0 +1,118 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.blob;
+
+import io.mifos.customer.service.ServiceConstants;
+import io.mifos.customer.service.internal.repository.DocumentPageEntity;
+import io.mifos.customer.service.internal.repository.DocumentPageRepository;
+import io.mifos.customer.service.internal.repository.IdentificationCardScanEntity;
+import io.mifos.customer.service.internal.repository.IdentificationCardScanRepository;
+import io.mifos.customer.service.internal.repository.PortraitEntity;
+import io.mifos.customer.service.internal.repository.PortraitRepository;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Moves images stored before deduplication into the {@link BlobStore}, a few rows per
+ * transaction.  Rows already referring to a blob are skipped, so running it again only picks up
+ * what is left.  Rows whose image was moved to the archive are left to the archive.
+ */
+@Component
+public class BlobDeduplicator {
+
+  private static final int BATCH_SIZE = 20;
+
+  private final Logger logger;
+  private final BlobStore blobStore;
+  private final PortraitRepository portraitRepository;
+  private final IdentificationCardScanRepository identificationCardScanRepository;
+  private final DocumentPageRepository documentPageRepository;
+  private final TransactionTemplate transactionTemplate;
+
+  @Autowired
+  public BlobDeduplicator(@Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger,
+                          final BlobStore blobStore,
+                          final PortraitRepository portraitRepository,
+                          final IdentificationCardScanRepository identificationCardScanRepository,
+                          final DocumentPageRepository documentPageRepository,
+                          final PlatformTransactionManager transactionManager) {
+    super();
+    this.logger = logger;
+    this.blobStore = blobStore;
+    this.portraitRepository = portraitRepository;
+    this.identificationCardScanRepository = identificationCardScanRepository;
+    this.documentPageRepository = documentPageRepository;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  public void deduplicate() {
+    final long portraits = this.inBatches(this::deduplicatePortraits);
+    final long scans = this.inBatches(this::deduplicateScans);
+    final long pages = this.inBatches(this::deduplicatePages);
+    this.logger.info("Moved {} portraits, {} scans and {} pages to shared storage.", portraits, scans, pages);
+  }
+
+  private long inBatches(final Supplier<Integer> batch) {
+    long total = 0L;
+    int processed;
+    do {
+      processed = this.transactionTemplate.execute(status -> batch.get());
+      total += processed;
+    } while (processed == BATCH_SIZE);
+    return total;
+  }
+
+  private int deduplicatePortraits() {
+    final List<PortraitEntity> portraitEntities = this.portraitRepository.findByBlobIdIsNullAndArchiveIdIsNullAndImageIsNotNullOrderByIdAsc(firstBatch());
+    portraitEntities.forEach(portraitEntity -> {
+      portraitEntity.setBlobId(this.blobStore.acquire(portraitEntity.getImage()));
+      portraitEntity.setImage(null);
+    });
+    return portraitEntities.size();
+  }
+
+  private int deduplicateScans() {
+    final List<IdentificationCardScanEntity> scanEntities =
+        this.identificationCardScanRepository.findByBlobIdIsNullAndArchiveIdIsNullAndImageIsNotNullOrderByIdAsc(firstBatch());
+    scanEntities.forEach(scanEntity -> {
+      scanEntity.setBlobId(this.blobStore.acquire(scanEntity.getImage()));
+      scanEntity.setImage(null);
+    });
+    return scanEntities.size();
+  }
+
+  private int deduplicatePages() {
+    final List<DocumentPageEntity> pageEntities = this.documentPageRepository.findByBlobIdIsNullAndArchiveIdIsNullAndImageIsNotNullOrderByIdAsc(firstBatch());
+    pageEntities.forEach(pageEntity -> {
+      pageEntity.setBlobId(this.blobStore.acquire(pageEntity.getImage()));
+      pageEntity.setImage(null);
+    });
+    return pageEntities.size();
+  }
+
+  private static Pageable firstBatch() {
+    return new PageRequest(0, BATCH_SIZE);
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.blob;
+
+import io.mifos.customer.service.internal.repository.BlobRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Stores image content once per distinct SHA-256 hash.  Every portrait, scan and page holding
+ * the content takes a reference when created and gives it up when deleted, the content is
+ * removed with its last reference.
+ *
+ * Both run as part of the command's transaction, so that a reference is never counted for a
+ * row which was rolled back.
+ */
+@Component
+public class BlobStore {
+
+  private final BlobRepository blobRepository;
+
+  @Autowired
+  public BlobStore(final BlobRepository blobRepository) {
+    super();
+    this.blobRepository = blobRepository;
+  }
+
+  /**
+   * Returns the id of the blob holding the content, stored anew or shared with its earlier
+   * copies.
+   */
+  @Transactional(propagation = Propagation.MANDATORY)
+  public Long acquire(final byte[] content) {
+    final String hash = hash(content);
+    if (this.blobRepository.reference(hash) == 0) {
+      this.blobRepository.insertOrReference(hash, (long) content.length, content);
+    }
+    return this.blobRepository.findIdByHash(hash);
+  }
+
+  /**
+   * Gives up a reference taken by {@link #acquire(byte[])}, call it once the referring row is
+   * deleted.  Rows stored before deduplication have no blob, for them it does nothing.
+   */
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void release(final Long blobId) {
+    this.release(Collections.singletonList(blobId));
+  }
+
+  /**
+   * Gives up one reference per element, a blob id may occur more than once.  Each blob is
+   * updated once however many of its references are released, in the order of their ids so
+   * that concurrent releases cannot deadlock.
+   *
+   * @return the size of the blobs removed with their last reference
+   */
+  @Transactional(propagation = Propagation.MANDATORY)
+  public long release(final Collection<Long> blobIds) {
+    final Map<Long, Long> references = blobIds.stream()
+        .filter(Objects::nonNull)
+        .collect(Collectors.groupingBy(Function.identity(), TreeMap::new, Collectors.counting()));
+    if (references.isEmpty()) {
+      return 0L;
+    }
+    // the referring rows have to be gone before the blobs can be
+    this.blobRepository.flush();
+    references.forEach((blobId, count) -> this.blobRepository.dereference(blobId, count.intValue()));
+    final long freed = this.blobRepository.sumSizeIfUnreferenced(references.keySet()).longValue();
+    this.blobRepository.deleteIfUnreferenced(references.keySet());
+    return freed;
+  }
+
+  private static String hash(final byte[] content) {
+    try {
+      final byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+      return String.format("%064x", new BigInteger(1, digest));
+    } catch (final NoSuchAlgorithmException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+}
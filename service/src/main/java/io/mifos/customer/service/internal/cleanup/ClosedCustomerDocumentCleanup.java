@@ -0,0 +1,146 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.cleanup;
+
+import io.mifos.core.lang.TenantContextHolder;
+import io.mifos.customer.api.v1.domain.Customer;
+import io.mifos.customer.service.ServiceConstants;
+import io.mifos.customer.service.internal.archive.RetentionEngine;
+import io.mifos.customer.service.internal.config.ArchiveProperties;
+import io.mifos.customer.service.internal.config.DocumentCleanupProperties;
+import io.mifos.customer.service.internal.event.EventOutboxRelay;
+import io.mifos.customer.service.internal.repository.DocumentEntity;
+import io.mifos.customer.service.internal.repository.DocumentRepository;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes the documents of customers closed for longer than the configured retention, in the
+ * background and a few documents at a time.  A customer counts as closed since the time
+ * recorded when it was closed.
+ *
+ * Documents whose pages were archived are left alone, they are restored should the customer be
+ * reopened.  While the {@link RetentionEngine} is enabled the cleanup does not run at all, the
+ * pages of closed customers are archived instead of deleted.
+ *
+ * Tenants are swept once they are known to the {@link EventOutboxRelay}, that is the provisioned
+ * tenants and the tenants anything was written for since start up.  Disabled by default.
+ */
+@Component
+public class ClosedCustomerDocumentCleanup {
+
+  private final Logger logger;
+  private final DocumentRepository documentRepository;
+  private final DocumentDeleter documentDeleter;
+  private final EventOutboxRelay eventOutboxRelay;
+  private final DocumentCleanupProperties documentCleanupProperties;
+  private final ArchiveProperties archiveProperties;
+  private final TransactionTemplate transactionTemplate;
+  private ScheduledExecutorService executorService;
+
+  @Autowired
+  public ClosedCustomerDocumentCleanup(@Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger,
+                                       final DocumentRepository documentRepository,
+                                       final DocumentDeleter documentDeleter,
+                                       final EventOutboxRelay eventOutboxRelay,
+                                       final DocumentCleanupProperties documentCleanupProperties,
+                                       final ArchiveProperties archiveProperties,
+                                       final PlatformTransactionManager transactionManager) {
+    super();
+    this.logger = logger;
+    this.documentRepository = documentRepository;
+    this.documentDeleter = documentDeleter;
+    this.eventOutboxRelay = eventOutboxRelay;
+    this.documentCleanupProperties = documentCleanupProperties;
+    this.archiveProperties = archiveProperties;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setReadOnly(true);
+  }
+
+  @PostConstruct
+  public void start() {
+    final DocumentCleanupProperties.ClosedCustomers closedCustomers = this.documentCleanupProperties.getClosedCustomers();
+    if (!closedCustomers.isEnabled()) {
+      return;
+    }
+    if (this.archiveProperties.isEnabled()) {
+      this.logger.info("Images of closed customers are archived, their documents are not deleted.");
+      return;
+    }
+    this.executorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      final Thread thread = new Thread(runnable, "closed-customer-document-cleanup");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.executorService.scheduleWithFixedDelay(this::sweep, closedCustomers.getInterval(),
+        closedCustomers.getInterval(), TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void stop() {
+    if (this.executorService != null) {
+      this.executorService.shutdownNow();
+    }
+  }
+
+  private void sweep() {
+    this.eventOutboxRelay.knownTenants().forEach(this::cleanup);
+  }
+
+  private void cleanup(final String tenantIdentifier) {
+    TenantContextHolder.clear();
+    TenantContextHolder.setIdentifier(tenantIdentifier);
+    try {
+      final DocumentCleanupProperties.ClosedCustomers closedCustomers = this.documentCleanupProperties.getClosedCustomers();
+      final LocalDateTime closedBefore = LocalDateTime.now(Clock.systemUTC()).minusDays(closedCustomers.getRetentionDays());
+
+      long deleted = 0L;
+      List<DocumentEntity> documentEntities;
+      do {
+        documentEntities = this.transactionTemplate.execute(status ->
+            this.documentRepository.findUnarchivedByCustomerStateClosedBefore(Customer.State.CLOSED.name(), closedBefore,
+                new PageRequest(0, closedCustomers.getBatchSize())));
+        for (final DocumentEntity documentEntity : documentEntities) {
+          this.documentDeleter.delete(documentEntity.getCustomer().getIdentifier(), documentEntity.getIdentifier(),
+              documentEntity.getId());
+          deleted++;
+        }
+      } while (documentEntities.size() == closedCustomers.getBatchSize() && !Thread.currentThread().isInterrupted());
+
+      if (deleted > 0) {
+        this.logger.info("Deleted {} documents of closed customers for tenant {}.", deleted, tenantIdentifier);
+      }
+    } catch (final RuntimeException ex) {
+      this.logger.warn("Could not delete documents of closed customers for tenant {}.", tenantIdentifier, ex);
+    } finally {
+      TenantContextHolder.clear();
+    }
+  }
+}
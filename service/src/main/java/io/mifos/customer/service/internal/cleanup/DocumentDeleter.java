@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.cleanup;
+
+import io.mifos.customer.api.v1.CustomerEventConstants;
+import io.mifos.customer.api.v1.events.DocumentEvent;
+import io.mifos.customer.service.internal.blob.BlobStore;
+import io.mifos.customer.service.internal.config.DocumentCleanupProperties;
+import io.mifos.customer.service.internal.event.EventOutbox;
+import io.mifos.customer.service.internal.repository.DocumentPageRepository;
+import io.mifos.customer.service.internal.repository.DocumentRepository;
+import io.mifos.customer.service.internal.service.StorageService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deletes a document with all of its pages.  Pages are deleted by id, a chunk per transaction,
+ * so their content is never loaded and no transaction holds the locks of a whole large
+ * document.  The document itself goes last, together with its event, in a transaction which
+ * locks the document's row first and deletes the pages added in the meantime; a page added
+ * concurrently waits for it and then fails, rather than the document's delete.  If deletion is
+ * cut short it can simply be repeated.
+ */
+@Component
+public class DocumentDeleter {
+
+  private final DocumentRepository documentRepository;
+  private final DocumentPageRepository documentPageRepository;
+  private final BlobStore blobStore;
+  private final StorageService storageService;
+  private final EventOutbox eventOutbox;
+  private final DocumentCleanupProperties documentCleanupProperties;
+  private final TransactionTemplate transactionTemplate;
+
+  @Autowired
+  public DocumentDeleter(final DocumentRepository documentRepository,
+                         final DocumentPageRepository documentPageRepository,
+                         final BlobStore blobStore,
+                         final StorageService storageService,
+                         final EventOutbox eventOutbox,
+                         final DocumentCleanupProperties documentCleanupProperties,
+                         final PlatformTransactionManager transactionManager) {
+    super();
+    this.documentRepository = documentRepository;
+    this.documentPageRepository = documentPageRepository;
+    this.blobStore = blobStore;
+    this.storageService = storageService;
+    this.eventOutbox = eventOutbox;
+    this.documentCleanupProperties = documentCleanupProperties;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  public DocumentEvent delete(final String customerIdentifier, final String documentIdentifier, final Long documentId) {
+    final int chunkSize = this.documentCleanupProperties.getChunkSize();
+    //noinspection StatementWithEmptyBody
+    while (this.transactionTemplate.execute(status -> this.deletePages(documentId, chunkSize)) == chunkSize) { }
+
+    return this.transactionTemplate.execute(status -> {
+      final DocumentEvent documentEvent = new DocumentEvent(customerIdentifier, documentIdentifier);
+      if (!this.documentRepository.lockById(documentId).isPresent()) {
+        // deleted concurrently, together with its event
+        return documentEvent;
+      }
+
+      //noinspection StatementWithEmptyBody
+      while (this.deletePages(documentId, chunkSize) == chunkSize) { }
+      this.documentRepository.delete(documentId);
+
+      this.eventOutbox.enqueue(CustomerEventConstants.DELETE_DOCUMENT, documentEvent);
+      return documentEvent;
+    });
+  }
+
+  private int deletePages(final Long documentId, final int chunkSize) {
+    final List<Object[]> pages = this.documentPageRepository.findIdsByDocumentId(documentId, new PageRequest(0, chunkSize));
+    if (pages.isEmpty()) {
+      return 0;
+    }
+
+    final List<Long> pageIds = new ArrayList<>(pages.size());
+    final List<Long> blobIds = new ArrayList<>(pages.size());
+    long bytes = 0L;
+    for (final Object[] page : pages) {
+      pageIds.add((Long) page[0]);
+      blobIds.add((Long) page[1]);
+      bytes += (Long) page[2];
+    }
+    this.documentPageRepository.deleteByIdIn(pageIds);
+    this.blobStore.release(blobIds);
+    this.storageService.release((Long) pages.get(0)[3], pages.size(), bytes);
+    return pages.size();
+  }
+}
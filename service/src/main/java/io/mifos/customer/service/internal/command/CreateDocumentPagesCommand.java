@@ -0,0 +1,61 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.command;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+
+public class CreateDocumentPagesCommand {
+  private final String customerIdentifier;
+  private final String documentIdentifier;
+  private final Integer firstPageNumber;
+  private final List<MultipartFile> pages;
+  private final boolean complete;
+
+  public CreateDocumentPagesCommand(
+      final String customerIdentifier,
+      final String documentIdentifier,
+      final int firstPageNumber,
+      final List<MultipartFile> pages,
+      final boolean complete) {
+    this.customerIdentifier = customerIdentifier;
+    this.documentIdentifier = documentIdentifier;
+    this.firstPageNumber = firstPageNumber;
+    this.pages = pages;
+    this.complete = complete;
+  }
+
+  public String getCustomerIdentifier() {
+    return customerIdentifier;
+  }
+
+  public String getDocumentIdentifier() {
+    return documentIdentifier;
+  }
+
+  public Integer getFirstPageNumber() {
+    return firstPageNumber;
+  }
+
+  public List<MultipartFile> getPages() {
+    return pages;
+  }
+
+  public boolean isComplete() {
+    return complete;
+  }
+}
@@ -19,16 +19,21 @@ import io.mifos.core.api.util.UserContextHolder;
 import io.mifos.core.command.annotation.Aggregate;
 import io.mifos.core.command.annotation.CommandHandler;
 import io.mifos.core.command.annotation.CommandLogLevel;
-import io.mifos.core.command.annotation.EventEmitter;
 import io.mifos.core.lang.ServiceException;
 import io.mifos.customer.api.v1.CustomerEventConstants;
 import io.mifos.customer.api.v1.domain.Command;
 import io.mifos.customer.api.v1.domain.Customer;
 import io.mifos.customer.api.v1.events.ScanEvent;
+import io.mifos.customer.api.v1.events.ScanSnapshotEvent;
 import io.mifos.customer.catalog.service.internal.repository.*;
+import io.mifos.customer.service.internal.archive.ImageArchive;
+import io.mifos.customer.service.internal.blob.BlobStore;
 import io.mifos.customer.service.internal.command.*;
+import io.mifos.customer.service.internal.event.EventOutbox;
+import io.mifos.customer.service.internal.image.RenditionGenerator;
 import io.mifos.customer.service.internal.mapper.*;
 import io.mifos.customer.service.internal.repository.*;
+import io.mifos.customer.service.internal.service.StorageService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -40,6 +45,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @SuppressWarnings({"unused", "UnusedReturnValue"})
@@ -54,8 +60,14 @@ public class CustomerAggregate {
   private final FieldValueRepository fieldValueRepository;
   private final CatalogRepository catalogRepository;
   private final FieldRepository fieldRepository;
-  private final CommandRepository commandRepository;
+  private final RenditionRepository renditionRepository;
+  private final StorageService storageService;
+  private final RenditionGenerator renditionGenerator;
+  private final BlobStore blobStore;
+  private final ImageArchive imageArchive;
   private final TaskAggregate taskAggregate;
+  private final CustomerHistory customerHistory;
+  private final EventOutbox eventOutbox;
 
   @Autowired
   public CustomerAggregate(final AddressRepository addressRepository,
@@ -67,8 +79,14 @@ public class CustomerAggregate {
                            final FieldValueRepository fieldValueRepository,
                            final CatalogRepository catalogRepository,
                            final FieldRepository fieldRepository,
-                           final CommandRepository commandRepository,
-                           final TaskAggregate taskAggregate) {
+                           final RenditionRepository renditionRepository,
+                           final StorageService storageService,
+                           final RenditionGenerator renditionGenerator,
+                           final BlobStore blobStore,
+                           final ImageArchive imageArchive,
+                           final TaskAggregate taskAggregate,
+                           final CustomerHistory customerHistory,
+                           final EventOutbox eventOutbox) {
     super();
     this.addressRepository = addressRepository;
     this.customerRepository = customerRepository;
@@ -79,13 +97,18 @@ public class CustomerAggregate {
     this.fieldValueRepository = fieldValueRepository;
     this.catalogRepository = catalogRepository;
     this.fieldRepository = fieldRepository;
-    this.commandRepository = commandRepository;
+    this.renditionRepository = renditionRepository;
+    this.storageService = storageService;
+    this.renditionGenerator = renditionGenerator;
+    this.blobStore = blobStore;
+    this.imageArchive = imageArchive;
     this.taskAggregate = taskAggregate;
+    this.customerHistory = customerHistory;
+    this.eventOutbox = eventOutbox;
   }
 
   @Transactional
   @CommandHandler
-  @EventEmitter(selectorName = CustomerEventConstants.SELECTOR_NAME, selectorValue = CustomerEventConstants.POST_CUSTOMER)
   public String createCustomer(final CreateCustomerCommand createCustomerCommand) {
     final Customer customer = createCustomerCommand.customer();
 
@@ -115,12 +138,13 @@ public class CustomerAggregate {
 
     this.taskAggregate.onCustomerCommand(savedCustomerEntity, Command.Action.ACTIVATE);
 
+    this.logCommand(customer.getIdentifier(), "CREATE", null);
+    this.customerHistory.recordChange(CustomerEventConstants.POST_CUSTOMER, customer.getIdentifier());
     return customer.getIdentifier();
   }
 
   @Transactional
   @CommandHandler
-  @EventEmitter(selectorName = CustomerEventConstants.SELECTOR_NAME, selectorValue = CustomerEventConstants.PUT_CUSTOMER)
   public String updateCustomer(final UpdateCustomerCommand updateCustomerCommand) {
     final Customer customer = updateCustomerCommand.customer();
 
@@ -155,22 +179,23 @@ public class CustomerAggregate {
     }
 
     if (customer.getAddress() != null) {
-      this.updateAddress(new UpdateAddressCommand(customer.getIdentifier(), customer.getAddress()));
+      this.changeAddress(new UpdateAddressCommand(customer.getIdentifier(), customer.getAddress()));
     }
 
-    this.updateContactDetails(new UpdateContactDetailsCommand(customer.getIdentifier(), customer.getContactDetails()));
+    this.changeContactDetails(new UpdateContactDetailsCommand(customer.getIdentifier(), customer.getContactDetails()));
 
     customerEntity.setLastModifiedBy(UserContextHolder.checkedGetUser());
     customerEntity.setLastModifiedOn(LocalDateTime.now(Clock.systemUTC()));
 
     this.customerRepository.save(customerEntity);
 
+    this.logCommand(customer.getIdentifier(), "UPDATE", null);
+    this.customerHistory.recordChange(CustomerEventConstants.PUT_CUSTOMER, customer.getIdentifier());
     return customer.getIdentifier();
   }
 
   @Transactional
   @CommandHandler
-  @EventEmitter(selectorName = CustomerEventConstants.SELECTOR_NAME, selectorValue = CustomerEventConstants.ACTIVATE_CUSTOMER)
   public String activateCustomer(final ActivateCustomerCommand activateCustomerCommand) {
     final CustomerEntity customerEntity = findCustomerEntityOrThrow(activateCustomerCommand.identifier());
 
@@ -185,18 +210,16 @@ public class CustomerAggregate {
     customerEntity.setLastModifiedBy(UserContextHolder.checkedGetUser());
     customerEntity.setLastModifiedOn(LocalDateTime.now(Clock.systemUTC()));
 
-    final CustomerEntity savedCustomerEntity = this.customerRepository.save(customerEntity);
+    this.customerRepository.save(customerEntity);
 
-    this.commandRepository.save(
-        CommandMapper.create(savedCustomerEntity, Command.Action.ACTIVATE.name(), activateCustomerCommand.comment())
-    );
+    this.logCommand(activateCustomerCommand.identifier(), Command.Action.ACTIVATE.name(), activateCustomerCommand.comment());
 
+    this.customerHistory.recordChange(CustomerEventConstants.ACTIVATE_CUSTOMER, activateCustomerCommand.identifier());
     return activateCustomerCommand.identifier();
   }
 
   @Transactional
   @CommandHandler
-  @EventEmitter(selectorName = CustomerEventConstants.SELECTOR_NAME, selectorValue = CustomerEventConstants.LOCK_CUSTOMER)
   public String lockCustomer(final LockCustomerCommand lockCustomerCommand) {
     final CustomerEntity customerEntity = findCustomerEntityOrThrow(lockCustomerCommand.identifier());
 
@@ -206,18 +229,16 @@ public class CustomerAggregate {
 
     final CustomerEntity savedCustomerEntity = this.customerRepository.save(customerEntity);
 
-    this.commandRepository.save(
-        CommandMapper.create(savedCustomerEntity, Command.Action.LOCK.name(), lockCustomerCommand.comment())
-    );
+    this.logCommand(lockCustomerCommand.identifier(), Command.Action.LOCK.name(), lockCustomerCommand.comment());
 
     this.taskAggregate.onCustomerCommand(savedCustomerEntity, Command.Action.UNLOCK);
 
+    this.customerHistory.recordChange(CustomerEventConstants.LOCK_CUSTOMER, lockCustomerCommand.identifier());
     return lockCustomerCommand.identifier();
   }
 
   @Transactional
   @CommandHandler
-  @EventEmitter(selectorName = CustomerEventConstants.SELECTOR_NAME, selectorValue = CustomerEventConstants.UNLOCK_CUSTOMER)
   public String unlockCustomer(final UnlockCustomerCommand unlockCustomerCommand) {
     final CustomerEntity customerEntity = findCustomerEntityOrThrow(unlockCustomerCommand.identifier());
 
@@ -229,39 +250,36 @@ public class CustomerAggregate {
     customerEntity.setLastModifiedBy(UserContextHolder.checkedGetUser());
     customerEntity.setLastModifiedOn(LocalDateTime.now(Clock.systemUTC()));
 
-    final CustomerEntity savedCustomerEntity = this.customerRepository.save(customerEntity);
+    this.customerRepository.save(customerEntity);
 
-    this.commandRepository.save(
-        CommandMapper.create(savedCustomerEntity, Command.Action.UNLOCK.name(), unlockCustomerCommand.comment())
-    );
+    this.logCommand(unlockCustomerCommand.identifier(), Command.Action.UNLOCK.name(), unlockCustomerCommand.comment());
 
+    this.customerHistory.recordChange(CustomerEventConstants.UNLOCK_CUSTOMER, unlockCustomerCommand.identifier());
     return unlockCustomerCommand.identifier();
   }
 
   @Transactional
   @CommandHandler
-  @EventEmitter(selectorName = CustomerEventConstants.SELECTOR_NAME, selectorValue = CustomerEventConstants.CLOSE_CUSTOMER)
   public String closeCustomer(final CloseCustomerCommand closeCustomerCommand) {
     final CustomerEntity customerEntity = findCustomerEntityOrThrow(closeCustomerCommand.identifier());
 
     customerEntity.setCurrentState(Customer.State.CLOSED.name());
     customerEntity.setLastModifiedBy(UserContextHolder.checkedGetUser());
     customerEntity.setLastModifiedOn(LocalDateTime.now(Clock.systemUTC()));
+    customerEntity.setClosedOn(customerEntity.getLastModifiedOn());
 
     final CustomerEntity savedCustomerEntity = this.customerRepository.save(customerEntity);
 
-    this.commandRepository.save(
-        CommandMapper.create(savedCustomerEntity, Command.Action.CLOSE.name(), closeCustomerCommand.comment())
-    );
+    this.logCommand(closeCustomerCommand.identifier(), Command.Action.CLOSE.name(), closeCustomerCommand.comment());
 
     this.taskAggregate.onCustomerCommand(savedCustomerEntity, Command.Action.REOPEN);
 
+    this.customerHistory.recordChange(CustomerEventConstants.CLOSE_CUSTOMER, closeCustomerCommand.identifier());
     return closeCustomerCommand.identifier();
   }
 
   @Transactional
   @CommandHandler
-  @EventEmitter(selectorName = CustomerEventConstants.SELECTOR_NAME, selectorValue = CustomerEventConstants.REOPEN_CUSTOMER)
   public String reopenCustomer(final ReopenCustomerCommand reopenCustomerCommand) {
     final CustomerEntity customerEntity = findCustomerEntityOrThrow(reopenCustomerCommand.identifier());
 
@@ -272,66 +290,39 @@ public class CustomerAggregate {
     customerEntity.setCurrentState(Customer.State.ACTIVE.name());
     customerEntity.setLastModifiedBy(UserContextHolder.checkedGetUser());
     customerEntity.setLastModifiedOn(LocalDateTime.now(Clock.systemUTC()));
+    customerEntity.setClosedOn(null);
 
     final CustomerEntity savedCustomerEntity = this.customerRepository.save(customerEntity);
+    this.imageArchive.restore(savedCustomerEntity);
 
-    this.commandRepository.save(
-        CommandMapper.create(savedCustomerEntity, Command.Action.REOPEN.name(), reopenCustomerCommand.comment())
-    );
+    this.logCommand(reopenCustomerCommand.identifier(), Command.Action.REOPEN.name(), reopenCustomerCommand.comment());
 
+    this.customerHistory.recordChange(CustomerEventConstants.REOPEN_CUSTOMER, reopenCustomerCommand.identifier());
     return reopenCustomerCommand.identifier();
   }
 
   @Transactional
   @CommandHandler
-  @EventEmitter(selectorName = CustomerEventConstants.SELECTOR_NAME, selectorValue = CustomerEventConstants.PUT_ADDRESS)
   public String updateAddress(final UpdateAddressCommand updateAddressCommand) {
-    final CustomerEntity customerEntity = findCustomerEntityOrThrow(updateAddressCommand.identifier());
-    customerEntity.setLastModifiedBy(UserContextHolder.checkedGetUser());
-    customerEntity.setLastModifiedOn(LocalDateTime.now(Clock.systemUTC()));
-
-    final AddressEntity oldAddressEntity = customerEntity.getAddress();
-
-    final AddressEntity newAddressEntity = this.addressRepository.save(AddressMapper.map(updateAddressCommand.address()));
-
-    customerEntity.setAddress(newAddressEntity);
-    this.customerRepository.save(customerEntity);
-
-    this.addressRepository.delete(oldAddressEntity);
+    this.changeAddress(updateAddressCommand);
+    this.logCommand(updateAddressCommand.identifier(), "UPDATE_ADDRESS", null);
 
+    this.customerHistory.recordChange(CustomerEventConstants.PUT_ADDRESS, updateAddressCommand.identifier());
     return updateAddressCommand.identifier();
   }
 
   @Transactional
   @CommandHandler
-  @EventEmitter(selectorName = CustomerEventConstants.SELECTOR_NAME, selectorValue = CustomerEventConstants.PUT_CONTACT_DETAILS)
   public String updateContactDetails(final UpdateContactDetailsCommand updateContactDetailsCommand) {
-    final CustomerEntity customerEntity = findCustomerEntityOrThrow(updateContactDetailsCommand.identifier());
-    customerEntity.setLastModifiedBy(UserContextHolder.checkedGetUser());
-    customerEntity.setLastModifiedOn(LocalDateTime.now(Clock.systemUTC()));
-
-    final List<ContactDetailEntity> oldContactDetails = this.contactDetailRepository.findByCustomer(customerEntity);
-    this.contactDetailRepository.delete(oldContactDetails);
-
-    if (updateContactDetailsCommand.contactDetails() != null) {
-      this.contactDetailRepository.save(
-          updateContactDetailsCommand.contactDetails()
-              .stream()
-              .map(contact -> {
-                final ContactDetailEntity newContactDetail = ContactDetailMapper.map(contact);
-                newContactDetail.setCustomer(customerEntity);
-                return newContactDetail;
-              })
-              .collect(Collectors.toList())
-      );
-    }
+    this.changeContactDetails(updateContactDetailsCommand);
+    this.logCommand(updateContactDetailsCommand.identifier(), "UPDATE_CONTACT_DETAILS", null);
 
+    this.customerHistory.recordChange(CustomerEventConstants.PUT_CONTACT_DETAILS, updateContactDetailsCommand.identifier());
     return updateContactDetailsCommand.identifier();
   }
 
   @Transactional
   @CommandHandler
-  @EventEmitter(selectorName = CustomerEventConstants.SELECTOR_NAME, selectorValue = CustomerEventConstants.POST_IDENTIFICATION_CARD)
   public String createIdentificationCard(final CreateIdentificationCardCommand createIdentificationCardCommand) {
     final CustomerEntity customerEntity = findCustomerEntityOrThrow(createIdentificationCardCommand.identifier());
 
@@ -347,13 +338,14 @@ public class CustomerAggregate {
     customerEntity.setLastModifiedOn(LocalDateTime.now(Clock.systemUTC()));
 
     this.customerRepository.save(customerEntity);
+    this.customerHistory.recordChange(customerEntity.getIdentifier());
 
+    this.eventOutbox.enqueue(CustomerEventConstants.POST_IDENTIFICATION_CARD, identificationCardEntity.getNumber());
     return identificationCardEntity.getNumber();
   }
 
   @Transactional
   @CommandHandler
-  @EventEmitter(selectorName = CustomerEventConstants.SELECTOR_NAME, selectorValue = CustomerEventConstants.PUT_IDENTIFICATION_CARD)
   public String updateIdentificationCard(final UpdateIdentificationCardCommand updateIdentificationCardCommand) {
     final Optional<IdentificationCardEntity> optionalIdentificationCardEntity = this.identificationCardRepository.findByNumber(updateIdentificationCardCommand.number());
 
@@ -374,14 +366,15 @@ public class CustomerAggregate {
       customerEntity.setLastModifiedOn(LocalDateTime.now(Clock.systemUTC()));
 
       this.customerRepository.save(customerEntity);
+      this.customerHistory.recordChange(customerEntity.getIdentifier());
     });
 
+    this.eventOutbox.enqueue(CustomerEventConstants.PUT_IDENTIFICATION_CARD, updateIdentificationCardCommand.number());
     return updateIdentificationCardCommand.number();
   }
 
   @Transactional
   @CommandHandler
-  @EventEmitter(selectorName = CustomerEventConstants.SELECTOR_NAME, selectorValue = CustomerEventConstants.DELETE_IDENTIFICATION_CARD)
   public String deleteIdentificationCard(final DeleteIdentificationCardCommand deleteIdentificationCardCommand) throws IOException {
     final Optional<IdentificationCardEntity> optionalIdentificationCardEntity = this.identificationCardRepository.findByNumber(deleteIdentificationCardCommand.number());
 
@@ -390,23 +383,29 @@ public class CustomerAggregate {
       final List<IdentificationCardScanEntity> cardScanEntities = this.identificationCardScanRepository.findByIdentificationCard(identificationCardEntity);
 
       this.identificationCardScanRepository.delete(cardScanEntities);
+      cardScanEntities.forEach(scanEntity -> this.blobStore.release(scanEntity.getBlobId()));
 
       this.identificationCardRepository.delete(identificationCardEntity);
 
       final CustomerEntity customerEntity = identificationCardEntity.getCustomer();
+      if (!cardScanEntities.isEmpty()) {
+        this.storageService.release(customerEntity.getId(), cardScanEntities.size(),
+            cardScanEntities.stream().mapToLong(IdentificationCardScanEntity::getSize).sum());
+      }
 
       customerEntity.setLastModifiedBy(UserContextHolder.checkedGetUser());
       customerEntity.setLastModifiedOn(LocalDateTime.now(Clock.systemUTC()));
 
       this.customerRepository.save(customerEntity);
+      this.customerHistory.recordChange(customerEntity.getIdentifier());
     });
 
+    this.eventOutbox.enqueue(CustomerEventConstants.DELETE_IDENTIFICATION_CARD, deleteIdentificationCardCommand.number());
     return deleteIdentificationCardCommand.number();
   }
 
   @Transactional
   @CommandHandler(logStart = CommandLogLevel.INFO, logFinish = CommandLogLevel.INFO)
-  @EventEmitter(selectorName = CustomerEventConstants.SELECTOR_NAME, selectorValue = CustomerEventConstants.POST_IDENTIFICATION_CARD_SCAN)
   public ScanEvent createIdentificationCardScan(final CreateIdentificationCardScanCommand command) throws Exception {
     final Optional<IdentificationCardEntity> identificationCardEntity = this.identificationCardRepository.findByNumber(command.number());
 
@@ -417,29 +416,37 @@ public class CustomerAggregate {
     final IdentificationCardScanEntity identificationCardScanEntity = IdentificationCardScanMapper.map(command.scan());
 
     final MultipartFile image = command.image();
+    final byte[] content = image.getBytes();
 
     final LocalDateTime now = LocalDateTime.now(Clock.systemUTC());
 
-    identificationCardScanEntity.setImage(image.getBytes());
+    this.storageService.reserve(cardEntity.getCustomer(), 1L, image.getSize());
+    identificationCardScanEntity.setBlobId(this.blobStore.acquire(content));
     identificationCardScanEntity.setContentType(image.getContentType());
     identificationCardScanEntity.setSize(image.getSize());
     identificationCardScanEntity.setIdentificationCard(cardEntity);
     identificationCardScanEntity.setCreatedBy(UserContextHolder.checkedGetUser());
     identificationCardScanEntity.setCreatedOn(now);
 
-    identificationCardScanRepository.save(identificationCardScanEntity);
+    final IdentificationCardScanEntity savedScanEntity = identificationCardScanRepository.save(identificationCardScanEntity);
+    this.createRenditions(content, rendition -> rendition.setScan(savedScanEntity));
 
     cardEntity.setLastModifiedBy(UserContextHolder.checkedGetUser());
     cardEntity.setLastModifiedOn(now);
 
     identificationCardRepository.save(cardEntity);
-
-    return new ScanEvent(customerIdentifier, command.number(), command.scan().getIdentifier());
+    this.customerHistory.recordChange(customerIdentifier);
+
+    final ScanEvent scanEvent = new ScanEvent(customerIdentifier, command.number(), command.scan().getIdentifier());
+    this.eventOutbox.enqueue(CustomerEventConstants.POST_IDENTIFICATION_CARD_SCAN, scanEvent);
+    this.eventOutbox.enqueueSnapshot(CustomerEventConstants.POST_IDENTIFICATION_CARD_SCAN,
+        () -> new ScanSnapshotEvent(CustomerEventConstants.SNAPSHOT_VERSION, customerIdentifier, command.number(),
+            IdentificationCardScanMapper.map(savedScanEntity)));
+    return scanEvent;
   }
 
   @Transactional
   @CommandHandler(logStart = CommandLogLevel.INFO, logFinish = CommandLogLevel.INFO)
-  @EventEmitter(selectorName = CustomerEventConstants.SELECTOR_NAME, selectorValue = CustomerEventConstants.DELETE_IDENTIFICATION_CARD_SCAN)
   public ScanEvent deleteIdentificationCardScan(final DeleteIdentificationCardScanCommand command) {
     final Optional<IdentificationCardEntity> cardEntity = this.identificationCardRepository.findByNumber(command.number());
     final Optional<IdentificationCardScanEntity> scanEntity = cardEntity
@@ -449,22 +456,26 @@ public class CustomerAggregate {
     scanEntity.ifPresent(identificationCardScanEntity -> {
 
       this.identificationCardScanRepository.delete(identificationCardScanEntity);
+      this.blobStore.release(identificationCardScanEntity.getBlobId());
 
       final IdentificationCardEntity identificationCard = identificationCardScanEntity.getIdentificationCard();
       customerIdentifier[0] = identificationCard.getCustomer().getIdentifier();
+      this.storageService.release(identificationCard.getCustomer().getId(), 1L, identificationCardScanEntity.getSize());
 
       identificationCard.setLastModifiedBy(UserContextHolder.checkedGetUser());
       identificationCard.setLastModifiedOn(LocalDateTime.now(Clock.systemUTC()));
 
       this.identificationCardRepository.save(identificationCard);
+      this.customerHistory.recordChange(customerIdentifier[0]);
     });
 
-    return new ScanEvent(customerIdentifier[0], command.number(), command.scanIdentifier());
+    final ScanEvent scanEvent = new ScanEvent(customerIdentifier[0], command.number(), command.scanIdentifier());
+    this.eventOutbox.enqueue(CustomerEventConstants.DELETE_IDENTIFICATION_CARD_SCAN, scanEvent);
+    return scanEvent;
   }
 
   @Transactional
   @CommandHandler
-  @EventEmitter(selectorName = CustomerEventConstants.SELECTOR_NAME, selectorValue = CustomerEventConstants.POST_PORTRAIT)
   public String createPortrait(final CreatePortraitCommand createPortraitCommand) throws IOException {
     if(createPortraitCommand.portrait() == null) {
       return null;
@@ -472,34 +483,95 @@ public class CustomerAggregate {
 
     final CustomerEntity customerEntity = findCustomerEntityOrThrow(createPortraitCommand.identifier());
 
+    final byte[] content = createPortraitCommand.portrait().getBytes();
     final PortraitEntity portraitEntity = PortraitMapper.map(createPortraitCommand.portrait());
     portraitEntity.setCustomer(customerEntity);
-    this.portraitRepository.save(portraitEntity);
+    this.storageService.reserve(customerEntity, 1L, portraitEntity.getSize());
+    portraitEntity.setBlobId(this.blobStore.acquire(content));
+    final PortraitEntity savedPortraitEntity = this.portraitRepository.save(portraitEntity);
+    this.createRenditions(content, rendition -> rendition.setPortrait(savedPortraitEntity));
 
     customerEntity.setLastModifiedBy(UserContextHolder.checkedGetUser());
     customerEntity.setLastModifiedOn(LocalDateTime.now(Clock.systemUTC()));
 
     this.customerRepository.save(customerEntity);
+    this.customerHistory.recordChange(createPortraitCommand.identifier());
 
+    this.eventOutbox.enqueue(CustomerEventConstants.POST_PORTRAIT, createPortraitCommand.identifier());
     return createPortraitCommand.identifier();
   }
 
   @Transactional
   @CommandHandler
-  @EventEmitter(selectorName = CustomerEventConstants.SELECTOR_NAME, selectorValue = CustomerEventConstants.DELETE_PORTRAIT)
   public String deletePortrait(final DeletePortraitCommand deletePortraitCommand) throws IOException {
     final CustomerEntity customerEntity = findCustomerEntityOrThrow(deletePortraitCommand.identifier());
 
+    final PortraitEntity portraitEntity = this.portraitRepository.findByCustomer(customerEntity);
     this.portraitRepository.deleteByCustomer(customerEntity);
+    if (portraitEntity != null) {
+      this.blobStore.release(portraitEntity.getBlobId());
+      this.storageService.release(customerEntity.getId(), 1L, portraitEntity.getSize());
+    }
 
     customerEntity.setLastModifiedBy(UserContextHolder.checkedGetUser());
     customerEntity.setLastModifiedOn(LocalDateTime.now(Clock.systemUTC()));
 
     this.customerRepository.save(customerEntity);
+    this.customerHistory.recordChange(deletePortraitCommand.identifier());
 
+    this.eventOutbox.enqueue(CustomerEventConstants.DELETE_PORTRAIT, deletePortraitCommand.identifier());
     return deletePortraitCommand.identifier();
   }
 
+  private void createRenditions(final byte[] image, final Consumer<RenditionEntity> owner) {
+    this.renditionGenerator.sizes().forEach(size ->
+        this.renditionGenerator.render(image, size).ifPresent(renderedImage -> {
+          final RenditionEntity renditionEntity = new RenditionEntity();
+          owner.accept(renditionEntity);
+          renditionEntity.setSize(size);
+          renditionEntity.setContentType(RenditionGenerator.CONTENT_TYPE);
+          renditionEntity.setImage(renderedImage);
+          this.renditionRepository.save(renditionEntity);
+        }));
+  }
+
+  private void changeAddress(final UpdateAddressCommand updateAddressCommand) {
+    final CustomerEntity customerEntity = findCustomerEntityOrThrow(updateAddressCommand.identifier());
+    customerEntity.setLastModifiedBy(UserContextHolder.checkedGetUser());
+    customerEntity.setLastModifiedOn(LocalDateTime.now(Clock.systemUTC()));
+
+    final AddressEntity oldAddressEntity = customerEntity.getAddress();
+
+    final AddressEntity newAddressEntity = this.addressRepository.save(AddressMapper.map(updateAddressCommand.address()));
+
+    customerEntity.setAddress(newAddressEntity);
+    this.customerRepository.save(customerEntity);
+
+    this.addressRepository.delete(oldAddressEntity);
+  }
+
+  private void changeContactDetails(final UpdateContactDetailsCommand updateContactDetailsCommand) {
+    final CustomerEntity customerEntity = findCustomerEntityOrThrow(updateContactDetailsCommand.identifier());
+    customerEntity.setLastModifiedBy(UserContextHolder.checkedGetUser());
+    customerEntity.setLastModifiedOn(LocalDateTime.now(Clock.systemUTC()));
+
+    final List<ContactDetailEntity> oldContactDetails = this.contactDetailRepository.findByCustomer(customerEntity);
+    this.contactDetailRepository.delete(oldContactDetails);
+
+    if (updateContactDetailsCommand.contactDetails() != null) {
+      this.contactDetailRepository.save(
+          updateContactDetailsCommand.contactDetails()
+              .stream()
+              .map(contact -> {
+                final ContactDetailEntity newContactDetail = ContactDetailMapper.map(contact);
+                newContactDetail.setCustomer(customerEntity);
+                return newContactDetail;
+              })
+              .collect(Collectors.toList())
+      );
+    }
+  }
+
   private void setCustomValues(final Customer customer, final CustomerEntity savedCustomerEntity) {
     this.fieldValueRepository.save(
         customer.getCustomValues()
@@ -521,6 +593,12 @@ public class CustomerAggregate {
     );
   }
 
+  private void logCommand(final String customerIdentifier, final String action, final String comment) {
+    // Cassandra does not take part in the transaction, so the entry is recorded in the outbox and
+    // appended by the relay once the change it describes has been committed.
+    this.eventOutbox.enqueueCommandLog(AuditEntryMapper.create(customerIdentifier, action, comment));
+  }
+
   private CustomerEntity findCustomerEntityOrThrow(String identifier) {
     return this.customerRepository.findByIdentifier(identifier)
         .orElseThrow(() -> ServiceException.notFound("Customer ''{0}'' not found", identifier));
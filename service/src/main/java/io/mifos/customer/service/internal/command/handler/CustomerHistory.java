@@ -0,0 +1,122 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.command.handler;
+
+import io.mifos.core.lang.ServiceException;
+import io.mifos.customer.api.v1.CustomerEventConstants;
+import io.mifos.customer.api.v1.domain.Customer;
+import io.mifos.customer.api.v1.events.CustomerSnapshotEvent;
+import io.mifos.customer.service.internal.config.HistoryProperties;
+import io.mifos.customer.service.internal.config.OutboxProperties;
+import io.mifos.customer.service.internal.event.EventOutbox;
+import io.mifos.customer.service.internal.mapper.CustomerSnapshotMapper;
+import io.mifos.customer.service.internal.repository.CustomerEntity;
+import io.mifos.customer.service.internal.repository.CustomerRepository;
+import io.mifos.customer.service.internal.repository.CustomerSnapshotRepository;
+import io.mifos.customer.service.internal.service.CustomerService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Records the state of a customer after each command which changed it.
+ *
+ * If the history is enabled, a snapshot of the customer is stored under the next version of the
+ * customer.  The version is counted on the customer row itself, moved on from the version the
+ * command read in a single statement, which locks the row until the command commits.  A command
+ * which read the customer before a concurrent one committed fails with a conflict instead of
+ * recording the same version again.
+ * The customer is only assembled if either the history or snapshot events are enabled.
+ */
+@Component
+public class CustomerHistory {
+
+  private final CustomerRepository customerRepository;
+  private final CustomerSnapshotRepository customerSnapshotRepository;
+  private final CustomerService customerService;
+  private final EventOutbox eventOutbox;
+  private final HistoryProperties historyProperties;
+  private final OutboxProperties outboxProperties;
+
+  @Autowired
+  public CustomerHistory(final CustomerRepository customerRepository,
+                         final CustomerSnapshotRepository customerSnapshotRepository,
+                         final CustomerService customerService,
+                         final EventOutbox eventOutbox,
+                         final HistoryProperties historyProperties,
+                         final OutboxProperties outboxProperties) {
+    super();
+    this.customerRepository = customerRepository;
+    this.customerSnapshotRepository = customerSnapshotRepository;
+    this.customerService = customerService;
+    this.eventOutbox = eventOutbox;
+    this.historyProperties = historyProperties;
+    this.outboxProperties = outboxProperties;
+  }
+
+  /**
+   * Enqueues the customer event, and records the changed customer.
+   */
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void recordChange(final String selectorValue, final String identifier) {
+    this.eventOutbox.enqueue(selectorValue, identifier);
+
+    if (!this.historyProperties.isEnabled() && !this.outboxProperties.isSnapshots()) {
+      return;
+    }
+
+    final Customer customer = this.record(identifier);
+    this.eventOutbox.enqueueSnapshot(selectorValue,
+        () -> new CustomerSnapshotEvent(CustomerEventConstants.SNAPSHOT_VERSION, customer));
+  }
+
+  /**
+   * Records the changed customer for commands which publish an event of their own, e.g. changes
+   * of the portrait or of identification cards.
+   */
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void recordChange(final String identifier) {
+    if (this.historyProperties.isEnabled()) {
+      this.record(identifier);
+    }
+  }
+
+  private Customer record(final String identifier) {
+    if (!this.historyProperties.isEnabled()) {
+      return this.findCustomer(identifier);
+    }
+
+    final CustomerEntity customerEntity = this.customerRepository.findByIdentifier(identifier)
+        .orElseThrow(() -> ServiceException.notFound("Customer ''{0}'' not found", identifier));
+    // a customer created by this command has not been read back, its version is the column's default
+    final Integer readVersion = customerEntity.getVersion() != null ? customerEntity.getVersion() : 0;
+    // lock the customer before assembling it, so the snapshot belongs to the version
+    if (this.customerRepository.incrementVersion(customerEntity.getId(), readVersion) == 0) {
+      throw ServiceException.conflict("Customer ''{0}'' was changed concurrently.", identifier);
+    }
+    final Integer version = readVersion + 1;
+    customerEntity.setVersion(version);
+    final Customer customer = this.findCustomer(identifier);
+    this.customerSnapshotRepository.save(CustomerSnapshotMapper.create(customerEntity, version, customer));
+    return customer;
+  }
+
+  private Customer findCustomer(final String identifier) {
+    return this.customerService.findCustomer(identifier)
+        .orElseThrow(() -> ServiceException.notFound("Customer ''{0}'' not found", identifier));
+  }
+}
@@ -18,20 +18,29 @@ package io.mifos.customer.service.internal.command.handler;
 import io.mifos.core.api.util.UserContextHolder;
 import io.mifos.core.command.annotation.Aggregate;
 import io.mifos.core.command.annotation.CommandHandler;
-import io.mifos.core.command.annotation.EventEmitter;
 import io.mifos.core.lang.ServiceException;
 import io.mifos.customer.api.v1.CustomerEventConstants;
 import io.mifos.customer.api.v1.events.DocumentEvent;
 import io.mifos.customer.api.v1.events.DocumentPageEvent;
+import io.mifos.customer.api.v1.events.DocumentPagesEvent;
+import io.mifos.customer.api.v1.events.DocumentSnapshotEvent;
+import io.mifos.customer.service.internal.blob.BlobStore;
+import io.mifos.customer.service.internal.cleanup.DocumentDeleter;
 import io.mifos.customer.service.internal.command.*;
+import io.mifos.customer.service.internal.event.EventOutbox;
 import io.mifos.customer.service.internal.mapper.DocumentMapper;
 import io.mifos.customer.service.internal.repository.*;
+import io.mifos.customer.service.internal.service.StorageService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.sql.Timestamp;
 import java.time.Clock;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * @author Myrle Krantz
@@ -41,20 +50,31 @@ public class DocumentCommandHandler {
   private final DocumentRepository documentRepository;
   private final DocumentPageRepository documentPageRepository;
   private final CustomerRepository customerRepository;
+  private final EventOutbox eventOutbox;
+  private final BlobStore blobStore;
+  private final DocumentDeleter documentDeleter;
+  private final StorageService storageService;
 
   @Autowired
   public DocumentCommandHandler(
       final DocumentRepository documentRepository,
       final DocumentPageRepository documentPageRepository,
-      final CustomerRepository customerRepository) {
+      final CustomerRepository customerRepository,
+      final EventOutbox eventOutbox,
+      final BlobStore blobStore,
+      final DocumentDeleter documentDeleter,
+      final StorageService storageService) {
     this.documentRepository = documentRepository;
     this.documentPageRepository = documentPageRepository;
     this.customerRepository = customerRepository;
+    this.eventOutbox = eventOutbox;
+    this.blobStore = blobStore;
+    this.documentDeleter = documentDeleter;
+    this.storageService = storageService;
   }
 
   @Transactional
   @CommandHandler
-  @EventEmitter(selectorName = CustomerEventConstants.SELECTOR_NAME, selectorValue = CustomerEventConstants.POST_DOCUMENT_PAGE)
   public DocumentPageEvent process(final CreateDocumentPageCommand command) throws IOException {
     final DocumentEntity documentEntity = documentRepository.findByCustomerIdAndDocumentIdentifier(
         command.getCustomerIdentifier(),
@@ -62,25 +82,69 @@ public class DocumentCommandHandler {
         .orElseThrow(() -> ServiceException.badRequest("Document not found"));
 
     final DocumentPageEntity documentPageEntity = DocumentMapper.map(command.getDocument(), command.getPageNumber(), documentEntity);
+    storageService.reserve(documentEntity.getCustomer(), 1L, documentPageEntity.getSize());
+    documentPageEntity.setBlobId(blobStore.acquire(command.getDocument().getBytes()));
     documentPageRepository.save(documentPageEntity);
 
-    return new DocumentPageEvent(command.getCustomerIdentifier(), command.getDocumentIdentifier(), command.getPageNumber());
+    final DocumentPageEvent documentPageEvent = new DocumentPageEvent(command.getCustomerIdentifier(), command.getDocumentIdentifier(), command.getPageNumber());
+    this.eventOutbox.enqueue(CustomerEventConstants.POST_DOCUMENT_PAGE, documentPageEvent);
+    return documentPageEvent;
+  }
+
+  /**
+   * Stores all pages against the document resolved once, within a single transaction, and
+   * announces them with one event.
+   */
+  @Transactional
+  @CommandHandler
+  public DocumentPagesEvent process(final CreateDocumentPagesCommand command) throws IOException {
+    final DocumentEntity documentEntity = documentRepository.findByCustomerIdAndDocumentIdentifier(
+        command.getCustomerIdentifier(),
+        command.getDocumentIdentifier())
+        .orElseThrow(() -> ServiceException.badRequest("Document not found"));
+
+    storageService.reserve(documentEntity.getCustomer(), command.getPages().size(),
+        command.getPages().stream().mapToLong(MultipartFile::getSize).sum());
+
+    final List<DocumentPageEntity> documentPageEntities = new ArrayList<>(command.getPages().size());
+    final List<Integer> pageNumbers = new ArrayList<>(command.getPages().size());
+    int pageNumber = command.getFirstPageNumber();
+    for (final MultipartFile page : command.getPages()) {
+      final DocumentPageEntity documentPageEntity = DocumentMapper.map(page, pageNumber, documentEntity);
+      documentPageEntity.setBlobId(blobStore.acquire(page.getBytes()));
+      documentPageEntities.add(documentPageEntity);
+      pageNumbers.add(pageNumber);
+      pageNumber++;
+    }
+    documentPageRepository.save(documentPageEntities);
+
+    final DocumentPagesEvent documentPagesEvent = new DocumentPagesEvent(command.getCustomerIdentifier(), command.getDocumentIdentifier(), pageNumbers);
+    this.eventOutbox.enqueue(CustomerEventConstants.POST_DOCUMENT_PAGES, documentPagesEvent);
+
+    if (command.isComplete()) {
+      // the conditional update counts the pages in the database
+      documentPageRepository.flush();
+      this.complete(command.getCustomerIdentifier(), command.getDocumentIdentifier());
+      this.enqueueDocumentEvent(CustomerEventConstants.POST_DOCUMENT_COMPLETE,
+          new DocumentEvent(command.getCustomerIdentifier(), command.getDocumentIdentifier()));
+    }
+    return documentPagesEvent;
   }
 
   @Transactional
   @CommandHandler
-  @EventEmitter(selectorName = CustomerEventConstants.SELECTOR_NAME, selectorValue = CustomerEventConstants.POST_DOCUMENT)
   public DocumentEvent process(final CreateDocumentCommand command) throws IOException {
     customerRepository.findByIdentifier(command.getCustomerIdentifier())
         .map(customerEntity -> DocumentMapper.map(command.getCustomerDocument(), customerEntity))
         .ifPresent(documentRepository::save);
 
-    return new DocumentEvent(command.getCustomerIdentifier(), command.getCustomerDocument().getIdentifier());
+    final DocumentEvent documentEvent = new DocumentEvent(command.getCustomerIdentifier(), command.getCustomerDocument().getIdentifier());
+    this.enqueueDocumentEvent(CustomerEventConstants.POST_DOCUMENT, documentEvent);
+    return documentEvent;
   }
 
   @Transactional
   @CommandHandler
-  @EventEmitter(selectorName = CustomerEventConstants.SELECTOR_NAME, selectorValue = CustomerEventConstants.PUT_DOCUMENT)
   public DocumentEvent process(final ChangeDocumentCommand command) throws IOException {
     final DocumentEntity existingDocument = documentRepository.findByCustomerIdAndDocumentIdentifier(
         command.getCustomerIdentifier(), command.getCustomerDocument().getIdentifier())
@@ -95,55 +159,74 @@ public class DocumentCommandHandler {
           documentRepository.save(documentEntity);
         });
 
-    return new DocumentEvent(command.getCustomerIdentifier(), command.getCustomerDocument().getIdentifier());
+    final DocumentEvent documentEvent = new DocumentEvent(command.getCustomerIdentifier(), command.getCustomerDocument().getIdentifier());
+    this.enqueueDocumentEvent(CustomerEventConstants.PUT_DOCUMENT, documentEvent);
+    return documentEvent;
   }
 
-  @Transactional
+  /**
+   * Not transactional itself, the pages are deleted in chunks of their own, see
+   * {@link DocumentDeleter}.
+   */
   @CommandHandler
-  @EventEmitter(selectorName = CustomerEventConstants.SELECTOR_NAME, selectorValue = CustomerEventConstants.DELETE_DOCUMENT)
   public DocumentEvent process(final DeleteDocumentCommand command) throws IOException {
     final DocumentEntity existingDocument = documentRepository.findByCustomerIdAndDocumentIdentifier(
         command.getCustomerIdentifier(), command.getDocumentIdentifier())
         .orElseThrow(() ->
             ServiceException.notFound("Document ''{0}'' for customer ''{1}'' not found",
                 command.getDocumentIdentifier(), command.getCustomerIdentifier()));
-    documentPageRepository.findByCustomerIdAndDocumentIdentifier(command.getCustomerIdentifier(), command.getDocumentIdentifier())
-        .forEach(documentPageRepository::delete);
-    documentRepository.delete(existingDocument);
 
-    return new DocumentEvent(command.getCustomerIdentifier(), command.getDocumentIdentifier());
+    return documentDeleter.delete(command.getCustomerIdentifier(), command.getDocumentIdentifier(), existingDocument.getId());
   }
 
   @Transactional
   @CommandHandler
-  @EventEmitter(selectorName = CustomerEventConstants.SELECTOR_NAME, selectorValue = CustomerEventConstants.POST_DOCUMENT_COMPLETE)
   public DocumentEvent process(final CompleteDocumentCommand command) throws IOException {
-    final DocumentEntity documentEntity = documentRepository.findByCustomerIdAndDocumentIdentifier(
-        command.getCustomerIdentifier(),
-        command.getDocumentIdentifier())
-        .orElseThrow(() -> ServiceException.badRequest("Document not found"));
+    this.complete(command.getCustomerIdentifier(), command.getDocumentIdentifier());
 
-    documentEntity.setCreatedOn(LocalDateTime.now(Clock.systemUTC()));
-    documentEntity.setCreatedBy(UserContextHolder.checkedGetUser());
-    documentEntity.setCompleted(true);
-    documentRepository.save(documentEntity);
-
-
-    return new DocumentEvent(command.getCustomerIdentifier(), command.getDocumentIdentifier());
+    final DocumentEvent documentEvent = new DocumentEvent(command.getCustomerIdentifier(), command.getDocumentIdentifier());
+    this.enqueueDocumentEvent(CustomerEventConstants.POST_DOCUMENT_COMPLETE, documentEvent);
+    return documentEvent;
   }
 
   @Transactional
   @CommandHandler
-  @EventEmitter(selectorName = CustomerEventConstants.SELECTOR_NAME, selectorValue = CustomerEventConstants.DELETE_DOCUMENT_PAGE)
   public DocumentPageEvent process(final DeleteDocumentPageCommand command) throws IOException {
     documentPageRepository.findByCustomerIdAndDocumentIdentifierAndPageNumber(
         command.getCustomerIdentifier(),
         command.getDocumentIdentifier(),
         command.getPageNumber())
-        .ifPresent(documentPageRepository::delete);
+        .ifPresent(this::deletePage);
 
     //No exception if it's not present, because why bother.  It's not present.  That was the goal.
 
-    return new DocumentPageEvent(command.getCustomerIdentifier(), command.getDocumentIdentifier(), command.getPageNumber());
+    final DocumentPageEvent documentPageEvent = new DocumentPageEvent(command.getCustomerIdentifier(), command.getDocumentIdentifier(), command.getPageNumber());
+    this.eventOutbox.enqueue(CustomerEventConstants.DELETE_DOCUMENT_PAGE, documentPageEvent);
+    return documentPageEvent;
+  }
+
+  private void deletePage(final DocumentPageEntity documentPageEntity) {
+    documentPageRepository.delete(documentPageEntity);
+    blobStore.release(documentPageEntity.getBlobId());
+    storageService.release(documentPageEntity.getDocument().getCustomer().getId(), 1L, documentPageEntity.getSize());
+  }
+
+  private void complete(final String customerIdentifier, final String documentIdentifier) {
+    final int completed = documentRepository.complete(customerIdentifier, documentIdentifier,
+        UserContextHolder.checkedGetUser(), Timestamp.valueOf(LocalDateTime.now(Clock.systemUTC())));
+    if (completed == 0) {
+      throw ServiceException.conflict("The document ''{0}'' for customer ''{1}'' is missing pages and cannot be completed.",
+          documentIdentifier, customerIdentifier);
+    }
+  }
+
+  private void enqueueDocumentEvent(final String selectorValue, final DocumentEvent documentEvent) {
+    this.eventOutbox.enqueue(selectorValue, documentEvent);
+    this.eventOutbox.enqueueSnapshot(selectorValue,
+        () -> documentRepository.findByCustomerIdAndDocumentIdentifier(
+            documentEvent.getCustomerIdentifier(), documentEvent.getDocumentIdentifier())
+            .map(documentEntity -> new DocumentSnapshotEvent(CustomerEventConstants.SNAPSHOT_VERSION,
+                documentEvent.getCustomerIdentifier(), DocumentMapper.map(documentEntity)))
+            .orElse(null));
   }
 }
@@ -21,7 +21,12 @@ import io.mifos.core.command.annotation.EventEmitter;
 import io.mifos.core.mariadb.domain.FlywayFactoryBean;
 import io.mifos.customer.api.v1.CustomerEventConstants;
 import io.mifos.customer.service.ServiceConstants;
+import io.mifos.customer.service.internal.audit.CommandLogMigrator;
+import io.mifos.customer.service.internal.blob.BlobDeduplicator;
 import io.mifos.customer.service.internal.command.InitializeServiceCommand;
+import io.mifos.customer.service.internal.repository.ArchivedContentRepository;
+import io.mifos.customer.service.internal.repository.ClientWriteRepository;
+import io.mifos.customer.service.internal.repository.CommandLogRepository;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -37,15 +42,30 @@ public class MigrationAggregate {
   private final Logger logger;
   private final DataSource dataSource;
   private final FlywayFactoryBean flywayFactoryBean;
+  private final CommandLogRepository commandLogRepository;
+  private final CommandLogMigrator commandLogMigrator;
+  private final ClientWriteRepository clientWriteRepository;
+  private final BlobDeduplicator blobDeduplicator;
+  private final ArchivedContentRepository archivedContentRepository;
 
   @Autowired
   public MigrationAggregate(@Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger,
                             final DataSource dataSource,
-                            final FlywayFactoryBean flywayFactoryBean) {
+                            final FlywayFactoryBean flywayFactoryBean,
+                            final CommandLogRepository commandLogRepository,
+                            final CommandLogMigrator commandLogMigrator,
+                            final ClientWriteRepository clientWriteRepository,
+                            final BlobDeduplicator blobDeduplicator,
+                            final ArchivedContentRepository archivedContentRepository) {
     super();
     this.logger = logger;
     this.dataSource = dataSource;
     this.flywayFactoryBean = flywayFactoryBean;
+    this.commandLogRepository = commandLogRepository;
+    this.commandLogMigrator = commandLogMigrator;
+    this.clientWriteRepository = clientWriteRepository;
+    this.blobDeduplicator = blobDeduplicator;
+    this.archivedContentRepository = archivedContentRepository;
   }
 
   @CommandHandler
@@ -53,6 +73,11 @@ public class MigrationAggregate {
   public String initialize(final InitializeServiceCommand initializeServiceCommand) {
     this.logger.debug("Start service migration.");
     this.flywayFactoryBean.create(this.dataSource).migrate();
+    this.commandLogRepository.createTable();
+    this.commandLogMigrator.migrate();
+    this.clientWriteRepository.createTable();
+    this.archivedContentRepository.createTable();
+    this.blobDeduplicator.deduplicate();
     return CustomerEventConstants.INITIALIZE;
   }
 }
\ No newline at end of file
@@ -18,7 +18,6 @@ package io.mifos.customer.service.internal.command.handler;
 import io.mifos.core.api.util.UserContextHolder;
 import io.mifos.core.command.annotation.Aggregate;
 import io.mifos.core.command.annotation.CommandHandler;
-import io.mifos.core.command.annotation.EventEmitter;
 import io.mifos.core.lang.ServiceException;
 import io.mifos.customer.api.v1.CustomerEventConstants;
 import io.mifos.customer.api.v1.domain.Command;
@@ -27,6 +26,7 @@ import io.mifos.customer.service.internal.command.AddTaskDefinitionToCustomerCom
 import io.mifos.customer.service.internal.command.CreateTaskDefinitionCommand;
 import io.mifos.customer.service.internal.command.ExecuteTaskForCustomerCommand;
 import io.mifos.customer.service.internal.command.UpdateTaskDefinitionCommand;
+import io.mifos.customer.service.internal.event.EventOutbox;
 import io.mifos.customer.service.internal.mapper.TaskDefinitionMapper;
 import io.mifos.customer.service.internal.mapper.TaskInstanceMapper;
 import io.mifos.customer.service.internal.repository.CustomerEntity;
@@ -52,28 +52,34 @@ public class TaskAggregate {
   private final TaskDefinitionRepository taskDefinitionRepository;
   private final TaskInstanceRepository taskInstanceRepository;
   private final CustomerRepository customerRepository;
+  private final CustomerHistory customerHistory;
+  private final EventOutbox eventOutbox;
 
   @Autowired
   public TaskAggregate(final TaskDefinitionRepository taskDefinitionRepository,
                        final TaskInstanceRepository taskInstanceRepository,
-                       final CustomerRepository customerRepository) {
+                       final CustomerRepository customerRepository,
+                       final CustomerHistory customerHistory,
+                       final EventOutbox eventOutbox) {
     super();
     this.taskDefinitionRepository = taskDefinitionRepository;
     this.taskInstanceRepository = taskInstanceRepository;
     this.customerRepository = customerRepository;
+    this.customerHistory = customerHistory;
+    this.eventOutbox = eventOutbox;
   }
 
   @Transactional
   @CommandHandler
-  @EventEmitter(selectorName = CustomerEventConstants.SELECTOR_NAME, selectorValue = CustomerEventConstants.POST_TASK)
   public String createTaskDefinition(final CreateTaskDefinitionCommand createTaskDefinitionCommand) {
     this.taskDefinitionRepository.save(TaskDefinitionMapper.map(createTaskDefinitionCommand.taskDefinition()));
+
+    this.eventOutbox.enqueue(CustomerEventConstants.POST_TASK, createTaskDefinitionCommand.taskDefinition().getIdentifier());
     return createTaskDefinitionCommand.taskDefinition().getIdentifier();
   }
 
   @Transactional
   @CommandHandler
-  @EventEmitter(selectorName = CustomerEventConstants.SELECTOR_NAME, selectorValue = CustomerEventConstants.PUT_TASK)
   public String updateTaskDefinition(final UpdateTaskDefinitionCommand updateTaskDefinitionCommand) {
     final TaskDefinitionEntity taskDefinitionEntity = this.taskDefinitionRepository.findByIdentifier(updateTaskDefinitionCommand.identifier());
 
@@ -86,12 +92,12 @@ public class TaskAggregate {
 
     this.taskDefinitionRepository.save(taskDefinitionEntity);
 
+    this.eventOutbox.enqueue(CustomerEventConstants.PUT_TASK, updatedTaskDefinition.getIdentifier());
     return updatedTaskDefinition.getIdentifier();
   }
 
   @Transactional
   @CommandHandler
-  @EventEmitter(selectorName = CustomerEventConstants.SELECTOR_NAME, selectorValue = CustomerEventConstants.PUT_CUSTOMER)
   public String addTaskToCustomer(final AddTaskDefinitionToCustomerCommand addTaskDefinitionToCustomerCommand) {
     final TaskDefinitionEntity taskDefinitionEntity =
         this.taskDefinitionRepository.findByIdentifier(addTaskDefinitionToCustomerCommand.taskIdentifier());
@@ -100,12 +106,12 @@ public class TaskAggregate {
 
     this.taskInstanceRepository.save(TaskInstanceMapper.create(taskDefinitionEntity, customerEntity));
 
+    this.customerHistory.recordChange(CustomerEventConstants.PUT_CUSTOMER, addTaskDefinitionToCustomerCommand.customerIdentifier());
     return addTaskDefinitionToCustomerCommand.customerIdentifier();
   }
 
   @Transactional
   @CommandHandler
-  @EventEmitter(selectorName = CustomerEventConstants.SELECTOR_NAME, selectorValue = CustomerEventConstants.PUT_CUSTOMER)
   public String executeTaskForCustomer(final ExecuteTaskForCustomerCommand executeTaskForCustomerCommand) {
     final CustomerEntity customerEntity = findCustomerEntityOrThrow(executeTaskForCustomerCommand.customerIdentifier());
     final List<TaskInstanceEntity> taskInstanceEntities = this.taskInstanceRepository.findByCustomer(customerEntity);
@@ -126,6 +132,7 @@ public class TaskAggregate {
       }
     }
 
+    this.customerHistory.recordChange(CustomerEventConstants.PUT_CUSTOMER, executeTaskForCustomerCommand.customerIdentifier());
     return executeTaskForCustomerCommand.customerIdentifier();
   }
 
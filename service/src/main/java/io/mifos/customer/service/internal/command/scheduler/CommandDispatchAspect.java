@@ -0,0 +1,54 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.command.scheduler;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Wraps the command bus' dispatch, which runs on the executor thread, to tell the
+ * {@link CommandScheduler} when a command leaves the queue and to release the command's slot once
+ * the bus has returned.  The slot is freed whether a handler was found, succeeded or failed, and
+ * only after the handler's transaction has ended.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class CommandDispatchAspect {
+
+  private final CommandScheduler commandScheduler;
+
+  @Autowired
+  public CommandDispatchAspect(final CommandScheduler commandScheduler) {
+    super();
+    this.commandScheduler = commandScheduler;
+  }
+
+  @Around("execution(* io.mifos.core.command..CommandBus.dispatch(..)) && args(command, ..)")
+  public Object aroundDispatch(final ProceedingJoinPoint joinPoint, final Object command) throws Throwable {
+    this.commandScheduler.started(command);
+    try {
+      return joinPoint.proceed();
+    } finally {
+      this.commandScheduler.complete(command);
+    }
+  }
+}
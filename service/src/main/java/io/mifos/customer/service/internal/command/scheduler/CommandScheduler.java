@@ -0,0 +1,469 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.command.scheduler;
+
+import io.mifos.core.api.util.UserContextHolder;
+import io.mifos.core.command.gateway.CommandGateway;
+import io.mifos.core.lang.ServiceError;
+import io.mifos.core.lang.ServiceException;
+import io.mifos.core.lang.TenantContextHolder;
+import io.mifos.customer.service.ServiceConstants;
+import io.mifos.customer.service.internal.config.CommandSchedulerProperties;
+import io.mifos.customer.service.internal.jdbc.ReplicaRouter;
+import io.mifos.customer.service.internal.metrics.ServiceMetrics;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.text.MessageFormat;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Admits commands to the asynchronous command executor.
+ *
+ * At most the configured capacity of commands may be queued or running at any time, which keeps
+ * both the number of threads and the time a command waits in the queue bounded.  The capacity is
+ * shared fairly between the tenants with commands in flight: each of them may occupy an equal
+ * share of it, but never less than the configured tenant minimum.  No tenant may ever occupy more
+ * than what is left after reserving the tenant minimum for each of the other expected tenants, so
+ * a tenant arriving while another one saturates the scheduler is still admitted.
+ *
+ * A command exceeding its tenant's share is rejected with 429, a command arriving while the
+ * executor is saturated with 503.  Admitted commands wait in one queue per tenant and are handed
+ * to the executor round robin across tenants, never more than the dispatch limit at a time, so a
+ * burst of one tenant does not queue up in front of the commands of the others.
+ *
+ * A command leaves the scheduler once the command bus has returned from dispatching it on the
+ * executor, with or without a handler, see {@link CommandDispatchAspect}.  If the executor refuses
+ * a command before it was accepted, the caller gets a 503.  Once accepted, a command refused by the
+ * executor is put back in front of its tenant's queue and dispatched again after the retry delay or
+ * as soon as another command completes; a command which can not be dispatched for any other
+ * reason is logged and counted as lost.  The time a command spent waiting for a thread is recorded
+ * when the bus starts dispatching it.
+ */
+@Component
+public class CommandScheduler {
+
+  private static final String METRIC_IN_FLIGHT = "customer.commands.inflight";
+  private static final String METRIC_SATURATION = "customer.commands.saturation";
+  private static final String METRIC_REJECTED_TENANT = "customer.commands.rejected.tenant";
+  private static final String METRIC_REJECTED_CAPACITY = "customer.commands.rejected.capacity";
+  private static final String METRIC_RETRIED = "customer.commands.retried";
+  private static final String METRIC_LOST = "customer.commands.lost";
+
+  private static final int TOO_MANY_REQUESTS = 429;
+  private static final int SERVICE_UNAVAILABLE = 503;
+
+  private final Logger logger;
+  private final CommandGateway commandGateway;
+  private final CommandSchedulerProperties commandSchedulerProperties;
+  private final GaugeService gaugeService;
+  private final CounterService counterService;
+  private final ServiceMetrics serviceMetrics;
+  private final ReplicaRouter replicaRouter;
+
+  private final Map<String, Integer> inFlightByTenant = new HashMap<>();
+  private final Map<Object, Admission> admittedCommands = new IdentityHashMap<>();
+  private final LinkedHashMap<String, Deque<PendingCommand>> pendingByTenant = new LinkedHashMap<>();
+  private int inFlight;
+  private int dispatching;
+  private ScheduledExecutorService retryExecutor;
+
+  @Autowired
+  public CommandScheduler(@Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger,
+                          final CommandGateway commandGateway,
+                          final CommandSchedulerProperties commandSchedulerProperties,
+                          final GaugeService gaugeService,
+                          final CounterService counterService,
+                          final ServiceMetrics serviceMetrics,
+                          final ReplicaRouter replicaRouter) {
+    super();
+    this.logger = logger;
+    this.commandGateway = commandGateway;
+    this.commandSchedulerProperties = commandSchedulerProperties;
+    this.gaugeService = gaugeService;
+    this.counterService = counterService;
+    this.serviceMetrics = serviceMetrics;
+    this.replicaRouter = replicaRouter;
+  }
+
+  @PostConstruct
+  public void start() {
+    this.retryExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      final Thread thread = new Thread(runnable, "command-scheduler-retry");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  @PreDestroy
+  public void stop() {
+    this.retryExecutor.shutdownNow();
+  }
+
+  public <C> void process(final C command) {
+    this.submit(command, () -> this.commandGateway.process(command), failure -> this.lost(command, failure));
+  }
+
+  public <C, T> Future<T> process(final C command, final Class<T> clazz) {
+    final DispatchedFuture<T> future = new DispatchedFuture<>();
+    this.submit(command, () -> future.dispatched(this.commandGateway.process(command, clazz)), future::rejected);
+    return future;
+  }
+
+  private void submit(final Object command, final Runnable dispatch, final Consumer<RuntimeException> onRejected) {
+    final String tenantIdentifier = TenantContextHolder.checkedGetIdentifier();
+    this.admit(tenantIdentifier, command);
+    this.replicaRouter.recordWrite();
+
+    final PendingCommand pendingCommand = new PendingCommand(command, tenantIdentifier, dispatch, onRejected);
+    synchronized (this) {
+      this.pendingByTenant.computeIfAbsent(tenantIdentifier, tenant -> new ArrayDeque<>()).add(pendingCommand);
+    }
+    this.drain();
+
+    synchronized (this) {
+      if (pendingCommand.rejection != null) {
+        throw pendingCommand.rejection;
+      }
+      pendingCommand.accepted = true;
+    }
+  }
+
+  void started(final Object command) {
+    final Admission admission;
+    synchronized (this) {
+      admission = this.admittedCommands.get(command);
+    }
+    if (admission != null) {
+      this.serviceMetrics.record("command", command.getClass().getSimpleName() + ".queue", true,
+          System.nanoTime() - admission.admittedOn);
+    }
+  }
+
+  void complete(final Object command) {
+    if (this.release(command)) {
+      this.drain();
+    }
+  }
+
+  private boolean release(final Object command) {
+    synchronized (this) {
+      final Admission admission = this.admittedCommands.remove(command);
+      if (admission == null) {
+        return false;
+      }
+
+      this.inFlight--;
+      this.inFlightByTenant.computeIfPresent(admission.tenantIdentifier, (tenant, count) -> count > 1 ? count - 1 : null);
+      if (admission.dispatched) {
+        this.dispatching--;
+      }
+    }
+    this.recordSaturation();
+    return true;
+  }
+
+  private void admit(final String tenantIdentifier, final Object command) {
+    synchronized (this) {
+      final int capacity = this.commandSchedulerProperties.getCapacity();
+      final int tenantMinimum = this.commandSchedulerProperties.getTenantMinimum();
+      final int tenantMaximum = Math.max(tenantMinimum,
+          capacity - tenantMinimum * (this.commandSchedulerProperties.getExpectedTenants() - 1));
+
+      final int tenantInFlight = this.inFlightByTenant.getOrDefault(tenantIdentifier, 0);
+      final int activeTenants = this.inFlightByTenant.size() + (tenantInFlight == 0 ? 1 : 0);
+      final int tenantShare = Math.min(tenantMaximum, Math.max(tenantMinimum, capacity / activeTenants));
+      if (tenantInFlight >= tenantShare) {
+        this.counterService.increment(METRIC_REJECTED_TENANT);
+        throw tooManyRequests("Too many pending commands for tenant {0}, please retry later.", tenantIdentifier);
+      }
+
+      if (this.inFlight >= capacity) {
+        this.counterService.increment(METRIC_REJECTED_CAPACITY);
+        throw unavailable("Service is saturated, please retry later.");
+      }
+
+      this.inFlight++;
+      this.inFlightByTenant.put(tenantIdentifier, tenantInFlight + 1);
+      this.admittedCommands.put(command, new Admission(tenantIdentifier, System.nanoTime()));
+    }
+    this.recordSaturation();
+  }
+
+  /**
+   * Hands pending commands to the executor, taking one command of each tenant in turn, until the
+   * dispatch limit is reached.
+   */
+  private void drain() {
+    PendingCommand next;
+    while ((next = this.nextPending()) != null) {
+      if (!this.dispatch(next)) {
+        return;
+      }
+    }
+  }
+
+  private synchronized PendingCommand nextPending() {
+    if (this.dispatching >= this.commandSchedulerProperties.getDispatchLimit()) {
+      return null;
+    }
+
+    final Iterator<Map.Entry<String, Deque<PendingCommand>>> tenants = this.pendingByTenant.entrySet().iterator();
+    if (!tenants.hasNext()) {
+      return null;
+    }
+
+    final Map.Entry<String, Deque<PendingCommand>> tenant = tenants.next();
+    final PendingCommand next = tenant.getValue().poll();
+    tenants.remove();
+    if (!tenant.getValue().isEmpty()) {
+      this.pendingByTenant.put(tenant.getKey(), tenant.getValue());
+    }
+
+    final Admission admission = this.admittedCommands.get(next.command);
+    if (admission != null) {
+      admission.dispatched = true;
+      this.dispatching++;
+    }
+    return next;
+  }
+
+  /**
+   * Returns false if the executor refused the command and it was queued again, so draining should
+   * stop until a thread becomes available.
+   */
+  private boolean dispatch(final PendingCommand pendingCommand) {
+    final String previousTenant = TenantContextHolder.identifier().orElse(null);
+    final SubmittingUser previousUser = SubmittingUser.current();
+    try {
+      TenantContextHolder.clear();
+      TenantContextHolder.setIdentifier(pendingCommand.tenantIdentifier);
+      pendingCommand.userContext.restore();
+
+      pendingCommand.dispatch.run();
+      return true;
+    } catch (final TaskRejectedException ex) {
+      if (this.retry(pendingCommand)) {
+        return false;
+      }
+      this.release(pendingCommand.command);
+      this.counterService.increment(METRIC_REJECTED_CAPACITY);
+      this.logger.warn("Command executor rejected {} for tenant {}.", pendingCommand.command.getClass().getSimpleName(),
+          pendingCommand.tenantIdentifier);
+      this.reject(pendingCommand, unavailable("Service is saturated, please retry later."));
+      return true;
+    } catch (final RuntimeException ex) {
+      this.release(pendingCommand.command);
+      this.logger.warn("Could not dispatch {} for tenant {}.", pendingCommand.command.getClass().getSimpleName(),
+          pendingCommand.tenantIdentifier, ex);
+      this.reject(pendingCommand, ex);
+      return true;
+    } finally {
+      TenantContextHolder.clear();
+      if (previousTenant != null) {
+        TenantContextHolder.setIdentifier(previousTenant);
+      }
+      previousUser.restore();
+    }
+  }
+
+  /**
+   * Puts an accepted command back in front of its tenant's queue, its caller can no longer be told
+   * the command was refused.  Commands which were not accepted yet are left to be rejected.
+   */
+  private boolean retry(final PendingCommand pendingCommand) {
+    synchronized (this) {
+      if (!pendingCommand.accepted) {
+        return false;
+      }
+
+      final Admission admission = this.admittedCommands.get(pendingCommand.command);
+      if (admission != null && admission.dispatched) {
+        admission.dispatched = false;
+        this.dispatching--;
+      }
+      this.pendingByTenant.computeIfAbsent(pendingCommand.tenantIdentifier, tenant -> new ArrayDeque<>())
+          .addFirst(pendingCommand);
+    }
+
+    this.counterService.increment(METRIC_RETRIED);
+    this.logger.info("Command executor rejected {} for tenant {}, retrying.",
+        pendingCommand.command.getClass().getSimpleName(), pendingCommand.tenantIdentifier);
+    this.retryExecutor.schedule(this::drain, this.commandSchedulerProperties.getRetryDelay(), TimeUnit.MILLISECONDS);
+    return true;
+  }
+
+  /**
+   * Hands a failure to the caller if it is still waiting in {@link #submit}, otherwise to the
+   * command's rejection handler.
+   */
+  private void reject(final PendingCommand pendingCommand, final RuntimeException rejection) {
+    synchronized (this) {
+      if (!pendingCommand.accepted) {
+        pendingCommand.rejection = rejection;
+        return;
+      }
+    }
+    pendingCommand.onRejected.accept(rejection);
+  }
+
+  private void lost(final Object command, final RuntimeException failure) {
+    this.counterService.increment(METRIC_LOST);
+    this.logger.error("Accepted command {} was lost, it could not be dispatched.", command.getClass().getSimpleName(),
+        failure);
+  }
+
+  private void recordSaturation() {
+    final int currentInFlight;
+    synchronized (this) {
+      currentInFlight = this.inFlight;
+    }
+    this.gaugeService.submit(METRIC_IN_FLIGHT, currentInFlight);
+    this.gaugeService.submit(METRIC_SATURATION, 100.0D * currentInFlight / this.commandSchedulerProperties.getCapacity());
+  }
+
+  private static ServiceException tooManyRequests(final String message, final Object... args) {
+    return new ServiceException(ServiceError.create(TOO_MANY_REQUESTS).message(MessageFormat.format(message, args)).build());
+  }
+
+  private static ServiceException unavailable(final String message) {
+    return new ServiceException(ServiceError.create(SERVICE_UNAVAILABLE).message(message).build());
+  }
+
+  private static class Admission {
+    private final String tenantIdentifier;
+    private final long admittedOn;
+    private boolean dispatched;
+
+    private Admission(final String tenantIdentifier, final long admittedOn) {
+      this.tenantIdentifier = tenantIdentifier;
+      this.admittedOn = admittedOn;
+    }
+  }
+
+  private static class PendingCommand {
+    private final Object command;
+    private final String tenantIdentifier;
+    private final SubmittingUser userContext;
+    private final Runnable dispatch;
+    private final Consumer<RuntimeException> onRejected;
+    private RuntimeException rejection;
+    private boolean accepted;
+
+    private PendingCommand(final Object command, final String tenantIdentifier, final Runnable dispatch,
+                           final Consumer<RuntimeException> onRejected) {
+      this.command = command;
+      this.tenantIdentifier = tenantIdentifier;
+      this.userContext = SubmittingUser.current();
+      this.dispatch = dispatch;
+      this.onRejected = onRejected;
+    }
+  }
+
+  /**
+   * The user a command was submitted by, so that it is dispatched on behalf of that user even if
+   * it is handed to the executor from another thread.
+   */
+  private static class SubmittingUser {
+    private final String user;
+    private final String accessToken;
+
+    private SubmittingUser(final String user, final String accessToken) {
+      this.user = user;
+      this.accessToken = accessToken;
+    }
+
+    private static SubmittingUser current() {
+      try {
+        return new SubmittingUser(UserContextHolder.checkedGetUser(), UserContextHolder.checkedGetAccessToken());
+      } catch (final RuntimeException ex) {
+        return new SubmittingUser(null, null);
+      }
+    }
+
+    private void restore() {
+      UserContextHolder.clear();
+      if (this.user != null) {
+        UserContextHolder.setAccessToken(this.user, this.accessToken);
+      }
+    }
+  }
+
+  /**
+   * The result of a command which may still be waiting in its tenant's queue.
+   */
+  private static class DispatchedFuture<T> implements Future<T> {
+    private final CompletableFuture<Future<T>> dispatched = new CompletableFuture<>();
+
+    private void dispatched(final Future<T> future) {
+      this.dispatched.complete(future);
+    }
+
+    private void rejected(final RuntimeException rejection) {
+      this.dispatched.completeExceptionally(rejection);
+    }
+
+    @Override
+    public boolean cancel(final boolean mayInterruptIfRunning) {
+      return false;
+    }
+
+    @Override
+    public boolean isCancelled() {
+      return false;
+    }
+
+    @Override
+    public boolean isDone() {
+      return this.dispatched.isDone()
+          && (this.dispatched.isCompletedExceptionally() || this.dispatched.join().isDone());
+    }
+
+    @Override
+    public T get() throws InterruptedException, ExecutionException {
+      return this.dispatched.get().get();
+    }
+
+    @Override
+    public T get(final long timeout, final TimeUnit unit)
+        throws InterruptedException, ExecutionException, TimeoutException {
+      final long deadline = System.nanoTime() + unit.toNanos(timeout);
+      final Future<T> future = this.dispatched.get(timeout, unit);
+      return future.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.config;
+
+import org.hibernate.validator.constraints.Range;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+@Component
+@ConfigurationProperties(prefix="scheduler")
+@Validated
+public class CommandSchedulerProperties {
+  @Range(min = 1L)
+  private int capacity = 512;
+
+  @Range(min = 1L)
+  private int tenantMinimum = 8;
+
+  @Range(min = 1L)
+  private int expectedTenants = 8;
+
+  @Range(min = 1L)
+  private int dispatchLimit = 32;
+
+  @Range(min = 1L)
+  private long retryDelay = 100L;
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  public void setCapacity(int capacity) {
+    this.capacity = capacity;
+  }
+
+  public int getTenantMinimum() {
+    return tenantMinimum;
+  }
+
+  public void setTenantMinimum(int tenantMinimum) {
+    this.tenantMinimum = tenantMinimum;
+  }
+
+  public int getExpectedTenants() {
+    return expectedTenants;
+  }
+
+  public void setExpectedTenants(int expectedTenants) {
+    this.expectedTenants = expectedTenants;
+  }
+
+  public int getDispatchLimit() {
+    return dispatchLimit;
+  }
+
+  public void setDispatchLimit(int dispatchLimit) {
+    this.dispatchLimit = dispatchLimit;
+  }
+
+  public long getRetryDelay() {
+    return retryDelay;
+  }
+
+  public void setRetryDelay(long retryDelay) {
+    this.retryDelay = retryDelay;
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.config;
+
+import org.hibernate.validator.constraints.Range;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+@Component
+@ConfigurationProperties(prefix="pool")
+@Validated
+public class ConnectionPoolProperties {
+  private boolean adaptive = false;
+
+  @Range(min = 1L)
+  private int minConnections = 4;
+
+  @Range(min = 1L)
+  private long acquireTimeout = 5000L;
+
+  @Range(min = 100L)
+  private long adjustInterval = 5000L;
+
+  public boolean isAdaptive() {
+    return adaptive;
+  }
+
+  public void setAdaptive(boolean adaptive) {
+    this.adaptive = adaptive;
+  }
+
+  public int getMinConnections() {
+    return minConnections;
+  }
+
+  public void setMinConnections(int minConnections) {
+    this.minConnections = minConnections;
+  }
+
+  public long getAcquireTimeout() {
+    return acquireTimeout;
+  }
+
+  public void setAcquireTimeout(long acquireTimeout) {
+    this.acquireTimeout = acquireTimeout;
+  }
+
+  public long getAdjustInterval() {
+    return adjustInterval;
+  }
+
+  public void setAdjustInterval(long adjustInterval) {
+    this.adjustInterval = adjustInterval;
+  }
+}
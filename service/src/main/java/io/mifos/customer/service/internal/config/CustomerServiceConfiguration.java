@@ -16,6 +16,7 @@
 package io.mifos.customer.service.internal.config;
 
 import io.mifos.core.mariadb.config.EnableMariaDB;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
@@ -26,11 +27,34 @@ import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
     "io.mifos.customer.service.internal.service",
     "io.mifos.customer.service.internal.repository",
     "io.mifos.customer.service.internal.command.handler",
-    "io.mifos.customer.service.internal.event.handler"
+    "io.mifos.customer.service.internal.command.scheduler",
+    "io.mifos.customer.service.internal.event",
+    "io.mifos.customer.service.internal.event.handler",
+    "io.mifos.customer.service.internal.metrics",
+    "io.mifos.customer.service.internal.jdbc",
+    "io.mifos.customer.service.internal.image",
+    "io.mifos.customer.service.internal.upload",
+    "io.mifos.customer.service.internal.blob",
+    "io.mifos.customer.service.internal.cleanup",
+    "io.mifos.customer.service.internal.archive"
 })
 @EnableJpaRepositories({
     "io.mifos.customer.service.internal.repository"
 })
+@EnableConfigurationProperties({
+    OutboxProperties.class,
+    CommandSchedulerProperties.class,
+    SqlTraceProperties.class,
+    ConnectionPoolProperties.class,
+    ReplicaProperties.class,
+    RenditionProperties.class,
+    UploadProcessingProperties.class,
+    UploadSpoolProperties.class,
+    DocumentCleanupProperties.class,
+    ArchiveProperties.class,
+    StorageQuotaProperties.class,
+    HistoryProperties.class
+})
 public class CustomerServiceConfiguration {
 
   public CustomerServiceConfiguration() {
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.config;
+
+import org.hibernate.validator.constraints.Range;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.Valid;
+
+@Component
+@ConfigurationProperties(prefix="document.cleanup")
+@Validated
+public class DocumentCleanupProperties {
+  @Range(min = 1L)
+  private int chunkSize = 100;
+
+  @Valid
+  private final ClosedCustomers closedCustomers = new ClosedCustomers();
+
+  public static class ClosedCustomers {
+    private boolean enabled = false;
+
+    @Range(min = 0L)
+    private int retentionDays = 365;
+
+    @Range(min = 1000L)
+    private long interval = 3600000L;
+
+    @Range(min = 1L)
+    private int batchSize = 10;
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public int getRetentionDays() {
+      return retentionDays;
+    }
+
+    public void setRetentionDays(int retentionDays) {
+      this.retentionDays = retentionDays;
+    }
+
+    public long getInterval() {
+      return interval;
+    }
+
+    public void setInterval(long interval) {
+      this.interval = interval;
+    }
+
+    public int getBatchSize() {
+      return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+      this.batchSize = batchSize;
+    }
+  }
+
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
+  public void setChunkSize(int chunkSize) {
+    this.chunkSize = chunkSize;
+  }
+
+  public ClosedCustomers getClosedCustomers() {
+    return closedCustomers;
+  }
+}
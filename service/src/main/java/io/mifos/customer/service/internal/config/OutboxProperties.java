@@ -0,0 +1,124 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.config;
+
+import org.hibernate.validator.constraints.Range;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.Valid;
+
+@Component
+@ConfigurationProperties(prefix="outbox")
+@Validated
+public class OutboxProperties {
+  @Valid
+  private final Relay relay = new Relay();
+
+  private boolean snapshots = false;
+
+  public static class Relay {
+    @Range(min = 1L)
+    private int threads = 2;
+
+    @Range(min = 1L)
+    private int batchSize = 100;
+
+    @Range(min = 10L)
+    private long pollInterval = 1000L;
+
+    @Range(min = 1000L)
+    private long tenantRefreshInterval = 60000L;
+
+    @Range(min = 1L)
+    private int maxAttempts = 16;
+
+    @Range(min = 10L)
+    private long maxBackoff = 3600000L;
+
+    @Range(min = 1000L)
+    private long claimTimeout = 60000L;
+
+    public int getThreads() {
+      return threads;
+    }
+
+    public void setThreads(int threads) {
+      this.threads = threads;
+    }
+
+    public int getBatchSize() {
+      return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+      this.batchSize = batchSize;
+    }
+
+    public long getPollInterval() {
+      return pollInterval;
+    }
+
+    public void setPollInterval(long pollInterval) {
+      this.pollInterval = pollInterval;
+    }
+
+    public long getTenantRefreshInterval() {
+      return tenantRefreshInterval;
+    }
+
+    public void setTenantRefreshInterval(long tenantRefreshInterval) {
+      this.tenantRefreshInterval = tenantRefreshInterval;
+    }
+
+    public int getMaxAttempts() {
+      return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+      this.maxAttempts = maxAttempts;
+    }
+
+    public long getMaxBackoff() {
+      return maxBackoff;
+    }
+
+    public void setMaxBackoff(long maxBackoff) {
+      this.maxBackoff = maxBackoff;
+    }
+
+    public long getClaimTimeout() {
+      return claimTimeout;
+    }
+
+    public void setClaimTimeout(long claimTimeout) {
+      this.claimTimeout = claimTimeout;
+    }
+  }
+
+  public Relay getRelay() {
+    return relay;
+  }
+
+  public boolean isSnapshots() {
+    return snapshots;
+  }
+
+  public void setSnapshots(boolean snapshots) {
+    this.snapshots = snapshots;
+  }
+}
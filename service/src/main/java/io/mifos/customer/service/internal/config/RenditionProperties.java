@@ -0,0 +1,53 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.config;
+
+import org.hibernate.validator.constraints.NotEmpty;
+import org.hibernate.validator.constraints.Range;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@Component
+@ConfigurationProperties(prefix="rendition")
+@Validated
+public class RenditionProperties {
+  @NotEmpty
+  private List<Integer> sizes = new ArrayList<>(Arrays.asList(64, 256));
+
+  @Range(min = 1L, max = 100L)
+  private int quality = 80;
+
+  public List<Integer> getSizes() {
+    return sizes;
+  }
+
+  public void setSizes(List<Integer> sizes) {
+    this.sizes = sizes;
+  }
+
+  public int getQuality() {
+    return quality;
+  }
+
+  public void setQuality(int quality) {
+    this.quality = quality;
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.config;
+
+import org.hibernate.validator.constraints.Range;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The replica of a tenant's database is looked up by the host of its primary database in the
+ * hosts, and on the default host if the primary host isn't listed.  It is reached on the port and
+ * with the credentials of the tenant's primary database.
+ */
+@Component
+@ConfigurationProperties(prefix="replica")
+@Validated
+public class ReplicaProperties {
+  private boolean enabled = false;
+
+  private String host = "localhost";
+
+  private final Map<String, String> hosts = new HashMap<>();
+
+  @Range(min = 1L)
+  private int maxConnections = 10;
+
+  @Range(min = 0L)
+  private long maxStaleness = 2000L;
+
+  @Range(min = 0L)
+  private long readYourWritesWindow = 5000L;
+
+  @Range(min = 0L)
+  private long writeLookupCacheTime = 1000L;
+
+  @Range(min = 100L)
+  private long lagCheckInterval = 1000L;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public String getHost() {
+    return host;
+  }
+
+  public void setHost(String host) {
+    this.host = host;
+  }
+
+  public Map<String, String> getHosts() {
+    return hosts;
+  }
+
+  public String getHost(final String primaryHost) {
+    return this.hosts.getOrDefault(primaryHost, this.host);
+  }
+
+  public int getMaxConnections() {
+    return maxConnections;
+  }
+
+  public void setMaxConnections(int maxConnections) {
+    this.maxConnections = maxConnections;
+  }
+
+  public long getMaxStaleness() {
+    return maxStaleness;
+  }
+
+  public void setMaxStaleness(long maxStaleness) {
+    this.maxStaleness = maxStaleness;
+  }
+
+  public long getReadYourWritesWindow() {
+    return readYourWritesWindow;
+  }
+
+  public void setReadYourWritesWindow(long readYourWritesWindow) {
+    this.readYourWritesWindow = readYourWritesWindow;
+  }
+
+  public long getWriteLookupCacheTime() {
+    return writeLookupCacheTime;
+  }
+
+  public void setWriteLookupCacheTime(long writeLookupCacheTime) {
+    this.writeLookupCacheTime = writeLookupCacheTime;
+  }
+
+  public long getLagCheckInterval() {
+    return lagCheckInterval;
+  }
+
+  public void setLagCheckInterval(long lagCheckInterval) {
+    this.lagCheckInterval = lagCheckInterval;
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.config;
+
+import org.hibernate.validator.constraints.Range;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+@Component
+@ConfigurationProperties(prefix="sqltrace")
+@Validated
+public class SqlTraceProperties {
+  @Range(min = 1L)
+  private int statementThreshold = 50;
+
+  @Range(min = 1L)
+  private int rowThreshold = 5000;
+
+  @Range(min = 1L)
+  private long slowStatementMillis = 250L;
+
+  public int getStatementThreshold() {
+    return statementThreshold;
+  }
+
+  public void setStatementThreshold(int statementThreshold) {
+    this.statementThreshold = statementThreshold;
+  }
+
+  public int getRowThreshold() {
+    return rowThreshold;
+  }
+
+  public void setRowThreshold(int rowThreshold) {
+    this.rowThreshold = rowThreshold;
+  }
+
+  public long getSlowStatementMillis() {
+    return slowStatementMillis;
+  }
+
+  public void setSlowStatementMillis(long slowStatementMillis) {
+    this.slowStatementMillis = slowStatementMillis;
+  }
+}
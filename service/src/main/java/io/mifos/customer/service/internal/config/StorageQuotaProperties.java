@@ -0,0 +1,88 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.config;
+
+import org.hibernate.validator.constraints.Range;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Limits on the portraits, scans and document pages stored, 0 meaning unlimited.  The tenant
+ * limit can be overridden per tenant identifier.  Within the tenant lock margin of its limit a
+ * tenant's image writes wait for each other, so that the limit is checked exactly.
+ */
+@Component
+@ConfigurationProperties(prefix="storage.quota")
+@Validated
+public class StorageQuotaProperties {
+  @Range(min = 0L)
+  private long tenantMaxBytes = 0L;
+
+  private final Map<String, Long> tenants = new HashMap<>();
+
+  @Range(min = 0L)
+  private long tenantLockMargin = 268435456L;
+
+  @Range(min = 0L)
+  private long customerMaxBytes = 0L;
+
+  @Range(min = 0L)
+  private long customerMaxObjects = 0L;
+
+  public long getTenantMaxBytes() {
+    return tenantMaxBytes;
+  }
+
+  public void setTenantMaxBytes(long tenantMaxBytes) {
+    this.tenantMaxBytes = tenantMaxBytes;
+  }
+
+  public Map<String, Long> getTenants() {
+    return tenants;
+  }
+
+  public long getTenantLockMargin() {
+    return tenantLockMargin;
+  }
+
+  public void setTenantLockMargin(long tenantLockMargin) {
+    this.tenantLockMargin = tenantLockMargin;
+  }
+
+  public long getCustomerMaxBytes() {
+    return customerMaxBytes;
+  }
+
+  public void setCustomerMaxBytes(long customerMaxBytes) {
+    this.customerMaxBytes = customerMaxBytes;
+  }
+
+  public long getCustomerMaxObjects() {
+    return customerMaxObjects;
+  }
+
+  public void setCustomerMaxObjects(long customerMaxObjects) {
+    this.customerMaxObjects = customerMaxObjects;
+  }
+
+  public long getTenantMaxBytes(final String tenantIdentifier) {
+    return this.tenants.getOrDefault(tenantIdentifier, this.tenantMaxBytes);
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.config;
+
+import org.hibernate.validator.constraints.Range;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+@Component
+@ConfigurationProperties(prefix="upload.image.processing")
+@Validated
+public class UploadProcessingProperties {
+  private boolean enabled = true;
+
+  @Range(min = 72L, max = 1200L)
+  private int dpi = 300;
+
+  // long edge of an A4 page
+  @Range(min = 10L)
+  private int maxEdgeMillimetres = 297;
+
+  @Range(min = 1L, max = 100L)
+  private int jpegQuality = 85;
+
+  // size of a MEDIUMBLOB, nothing larger could be stored
+  @Range(min = 1L, max = 16777215L)
+  private long maxUploadSize = 16777215L;
+
+  @Range(min = 1L)
+  private long maxPixels = 40000000L;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public int getDpi() {
+    return dpi;
+  }
+
+  public void setDpi(int dpi) {
+    this.dpi = dpi;
+  }
+
+  public int getMaxEdgeMillimetres() {
+    return maxEdgeMillimetres;
+  }
+
+  public void setMaxEdgeMillimetres(int maxEdgeMillimetres) {
+    this.maxEdgeMillimetres = maxEdgeMillimetres;
+  }
+
+  public int getJpegQuality() {
+    return jpegQuality;
+  }
+
+  public void setJpegQuality(int jpegQuality) {
+    this.jpegQuality = jpegQuality;
+  }
+
+  public long getMaxUploadSize() {
+    return maxUploadSize;
+  }
+
+  public void setMaxUploadSize(long maxUploadSize) {
+    this.maxUploadSize = maxUploadSize;
+  }
+
+  public long getMaxPixels() {
+    return maxPixels;
+  }
+
+  public void setMaxPixels(long maxPixels) {
+    this.maxPixels = maxPixels;
+  }
+
+  public int getMaxEdgePixels() {
+    return (int) Math.round(this.dpi * this.maxEdgeMillimetres / 25.4D);
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.config;
+
+import org.hibernate.validator.constraints.NotBlank;
+import org.hibernate.validator.constraints.Range;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+@Component
+@ConfigurationProperties(prefix="upload.spool")
+@Validated
+public class UploadSpoolProperties {
+  // shared by all instances, any of them may receive the next chunk of an upload
+  @NotBlank
+  private String directory = System.getProperty("java.io.tmpdir") + "/customer-uploads";
+
+  // size of a MEDIUMBLOB, nothing larger could be stored
+  @Range(min = 1L, max = 16777215L)
+  private long maxSize = 16777215L;
+
+  @Range(min = 1L)
+  private long maxChunkSize = 1048576L;
+
+  @Range(min = 1000L)
+  private long expiry = 86400000L;
+
+  @Range(min = 1000L)
+  private long sweepInterval = 600000L;
+
+  public String getDirectory() {
+    return directory;
+  }
+
+  public void setDirectory(String directory) {
+    this.directory = directory;
+  }
+
+  public long getMaxSize() {
+    return maxSize;
+  }
+
+  public void setMaxSize(long maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  public long getMaxChunkSize() {
+    return maxChunkSize;
+  }
+
+  public void setMaxChunkSize(long maxChunkSize) {
+    this.maxChunkSize = maxChunkSize;
+  }
+
+  public long getExpiry() {
+    return expiry;
+  }
+
+  public void setExpiry(long expiry) {
+    this.expiry = expiry;
+  }
+
+  public long getSweepInterval() {
+    return sweepInterval;
+  }
+
+  public void setSweepInterval(long sweepInterval) {
+    this.sweepInterval = sweepInterval;
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.event;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import io.mifos.core.lang.TenantContextHolder;
+import io.mifos.customer.api.v1.CustomerEventConstants;
+import io.mifos.customer.service.internal.config.OutboxProperties;
+import io.mifos.customer.service.internal.repository.CommandLogEntity;
+import io.mifos.customer.service.internal.repository.EventOutboxEntity;
+import io.mifos.customer.service.internal.repository.EventOutboxRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.function.Supplier;
+
+/**
+ * Records events in the same transaction as the change they describe.  The events are published
+ * by the {@link EventOutboxRelay} once the transaction has been committed, so a slow broker does
+ * not hold up the command, and a crash after the commit does not lose the event.
+ *
+ * If snapshots are enabled, commands may additionally enqueue a snapshot of the changed state.  It
+ * is published under {@link CustomerEventConstants#SNAPSHOT_SELECTOR_NAME} so that only consumers
+ * which opted in receive it.
+ *
+ * Entries of the command log are recorded the same way.  They are not published, but appended to
+ * the command log in Cassandra by the relay, so they are neither lost if the service goes down after
+ * the commit, nor able to fail a command which has already been committed.
+ *
+ * Each entry is keyed by the customer it is about, or by the identifier it carries if it is not
+ * about a customer, and the relay keeps the entries of one key in order.
+ */
+@Component
+public class EventOutbox {
+
+  static final String COMMAND_LOG_SELECTOR_NAME = "command-log";
+  private static final int ORDERING_KEY_LENGTH = 64;
+
+  private final EventOutboxRepository eventOutboxRepository;
+  private final EventOutboxRelay eventOutboxRelay;
+  private final OutboxProperties outboxProperties;
+  private final Gson gson;
+
+  @Autowired
+  public EventOutbox(final EventOutboxRepository eventOutboxRepository,
+                     final EventOutboxRelay eventOutboxRelay,
+                     final OutboxProperties outboxProperties) {
+    super();
+    this.eventOutboxRepository = eventOutboxRepository;
+    this.eventOutboxRelay = eventOutboxRelay;
+    this.outboxProperties = outboxProperties;
+    this.gson = new Gson();
+  }
+
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void enqueue(final String selectorValue, final Object payload) {
+    this.save(CustomerEventConstants.SELECTOR_NAME, selectorValue, payload);
+  }
+
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void enqueueCommandLog(final CommandLogEntity commandLogEntity) {
+    this.save(COMMAND_LOG_SELECTOR_NAME, commandLogEntity.getAction(), commandLogEntity);
+  }
+
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void enqueueSnapshot(final String selectorValue, final Supplier<?> snapshot) {
+    if (!this.outboxProperties.isSnapshots()) {
+      return;
+    }
+
+    final Object payload = snapshot.get();
+    if (payload != null) {
+      this.save(CustomerEventConstants.SNAPSHOT_SELECTOR_NAME, selectorValue, payload);
+    }
+  }
+
+  private void save(final String selectorName, final String selectorValue, final Object payload) {
+    final EventOutboxEntity eventOutboxEntity = new EventOutboxEntity();
+    eventOutboxEntity.setSelectorName(selectorName);
+    eventOutboxEntity.setSelectorValue(selectorValue);
+    final JsonElement json = this.gson.toJsonTree(payload);
+    eventOutboxEntity.setPayload(this.gson.toJson(json));
+    eventOutboxEntity.setOrderingKey(orderingKey(json));
+    eventOutboxEntity.setCreatedOn(LocalDateTime.now(Clock.systemUTC()));
+    this.eventOutboxRepository.save(eventOutboxEntity);
+
+    final String tenantIdentifier = TenantContextHolder.checkedGetIdentifier();
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+      @Override
+      public void afterCommit() {
+        eventOutboxRelay.signal(tenantIdentifier);
+      }
+    });
+  }
+
+  static String orderingKey(final JsonElement json) {
+    String key = null;
+    if (json.isJsonPrimitive()) {
+      key = json.getAsString();
+    } else if (json.isJsonObject()) {
+      final JsonObject object = json.getAsJsonObject();
+      if (object.has("customerIdentifier")) {
+        key = object.get("customerIdentifier").getAsString();
+      } else if (object.has("customer") && object.get("customer").isJsonObject()
+          && object.getAsJsonObject("customer").has("identifier")) {
+        key = object.getAsJsonObject("customer").get("identifier").getAsString();
+      }
+    }
+    return key != null && key.length() <= ORDERING_KEY_LENGTH ? key : null;
+  }
+}
@@ -0,0 +1,397 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.event;
+
+import com.google.gson.Gson;
+import io.mifos.core.lang.TenantContextHolder;
+import io.mifos.core.lang.config.TenantHeaderFilter;
+import io.mifos.customer.service.ServiceConstants;
+import io.mifos.customer.service.internal.config.OutboxProperties;
+import io.mifos.customer.service.internal.metrics.ServiceMetrics;
+import io.mifos.customer.service.internal.repository.CommandLogEntity;
+import io.mifos.customer.service.internal.repository.CommandLogRepository;
+import io.mifos.customer.service.internal.repository.EventDeadLetterEntity;
+import io.mifos.customer.service.internal.repository.EventDeadLetterRepository;
+import io.mifos.customer.service.internal.repository.EventOutboxEntity;
+import io.mifos.customer.service.internal.repository.EventOutboxRepository;
+import io.mifos.customer.service.internal.repository.TenantRepository;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drains the event outbox of each tenant and publishes the events to the customer destination.
+ *
+ * Events are published in batches, and an event is only removed from the outbox after it has been
+ * handed to the broker, so consumers may see an event more than once but will never miss one.  An
+ * event which fails to publish stays in the outbox and is retried with an exponential back off, and
+ * after the configured number of attempts it is moved to the dead letter table, where it is kept
+ * for inspection.  The later events of the same customer wait for the failed one, so they are
+ * never published out of order, while the events of other customers carry on.
+ *
+ * A tenant is drained as soon as a transaction with outbox entries commits.  Every provisioned
+ * tenant is additionally swept at the configured poll interval to pick up entries left behind by
+ * failed attempts, or by an instance which went down before publishing them.  A batch is claimed in
+ * a short transaction, published without holding any locks, and settled in a second transaction, so
+ * several instances may sweep the same tenant without publishing an event twice.
+ *
+ * Command log entries travel through the outbox as well, and are appended to the command log
+ * instead of being published.
+ */
+@Component
+public class EventOutboxRelay {
+
+  private static final String METRIC_LAG = "customer.outbox.lag";
+  private static final String METRIC_BATCH = "customer.outbox.batch";
+  private static final String METRIC_PUBLISHED = "customer.outbox.published";
+  private static final String METRIC_FAILED = "customer.outbox.failed";
+  private static final String METRIC_DEAD_LETTERED = "customer.outbox.dead-lettered";
+  private static final int LAST_ERROR_LENGTH = 512;
+
+  private final Logger logger;
+  private final EventOutboxRepository eventOutboxRepository;
+  private final EventDeadLetterRepository eventDeadLetterRepository;
+  private final TenantRepository tenantRepository;
+  private final CommandLogRepository commandLogRepository;
+  private final TransactionTemplate transactionTemplate;
+  private final JmsTemplate jmsTemplate;
+  private final GaugeService gaugeService;
+  private final CounterService counterService;
+  private final OutboxProperties outboxProperties;
+  private final ServiceMetrics serviceMetrics;
+  private final Gson gson;
+
+  private final Set<String> signalledTenants = ConcurrentHashMap.newKeySet();
+  private final Set<String> scheduledTenants = ConcurrentHashMap.newKeySet();
+  private volatile Set<String> provisionedTenants = ConcurrentHashMap.newKeySet();
+  private long nextTenantRefresh = 0L;
+  private ScheduledExecutorService executorService;
+
+  @Autowired
+  public EventOutboxRelay(@Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger,
+                          final EventOutboxRepository eventOutboxRepository,
+                          final EventDeadLetterRepository eventDeadLetterRepository,
+                          final TenantRepository tenantRepository,
+                          final CommandLogRepository commandLogRepository,
+                          final PlatformTransactionManager transactionManager,
+                          final JmsTemplate jmsTemplate,
+                          final GaugeService gaugeService,
+                          final CounterService counterService,
+                          final OutboxProperties outboxProperties,
+                          final ServiceMetrics serviceMetrics) {
+    super();
+    this.logger = logger;
+    this.eventOutboxRepository = eventOutboxRepository;
+    this.eventDeadLetterRepository = eventDeadLetterRepository;
+    this.tenantRepository = tenantRepository;
+    this.commandLogRepository = commandLogRepository;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.jmsTemplate = jmsTemplate;
+    this.gaugeService = gaugeService;
+    this.counterService = counterService;
+    this.outboxProperties = outboxProperties;
+    this.serviceMetrics = serviceMetrics;
+    this.gson = new Gson();
+  }
+
+  @PostConstruct
+  public void start() {
+    final OutboxProperties.Relay relay = this.outboxProperties.getRelay();
+    this.executorService = Executors.newScheduledThreadPool(relay.getThreads(), new RelayThreadFactory());
+    this.executorService.scheduleWithFixedDelay(this::sweep, relay.getPollInterval(), relay.getPollInterval(), TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    this.executorService.shutdown();
+    this.executorService.awaitTermination(this.outboxProperties.getRelay().getPollInterval(), TimeUnit.MILLISECONDS);
+  }
+
+  public void signal(final String tenantIdentifier) {
+    this.signalledTenants.add(tenantIdentifier);
+    this.schedule(tenantIdentifier);
+  }
+
+  /**
+   * @return the provisioned tenants, and the tenants anything was written for since start up
+   */
+  public Set<String> knownTenants() {
+    final Set<String> tenants = new HashSet<>(this.provisionedTenants);
+    tenants.addAll(this.signalledTenants);
+    return tenants;
+  }
+
+  void sweep() {
+    this.refreshProvisionedTenants();
+    this.knownTenants().forEach(this::schedule);
+  }
+
+  private void schedule(final String tenantIdentifier) {
+    if (this.scheduledTenants.add(tenantIdentifier)) {
+      this.executorService.execute(() -> this.drain(tenantIdentifier));
+    }
+  }
+
+  private void refreshProvisionedTenants() {
+    final long now = System.currentTimeMillis();
+    if (now < this.nextTenantRefresh) {
+      return;
+    }
+    this.nextTenantRefresh = now + this.outboxProperties.getRelay().getTenantRefreshInterval();
+
+    try {
+      final Set<String> tenants = ConcurrentHashMap.newKeySet();
+      tenants.addAll(this.tenantRepository.findAllIdentifiers());
+      this.provisionedTenants = tenants;
+    } catch (final RuntimeException ex) {
+      this.logger.warn("Could not read provisioned tenants, sweeping the previously known ones.", ex);
+    }
+  }
+
+  private void drain(final String tenantIdentifier) {
+    try {
+      final int batchSize = this.outboxProperties.getRelay().getBatchSize();
+      //noinspection StatementWithEmptyBody
+      while (this.publishBatch(tenantIdentifier, batchSize) == batchSize) { }
+    } finally {
+      this.scheduledTenants.remove(tenantIdentifier);
+    }
+  }
+
+  private int publishBatch(final String tenantIdentifier, final int batchSize) {
+    TenantContextHolder.clear();
+    TenantContextHolder.setIdentifier(tenantIdentifier);
+    final String metricSuffix = tenantIdentifier.replace('.', '_');
+    try {
+      final LocalDateTime now = LocalDateTime.now(Clock.systemUTC());
+      final List<Claimed> batch = this.transactionTemplate.execute(status -> this.claim(now, batchSize));
+      if (batch.isEmpty()) {
+        this.gaugeService.submit(METRIC_LAG + "." + metricSuffix, 0.0D);
+        return 0;
+      }
+
+      final Duration lag = Duration.between(batch.get(0).entry.getCreatedOn(), now);
+      this.gaugeService.submit(METRIC_LAG + "." + metricSuffix, lag.toMillis());
+      this.gaugeService.submit(METRIC_BATCH, batch.size());
+
+      // published outside of any transaction, the claim keeps other relays away from the entries
+      final Set<String> failedKeys = new HashSet<>();
+      batch.forEach(claimed -> {
+        final String orderingKey = claimed.entry.getOrderingKey();
+        if (orderingKey != null && failedKeys.contains(orderingKey)) {
+          return;
+        }
+        try {
+          this.publish(tenantIdentifier, claimed.entry);
+          claimed.published = true;
+        } catch (final RuntimeException ex) {
+          claimed.failure = ex;
+          if (orderingKey != null) {
+            failedKeys.add(orderingKey);
+          }
+        }
+      });
+
+      final BatchResult result = this.transactionTemplate.execute(status -> this.settle(tenantIdentifier, batch, now));
+      for (int i = 0; i < result.published; i++) {
+        this.counterService.increment(METRIC_PUBLISHED);
+      }
+      for (int i = 0; i < result.failed; i++) {
+        this.counterService.increment(METRIC_FAILED);
+      }
+      for (int i = 0; i < result.deadLettered; i++) {
+        this.counterService.increment(METRIC_DEAD_LETTERED);
+      }
+      return batch.size();
+    } catch (final RuntimeException ex) {
+      this.counterService.increment(METRIC_FAILED);
+      this.logger.warn("Could not publish outbox events for tenant {}, will retry.", tenantIdentifier, ex);
+      if (!this.signalledTenants.contains(tenantIdentifier)) {
+        // provisioned, but possibly not for this service; skip it until the next refresh
+        this.provisionedTenants.remove(tenantIdentifier);
+      }
+      return 0;
+    } finally {
+      TenantContextHolder.clear();
+    }
+  }
+
+  /**
+   * Claims the due entries by pushing their next attempt past the claim timeout, so they are not
+   * due for any other relay while this one publishes them.  If this instance goes down before
+   * settling the batch, the entries become due again once the claim has expired.
+   */
+  private List<Claimed> claim(final LocalDateTime now, final int batchSize) {
+    final List<EventOutboxEntity> due = this.eventOutboxRepository.findDue(now, new PageRequest(0, batchSize));
+    final LocalDateTime claimedUntil = now.plus(Duration.ofMillis(this.outboxProperties.getRelay().getClaimTimeout()));
+    final List<Claimed> batch = new ArrayList<>(due.size());
+    due.forEach(eventOutboxEntity -> {
+      batch.add(new Claimed(eventOutboxEntity));
+      eventOutboxEntity.setNextAttemptOn(claimedUntil);
+    });
+    if (!due.isEmpty()) {
+      this.eventOutboxRepository.save(due);
+    }
+    return batch;
+  }
+
+  /**
+   * Removes the published entries, and hands the claim of entries which were skipped because an
+   * earlier entry of the same key failed back, they follow that entry once it is retried.
+   */
+  private BatchResult settle(final String tenantIdentifier, final List<Claimed> batch, final LocalDateTime now) {
+    final BatchResult batchResult = new BatchResult();
+    final List<EventOutboxEntity> done = new ArrayList<>(batch.size());
+    final List<EventOutboxEntity> skipped = new ArrayList<>();
+    batch.forEach(claimed -> {
+      if (claimed.published) {
+        done.add(claimed.entry);
+        batchResult.published++;
+      } else if (claimed.failure != null) {
+        batchResult.failed++;
+        if (this.retryOrDeadLetter(tenantIdentifier, claimed.entry, now, claimed.failure)) {
+          done.add(claimed.entry);
+          batchResult.deadLettered++;
+        }
+      } else {
+        claimed.entry.setNextAttemptOn(claimed.nextAttemptOn);
+        skipped.add(claimed.entry);
+      }
+    });
+    if (!skipped.isEmpty()) {
+      this.eventOutboxRepository.save(skipped);
+    }
+    if (!done.isEmpty()) {
+      this.eventOutboxRepository.deleteInBatch(done);
+    }
+    return batchResult;
+  }
+
+  /**
+   * @return true if the entry was moved to the dead letter table and can be removed from the outbox
+   */
+  private boolean retryOrDeadLetter(final String tenantIdentifier,
+                                    final EventOutboxEntity eventOutboxEntity,
+                                    final LocalDateTime now,
+                                    final RuntimeException failure) {
+    final OutboxProperties.Relay relay = this.outboxProperties.getRelay();
+    final int attempts = eventOutboxEntity.getAttempts() + 1;
+    if (attempts >= relay.getMaxAttempts()) {
+      this.logger.error("Could not publish outbox event {} for tenant {} after {} attempts, moving it to the dead letters.",
+          eventOutboxEntity.getId(), tenantIdentifier, attempts, failure);
+      final EventDeadLetterEntity deadLetter = new EventDeadLetterEntity();
+      deadLetter.setOutboxId(eventOutboxEntity.getId());
+      deadLetter.setSelectorName(eventOutboxEntity.getSelectorName());
+      deadLetter.setSelectorValue(eventOutboxEntity.getSelectorValue());
+      deadLetter.setPayload(eventOutboxEntity.getPayload());
+      deadLetter.setCreatedOn(eventOutboxEntity.getCreatedOn());
+      deadLetter.setAttempts(attempts);
+      deadLetter.setLastError(lastError(failure));
+      deadLetter.setDeadLetteredOn(now);
+      this.eventDeadLetterRepository.save(deadLetter);
+      return true;
+    }
+
+    // doubles with every attempt, so a broker outage is ridden out before anything is dead lettered
+    final long backoff = Math.min(relay.getMaxBackoff(), relay.getPollInterval() << Math.min(attempts - 1, 30));
+    this.logger.warn("Could not publish outbox event {} for tenant {}, attempt {}, retrying in {} ms.",
+        eventOutboxEntity.getId(), tenantIdentifier, attempts, backoff, failure);
+    eventOutboxEntity.setAttempts(attempts);
+    eventOutboxEntity.setNextAttemptOn(now.plus(Duration.ofMillis(backoff)));
+    this.eventOutboxRepository.save(eventOutboxEntity);
+    return false;
+  }
+
+  private static String lastError(final RuntimeException failure) {
+    final String lastError = failure.getClass().getName() + ": " + failure.getMessage();
+    return lastError.length() > LAST_ERROR_LENGTH ? lastError.substring(0, LAST_ERROR_LENGTH) : lastError;
+  }
+
+  private void publish(final String tenantIdentifier, final EventOutboxEntity eventOutboxEntity) {
+    // timed per selector, e.g. histogram.customer.event.action.post-customer.<tenant>.success
+    final String metricName = eventOutboxEntity.getSelectorName() + "." + eventOutboxEntity.getSelectorValue();
+    final long start = System.nanoTime();
+    boolean succeeded = false;
+    try {
+      if (EventOutbox.COMMAND_LOG_SELECTOR_NAME.equals(eventOutboxEntity.getSelectorName())) {
+        // the entry id is part of the payload, so appending it again after a failed batch is harmless
+        this.commandLogRepository.append(this.gson.fromJson(eventOutboxEntity.getPayload(), CommandLogEntity.class));
+      } else {
+        this.jmsTemplate.convertAndSend(eventOutboxEntity.getPayload(), message -> {
+          message.setStringProperty(TenantHeaderFilter.TENANT_HEADER, tenantIdentifier);
+          message.setStringProperty(eventOutboxEntity.getSelectorName(), eventOutboxEntity.getSelectorValue());
+          return message;
+        });
+      }
+      succeeded = true;
+    } finally {
+      this.serviceMetrics.record("event", metricName, succeeded, System.nanoTime() - start);
+    }
+  }
+
+  private static class Claimed {
+    private final EventOutboxEntity entry;
+    private final LocalDateTime nextAttemptOn;
+    private boolean published;
+    private RuntimeException failure;
+
+    private Claimed(final EventOutboxEntity entry) {
+      super();
+      this.entry = entry;
+      this.nextAttemptOn = entry.getNextAttemptOn();
+    }
+  }
+
+  private static class BatchResult {
+    private int published;
+    private int failed;
+    private int deadLettered;
+  }
+
+  private static class RelayThreadFactory implements ThreadFactory {
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Override
+    public Thread newThread(final Runnable runnable) {
+      final Thread thread = new Thread(runnable, "outbox-relay-" + this.counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
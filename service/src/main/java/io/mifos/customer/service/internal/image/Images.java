@@ -0,0 +1,167 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.image;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Optional;
+
+/**
+ * Decoding, scaling and encoding shared by the upload processing and the rendition generation.
+ */
+final class Images {
+
+  private Images() {
+    super();
+  }
+
+  /**
+   * Empty if no reader knows the image's format.  The dimensions are read from the image's header
+   * before its pixels are decoded, images of more than the given number of pixels are rejected.
+   */
+  static Optional<BufferedImage> decode(final byte[] image, final long maxPixels) throws IOException {
+    try (final ImageInputStream inputStream = ImageIO.createImageInputStream(new ByteArrayInputStream(image))) {
+      final Iterator<ImageReader> readers = ImageIO.getImageReaders(inputStream);
+      if (!readers.hasNext()) {
+        return Optional.empty();
+      }
+
+      final ImageReader reader = readers.next();
+      try {
+        reader.setInput(inputStream, true, true);
+        final long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+        if (pixels > maxPixels) {
+          throw new TooManyPixelsException(pixels, maxPixels);
+        }
+        return Optional.ofNullable(reader.read(0));
+      } finally {
+        reader.dispose();
+      }
+    }
+  }
+
+  /**
+   * Scales the image down until its longest edge fits into the given size, never up.  Large
+   * reductions are done in halving steps, a single bilinear step would alias visibly.
+   */
+  static BufferedImage scale(final BufferedImage image, final int maxEdge, final boolean opaque) {
+    BufferedImage scaled = image;
+    int edge = Math.max(image.getWidth(), image.getHeight());
+    do {
+      final int targetEdge = Math.max(maxEdge, edge / 2);
+      final double factor = Math.min(1.0D, (double) targetEdge / edge);
+      final int width = Math.max(1, (int) Math.round(scaled.getWidth() * factor));
+      final int height = Math.max(1, (int) Math.round(scaled.getHeight() * factor));
+      scaled = draw(scaled, width, height, opaque, AffineTransform.getScaleInstance(
+          (double) width / scaled.getWidth(), (double) height / scaled.getHeight()));
+      edge = Math.max(width, height);
+    } while (edge > maxEdge);
+    return scaled;
+  }
+
+  /**
+   * Turns the image upright as described by an EXIF orientation between 2 and 8, other values
+   * leave it untouched.
+   */
+  static BufferedImage orient(final BufferedImage image, final int orientation, final boolean opaque) {
+    final double w = image.getWidth();
+    final double h = image.getHeight();
+    final AffineTransform transform;
+    switch (orientation) {
+      case 2: transform = new AffineTransform(-1, 0, 0, 1, w, 0); break;
+      case 3: transform = new AffineTransform(-1, 0, 0, -1, w, h); break;
+      case 4: transform = new AffineTransform(1, 0, 0, -1, 0, h); break;
+      case 5: transform = new AffineTransform(0, 1, 1, 0, 0, 0); break;
+      case 6: transform = new AffineTransform(0, 1, -1, 0, h, 0); break;
+      case 7: transform = new AffineTransform(0, -1, -1, 0, h, w); break;
+      case 8: transform = new AffineTransform(0, -1, 1, 0, 0, w); break;
+      default: return image;
+    }
+    return orientation >= 5
+        ? draw(image, image.getHeight(), image.getWidth(), opaque, transform)
+        : draw(image, image.getWidth(), image.getHeight(), opaque, transform);
+  }
+
+  static byte[] encodeJpeg(final BufferedImage image, final int quality) throws IOException {
+    final ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+    final ImageWriteParam param = writer.getDefaultWriteParam();
+    param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+    param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+    param.setCompressionQuality(quality / 100.0F);
+
+    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    try (final ImageOutputStream imageOutputStream = ImageIO.createImageOutputStream(outputStream)) {
+      writer.setOutput(imageOutputStream);
+      writer.write(null, new IIOImage(image, null, null), param);
+    } finally {
+      writer.dispose();
+    }
+    return outputStream.toByteArray();
+  }
+
+  static byte[] encodePng(final BufferedImage image) throws IOException {
+    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    ImageIO.write(image, "png", outputStream);
+    return outputStream.toByteArray();
+  }
+
+  static final class TooManyPixelsException extends IOException {
+    private final long maxPixels;
+
+    private TooManyPixelsException(final long pixels, final long maxPixels) {
+      super("Image has " + pixels + " pixels, at most " + maxPixels + " are allowed.");
+      this.maxPixels = maxPixels;
+    }
+
+    long getMaxPixels() {
+      return this.maxPixels;
+    }
+  }
+
+  private static BufferedImage draw(final BufferedImage image, final int width, final int height,
+                                    final boolean opaque, final AffineTransform transform) {
+    final BufferedImage target =
+        new BufferedImage(width, height, opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+    final Graphics2D graphics = target.createGraphics();
+    try {
+      graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+      if (opaque) {
+        // JPEG has no alpha channel, transparent areas become white
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, width, height);
+      }
+      graphics.drawImage(image, transform, null);
+    } finally {
+      graphics.dispose();
+    }
+    return target;
+  }
+}
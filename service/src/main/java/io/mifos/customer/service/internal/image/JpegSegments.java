@@ -0,0 +1,147 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.image;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Walks the marker segments in front of the compressed data of a JPEG file, without decoding it.
+ */
+final class JpegSegments {
+
+  private static final int SOI = 0xD8;
+  private static final int EOI = 0xD9;
+  private static final int SOS = 0xDA;
+  private static final int APP1 = 0xE1;
+  private static final int APP2 = 0xE2;
+  private static final int APP14 = 0xEE;
+  private static final int COM = 0xFE;
+
+  private static final int ORIENTATION_TAG = 0x0112;
+  private static final byte[] EXIF_HEADER = "Exif\0\0".getBytes(StandardCharsets.US_ASCII);
+
+  private JpegSegments() {
+    super();
+  }
+
+  static boolean isJpeg(final byte[] image) {
+    return image.length > 4 && (image[0] & 0xFF) == 0xFF && (image[1] & 0xFF) == SOI;
+  }
+
+  /**
+   * The EXIF orientation of the image, 1 (upright) if there is none or it can't be read.
+   */
+  static int orientation(final byte[] image) {
+    if (!isJpeg(image)) {
+      return 1;
+    }
+
+    int position = 2;
+    while (position + 4 <= image.length && (image[position] & 0xFF) == 0xFF) {
+      final int marker = image[position + 1] & 0xFF;
+      if (marker == SOS || marker == EOI) {
+        break;
+      }
+      final int length = readShort(image, position + 2, true);
+      if (marker == APP1 && startsWith(image, position + 4, EXIF_HEADER)) {
+        return readOrientation(image, position + 4 + EXIF_HEADER.length, position + 2 + length);
+      }
+      position += 2 + length;
+    }
+    return 1;
+  }
+
+  /**
+   * Drops EXIF, XMP, comments and other application segments.  ICC profiles (APP2) and Adobe
+   * color transform hints (APP14) are kept since they change how the pixels are interpreted.
+   * The compressed data is copied unchanged, so this is lossless.
+   */
+  static byte[] stripMetadata(final byte[] image) {
+    if (!isJpeg(image)) {
+      return image;
+    }
+
+    final ByteArrayOutputStream stripped = new ByteArrayOutputStream(image.length);
+    stripped.write(image, 0, 2);
+
+    int position = 2;
+    while (position + 4 <= image.length && (image[position] & 0xFF) == 0xFF) {
+      final int marker = image[position + 1] & 0xFF;
+      if (marker == SOS || marker == EOI) {
+        break;
+      }
+      final int segmentLength = 2 + readShort(image, position + 2, true);
+      if (position + segmentLength > image.length) {
+        return image;
+      }
+      final boolean metadata = (marker >= APP1 && marker <= 0xEF && marker != APP2 && marker != APP14) || marker == COM;
+      if (!metadata) {
+        stripped.write(image, position, segmentLength);
+      }
+      position += segmentLength;
+    }
+    stripped.write(image, position, image.length - position);
+    return stripped.toByteArray();
+  }
+
+  private static int readOrientation(final byte[] image, final int tiffStart, final int segmentEnd) {
+    if (tiffStart + 8 > segmentEnd || segmentEnd > image.length) {
+      return 1;
+    }
+    final boolean bigEndian = image[tiffStart] == 'M';
+    final int ifdStart = tiffStart + readInt(image, tiffStart + 4, bigEndian);
+    if (ifdStart < tiffStart || ifdStart + 2 > segmentEnd) {
+      return 1;
+    }
+    final int entries = readShort(image, ifdStart, bigEndian);
+    for (int entry = 0; entry < entries; entry++) {
+      final int entryStart = ifdStart + 2 + entry * 12;
+      if (entryStart + 12 > segmentEnd) {
+        break;
+      }
+      if (readShort(image, entryStart, bigEndian) == ORIENTATION_TAG) {
+        final int orientation = readShort(image, entryStart + 8, bigEndian);
+        return orientation >= 1 && orientation <= 8 ? orientation : 1;
+      }
+    }
+    return 1;
+  }
+
+  private static boolean startsWith(final byte[] image, final int offset, final byte[] prefix) {
+    if (offset + prefix.length > image.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (image[offset + i] != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int readShort(final byte[] image, final int offset, final boolean bigEndian) {
+    final int first = image[offset] & 0xFF;
+    final int second = image[offset + 1] & 0xFF;
+    return bigEndian ? (first << 8) | second : (second << 8) | first;
+  }
+
+  private static int readInt(final byte[] image, final int offset, final boolean bigEndian) {
+    final int high = readShort(image, bigEndian ? offset : offset + 2, bigEndian);
+    final int low = readShort(image, bigEndian ? offset + 2 : offset, bigEndian);
+    return (high << 16) | low;
+  }
+}
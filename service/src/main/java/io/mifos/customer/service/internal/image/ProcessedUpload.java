@@ -0,0 +1,90 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.image;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+/**
+ * An upload held in memory, either the content {@link UploadProcessor} replaced the original
+ * with, or a resumable upload read back from the spool.  Handed on to the commands like any
+ * other multipart file.
+ */
+public class ProcessedUpload implements MultipartFile {
+
+  private final String name;
+  private final String originalFilename;
+  private final String contentType;
+  private final byte[] content;
+
+  public ProcessedUpload(final String name, final String originalFilename, final String contentType,
+                         final byte[] content) {
+    super();
+    this.name = name;
+    this.originalFilename = originalFilename;
+    this.contentType = contentType;
+    this.content = content;
+  }
+
+  ProcessedUpload(final MultipartFile original, final String contentType, final byte[] content) {
+    this(original.getName(), original.getOriginalFilename(), contentType, content);
+  }
+
+  @Override
+  public String getName() {
+    return this.name;
+  }
+
+  @Override
+  public String getOriginalFilename() {
+    return this.originalFilename;
+  }
+
+  @Override
+  public String getContentType() {
+    return this.contentType;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return this.content.length == 0;
+  }
+
+  @Override
+  public long getSize() {
+    return this.content.length;
+  }
+
+  @Override
+  public byte[] getBytes() {
+    return this.content;
+  }
+
+  @Override
+  public InputStream getInputStream() {
+    return new ByteArrayInputStream(this.content);
+  }
+
+  @Override
+  public void transferTo(final File dest) throws IOException {
+    Files.write(dest.toPath(), this.content);
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.image;
+
+import io.mifos.customer.service.ServiceConstants;
+import io.mifos.customer.service.internal.config.RenditionProperties;
+import io.mifos.customer.service.internal.config.UploadProcessingProperties;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Scales uploaded images down to the configured rendition sizes and encodes them as progressive
+ * JPEG, so lists of portraits can be rendered from a few kilobytes per customer.
+ */
+@Component
+public class RenditionGenerator {
+
+  public static final String CONTENT_TYPE = MediaType.IMAGE_JPEG_VALUE;
+
+  private final Logger logger;
+  private final RenditionProperties renditionProperties;
+  private final UploadProcessingProperties uploadProcessingProperties;
+
+  @Autowired
+  public RenditionGenerator(@Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger,
+                            final RenditionProperties renditionProperties,
+                            final UploadProcessingProperties uploadProcessingProperties) {
+    super();
+    this.logger = logger;
+    this.renditionProperties = renditionProperties;
+    this.uploadProcessingProperties = uploadProcessingProperties;
+  }
+
+  public boolean isSupported(final int size) {
+    return this.renditionProperties.getSizes().contains(size);
+  }
+
+  public Iterable<Integer> sizes() {
+    return this.renditionProperties.getSizes();
+  }
+
+  /**
+   * Empty if the image can't be decoded or has more pixels than uploads may have.  Images already smaller than the requested size are
+   * re-encoded, never scaled up.
+   */
+  public Optional<byte[]> render(final byte[] image, final int size) {
+    try {
+      final Optional<BufferedImage> original = Images.decode(image, this.uploadProcessingProperties.getMaxPixels());
+      if (!original.isPresent()) {
+        return Optional.empty();
+      }
+      final BufferedImage upright = Images.orient(original.get(), JpegSegments.orientation(image), true);
+      return Optional.of(Images.encodeJpeg(Images.scale(upright, size, true), this.renditionProperties.getQuality()));
+    } catch (final IOException ex) {
+      this.logger.warn("Could not render image in size {}: {}", size, ex.getMessage());
+      return Optional.empty();
+    }
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.image;
+
+import io.mifos.core.lang.ServiceException;
+import io.mifos.customer.service.ServiceConstants;
+import io.mifos.customer.service.internal.config.UploadProcessingProperties;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Normalizes uploaded images before they are stored: turns them upright, drops their metadata,
+ * scales down anything finer than the configured DPI on an A4 page and re-encodes opaque images,
+ * PNG screenshots included, as JPEG.  Images with transparency stay PNG.
+ *
+ * The bytes saved per upload are submitted as histogram {@code customer.upload.saved.<kind>}.
+ * Uploads which can't be decoded are passed on unchanged.  Uploads larger than the configured
+ * size, and images of more than the configured number of pixels, are rejected before they are
+ * decoded.
+ */
+@Component
+public class UploadProcessor {
+
+  private static final String METRIC_SAVED = "histogram.customer.upload.saved.";
+
+  private final Logger logger;
+  private final UploadProcessingProperties uploadProcessingProperties;
+  private final GaugeService gaugeService;
+
+  @Autowired
+  public UploadProcessor(@Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger,
+                         final UploadProcessingProperties uploadProcessingProperties,
+                         final GaugeService gaugeService) {
+    super();
+    this.logger = logger;
+    this.uploadProcessingProperties = uploadProcessingProperties;
+    this.gaugeService = gaugeService;
+  }
+
+  public MultipartFile process(final String kind, final MultipartFile upload) {
+    final long maxUploadSize = this.uploadProcessingProperties.getMaxUploadSize();
+    if (upload.getSize() > maxUploadSize) {
+      throw ServiceException.badRequest("Upload can''t exceed size of {0}", maxUploadSize);
+    }
+    if (!this.uploadProcessingProperties.isEnabled()) {
+      return upload;
+    }
+
+    try {
+      final byte[] original = upload.getBytes();
+      final Optional<BufferedImage> decoded = Images.decode(original, this.uploadProcessingProperties.getMaxPixels());
+      if (!decoded.isPresent()) {
+        return upload;
+      }
+
+      final BufferedImage image = decoded.get();
+      final boolean opaque = !image.getColorModel().hasAlpha();
+      final int orientation = JpegSegments.orientation(original);
+      final int maxEdge = this.uploadProcessingProperties.getMaxEdgePixels();
+      final boolean oversized = Math.max(image.getWidth(), image.getHeight()) > maxEdge;
+
+      final BufferedImage normalized = Images.scale(Images.orient(image, orientation, opaque), maxEdge, opaque);
+      byte[] processed = opaque
+          ? Images.encodeJpeg(normalized, this.uploadProcessingProperties.getJpegQuality())
+          : Images.encodePng(normalized);
+      String contentType = opaque ? MediaType.IMAGE_JPEG_VALUE : MediaType.IMAGE_PNG_VALUE;
+
+      if (!oversized && orientation == 1 && processed.length >= original.length) {
+        // re-encoding does not pay off, at least get rid of the metadata
+        if (!JpegSegments.isJpeg(original)) {
+          return upload;
+        }
+        processed = JpegSegments.stripMetadata(original);
+        contentType = MediaType.IMAGE_JPEG_VALUE;
+      }
+
+      final long saved = original.length - processed.length;
+      this.gaugeService.submit(METRIC_SAVED + kind, saved);
+      this.logger.debug("Processed {} upload {}: {} bytes, {} bytes saved.",
+          kind, upload.getOriginalFilename(), processed.length, saved);
+
+      return new ProcessedUpload(upload, contentType, processed);
+    } catch (final Images.TooManyPixelsException ex) {
+      throw ServiceException.badRequest("Image can''t exceed {0} pixels.", ex.getMaxPixels());
+    } catch (final IOException | RuntimeException ex) {
+      this.logger.warn("Could not process {} upload {}, storing it as is: {}",
+          kind, upload.getOriginalFilename(), ex.getMessage());
+      return upload;
+    }
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.jdbc;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Traces the SQL of every command handler, including the flush on commit, in a scope named after
+ * the command.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class CommandSqlTraceAspect {
+
+  private final SqlTracer sqlTracer;
+
+  @Autowired
+  public CommandSqlTraceAspect(final SqlTracer sqlTracer) {
+    super();
+    this.sqlTracer = sqlTracer;
+  }
+
+  @Around("@annotation(io.mifos.core.command.annotation.CommandHandler) && args(command)")
+  public Object aroundCommandHandler(final ProceedingJoinPoint joinPoint, final Object command) throws Throwable {
+    final StatementStatistics enclosing = this.sqlTracer.begin(command.getClass().getSimpleName());
+    try {
+      return joinPoint.proceed();
+    } finally {
+      this.sqlTracer.end(enclosing);
+    }
+  }
+}
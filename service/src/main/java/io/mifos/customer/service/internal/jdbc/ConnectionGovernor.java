@@ -0,0 +1,261 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.jdbc;
+
+import io.mifos.core.lang.TenantContextHolder;
+import io.mifos.customer.service.ServiceConstants;
+import io.mifos.customer.service.internal.config.ConnectionPoolProperties;
+import io.mifos.customer.service.internal.metrics.ServiceMetrics;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.SQLTransientConnectionException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the number of database connections leased at the same time, see
+ * {@link GovernedDataSource}.
+ *
+ * Every tenant has a BoneCP pool of its own, so every tenant has a limit of its own, which never
+ * exceeds the size of the tenant's pool, i.e. bonecp.partitionCount times
+ * bonecp.maxConnectionsPerPartition.  A lease waits for a free slot of its tenant up to the
+ * acquire timeout, other tenants are not affected.
+ *
+ * A thread which already holds a connection of the tenant, e.g. because it starts a nested
+ * transaction, is granted further connections without waiting.  Otherwise it could wait for a
+ * slot which only it can free.  Its nested connections still count towards the limit.
+ *
+ * In adaptive mode each tenant's limit follows the tenant's observed demand, i.e. the rate of
+ * leases times the time a connection is held, with some headroom, between the configured minimum
+ * and the size of the tenant's pool.  Otherwise it stays at the size of the pool.
+ */
+@Component
+public class ConnectionGovernor {
+
+  private static final String METRIC_ACTIVE = "customer.pool.active.";
+  private static final String METRIC_AVAILABLE = "customer.pool.available.";
+  private static final String METRIC_WAITING = "customer.pool.waiting.";
+  private static final String METRIC_LIMIT = "customer.pool.limit.";
+  private static final String METRIC_TIMEOUTS = "customer.pool.timeouts.";
+
+  private static final double HEADROOM = 1.5D;
+
+  private final Logger logger;
+  private final ConnectionPoolProperties connectionPoolProperties;
+  private final GaugeService gaugeService;
+  private final CounterService counterService;
+  private final ServiceMetrics serviceMetrics;
+  private final int tenantPoolSize;
+
+  private final Map<String, TenantPool> tenantPools = new ConcurrentHashMap<>();
+  private final ThreadLocal<Map<String, AtomicInteger>> leasedByThread = ThreadLocal.withInitial(HashMap::new);
+  private ScheduledExecutorService executorService;
+
+  @Autowired
+  public ConnectionGovernor(@Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger,
+                            final ConnectionPoolProperties connectionPoolProperties,
+                            final GaugeService gaugeService,
+                            final CounterService counterService,
+                            final ServiceMetrics serviceMetrics,
+                            final Environment environment) {
+    super();
+    this.logger = logger;
+    this.connectionPoolProperties = connectionPoolProperties;
+    this.gaugeService = gaugeService;
+    this.counterService = counterService;
+    this.serviceMetrics = serviceMetrics;
+    this.tenantPoolSize = environment.getProperty("bonecp.partitionCount", Integer.class, 2)
+        * environment.getProperty("bonecp.maxConnectionsPerPartition", Integer.class, 10);
+  }
+
+  @PostConstruct
+  public void start() {
+    final long adjustInterval = this.connectionPoolProperties.getAdjustInterval();
+    this.executorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      final Thread thread = new Thread(runnable, "connection-governor");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.executorService.scheduleWithFixedDelay(this::adjust, adjustInterval, adjustInterval, TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void stop() {
+    this.executorService.shutdownNow();
+  }
+
+  /**
+   * Waits for a free slot of the current tenant, unless the current thread already holds one.
+   */
+  Lease acquire() throws SQLTransientConnectionException {
+    final String tenantIdentifier = TenantContextHolder.identifier().orElse("none");
+    final TenantPool tenantPool = this.tenantPools.computeIfAbsent(tenantIdentifier,
+        tenant -> new TenantPool(tenant, this.tenantPoolSize));
+    final AtomicInteger threadLeases = this.leasedByThread.get().computeIfAbsent(tenantIdentifier, tenant -> new AtomicInteger());
+    final long start = System.nanoTime();
+    final long deadline = start + TimeUnit.MILLISECONDS.toNanos(this.connectionPoolProperties.getAcquireTimeout());
+
+    synchronized (tenantPool) {
+      tenantPool.waiting++;
+      tenantPool.peakDemand = Math.max(tenantPool.peakDemand, tenantPool.leased + tenantPool.waiting);
+      try {
+        while (threadLeases.get() == 0 && tenantPool.leased >= tenantPool.limit) {
+          final long remaining = deadline - System.nanoTime();
+          if (remaining <= 0L) {
+            this.counterService.increment(METRIC_TIMEOUTS + tenantPool.metricSuffix);
+            this.serviceMetrics.record("pool", "wait", false, System.nanoTime() - start);
+            throw new SQLTransientConnectionException(
+                "Timed out waiting for a database connection for tenant " + tenantIdentifier + ".");
+          }
+          TimeUnit.NANOSECONDS.timedWait(tenantPool, remaining);
+        }
+      } catch (final InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new SQLTransientConnectionException("Interrupted while waiting for a database connection.", ex);
+      } finally {
+        tenantPool.waiting--;
+      }
+
+      tenantPool.leased++;
+      tenantPool.leasesInInterval++;
+    }
+    threadLeases.incrementAndGet();
+
+    this.serviceMetrics.record("pool", "wait", true, System.nanoTime() - start);
+    this.recordUsage(tenantPool);
+    return new Lease(tenantPool, threadLeases);
+  }
+
+  void release(final Lease lease, final long heldNanos) {
+    // the counter of the acquiring thread, even if the connection is closed by another one
+    lease.threadLeases.decrementAndGet();
+    final TenantPool tenantPool = lease.tenantPool;
+    synchronized (tenantPool) {
+      tenantPool.leased--;
+      tenantPool.holdNanosInInterval += heldNanos;
+      tenantPool.notifyAll();
+    }
+    this.recordUsage(tenantPool);
+  }
+
+  int limit(final String tenantIdentifier) {
+    final TenantPool tenantPool = this.tenantPools.get(tenantIdentifier);
+    if (tenantPool == null) {
+      return this.tenantPoolSize;
+    }
+    synchronized (tenantPool) {
+      return tenantPool.limit;
+    }
+  }
+
+  void adjust() {
+    if (!this.connectionPoolProperties.isAdaptive()) {
+      return;
+    }
+
+    this.tenantPools.values().forEach(this::adjust);
+  }
+
+  private void adjust(final TenantPool tenantPool) {
+    final int previousLimit;
+    final int newLimit;
+    synchronized (tenantPool) {
+      final double intervalSeconds = this.connectionPoolProperties.getAdjustInterval() / 1000.0D;
+      final double leaseRate = tenantPool.leasesInInterval / intervalSeconds;
+      final double meanHoldSeconds = tenantPool.leasesInInterval == 0L ? 0.0D
+          : tenantPool.holdNanosInInterval / (double) tenantPool.leasesInInterval / TimeUnit.SECONDS.toNanos(1L);
+      // Little's law: connections needed = arrival rate * time held.
+      final int demand = Math.max((int) Math.ceil(leaseRate * meanHoldSeconds * HEADROOM), tenantPool.peakDemand);
+
+      previousLimit = tenantPool.limit;
+      newLimit = Math.min(tenantPool.size,
+          Math.max(this.connectionPoolProperties.getMinConnections(), (previousLimit + demand + 1) / 2));
+      tenantPool.limit = newLimit;
+      tenantPool.leasesInInterval = 0L;
+      tenantPool.holdNanosInInterval = 0L;
+      tenantPool.peakDemand = tenantPool.leased + tenantPool.waiting;
+      tenantPool.notifyAll();
+    }
+
+    if (newLimit != previousLimit) {
+      this.logger.debug("Adjusted database connection limit of tenant {} from {} to {}.",
+          tenantPool.tenantIdentifier, previousLimit, newLimit);
+    }
+    this.recordUsage(tenantPool);
+  }
+
+  private void recordUsage(final TenantPool tenantPool) {
+    final int currentLeased;
+    final int currentWaiting;
+    final int currentLimit;
+    synchronized (tenantPool) {
+      currentLeased = tenantPool.leased;
+      currentWaiting = tenantPool.waiting;
+      currentLimit = tenantPool.limit;
+    }
+    this.gaugeService.submit(METRIC_ACTIVE + tenantPool.metricSuffix, currentLeased);
+    this.gaugeService.submit(METRIC_AVAILABLE + tenantPool.metricSuffix, Math.max(0, currentLimit - currentLeased));
+    this.gaugeService.submit(METRIC_WAITING + tenantPool.metricSuffix, currentWaiting);
+    this.gaugeService.submit(METRIC_LIMIT + tenantPool.metricSuffix, currentLimit);
+  }
+
+  /**
+   * The leases of one tenant's BoneCP pool, guarded by the instance's monitor.
+   */
+  private static final class TenantPool {
+    private final String tenantIdentifier;
+    private final String metricSuffix;
+    private final int size;
+    private int limit;
+    private int leased;
+    private int waiting;
+    private int peakDemand;
+    private long leasesInInterval;
+    private long holdNanosInInterval;
+
+    private TenantPool(final String tenantIdentifier, final int size) {
+      super();
+      this.tenantIdentifier = tenantIdentifier;
+      this.metricSuffix = tenantIdentifier.replace('.', '_');
+      this.size = size;
+      this.limit = size;
+    }
+  }
+
+  static final class Lease {
+    private final TenantPool tenantPool;
+    private final AtomicInteger threadLeases;
+
+    private Lease(final TenantPool tenantPool, final AtomicInteger threadLeases) {
+      super();
+      this.tenantPool = tenantPool;
+      this.threadLeases = threadLeases;
+    }
+  }
+}
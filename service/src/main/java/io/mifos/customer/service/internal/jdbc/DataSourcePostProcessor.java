@@ -0,0 +1,67 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.jdbc;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Puts a {@link LazyConnectionDataSourceProxy}, a {@link TracingDataSource}, a
+ * {@link ReplicaRoutingDataSource} and a {@link GovernedDataSource} in front of the service's data
+ * source.  The lazy proxy fetches the physical connection with the first statement, after the
+ * transaction's read-only flag is known to the router.  Its connection defaults are those of the
+ * tenant's primary database, and are given to replica connections as well.  The router and the
+ * governor are looked up on first use, post processors are created too early to have them
+ * injected.
+ */
+@Component
+public class DataSourcePostProcessor implements BeanPostProcessor, BeanFactoryAware {
+
+  private BeanFactory beanFactory;
+
+  public DataSourcePostProcessor() {
+    super();
+  }
+
+  @Override
+  public void setBeanFactory(final BeanFactory beanFactory) throws BeansException {
+    this.beanFactory = beanFactory;
+  }
+
+  @Override
+  public Object postProcessBeforeInitialization(final Object bean, final String beanName) {
+    return bean;
+  }
+
+  @Override
+  public Object postProcessAfterInitialization(final Object bean, final String beanName) {
+    if (bean instanceof DataSource && !(bean instanceof LazyConnectionDataSourceProxy)) {
+      final DataSource governedDataSource = new GovernedDataSource((DataSource) bean,
+          () -> this.beanFactory.getBean(ConnectionGovernor.class));
+      final TenantConnectionDefaults tenantConnectionDefaults = new TenantConnectionDefaults(governedDataSource);
+      return new TenantLazyConnectionDataSourceProxy(new TracingDataSource(new ReplicaRoutingDataSource(
+          governedDataSource, tenantConnectionDefaults, () -> this.beanFactory.getBean(ReplicaRouter.class))),
+          tenantConnectionDefaults);
+    }
+    return bean;
+  }
+}
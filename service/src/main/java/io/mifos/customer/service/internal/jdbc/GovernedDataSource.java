@@ -0,0 +1,82 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.jdbc;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Leases a slot from the {@link ConnectionGovernor} before handing out a connection of the
+ * wrapped data source, the slot is returned when the connection is closed.
+ */
+public class GovernedDataSource extends DelegatingDataSource {
+
+  private final Supplier<ConnectionGovernor> connectionGovernor;
+
+  public GovernedDataSource(final DataSource targetDataSource, final Supplier<ConnectionGovernor> connectionGovernor) {
+    super(targetDataSource);
+    this.connectionGovernor = connectionGovernor;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    final ConnectionGovernor governor = this.connectionGovernor.get();
+    final ConnectionGovernor.Lease lease = governor.acquire();
+    try {
+      return this.govern(super.getConnection(), governor, lease);
+    } catch (final SQLException | RuntimeException ex) {
+      governor.release(lease, 0L);
+      throw ex;
+    }
+  }
+
+  @Override
+  public Connection getConnection(final String username, final String password) throws SQLException {
+    final ConnectionGovernor governor = this.connectionGovernor.get();
+    final ConnectionGovernor.Lease lease = governor.acquire();
+    try {
+      return this.govern(super.getConnection(username, password), governor, lease);
+    } catch (final SQLException | RuntimeException ex) {
+      governor.release(lease, 0L);
+      throw ex;
+    }
+  }
+
+  private Connection govern(final Connection connection, final ConnectionGovernor governor,
+                            final ConnectionGovernor.Lease lease) {
+    final long leasedOn = System.nanoTime();
+    final AtomicBoolean released = new AtomicBoolean();
+    return (Connection) Proxy.newProxyInstance(GovernedDataSource.class.getClassLoader(), new Class<?>[]{Connection.class},
+        (instance, method, args) -> {
+          try {
+            return method.invoke(connection, args);
+          } catch (final InvocationTargetException ex) {
+            throw ex.getTargetException();
+          } finally {
+            if ("close".equals(method.getName()) && released.compareAndSet(false, true)) {
+              governor.release(lease, System.nanoTime() - leasedOn);
+            }
+          }
+        });
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.jdbc;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Runs {@link ReplicaRead} methods in a read-only transaction, which joins a transaction that is
+ * already open.  Streams are collected before the transaction ends, their queries may only run
+ * once they are consumed.
+ */
+@Aspect
+@Component
+public class ReplicaReadAspect {
+
+  private final ReplicaRouter replicaRouter;
+  private final TransactionTemplate transactionTemplate;
+
+  @Autowired
+  public ReplicaReadAspect(final ReplicaRouter replicaRouter,
+                           final PlatformTransactionManager transactionManager) {
+    super();
+    this.replicaRouter = replicaRouter;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setReadOnly(true);
+  }
+
+  @Around("@annotation(io.mifos.customer.service.internal.jdbc.ReplicaRead)")
+  public Object aroundReplicaRead(final ProceedingJoinPoint joinPoint) throws Throwable {
+    final boolean enclosing = this.replicaRouter.beginRead();
+    try {
+      return this.transactionTemplate.execute(status -> {
+        try {
+          final Object result = joinPoint.proceed();
+          if (result instanceof Stream) {
+            return ((Stream<?>) result).collect(Collectors.toList()).stream();
+          }
+          return result;
+        } catch (final RuntimeException | Error ex) {
+          throw ex;
+        } catch (final Throwable throwable) {
+          throw new ReadFailure(throwable);
+        }
+      });
+    } catch (final ReadFailure failure) {
+      throw failure.getCause();
+    } finally {
+      this.replicaRouter.endRead(enclosing);
+    }
+  }
+
+  private static final class ReadFailure extends RuntimeException {
+    private ReadFailure(final Throwable cause) {
+      super(cause);
+    }
+  }
+}
@@ -0,0 +1,320 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.jdbc;
+
+import com.jolbox.bonecp.BoneCPDataSource;
+import io.mifos.core.api.util.UserContextHolder;
+import io.mifos.core.lang.TenantContextHolder;
+import io.mifos.customer.service.ServiceConstants;
+import io.mifos.customer.service.internal.config.ReplicaProperties;
+import io.mifos.customer.service.internal.repository.ClientWriteRepository;
+import io.mifos.customer.service.internal.repository.TenantDatabase;
+import io.mifos.customer.service.internal.repository.TenantRepository;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.annotation.PreDestroy;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides whether the queries of a {@link ReplicaRead} method go to the replica, and holds the
+ * replica's connection pools, one per tenant.
+ *
+ * Queries go to the replica only inside a read-only transaction, which {@link ReplicaReadAspect}
+ * opens around each such method; connections are fetched lazily, once the transaction's read-only
+ * flag is set.  Queries stay on the primary when replicas are disabled, when the method joins a
+ * read-write transaction, while the replica lags behind by more than the configured staleness,
+ * and for a client that submitted a command within the read-your-writes window.
+ *
+ * The time of a client's last write is handed back to it with the response, as a header and a
+ * cookie, so the requests which carry it back are routed without a look up.  For clients that
+ * don't, writes are also remembered locally and in {@link ClientWriteRepository}, so that they are
+ * seen by every instance of the service; a look up which finds no write is cached for a short time.
+ *
+ * The replica of a tenant is reached on the host configured for the host of its primary database,
+ * with the port, database and credentials the tenant was provisioned with.  The replica's lag is
+ * taken from {@code SHOW SLAVE STATUS}; a server that is not a replica at all counts as current, so
+ * a second local database, or the primary itself, can stand in for a replica.
+ */
+@Component
+public class ReplicaRouter {
+
+  public static final String LAST_WRITE_HEADER = "X-Last-Write";
+  public static final String LAST_WRITE_COOKIE = "lastWrite";
+
+  private static final String METRIC_REPLICA = "customer.replica.reads";
+  private static final String METRIC_PRIMARY = "customer.replica.fallbacks";
+  private static final long UNKNOWN_LAG = Long.MAX_VALUE;
+
+  private static final ThreadLocal<Boolean> READING = new ThreadLocal<>();
+
+  private final Logger logger;
+  private final ReplicaProperties replicaProperties;
+  private final CounterService counterService;
+  private final ClientWriteRepository clientWriteRepository;
+  private final TenantRepository tenantRepository;
+
+  private final Map<String, Replica> replicas = new ConcurrentHashMap<>();
+  private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+  private final Map<String, Long> lookedUpWithoutWrite = new ConcurrentHashMap<>();
+
+  @Autowired
+  public ReplicaRouter(@Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger,
+                       final ReplicaProperties replicaProperties,
+                       final CounterService counterService,
+                       final ClientWriteRepository clientWriteRepository,
+                       final TenantRepository tenantRepository) {
+    super();
+    this.logger = logger;
+    this.replicaProperties = replicaProperties;
+    this.counterService = counterService;
+    this.clientWriteRepository = clientWriteRepository;
+    this.tenantRepository = tenantRepository;
+  }
+
+  @PreDestroy
+  public void stop() {
+    this.replicas.values().forEach(replica -> replica.dataSource.close());
+  }
+
+  boolean beginRead() {
+    final boolean enclosing = READING.get() != null;
+    READING.set(Boolean.TRUE);
+    return enclosing;
+  }
+
+  void endRead(final boolean enclosing) {
+    if (!enclosing) {
+      READING.remove();
+    }
+  }
+
+  /**
+   * Remembers that the current client changed data, its reads go to the primary for a while.
+   */
+  public void recordWrite() {
+    final long window = this.replicaProperties.getReadYourWritesWindow();
+    if (this.replicaProperties.isEnabled() && window > 0L) {
+      final String client = clientKey();
+      final long now = System.currentTimeMillis();
+      this.lastWrites.put(client, now);
+      this.lookedUpWithoutWrite.remove(client);
+      if (this.lastWrites.size() > 10000) {
+        this.lastWrites.values().removeIf(writtenOn -> now - writtenOn > window);
+      }
+      if (this.lookedUpWithoutWrite.size() > 10000) {
+        this.lookedUpWithoutWrite.values().removeIf(expiresOn -> expiresOn <= now);
+      }
+      handBackLastWrite(now, window);
+
+      try {
+        this.clientWriteRepository.record(client, (int) TimeUnit.MILLISECONDS.toSeconds(window + 999L));
+      } catch (final RuntimeException ex) {
+        this.logger.warn("Could not share write of client {}, other instances may read stale data.", client, ex);
+      }
+    }
+  }
+
+  boolean isReplicaRead() {
+    return READING.get() != null
+        && this.replicaProperties.isEnabled()
+        && TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+        && !this.wroteRecently(clientKey());
+  }
+
+  private boolean wroteRecently(final String client) {
+    final long window = this.replicaProperties.getReadYourWritesWindow();
+    if (window <= 0L) {
+      return false;
+    }
+
+    final long now = System.currentTimeMillis();
+    final Long writtenOn = this.lastWrites.get(client);
+    if (writtenOn != null && now - writtenOn <= window) {
+      return true;
+    }
+
+    final Optional<Long> handedBack = lastWriteOfRequest();
+    if (handedBack.isPresent()) {
+      return now - handedBack.get() <= window;
+    }
+
+    final Long expiresOn = this.lookedUpWithoutWrite.get(client);
+    if (expiresOn != null && now < expiresOn) {
+      return false;
+    }
+
+    try {
+      final boolean wrote = this.clientWriteRepository.exists(client);
+      if (!wrote) {
+        this.lookedUpWithoutWrite.put(client, now + this.replicaProperties.getWriteLookupCacheTime());
+      }
+      return wrote;
+    } catch (final RuntimeException ex) {
+      this.logger.warn("Could not look up writes of client {}, using primary.", client, ex);
+      return true;
+    }
+  }
+
+  /**
+   * A connection to the database of the given tenant on the replica, empty if the replica is too
+   * far behind or cannot be reached.
+   */
+  Optional<Connection> replicaConnection(final String tenantIdentifier) {
+    Connection connection = null;
+    try {
+      final Replica replica = this.replicas.computeIfAbsent(tenantIdentifier, key -> new Replica(this.createReplica(key)));
+      connection = replica.dataSource.getConnection();
+      if (this.checkLag(replica, connection) <= this.replicaProperties.getMaxStaleness()) {
+        this.counterService.increment(METRIC_REPLICA);
+        return Optional.of(connection);
+      }
+    } catch (final SQLException | RuntimeException ex) {
+      this.logger.warn("Could not read from replica of tenant {}, using primary.", tenantIdentifier, ex);
+    }
+
+    this.counterService.increment(METRIC_PRIMARY);
+    if (connection != null) {
+      try {
+        connection.close();
+      } catch (final SQLException ex) {
+        this.logger.debug("Could not return replica connection.", ex);
+      }
+    }
+    return Optional.empty();
+  }
+
+  private long checkLag(final Replica replica, final Connection connection) {
+    final long now = System.currentTimeMillis();
+    if (now - replica.lagCheckedOn < this.replicaProperties.getLagCheckInterval()) {
+      return replica.lag;
+    }
+
+    long currentLag;
+    try (final Statement statement = connection.createStatement();
+         final ResultSet resultSet = statement.executeQuery("SHOW SLAVE STATUS")) {
+      if (resultSet.next()) {
+        final long secondsBehind = resultSet.getLong("Seconds_Behind_Master");
+        currentLag = resultSet.wasNull() ? UNKNOWN_LAG : TimeUnit.SECONDS.toMillis(secondsBehind);
+      } else {
+        currentLag = 0L;
+      }
+    } catch (final SQLException ex) {
+      this.logger.warn("Could not determine replica lag.", ex);
+      currentLag = UNKNOWN_LAG;
+    }
+
+    replica.lag = currentLag;
+    replica.lagCheckedOn = now;
+    return currentLag;
+  }
+
+  BoneCPDataSource createReplica(final String tenantIdentifier) {
+    final TenantDatabase tenantDatabase = this.tenantRepository.findDatabase(tenantIdentifier)
+        .orElseThrow(() -> new IllegalStateException("Tenant " + tenantIdentifier + " has no database."));
+
+    final BoneCPDataSource dataSource = new BoneCPDataSource();
+    dataSource.setDriverClass("org.mariadb.jdbc.Driver");
+    dataSource.setJdbcUrl("jdbc:mariadb://" + this.replicaProperties.getHost(tenantDatabase.getHost()) + ":"
+        + tenantDatabase.getPort() + "/" + tenantDatabase.getDatabaseName());
+    dataSource.setUsername(tenantDatabase.getUser());
+    dataSource.setPassword(tenantDatabase.getPassword());
+    dataSource.setPartitionCount(1);
+    dataSource.setMinConnectionsPerPartition(1);
+    dataSource.setMaxConnectionsPerPartition(this.replicaProperties.getMaxConnections());
+    dataSource.setDefaultReadOnly(true);
+    return dataSource;
+  }
+
+  private static void handBackLastWrite(final long writtenOn, final long window) {
+    final RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+    if (!(requestAttributes instanceof ServletRequestAttributes)) {
+      return;
+    }
+    final HttpServletResponse response = ((ServletRequestAttributes) requestAttributes).getResponse();
+    if (response == null || response.isCommitted()) {
+      return;
+    }
+
+    response.setHeader(LAST_WRITE_HEADER, Long.toString(writtenOn));
+    final Cookie cookie = new Cookie(LAST_WRITE_COOKIE, Long.toString(writtenOn));
+    cookie.setPath("/");
+    cookie.setHttpOnly(true);
+    cookie.setMaxAge((int) TimeUnit.MILLISECONDS.toSeconds(window + 999L));
+    response.addCookie(cookie);
+  }
+
+  private static Optional<Long> lastWriteOfRequest() {
+    final RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+    if (!(requestAttributes instanceof ServletRequestAttributes)) {
+      return Optional.empty();
+    }
+    final HttpServletRequest request = ((ServletRequestAttributes) requestAttributes).getRequest();
+
+    String lastWrite = request.getHeader(LAST_WRITE_HEADER);
+    if (lastWrite == null && request.getCookies() != null) {
+      for (final Cookie cookie : request.getCookies()) {
+        if (LAST_WRITE_COOKIE.equals(cookie.getName())) {
+          lastWrite = cookie.getValue();
+        }
+      }
+    }
+
+    try {
+      return lastWrite == null ? Optional.empty() : Optional.of(Long.valueOf(lastWrite));
+    } catch (final NumberFormatException ex) {
+      return Optional.empty();
+    }
+  }
+
+  private static String clientKey() {
+    String user;
+    try {
+      user = UserContextHolder.checkedGetUser();
+    } catch (final RuntimeException ex) {
+      user = "";
+    }
+    return TenantContextHolder.identifier().orElse("") + "/" + user;
+  }
+
+  private static class Replica {
+    private final BoneCPDataSource dataSource;
+    private volatile long lag = UNKNOWN_LAG;
+    private volatile long lagCheckedOn;
+
+    private Replica(final BoneCPDataSource dataSource) {
+      super();
+      this.dataSource = dataSource;
+    }
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.jdbc;
+
+import io.mifos.core.lang.TenantContextHolder;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Hands out replica connections to {@link ReplicaRead} methods if the {@link ReplicaRouter}
+ * allows, and primary connections otherwise.  Replica connections get the defaults of the
+ * primary's, which the lazy connection proxy in front expects.
+ */
+public class ReplicaRoutingDataSource extends DelegatingDataSource {
+
+  private final TenantConnectionDefaults tenantConnectionDefaults;
+  private final Supplier<ReplicaRouter> replicaRouter;
+
+  public ReplicaRoutingDataSource(final DataSource targetDataSource,
+                                  final TenantConnectionDefaults tenantConnectionDefaults,
+                                  final Supplier<ReplicaRouter> replicaRouter) {
+    super(targetDataSource);
+    this.tenantConnectionDefaults = tenantConnectionDefaults;
+    this.replicaRouter = replicaRouter;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    final ReplicaRouter router = this.replicaRouter.get();
+    if (router.isReplicaRead()) {
+      final Optional<Connection> replicaConnection = router.replicaConnection(TenantContextHolder.checkedGetIdentifier());
+      if (replicaConnection.isPresent()) {
+        this.tenantConnectionDefaults.apply(replicaConnection.get());
+        return replicaConnection.get();
+      }
+    }
+    return super.getConnection();
+  }
+}
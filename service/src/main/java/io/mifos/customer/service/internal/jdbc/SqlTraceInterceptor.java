@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.jdbc;
+
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Traces the SQL of every request handled by one of the REST controllers, in a scope named after
+ * the controller and the handler method.
+ */
+public class SqlTraceInterceptor extends HandlerInterceptorAdapter {
+
+  private static final String ENCLOSING_ATTRIBUTE = SqlTraceInterceptor.class.getName() + ".enclosing";
+
+  private final SqlTracer sqlTracer;
+
+  public SqlTraceInterceptor(final SqlTracer sqlTracer) {
+    super();
+    this.sqlTracer = sqlTracer;
+  }
+
+  @Override
+  public boolean preHandle(final HttpServletRequest request, final HttpServletResponse response,
+                           final Object handler) {
+    if (handler instanceof HandlerMethod) {
+      final HandlerMethod handlerMethod = (HandlerMethod) handler;
+      final StatementStatistics enclosing = this.sqlTracer.begin(
+          handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName());
+      request.setAttribute(ENCLOSING_ATTRIBUTE, enclosing != null ? enclosing : Boolean.FALSE);
+    }
+    return true;
+  }
+
+  @Override
+  public void afterCompletion(final HttpServletRequest request, final HttpServletResponse response,
+                              final Object handler, final Exception ex) {
+    final Object enclosing = request.getAttribute(ENCLOSING_ATTRIBUTE);
+    if (enclosing != null) {
+      this.sqlTracer.end(enclosing instanceof StatementStatistics ? (StatementStatistics) enclosing : null);
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.jdbc;
+
+import io.mifos.customer.service.ServiceConstants;
+import io.mifos.customer.service.internal.config.SqlTraceProperties;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects the statements issued through the {@link TracingDataSource} per scope, and logs scopes
+ * issuing more statements or reading more rows than configured, as well as slow statements.
+ *
+ * Scopes are bound to the current thread and may nest, e.g. a command executed synchronously
+ * within a request.  The statistics of the last completed scope of each name are kept, so tests
+ * can pin the query budget of a request or command.
+ */
+@Component
+public class SqlTracer {
+
+  private static final ThreadLocal<StatementStatistics> CURRENT = new ThreadLocal<>();
+
+  private final Logger logger;
+  private final SqlTraceProperties sqlTraceProperties;
+  private final Map<String, StatementStatistics> lastCompleted = new ConcurrentHashMap<>();
+
+  @Autowired
+  public SqlTracer(@Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger,
+                   final SqlTraceProperties sqlTraceProperties) {
+    super();
+    this.logger = logger;
+    this.sqlTraceProperties = sqlTraceProperties;
+  }
+
+  /**
+   * Starts a new scope on the current thread, returns the enclosing one to be passed to
+   * {@link #end(StatementStatistics)}.
+   */
+  public StatementStatistics begin(final String scope) {
+    final StatementStatistics enclosing = CURRENT.get();
+    CURRENT.set(new StatementStatistics(scope, this.sqlTraceProperties.getSlowStatementMillis()));
+    return enclosing;
+  }
+
+  public void end(final StatementStatistics enclosing) {
+    final StatementStatistics statistics = CURRENT.get();
+    if (enclosing != null) {
+      CURRENT.set(enclosing);
+    } else {
+      CURRENT.remove();
+    }
+    if (statistics == null) {
+      return;
+    }
+
+    this.lastCompleted.put(statistics.getScope(), statistics);
+
+    if (statistics.getStatements() > this.sqlTraceProperties.getStatementThreshold()
+        || statistics.getRows() > this.sqlTraceProperties.getRowThreshold()) {
+      this.logger.warn("Excessive SQL in {}, statements issued: {}", statistics, statistics.getStatementCounts());
+    }
+    statistics.getSlowStatements().forEach(slowStatement ->
+        this.logger.warn("Slow SQL in {}: {}", statistics.getScope(), slowStatement));
+  }
+
+  public Optional<StatementStatistics> lastCompleted(final String scope) {
+    return Optional.ofNullable(this.lastCompleted.get(scope));
+  }
+
+  public void reset() {
+    this.lastCompleted.clear();
+  }
+
+  static void statementExecuted(final String sql, final long durationNanos) {
+    final StatementStatistics statistics = CURRENT.get();
+    if (statistics != null) {
+      statistics.statementExecuted(sql, durationNanos);
+    }
+  }
+
+  static void rowsProcessed(final long count) {
+    final StatementStatistics statistics = CURRENT.get();
+    if (statistics != null) {
+      statistics.rowsProcessed(count);
+    }
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.jdbc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The SQL statements issued within one scope, i.e. one HTTP request or one command.
+ */
+public final class StatementStatistics {
+
+  private static final int MAX_DISTINCT_STATEMENTS = 64;
+
+  private final String scope;
+  private final long slowStatementNanos;
+  private final Map<String, Integer> statementCounts = new LinkedHashMap<>();
+  private final List<String> slowStatements = new ArrayList<>();
+  private int statements;
+  private long rows;
+  private long nanos;
+
+  StatementStatistics(final String scope, final long slowStatementMillis) {
+    super();
+    this.scope = scope;
+    this.slowStatementNanos = TimeUnit.MILLISECONDS.toNanos(slowStatementMillis);
+  }
+
+  void statementExecuted(final String sql, final long durationNanos) {
+    this.statements++;
+    this.nanos += durationNanos;
+    if (this.statementCounts.containsKey(sql) || this.statementCounts.size() < MAX_DISTINCT_STATEMENTS) {
+      this.statementCounts.merge(sql, 1, Integer::sum);
+    }
+    if (durationNanos >= this.slowStatementNanos) {
+      this.slowStatements.add(TimeUnit.NANOSECONDS.toMillis(durationNanos) + "ms: " + sql);
+    }
+  }
+
+  void rowsProcessed(final long count) {
+    this.rows += count;
+  }
+
+  public String getScope() {
+    return this.scope;
+  }
+
+  public int getStatements() {
+    return this.statements;
+  }
+
+  public long getRows() {
+    return this.rows;
+  }
+
+  public long getMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(this.nanos);
+  }
+
+  /**
+   * The number of executions of each distinct statement, in the order of their first execution.
+   */
+  public Map<String, Integer> getStatementCounts() {
+    return Collections.unmodifiableMap(this.statementCounts);
+  }
+
+  public List<String> getSlowStatements() {
+    return Collections.unmodifiableList(this.slowStatements);
+  }
+
+  @Override
+  public String toString() {
+    return this.scope + ": " + this.statements + " statements, " + this.rows + " rows, " + this.getMillis() + "ms";
+  }
+}
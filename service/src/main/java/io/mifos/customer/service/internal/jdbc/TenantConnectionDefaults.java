@@ -0,0 +1,88 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.jdbc;
+
+import io.mifos.core.lang.TenantContextHolder;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The auto-commit and isolation defaults of the current tenant's primary database.  They are read
+ * from the first connection of each tenant and remembered, and are empty without a tenant.
+ */
+public class TenantConnectionDefaults {
+
+  private final DataSource primaryDataSource;
+  private final Map<String, Defaults> defaultsByTenant = new ConcurrentHashMap<>();
+
+  public TenantConnectionDefaults(final DataSource primaryDataSource) {
+    super();
+    this.primaryDataSource = primaryDataSource;
+  }
+
+  public Optional<Boolean> autoCommit() {
+    return this.tenantDefaults().map(defaults -> defaults.autoCommit);
+  }
+
+  public Optional<Integer> transactionIsolation() {
+    return this.tenantDefaults().map(defaults -> defaults.transactionIsolation);
+  }
+
+  /**
+   * Gives a connection which doesn't come from the primary, a replica's, the primary's defaults.
+   */
+  public void apply(final Connection connection) throws SQLException {
+    final Optional<Defaults> tenantDefaults = this.tenantDefaults();
+    if (tenantDefaults.isPresent()) {
+      if (connection.getAutoCommit() != tenantDefaults.get().autoCommit) {
+        connection.setAutoCommit(tenantDefaults.get().autoCommit);
+      }
+      if (connection.getTransactionIsolation() != tenantDefaults.get().transactionIsolation) {
+        connection.setTransactionIsolation(tenantDefaults.get().transactionIsolation);
+      }
+    }
+  }
+
+  private Optional<Defaults> tenantDefaults() {
+    return TenantContextHolder.identifier()
+        .map(tenantIdentifier -> this.defaultsByTenant.computeIfAbsent(tenantIdentifier, key -> this.readDefaults()));
+  }
+
+  private Defaults readDefaults() {
+    try (final Connection connection = this.primaryDataSource.getConnection()) {
+      return new Defaults(connection.getAutoCommit(), connection.getTransactionIsolation());
+    } catch (final SQLException ex) {
+      throw new CannotGetJdbcConnectionException("Could not read connection defaults.", ex);
+    }
+  }
+
+  private static class Defaults {
+    private final boolean autoCommit;
+    private final int transactionIsolation;
+
+    private Defaults(final boolean autoCommit, final int transactionIsolation) {
+      super();
+      this.autoCommit = autoCommit;
+      this.transactionIsolation = transactionIsolation;
+    }
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.jdbc;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * A {@link LazyConnectionDataSourceProxy} whose connection defaults are those of the current
+ * tenant's database.  Without a tenant there are no defaults, and asking for one fetches the
+ * physical connection.
+ */
+public class TenantLazyConnectionDataSourceProxy extends LazyConnectionDataSourceProxy {
+
+  private final TenantConnectionDefaults tenantConnectionDefaults;
+
+  public TenantLazyConnectionDataSourceProxy(final DataSource targetDataSource,
+                                             final TenantConnectionDefaults tenantConnectionDefaults) {
+    super();
+    this.setTargetDataSource(targetDataSource);
+    this.tenantConnectionDefaults = tenantConnectionDefaults;
+  }
+
+  @Override
+  protected Boolean defaultAutoCommit() {
+    return this.tenantConnectionDefaults.autoCommit().orElse(null);
+  }
+
+  @Override
+  protected Integer defaultTransactionIsolation() {
+    return this.tenantConnectionDefaults.transactionIsolation().orElse(null);
+  }
+}
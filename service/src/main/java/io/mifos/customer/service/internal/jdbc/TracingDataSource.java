@@ -0,0 +1,111 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.jdbc;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.stream.IntStream;
+
+/**
+ * Reports every statement executed and every row read or written through the wrapped data source
+ * to the {@link SqlTracer}.
+ */
+public class TracingDataSource extends DelegatingDataSource {
+
+  public TracingDataSource(final DataSource targetDataSource) {
+    super(targetDataSource);
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return trace(super.getConnection());
+  }
+
+  @Override
+  public Connection getConnection(final String username, final String password) throws SQLException {
+    return trace(super.getConnection(username, password));
+  }
+
+  private static Connection trace(final Connection connection) {
+    return proxy(Connection.class, (instance, method, args) -> {
+      final Object result = invoke(connection, method, args);
+      if (result instanceof Statement) {
+        final String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+        return trace((Statement) result, sql);
+      }
+      return result;
+    });
+  }
+
+  private static Statement trace(final Statement statement, final String preparedSql) {
+    final Class<? extends Statement> type = statement instanceof CallableStatement ? CallableStatement.class
+        : statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+    return proxy(type, (instance, method, args) -> {
+      if (!method.getName().startsWith("execute")) {
+        final Object result = invoke(statement, method, args);
+        return result instanceof ResultSet ? trace((ResultSet) result) : result;
+      }
+
+      final String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+      final long start = System.nanoTime();
+      final Object result = invoke(statement, method, args);
+      SqlTracer.statementExecuted(sql != null ? sql : "<batch>", System.nanoTime() - start);
+
+      if (result instanceof ResultSet) {
+        return trace((ResultSet) result);
+      } else if (result instanceof Integer || result instanceof Long) {
+        SqlTracer.rowsProcessed(Math.max(0L, ((Number) result).longValue()));
+      } else if (result instanceof int[]) {
+        SqlTracer.rowsProcessed(IntStream.of((int[]) result).filter(count -> count > 0).sum());
+      }
+      return result;
+    });
+  }
+
+  private static ResultSet trace(final ResultSet resultSet) {
+    return proxy(ResultSet.class, (instance, method, args) -> {
+      final Object result = invoke(resultSet, method, args);
+      if ("next".equals(method.getName()) && Boolean.TRUE.equals(result)) {
+        SqlTracer.rowsProcessed(1L);
+      }
+      return result;
+    });
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T proxy(final Class<?> type, final InvocationHandler handler) {
+    return (T) Proxy.newProxyInstance(TracingDataSource.class.getClassLoader(), new Class<?>[]{type}, handler);
+  }
+
+  private static Object invoke(final Object target, final Method method, final Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (final InvocationTargetException ex) {
+      throw ex.getTargetException();
+    }
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.mapper;
+
+import com.datastax.driver.core.utils.UUIDs;
+import io.mifos.core.api.util.UserContextHolder;
+import io.mifos.core.lang.DateConverter;
+import io.mifos.customer.api.v1.domain.AuditEntry;
+import io.mifos.customer.service.internal.repository.CommandLogEntity;
+
+public final class AuditEntryMapper {
+
+  private AuditEntryMapper() {
+    super();
+  }
+
+  public static CommandLogEntity create(final String customerIdentifier, final String action, final String comment) {
+    final CommandLogEntity commandLogEntity = new CommandLogEntity();
+    commandLogEntity.setCustomerIdentifier(customerIdentifier);
+    commandLogEntity.setEntryId(UUIDs.timeBased());
+    commandLogEntity.setAction(action);
+    commandLogEntity.setComment(comment);
+    commandLogEntity.setCreatedBy(UserContextHolder.checkedGetUser());
+    return commandLogEntity;
+  }
+
+  public static AuditEntry map(final CommandLogEntity commandLogEntity) {
+    final AuditEntry auditEntry = new AuditEntry();
+    auditEntry.setIdentifier(commandLogEntity.getEntryId().toString());
+    auditEntry.setAction(commandLogEntity.getAction());
+    auditEntry.setComment(commandLogEntity.getComment());
+    auditEntry.setCreatedBy(commandLogEntity.getCreatedBy());
+    auditEntry.setCreatedOn(DateConverter.toIsoString(commandLogEntity.getCreatedOn()));
+    return auditEntry;
+  }
+}
@@ -15,14 +15,9 @@
  */
 package io.mifos.customer.service.internal.mapper;
 
-import io.mifos.core.api.util.UserContextHolder;
 import io.mifos.core.lang.DateConverter;
 import io.mifos.customer.api.v1.domain.Command;
-import io.mifos.customer.service.internal.repository.CommandEntity;
-import io.mifos.customer.service.internal.repository.CustomerEntity;
-
-import java.time.Clock;
-import java.time.LocalDateTime;
+import io.mifos.customer.service.internal.repository.CommandLogEntity;
 
 public final class CommandMapper {
 
@@ -30,22 +25,12 @@ public final class CommandMapper {
     super();
   }
 
-  public static CommandEntity create(final CustomerEntity customer, final String action, final String comment) {
-    final CommandEntity commandEntity = new CommandEntity();
-    commandEntity.setCustomer(customer);
-    commandEntity.setType(action);
-    commandEntity.setComment(comment);
-    commandEntity.setCreatedBy(UserContextHolder.checkedGetUser());
-    commandEntity.setCreatedOn(LocalDateTime.now(Clock.systemUTC()));
-    return commandEntity;
-  }
-
-  public static Command map(final CommandEntity commandEntity) {
+  public static Command map(final CommandLogEntity commandLogEntity) {
     final Command command = new Command();
-    command.setAction(commandEntity.getType());
-    command.setComment(commandEntity.getComment());
-    command.setCreatedBy(commandEntity.getCreatedBy());
-    command.setCreatedOn(DateConverter.toIsoString(commandEntity.getCreatedOn()));
+    command.setAction(commandLogEntity.getAction());
+    command.setComment(commandLogEntity.getComment());
+    command.setCreatedBy(commandLogEntity.getCreatedBy());
+    command.setCreatedOn(DateConverter.toIsoString(commandLogEntity.getCreatedOn()));
     return command;
   }
 }
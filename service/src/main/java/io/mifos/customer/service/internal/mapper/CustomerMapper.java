@@ -19,10 +19,13 @@ import io.mifos.core.api.util.UserContextHolder;
 import io.mifos.core.lang.DateConverter;
 import io.mifos.core.lang.DateOfBirth;
 import io.mifos.customer.api.v1.domain.Customer;
+import io.mifos.customer.service.internal.repository.AddressEntity;
 import io.mifos.customer.service.internal.repository.CustomerEntity;
 
+import javax.persistence.Tuple;
 import java.sql.Date;
 import java.time.Clock;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 public final class CustomerMapper {
@@ -88,4 +91,77 @@ public final class CustomerMapper {
 
     return customer;
   }
+
+  /**
+   * Maps a tuple read by {@link io.mifos.customer.service.internal.repository.CustomerProjectionRepository},
+   * all attributes not contained in it stay empty.
+   */
+  public static Customer map(final Tuple tuple) {
+    final Customer customer = new Customer();
+    tuple.getElements().forEach(element -> {
+      final Object value = tuple.get(element);
+      if (value == null) {
+        return;
+      }
+      switch (element.getAlias()) {
+        case "identifier":
+          customer.setIdentifier((String) value);
+          break;
+        case "type":
+          customer.setType((String) value);
+          break;
+        case "givenName":
+          customer.setGivenName((String) value);
+          break;
+        case "middleName":
+          customer.setMiddleName((String) value);
+          break;
+        case "surname":
+          customer.setSurname((String) value);
+          break;
+        case "dateOfBirth":
+          customer.setDateOfBirth(DateOfBirth.fromLocalDate(((Date) value).toLocalDate()));
+          break;
+        case "member":
+          customer.setMember((Boolean) value);
+          break;
+        case "accountBeneficiary":
+          customer.setAccountBeneficiary((String) value);
+          break;
+        case "referenceCustomer":
+          customer.setReferenceCustomer((String) value);
+          break;
+        case "assignedOffice":
+          customer.setAssignedOffice((String) value);
+          break;
+        case "assignedEmployee":
+          customer.setAssignedEmployee((String) value);
+          break;
+        case "currentState":
+          customer.setCurrentState((String) value);
+          break;
+        case "applicationDate":
+          customer.setApplicationDate(DateConverter.toIsoString((LocalDate) value).substring(0, 10));
+          break;
+        case "createdBy":
+          customer.setCreatedBy((String) value);
+          break;
+        case "createdOn":
+          customer.setCreatedOn(DateConverter.toIsoString((LocalDateTime) value));
+          break;
+        case "lastModifiedBy":
+          customer.setLastModifiedBy((String) value);
+          break;
+        case "lastModifiedOn":
+          customer.setLastModifiedOn(DateConverter.toIsoString((LocalDateTime) value));
+          break;
+        case "address":
+          customer.setAddress(AddressMapper.map((AddressEntity) value));
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown customer attribute " + element.getAlias());
+      }
+    });
+    return customer;
+  }
 }
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.mapper;
+
+import com.google.gson.Gson;
+import io.mifos.core.api.util.UserContextHolder;
+import io.mifos.customer.api.v1.domain.Customer;
+import io.mifos.customer.service.internal.repository.CustomerEntity;
+import io.mifos.customer.service.internal.repository.CustomerSnapshotEntity;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+
+public final class CustomerSnapshotMapper {
+
+  private static final Gson GSON = new Gson();
+
+  private CustomerSnapshotMapper() {
+    super();
+  }
+
+  public static CustomerSnapshotEntity create(final CustomerEntity customerEntity, final Integer version, final Customer customer) {
+    final CustomerSnapshotEntity customerSnapshotEntity = new CustomerSnapshotEntity();
+    customerSnapshotEntity.setCustomer(customerEntity);
+    customerSnapshotEntity.setVersion(version);
+    customerSnapshotEntity.setPayload(GSON.toJson(customer));
+    customerSnapshotEntity.setCreatedBy(UserContextHolder.checkedGetUser());
+    customerSnapshotEntity.setCreatedOn(LocalDateTime.now(Clock.systemUTC()));
+    return customerSnapshotEntity;
+  }
+
+  public static Customer map(final CustomerSnapshotEntity customerSnapshotEntity) {
+    return GSON.fromJson(customerSnapshotEntity.getPayload(), Customer.class);
+  }
+}
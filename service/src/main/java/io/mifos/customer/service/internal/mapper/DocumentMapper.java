@@ -43,7 +43,6 @@ public class DocumentMapper {
     final DocumentPageEntity ret = new DocumentPageEntity();
     ret.setDocument(documentEntity);
     ret.setPageNumber(pageNumber);
-    ret.setImage(multipartFile.getBytes());
     ret.setSize(multipartFile.getSize());
     ret.setContentType(multipartFile.getContentType());
     return ret;
@@ -28,7 +28,6 @@ public class PortraitMapper {
 
   public static PortraitEntity map(final MultipartFile multipartFile) throws IOException {
     final PortraitEntity portraitEntity = new PortraitEntity();
-    portraitEntity.setImage(multipartFile.getBytes());
     portraitEntity.setSize(multipartFile.getSize());
     portraitEntity.setContentType(multipartFile.getContentType());
     return portraitEntity;
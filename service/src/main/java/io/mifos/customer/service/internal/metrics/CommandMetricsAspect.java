@@ -0,0 +1,106 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.metrics;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Before;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Times every command handler, split into the execution of the handler itself and the commit of
+ * its transaction.
+ *
+ * The aspect wraps the handler's transaction.  The start of the commit is taken from a
+ * synchronization bound to the transaction on its first repository call.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class CommandMetricsAspect {
+
+  private static final String CATEGORY = "command";
+
+  private final ServiceMetrics serviceMetrics;
+  private final ThreadLocal<CommandTiming> currentTiming = new ThreadLocal<>();
+
+  @Autowired
+  public CommandMetricsAspect(final ServiceMetrics serviceMetrics) {
+    super();
+    this.serviceMetrics = serviceMetrics;
+  }
+
+  @Around("@annotation(io.mifos.core.command.annotation.CommandHandler) && args(command)")
+  public Object aroundCommandHandler(final ProceedingJoinPoint joinPoint, final Object command) throws Throwable {
+    final CommandTiming outerTiming = this.currentTiming.get();
+    final CommandTiming timing = new CommandTiming(System.nanoTime());
+    this.currentTiming.set(timing);
+
+    boolean succeeded = false;
+    try {
+      final Object result = joinPoint.proceed();
+      succeeded = true;
+      return result;
+    } finally {
+      final long end = System.nanoTime();
+      final String commandType = command.getClass().getSimpleName();
+      if (timing.commitStart > 0L) {
+        this.serviceMetrics.record(CATEGORY, commandType + ".execution", succeeded, timing.commitStart - timing.start);
+        this.serviceMetrics.record(CATEGORY, commandType + ".commit", succeeded, end - timing.commitStart);
+      } else {
+        this.serviceMetrics.record(CATEGORY, commandType + ".execution", succeeded, end - timing.start);
+      }
+
+      if (outerTiming != null) {
+        this.currentTiming.set(outerTiming);
+      } else {
+        this.currentTiming.remove();
+      }
+    }
+  }
+
+  @Before("io.mifos.customer.service.internal.metrics.RepositoryMetricsAspect.repositoryCall()")
+  public void beforeRepositoryCall() {
+    final CommandTiming timing = this.currentTiming.get();
+    if (timing == null || timing.commitObserved || !TransactionSynchronizationManager.isSynchronizationActive()) {
+      return;
+    }
+
+    timing.commitObserved = true;
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+      @Override
+      public void beforeCommit(final boolean readOnly) {
+        timing.commitStart = System.nanoTime();
+      }
+    });
+  }
+
+  private static class CommandTiming {
+    private final long start;
+    private boolean commitObserved;
+    private long commitStart;
+
+    private CommandTiming(final long start) {
+      this.start = start;
+    }
+  }
+}
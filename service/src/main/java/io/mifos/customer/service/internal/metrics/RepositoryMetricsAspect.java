@@ -0,0 +1,72 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.metrics;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Times every call to one of the service's repositories, named after the repository and the
+ * query method.
+ */
+@Aspect
+@Component
+public class RepositoryMetricsAspect {
+
+  private static final String CATEGORY = "repository";
+
+  private final ServiceMetrics serviceMetrics;
+
+  @Autowired
+  public RepositoryMetricsAspect(final ServiceMetrics serviceMetrics) {
+    super();
+    this.serviceMetrics = serviceMetrics;
+  }
+
+  @Pointcut("execution(public * io.mifos.customer..repository.*Repository.*(..))")
+  public void repositoryCall() {
+  }
+
+  @Around("repositoryCall()")
+  public Object aroundRepositoryCall(final ProceedingJoinPoint joinPoint) throws Throwable {
+    final long start = System.nanoTime();
+    boolean succeeded = false;
+    try {
+      final Object result = joinPoint.proceed();
+      succeeded = true;
+      return result;
+    } finally {
+      this.serviceMetrics.record(CATEGORY,
+          repositoryName(joinPoint.getThis()) + "." + joinPoint.getSignature().getName(),
+          succeeded, System.nanoTime() - start);
+    }
+  }
+
+  private static String repositoryName(final Object repository) {
+    // Spring Data repositories are interface proxies, the interface carries the name.
+    for (final Class<?> candidate : repository.getClass().getInterfaces()) {
+      if (candidate.getName().startsWith("io.mifos.customer.") && candidate.getSimpleName().endsWith("Repository")) {
+        return candidate.getSimpleName();
+      }
+    }
+    return ClassUtils.getUserClass(repository).getSimpleName();
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.metrics;
+
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Times every request handled by one of the REST controllers, named after the controller and the
+ * handler method.  The outcome is the class of the response status, e.g. {@code 2xx}.
+ */
+public class RestMetricsInterceptor extends HandlerInterceptorAdapter {
+
+  private static final String CATEGORY = "rest";
+  private static final String START_ATTRIBUTE = RestMetricsInterceptor.class.getName() + ".start";
+
+  private final ServiceMetrics serviceMetrics;
+
+  public RestMetricsInterceptor(final ServiceMetrics serviceMetrics) {
+    super();
+    this.serviceMetrics = serviceMetrics;
+  }
+
+  @Override
+  public boolean preHandle(final HttpServletRequest request, final HttpServletResponse response,
+                           final Object handler) {
+    request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+    return true;
+  }
+
+  @Override
+  public void afterCompletion(final HttpServletRequest request, final HttpServletResponse response,
+                              final Object handler, final Exception ex) {
+    final Object start = request.getAttribute(START_ATTRIBUTE);
+    if (!(start instanceof Long) || !(handler instanceof HandlerMethod)) {
+      return;
+    }
+
+    final HandlerMethod handlerMethod = (HandlerMethod) handler;
+    final int status = ex != null && response.getStatus() < 400 ? 500 : response.getStatus();
+    this.serviceMetrics.record(CATEGORY,
+        handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName(),
+        (status / 100) + "xx", System.nanoTime() - (Long) start);
+  }
+}
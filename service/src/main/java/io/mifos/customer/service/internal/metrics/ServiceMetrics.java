@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.metrics;
+
+import io.mifos.core.lang.TenantContextHolder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the latencies of commands, REST endpoints and repository queries.
+ *
+ * Each latency is submitted as a histogram in microseconds named
+ * {@code histogram.customer.<category>.<name>.<tenant>.<outcome>}, so the tenant and the outcome
+ * can be told apart on the actuator metrics endpoint.
+ */
+@Component
+public class ServiceMetrics {
+
+  public static final String SUCCESS = "success";
+  public static final String FAILURE = "failure";
+
+  private static final String NO_TENANT = "none";
+
+  private final GaugeService gaugeService;
+
+  @Autowired
+  public ServiceMetrics(final GaugeService gaugeService) {
+    super();
+    this.gaugeService = gaugeService;
+  }
+
+  public void record(final String category, final String name, final String outcome, final long durationNanos) {
+    final String tenantIdentifier = TenantContextHolder.identifier().orElse(NO_TENANT);
+    this.gaugeService.submit(
+        "histogram.customer." + category + "." + name + "." + sanitize(tenantIdentifier) + "." + outcome,
+        TimeUnit.NANOSECONDS.toMicros(durationNanos));
+  }
+
+  public void record(final String category, final String name, final boolean succeeded, final long durationNanos) {
+    this.record(category, name, succeeded ? SUCCESS : FAILURE, durationNanos);
+  }
+
+  private static String sanitize(final String segment) {
+    return segment.replace('.', '_');
+  }
+}
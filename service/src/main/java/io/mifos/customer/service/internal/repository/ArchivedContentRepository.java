@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.repository;
+
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.schemabuilder.SchemaBuilder;
+import io.mifos.core.cassandra.core.CassandraSessionProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+import static com.datastax.driver.core.querybuilder.QueryBuilder.delete;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.in;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.insertInto;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.select;
+
+/**
+ * The content of archived images, kept in Cassandra and out of the MariaDB tables and buffer
+ * pool active customers are served from.  {@link ArchivedImageEntity} holds the archive's
+ * metadata under the same id.
+ *
+ * Content is split into chunks of at most a megabyte, so that large pages stay well below the
+ * size limits of a single mutation.  The table is not compressed, the content is compressed
+ * already.
+ */
+@Repository
+public class ArchivedContentRepository {
+
+  static final String TABLE_NAME = "maat_archived_content";
+
+  private static final int CHUNK_SIZE = 1024 * 1024;
+
+  private final CassandraSessionProvider cassandraSessionProvider;
+
+  @Autowired
+  public ArchivedContentRepository(final CassandraSessionProvider cassandraSessionProvider) {
+    super();
+    this.cassandraSessionProvider = cassandraSessionProvider;
+  }
+
+  public void createTable() {
+    final Statement createTable = SchemaBuilder.createTable(TABLE_NAME)
+        .ifNotExists()
+        .addPartitionKey("archive_id", DataType.bigint())
+        .addClusteringColumn("chunk", DataType.cint())
+        .addColumn("content", DataType.blob())
+        .withOptions()
+        .compressionOptions(SchemaBuilder.noCompression());
+
+    this.cassandraSessionProvider.getTenantSession().execute(createTable);
+  }
+
+  public void write(final Long archiveId, final byte[] content) {
+    final Session session = this.cassandraSessionProvider.getTenantSession();
+    for (int offset = 0, chunk = 0; offset < content.length || chunk == 0; offset += CHUNK_SIZE, chunk++) {
+      final Statement insert = insertInto(TABLE_NAME)
+          .value("archive_id", archiveId)
+          .value("chunk", chunk)
+          .value("content", ByteBuffer.wrap(content, offset, Math.min(CHUNK_SIZE, content.length - offset)));
+      session.execute(insert);
+    }
+  }
+
+  /**
+   * @return the content, or null if nothing is stored under the id
+   */
+  public byte[] read(final Long archiveId) {
+    final Statement query = select("content").from(TABLE_NAME)
+        .where(eq("archive_id", archiveId));
+
+    final ByteArrayOutputStream content = new ByteArrayOutputStream();
+    boolean found = false;
+    for (final Row row : this.cassandraSessionProvider.getTenantSession().execute(query)) {
+      final ByteBuffer chunk = row.getBytes("content");
+      final byte[] bytes = new byte[chunk.remaining()];
+      chunk.get(bytes);
+      content.write(bytes, 0, bytes.length);
+      found = true;
+    }
+    return found ? content.toByteArray() : null;
+  }
+
+  public void delete(final Collection<Long> archiveIds) {
+    if (archiveIds.isEmpty()) {
+      return;
+    }
+    final Statement delete = delete().from(TABLE_NAME)
+        .where(in("archive_id", archiveIds.toArray()));
+
+    this.cassandraSessionProvider.getTenantSession().execute(delete);
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.repository;
+
+import io.mifos.core.mariadb.util.LocalDateTimeConverter;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * The metadata of an archived image of a portrait, scan or page of a customer closed beyond
+ * retention.  The content is kept apart from the content of active customers, in
+ * {@link ArchivedContentRepository}, deflated only where that saves space.
+ */
+@Entity
+@Table(name = "maat_archived_images")
+public class ArchivedImageEntity {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @Column(name = "id")
+  private Long id;
+
+  @Column(name = "size")
+  private Long size;
+
+  @Column(name = "stored_size")
+  private Long storedSize;
+
+  @Column(name = "deflated")
+  private Boolean deflated;
+
+  @Column(name = "archived_on")
+  @Convert(converter = LocalDateTimeConverter.class)
+  private LocalDateTime archivedOn;
+
+  public ArchivedImageEntity() {
+    super();
+  }
+
+  public Long getId() {
+    return this.id;
+  }
+
+  public void setId(final Long id) {
+    this.id = id;
+  }
+
+  public Long getSize() {
+    return this.size;
+  }
+
+  public void setSize(final Long size) {
+    this.size = size;
+  }
+
+  public Long getStoredSize() {
+    return this.storedSize;
+  }
+
+  public void setStoredSize(final Long storedSize) {
+    this.storedSize = storedSize;
+  }
+
+  public Boolean getDeflated() {
+    return this.deflated;
+  }
+
+  public void setDeflated(final Boolean deflated) {
+    this.deflated = deflated;
+  }
+
+  public LocalDateTime getArchivedOn() {
+    return this.archivedOn;
+  }
+
+  public void setArchivedOn(final LocalDateTime archivedOn) {
+    this.archivedOn = archivedOn;
+  }
+}
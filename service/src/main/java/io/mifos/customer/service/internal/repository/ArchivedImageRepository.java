@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ArchivedImageRepository extends JpaRepository<ArchivedImageEntity, Long> {
+
+  @Modifying
+  @Query("DELETE FROM ArchivedImageEntity a WHERE a.id IN :ids")
+  int deleteByIdIn(@Param("ids") final Collection<Long> ids);
+
+  /**
+   * @return the ids of the archived images whose portrait, scan or page was deleted
+   */
+  @Query(value = "SELECT id FROM maat_archived_images WHERE " +
+      "id NOT IN (SELECT archive_id FROM maat_portraits WHERE archive_id IS NOT NULL) AND " +
+      "id NOT IN (SELECT archive_id FROM maat_identification_card_scans WHERE archive_id IS NOT NULL) AND " +
+      "id NOT IN (SELECT archive_id FROM maat_document_pages WHERE archive_id IS NOT NULL)", nativeQuery = true)
+  List<Number> findUnreferencedIds();
+}
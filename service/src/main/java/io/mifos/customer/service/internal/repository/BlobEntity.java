@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.repository;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+
+/**
+ * Image content shared by all portraits, scans and pages with identical bytes, see
+ * {@link BlobRepository}.
+ */
+@Entity
+@Table(name = "maat_blobs")
+public class BlobEntity {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @Column(name = "id")
+  private Long id;
+
+  @Column(name = "hash")
+  private String hash;
+
+  @Column(name = "size")
+  private Long size;
+
+  @Lob
+  @Column(name = "content")
+  private byte[] content;
+
+  @Column(name = "ref_count")
+  private Integer refCount;
+
+  public BlobEntity() {
+    super();
+  }
+
+  public Long getId() {
+    return this.id;
+  }
+
+  public void setId(final Long id) {
+    this.id = id;
+  }
+
+  public String getHash() {
+    return this.hash;
+  }
+
+  public void setHash(final String hash) {
+    this.hash = hash;
+  }
+
+  public Long getSize() {
+    return this.size;
+  }
+
+  public void setSize(final Long size) {
+    this.size = size;
+  }
+
+  public byte[] getContent() {
+    return this.content;
+  }
+
+  public void setContent(final byte[] content) {
+    this.content = content;
+  }
+
+  public Integer getRefCount() {
+    return this.refCount;
+  }
+
+  public void setRefCount(final Integer refCount) {
+    this.refCount = refCount;
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+
+/**
+ * Reference counting is done in single statements, so that concurrent uploads of the same
+ * content and concurrent deletes never lose a reference.
+ */
+@Repository
+public interface BlobRepository extends JpaRepository<BlobEntity, Long> {
+
+  @Modifying
+  @Query(value = "UPDATE maat_blobs SET ref_count = ref_count + 1 WHERE hash = :hash", nativeQuery = true)
+  int reference(@Param("hash") final String hash);
+
+  @Modifying
+  @Query(value = "INSERT INTO maat_blobs (hash, size, content, ref_count) VALUES (:hash, :size, :content, 1) " +
+      "ON DUPLICATE KEY UPDATE ref_count = ref_count + 1", nativeQuery = true)
+  int insertOrReference(@Param("hash") final String hash, @Param("size") final Long size,
+                        @Param("content") final byte[] content);
+
+  @Query("SELECT b.id FROM BlobEntity b WHERE b.hash = :hash")
+  Long findIdByHash(@Param("hash") final String hash);
+
+  @Modifying
+  @Query(value = "UPDATE maat_blobs SET ref_count = ref_count - :count WHERE id = :id", nativeQuery = true)
+  int dereference(@Param("id") final Long id, @Param("count") final int count);
+
+  @Query(value = "SELECT COALESCE(SUM(size), 0) FROM maat_blobs WHERE id IN (:ids) AND ref_count <= 0", nativeQuery = true)
+  Number sumSizeIfUnreferenced(@Param("ids") final Collection<Long> ids);
+
+  @Modifying
+  @Query(value = "DELETE FROM maat_blobs WHERE id IN (:ids) AND ref_count <= 0", nativeQuery = true)
+  int deleteIfUnreferenced(@Param("ids") final Collection<Long> ids);
+}
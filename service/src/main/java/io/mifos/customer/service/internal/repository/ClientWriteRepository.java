@@ -0,0 +1,73 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.repository;
+
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.schemabuilder.SchemaBuilder;
+import io.mifos.core.cassandra.core.CassandraSessionProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+
+import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.insertInto;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.select;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.ttl;
+
+/**
+ * Remembers which clients recently submitted commands, shared by all instances of the service.
+ * Entries expire on their own once the given time has passed.
+ */
+@Repository
+public class ClientWriteRepository {
+
+  static final String TABLE_NAME = "maat_client_writes";
+
+  private final CassandraSessionProvider cassandraSessionProvider;
+
+  @Autowired
+  public ClientWriteRepository(final CassandraSessionProvider cassandraSessionProvider) {
+    super();
+    this.cassandraSessionProvider = cassandraSessionProvider;
+  }
+
+  public void createTable() {
+    final Statement createTable = SchemaBuilder.createTable(TABLE_NAME)
+        .ifNotExists()
+        .addPartitionKey("client", DataType.text())
+        .addColumn("written_on", DataType.timestamp());
+
+    this.cassandraSessionProvider.getTenantSession().execute(createTable);
+  }
+
+  public void record(final String client, final int expiresAfterSeconds) {
+    final Statement insert = insertInto(TABLE_NAME)
+        .value("client", client)
+        .value("written_on", new Date())
+        .using(ttl(expiresAfterSeconds));
+
+    this.cassandraSessionProvider.getTenantSession().execute(insert);
+  }
+
+  public boolean exists(final String client) {
+    final Statement query = select("client").from(TABLE_NAME)
+        .where(eq("client", client));
+
+    return this.cassandraSessionProvider.getTenantSession().execute(query).one() != null;
+  }
+}
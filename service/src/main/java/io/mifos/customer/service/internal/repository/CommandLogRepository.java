@@ -0,0 +1,221 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.repository;
+
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.schemabuilder.SchemaBuilder;
+import com.datastax.driver.core.utils.UUIDs;
+import io.mifos.core.cassandra.core.CassandraSessionProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+
+import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.gte;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.insertInto;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.lt;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.lte;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.select;
+
+/**
+ * Append-only log of the commands executed against a customer, stored in Cassandra.
+ *
+ * Entries are partitioned by customer and month, and clustered by a time based id in descending
+ * order.  The months a customer has entries in are indexed in a table of their own, so a read
+ * looks up the non-empty partitions of the requested range first and then reads them newest
+ * first, touching only the partitions which are needed to fill a page.  Months without entries
+ * cost nothing, no matter how long ago the customer was created.
+ */
+@Repository
+public class CommandLogRepository {
+
+  static final String TABLE_NAME = "maat_command_log";
+  static final String BUCKET_TABLE_NAME = "maat_command_log_buckets";
+
+  private static final DateTimeFormatter BUCKET_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM");
+
+  private final CassandraSessionProvider cassandraSessionProvider;
+
+  @Autowired
+  public CommandLogRepository(final CassandraSessionProvider cassandraSessionProvider) {
+    super();
+    this.cassandraSessionProvider = cassandraSessionProvider;
+  }
+
+  public void createTable() {
+    final Statement createTable = SchemaBuilder.createTable(TABLE_NAME)
+        .ifNotExists()
+        .addPartitionKey("customer_identifier", DataType.text())
+        .addPartitionKey("bucket", DataType.text())
+        .addClusteringColumn("entry_id", DataType.timeuuid())
+        .addColumn("a_type", DataType.text())
+        .addColumn("a_comment", DataType.text())
+        .addColumn("created_by", DataType.text())
+        .withOptions()
+        .clusteringOrder("entry_id", SchemaBuilder.Direction.DESC);
+
+    final Statement createBucketTable = SchemaBuilder.createTable(BUCKET_TABLE_NAME)
+        .ifNotExists()
+        .addPartitionKey("customer_identifier", DataType.text())
+        .addClusteringColumn("bucket", DataType.text())
+        .withOptions()
+        .clusteringOrder("bucket", SchemaBuilder.Direction.DESC);
+
+    final Session session = this.cassandraSessionProvider.getTenantSession();
+    session.execute(createTable);
+    session.execute(createBucketTable);
+  }
+
+  /**
+   * Indexes the entry's month before the entry itself, so an entry is never stored in a partition
+   * which reads would not find.  Both writes are idempotent, an append may be repeated.
+   */
+  public void append(final CommandLogEntity commandLogEntity) {
+    final Session session = this.cassandraSessionProvider.getTenantSession();
+    final String bucket = bucket(toLocalDateTime(commandLogEntity.getEntryId()));
+
+    session.execute(insertInto(BUCKET_TABLE_NAME)
+        .value("customer_identifier", commandLogEntity.getCustomerIdentifier())
+        .value("bucket", bucket));
+
+    final Statement insert = insertInto(TABLE_NAME)
+        .value("customer_identifier", commandLogEntity.getCustomerIdentifier())
+        .value("bucket", bucket)
+        .value("entry_id", commandLogEntity.getEntryId())
+        .value("a_type", commandLogEntity.getAction())
+        .value("a_comment", commandLogEntity.getComment())
+        .value("created_by", commandLogEntity.getCreatedBy());
+
+    session.execute(insert);
+  }
+
+  /**
+   * @param before if given, only entries older than this entry are returned
+   * @return at most limit entries created between from and to, newest first
+   */
+  public List<CommandLogEntity> fetch(final String customerIdentifier,
+                                     final LocalDateTime from,
+                                     final LocalDateTime to,
+                                     final UUID before,
+                                     final int limit) {
+    final Session session = this.cassandraSessionProvider.getTenantSession();
+
+    final UUID lowerBound = UUIDs.startOf(toEpochMilli(from));
+    final UUID upperBound = UUIDs.endOf(toEpochMilli(to));
+    final boolean beforeCursor = before != null && UUIDs.unixTimestamp(before) <= UUIDs.unixTimestamp(upperBound);
+
+    final List<CommandLogEntity> result = new ArrayList<>(limit);
+    final Iterator<String> buckets =
+        this.buckets(session, customerIdentifier, from, beforeCursor ? toLocalDateTime(before) : to).iterator();
+    while (result.size() < limit && buckets.hasNext()) {
+      final Statement query = select().all().from(TABLE_NAME)
+          .where(eq("customer_identifier", customerIdentifier))
+          .and(eq("bucket", buckets.next()))
+          .and(gte("entry_id", lowerBound))
+          .and(beforeCursor ? lt("entry_id", before) : lte("entry_id", upperBound))
+          .limit(limit - result.size());
+
+      for (final Row row : session.execute(query)) {
+        result.add(map(customerIdentifier, row));
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * @return all entries created between from and to, oldest first
+   */
+  public List<CommandLogEntity> fetchAll(final String customerIdentifier,
+                                         final LocalDateTime from,
+                                         final LocalDateTime to) {
+    final Session session = this.cassandraSessionProvider.getTenantSession();
+
+    final UUID lowerBound = UUIDs.startOf(toEpochMilli(from));
+    final UUID upperBound = UUIDs.endOf(toEpochMilli(to));
+
+    final List<CommandLogEntity> result = new ArrayList<>();
+    for (final String bucket : this.buckets(session, customerIdentifier, from, to)) {
+      final Statement query = select().all().from(TABLE_NAME)
+          .where(eq("customer_identifier", customerIdentifier))
+          .and(eq("bucket", bucket))
+          .and(gte("entry_id", lowerBound))
+          .and(lte("entry_id", upperBound));
+
+      for (final Row row : session.execute(query)) {
+        result.add(map(customerIdentifier, row));
+      }
+    }
+
+    Collections.reverse(result);
+    return result;
+  }
+
+  /**
+   * @return the months between from and to the customer has entries in, newest first
+   */
+  private List<String> buckets(final Session session,
+                               final String customerIdentifier,
+                               final LocalDateTime from,
+                               final LocalDateTime to) {
+    final Statement query = select("bucket").from(BUCKET_TABLE_NAME)
+        .where(eq("customer_identifier", customerIdentifier))
+        .and(gte("bucket", bucket(from)))
+        .and(lte("bucket", bucket(to)));
+
+    final List<String> buckets = new ArrayList<>();
+    for (final Row row : session.execute(query)) {
+      buckets.add(row.getString("bucket"));
+    }
+    return buckets;
+  }
+
+  private static CommandLogEntity map(final String customerIdentifier, final Row row) {
+    final CommandLogEntity commandLogEntity = new CommandLogEntity();
+    commandLogEntity.setCustomerIdentifier(customerIdentifier);
+    commandLogEntity.setEntryId(row.getUUID("entry_id"));
+    commandLogEntity.setAction(row.getString("a_type"));
+    commandLogEntity.setComment(row.getString("a_comment"));
+    commandLogEntity.setCreatedBy(row.getString("created_by"));
+    commandLogEntity.setCreatedOn(toLocalDateTime(commandLogEntity.getEntryId()));
+    return commandLogEntity;
+  }
+
+  private static String bucket(final LocalDateTime dateTime) {
+    return YearMonth.from(dateTime).format(BUCKET_FORMATTER);
+  }
+
+  private static long toEpochMilli(final LocalDateTime dateTime) {
+    return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+  }
+
+  private static LocalDateTime toLocalDateTime(final UUID entryId) {
+    return LocalDateTime.ofInstant(Instant.ofEpochMilli(UUIDs.unixTimestamp(entryId)), ZoneOffset.UTC);
+  }
+}
@@ -15,11 +15,24 @@
  */
 package io.mifos.customer.service.internal.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-import java.util.stream.Stream;
+import java.util.Collection;
+import java.util.List;
 
+/**
+ * Commands recorded before the command log, only read to move them into it.
+ */
 public interface CommandRepository extends JpaRepository<CommandEntity, Long> {
 
-  Stream<CommandEntity> findByCustomer(final CustomerEntity customerEntity);
+  @Query("SELECT c FROM CommandEntity c JOIN FETCH c.customer ORDER BY c.id ASC")
+  List<CommandEntity> findWithCustomer(final Pageable pageable);
+
+  @Modifying
+  @Query("DELETE FROM CommandEntity c WHERE c.id IN :ids")
+  int deleteByIdIn(@Param("ids") final Collection<Long> ids);
 }
@@ -16,12 +16,20 @@
 package io.mifos.customer.service.internal.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ContactDetailRepository extends JpaRepository<ContactDetailEntity, Long> {
 
   List<ContactDetailEntity> findByCustomer(final CustomerEntity customerEntity);
+
+  List<ContactDetailEntity> findByCustomerIn(final Collection<CustomerEntity> customerEntities);
+
+  @Query("SELECT cd FROM ContactDetailEntity cd JOIN FETCH cd.customer c WHERE c.identifier IN :identifiers")
+  List<ContactDetailEntity> findByCustomerIdentifierIn(@Param("identifiers") final Collection<String> identifiers);
 }
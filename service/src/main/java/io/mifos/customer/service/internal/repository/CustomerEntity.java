@@ -81,6 +81,12 @@ public class CustomerEntity {
   @Column(name = "last_modified_on")
   @Convert(converter = LocalDateTimeConverter.class)
   private LocalDateTime lastModifiedOn;
+  // written by CustomerRepository.incrementVersion only
+  @Column(name = "a_version", insertable = false, updatable = false)
+  private Integer version;
+  @Column(name = "closed_on")
+  @Convert(converter = LocalDateTimeConverter.class)
+  private LocalDateTime closedOn;
 
   public CustomerEntity() {
     super();
@@ -238,6 +244,22 @@ public class CustomerEntity {
     this.lastModifiedOn = lastModifiedOn;
   }
 
+  public LocalDateTime getClosedOn() {
+    return this.closedOn;
+  }
+
+  public void setClosedOn(final LocalDateTime closedOn) {
+    this.closedOn = closedOn;
+  }
+
+  public Integer getVersion() {
+    return this.version;
+  }
+
+  public void setVersion(final Integer version) {
+    this.version = version;
+  }
+
   @Override
   public boolean equals(final Object o) {
     if (this == o) return true;
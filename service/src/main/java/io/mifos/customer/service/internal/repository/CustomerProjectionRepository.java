@@ -0,0 +1,128 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.repository;
+
+import io.mifos.customer.api.v1.domain.Customer;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Reads customers column by column.  Only the requested attributes end up in the select list,
+ * the address is joined in only if asked for, so list screens do not pay for whole entities.
+ *
+ * Each tuple element is aliased with the name of the attribute it was read from.
+ */
+@Repository
+public class CustomerProjectionRepository {
+
+  public static final String ADDRESS = "address";
+
+  public static final Set<String> ATTRIBUTES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+      "identifier", "type", "givenName", "middleName", "surname", "dateOfBirth", "member", "accountBeneficiary",
+      "referenceCustomer", "assignedOffice", "assignedEmployee", "currentState", "applicationDate", "createdBy",
+      "createdOn", "lastModifiedBy", "lastModifiedOn", ADDRESS)));
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  public CustomerProjectionRepository() {
+    super();
+  }
+
+  public Optional<Tuple> findByIdentifier(final String identifier, final Set<String> attributes) {
+    final CriteriaBuilder criteriaBuilder = this.entityManager.getCriteriaBuilder();
+    final CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+    final Root<CustomerEntity> customer = query.from(CustomerEntity.class);
+    query.multiselect(this.select(customer, attributes))
+        .where(criteriaBuilder.equal(customer.get("identifier"), identifier));
+
+    return this.entityManager.createQuery(query).setMaxResults(1).getResultList().stream().findFirst();
+  }
+
+  public Page<Tuple> fetch(final String term, final boolean includeClosed, final Set<String> attributes,
+                           final Pageable pageable) {
+    final CriteriaBuilder criteriaBuilder = this.entityManager.getCriteriaBuilder();
+
+    final CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+    final Root<CustomerEntity> customer = query.from(CustomerEntity.class);
+    query.multiselect(this.select(customer, attributes))
+        .where(this.filter(criteriaBuilder, customer, term, includeClosed));
+    if (pageable.getSort() != null) {
+      query.orderBy(QueryUtils.toOrders(pageable.getSort(), customer, criteriaBuilder));
+    }
+
+    final TypedQuery<Tuple> pageQuery = this.entityManager.createQuery(query);
+    pageQuery.setFirstResult(pageable.getOffset());
+    pageQuery.setMaxResults(pageable.getPageSize());
+    final List<Tuple> content = pageQuery.getResultList();
+
+    final CriteriaQuery<Long> countQuery = criteriaBuilder.createQuery(Long.class);
+    final Root<CustomerEntity> counted = countQuery.from(CustomerEntity.class);
+    countQuery.select(criteriaBuilder.count(counted))
+        .where(this.filter(criteriaBuilder, counted, term, includeClosed));
+
+    return new PageImpl<>(content, pageable, this.entityManager.createQuery(countQuery).getSingleResult());
+  }
+
+  private List<Selection<?>> select(final Root<CustomerEntity> customer, final Set<String> attributes) {
+    final List<Selection<?>> selections = new ArrayList<>(attributes.size());
+    attributes.forEach(attribute -> {
+      if (attribute.equals(ADDRESS)) {
+        selections.add(customer.join(ADDRESS, JoinType.LEFT).alias(ADDRESS));
+      } else {
+        selections.add(customer.get(attribute).alias(attribute));
+      }
+    });
+    return selections;
+  }
+
+  private Predicate[] filter(final CriteriaBuilder criteriaBuilder, final Root<CustomerEntity> customer,
+                             final String term, final boolean includeClosed) {
+    final List<Predicate> predicates = new ArrayList<>(2);
+    if (!includeClosed) {
+      predicates.add(criteriaBuilder.notEqual(customer.get("currentState"), Customer.State.CLOSED.name()));
+    }
+    if (term != null) {
+      final String pattern = "%" + term + "%";
+      predicates.add(criteriaBuilder.or(
+          criteriaBuilder.like(customer.get("identifier"), pattern),
+          criteriaBuilder.like(customer.get("givenName"), pattern),
+          criteriaBuilder.like(customer.get("surname"), pattern)));
+    }
+    return predicates.toArray(new Predicate[predicates.size()]);
+  }
+}
@@ -18,10 +18,16 @@ package io.mifos.customer.service.internal.repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -35,8 +41,35 @@ public interface CustomerRepository extends JpaRepository<CustomerEntity, Long>
 
   Optional<CustomerEntity> findByIdentifier(final String identifier);
 
+  @Query("SELECT c FROM CustomerEntity c LEFT JOIN FETCH c.address WHERE c.identifier IN :identifiers")
+  List<CustomerEntity> findByIdentifierIn(@Param("identifiers") final Collection<String> identifiers);
+
   Page<CustomerEntity> findByCurrentStateNot(final String state, final Pageable pageable);
 
   Page<CustomerEntity> findByCurrentStateNotAndIdentifierContainingOrGivenNameContainingOrSurnameContaining(
       final String state, final String identifier, final String givenName, final String surname, final Pageable pageable);
+
+  /**
+   * Moves the history version of the customer on from the given one, locking its row until the end
+   * of the transaction.  Returns 0 if the version has moved on since, so a command which read the
+   * customer before a concurrent one committed can't take the same version.
+   */
+  @Modifying
+  @Query(value = "UPDATE maat_customers SET a_version = :version + 1 WHERE id = :id AND a_version = :version",
+      nativeQuery = true)
+  int incrementVersion(@Param("id") final Long id, @Param("version") final Integer version);
+
+  /**
+   * Locks the rows of those of the given customers closed before the given time and not reopened
+   * since until the end of the transaction, and returns them.
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT c FROM CustomerEntity c WHERE c.id IN :ids AND c.currentState = :state AND c.closedOn < :before")
+  List<CustomerEntity> lockByIdInAndStateClosedBefore(@Param("ids") final Collection<Long> ids,
+                                                       @Param("state") final String state,
+                                                       @Param("before") final LocalDateTime before);
+
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT c FROM CustomerEntity c WHERE c.id = :id")
+  CustomerEntity lockById(@Param("id") final Long id);
 }
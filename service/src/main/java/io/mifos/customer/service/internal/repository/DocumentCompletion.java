@@ -0,0 +1,55 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.repository;
+
+/**
+ * What completing a document depends on, read in one statement: whether it is completed
+ * already, and the number of its pages against the highest page number.
+ */
+public class DocumentCompletion {
+  private final boolean completed;
+  private final long pageCount;
+  private final Integer maxPageNumber;
+
+  public DocumentCompletion(final Boolean completed, final Long pageCount, final Integer maxPageNumber) {
+    super();
+    this.completed = completed;
+    this.pageCount = pageCount;
+    this.maxPageNumber = maxPageNumber;
+  }
+
+  public boolean isCompleted() {
+    return this.completed;
+  }
+
+  /**
+   * Pages are numbered from 0, so there is none missing if there are as many pages as the
+   * highest page number plus one.
+   */
+  public boolean isMissingPages() {
+    return this.pageCount != (this.maxPageNumber == null ? 0L : this.maxPageNumber + 1L);
+  }
+
+  /**
+   * Like {@link #isMissingPages()}, once the given number of pages starting at the given page
+   * number, none of which exist yet, are added.
+   */
+  public boolean isMissingPagesWith(final int firstPageNumber, final int addedPageCount) {
+    final long lastPageNumber = Math.max(this.maxPageNumber == null ? -1L : this.maxPageNumber,
+        firstPageNumber + addedPageCount - 1L);
+    return this.pageCount + addedPageCount != lastPageNumber + 1L;
+  }
+}
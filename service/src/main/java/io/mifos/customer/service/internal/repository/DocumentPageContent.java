@@ -0,0 +1,53 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.repository;
+
+/**
+ * The content of a page read without its entity, so it isn't held in the persistence context
+ * while a whole document is streamed.  The image of an archived page is not part of it, it has
+ * to be read from the archive by its archive id.
+ */
+public class DocumentPageContent {
+  private final Integer pageNumber;
+  private final String contentType;
+  private final byte[] image;
+  private final Long archiveId;
+
+  public DocumentPageContent(final Integer pageNumber, final String contentType, final byte[] image,
+                             final Long archiveId) {
+    super();
+    this.pageNumber = pageNumber;
+    this.contentType = contentType;
+    this.image = image;
+    this.archiveId = archiveId;
+  }
+
+  public Integer getPageNumber() {
+    return this.pageNumber;
+  }
+
+  public String getContentType() {
+    return this.contentType;
+  }
+
+  public byte[] getImage() {
+    return this.image;
+  }
+
+  public Long getArchiveId() {
+    return this.archiveId;
+  }
+}
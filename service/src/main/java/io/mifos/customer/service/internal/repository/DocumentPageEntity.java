@@ -48,6 +48,19 @@ public class DocumentPageEntity {
   @Column(name = "image")
   private byte[] image;
 
+  @Column(name = "blob_id")
+  private Long blobId;
+
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "blob_id", insertable = false, updatable = false)
+  private BlobEntity blob;
+
+  @Column(name = "archive_id")
+  private Long archiveId;
+
+  @Transient
+  private byte[] archivedImage;
+
   public DocumentPageEntity() {
   }
 
@@ -92,14 +105,42 @@ public class DocumentPageEntity {
     this.size = size;
   }
 
+  /**
+   * The shared content if the image was stored or deduplicated into a blob, the archived content
+   * if the image was moved to the archive and read from it, otherwise the image stored in this
+   * row.
+   */
   public byte[] getImage() {
-    return image;
+    if (this.blob != null) {
+      return this.blob.getContent();
+    }
+    return this.archiveId != null ? this.archivedImage : this.image;
   }
 
   public void setImage(byte[] image) {
     this.image = image;
   }
 
+  public Long getBlobId() {
+    return this.blobId;
+  }
+
+  public void setBlobId(final Long blobId) {
+    this.blobId = blobId;
+  }
+
+  public Long getArchiveId() {
+    return this.archiveId;
+  }
+
+  public void setArchiveId(final Long archiveId) {
+    this.archiveId = archiveId;
+  }
+
+  public void setArchivedImage(final byte[] archivedImage) {
+    this.archivedImage = archivedImage;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) return true;
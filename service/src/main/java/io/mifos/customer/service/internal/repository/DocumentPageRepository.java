@@ -15,11 +15,20 @@
  */
 package io.mifos.customer.service.internal.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.stream.Stream;
 
@@ -35,4 +44,40 @@ public interface DocumentPageRepository extends JpaRepository<DocumentPageEntity
   @Query("SELECT d FROM DocumentPageEntity d WHERE d.document.customer.identifier = :customerIdentifier AND d.document.identifier = :documentIdentifier")
   Stream<DocumentPageEntity> findByCustomerIdAndDocumentIdentifier(
       @Param("customerIdentifier") String customerIdentifier, @Param("documentIdentifier") String documentIdentifier);
+
+  List<DocumentPageEntity> findByBlobIdIsNullAndArchiveIdIsNullAndImageIsNotNullOrderByIdAsc(Pageable pageable);
+
+  @Query("SELECT d FROM DocumentPageEntity d JOIN d.document o JOIN o.customer c " +
+      "WHERE d.archiveId IS NULL AND c.currentState = :state AND c.closedOn < :before ORDER BY d.id")
+  List<DocumentPageEntity> findUnarchivedByCustomerStateClosedBefore(@Param("state") String state,
+                                                                     @Param("before") LocalDateTime before,
+                                                                     Pageable pageable);
+
+  @Query("SELECT COUNT(d) FROM DocumentPageEntity d JOIN d.document o JOIN o.customer c " +
+      "WHERE d.archiveId IS NULL AND c.currentState = :state AND c.closedOn < :before")
+  Long countUnarchivedByCustomerStateClosedBefore(@Param("state") String state,
+                                                  @Param("before") LocalDateTime before);
+
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT d FROM DocumentPageEntity d WHERE d.document.customer = :customer AND d.archiveId IS NOT NULL")
+  List<DocumentPageEntity> findArchivedByCustomer(@Param("customer") CustomerEntity customerEntity);
+
+  /**
+   * @return id, blob id, size and customer id of each page, without touching its content
+   */
+  @Query("SELECT d.id, d.blobId, d.size, c.id FROM DocumentPageEntity d JOIN d.document o JOIN o.customer c WHERE o.id = :documentId ORDER BY d.id")
+  List<Object[]> findIdsByDocumentId(@Param("documentId") Long documentId, Pageable pageable);
+
+  @Modifying
+  @Query("DELETE FROM DocumentPageEntity d WHERE d.id IN :ids")
+  int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+  /**
+   * Streams the pages in order.  The fetch size makes the driver read rows as they are consumed
+   * rather than loading the whole result, so only one page is held in memory at a time.
+   */
+  @Query("SELECT NEW io.mifos.customer.service.internal.repository.DocumentPageContent(d.pageNumber, d.contentType, COALESCE(b.content, d.image), d.archiveId) FROM DocumentPageEntity d LEFT JOIN d.blob b WHERE d.document.customer.identifier = :customerIdentifier AND d.document.identifier = :documentIdentifier ORDER BY d.pageNumber")
+  @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "" + Integer.MIN_VALUE))
+  Stream<DocumentPageContent> streamContentByCustomerIdAndDocumentIdentifier(
+      @Param("customerIdentifier") String customerIdentifier, @Param("documentIdentifier") String documentIdentifier);
 }
@@ -15,11 +15,18 @@
  */
 package io.mifos.customer.service.internal.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.stream.Stream;
 
@@ -36,4 +43,39 @@ public interface DocumentRepository extends JpaRepository<DocumentEntity, Long>
   @Query("SELECT d FROM DocumentEntity d WHERE d.customer.identifier = :customerIdentifier")
   Stream<DocumentEntity> findByCustomerId(
       @Param("customerIdentifier") String customerIdentifier);
+
+  /**
+   * Leaves out documents with archived pages, they are restored should the customer be reopened.
+   */
+  @Query("SELECT d FROM DocumentEntity d JOIN FETCH d.customer c WHERE c.currentState = :currentState AND c.closedOn < :closedBefore " +
+      "AND NOT EXISTS (SELECT p.id FROM DocumentPageEntity p WHERE p.document = d AND p.archiveId IS NOT NULL) ORDER BY d.id")
+  List<DocumentEntity> findUnarchivedByCustomerStateClosedBefore(
+      @Param("currentState") String currentState, @Param("closedBefore") LocalDateTime closedBefore,
+      Pageable pageable);
+
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT d FROM DocumentEntity d WHERE d.id = :id")
+  Optional<DocumentEntity> lockById(@Param("id") Long id);
+
+  @Query("SELECT NEW io.mifos.customer.service.internal.repository.DocumentCompletion(d.completed, COUNT(p.id), MAX(p.pageNumber)) " +
+      "FROM DocumentPageEntity p RIGHT JOIN p.document d JOIN d.customer c " +
+      "WHERE c.identifier = :customerIdentifier AND d.identifier = :documentIdentifier GROUP BY d.id, d.completed")
+  Optional<DocumentCompletion> findCompletion(
+      @Param("customerIdentifier") String customerIdentifier, @Param("documentIdentifier") String documentIdentifier);
+
+  /**
+   * Completes the document if none of its pages are missing, checked by the same statement that
+   * changes it.  Completing a completed document again stamps it with the new creator and time.
+   *
+   * @return 1 if the document was completed, otherwise 0
+   */
+  @Modifying
+  @Query(value = "UPDATE maat_documents d SET d.is_completed = TRUE, d.created_by = :createdBy, d.created_on = :createdOn " +
+      "WHERE d.identifier = :documentIdentifier " +
+      "AND d.customer_id = (SELECT c.id FROM maat_customers c WHERE c.identifier = :customerIdentifier) " +
+      "AND (SELECT COUNT(*) = COALESCE(MAX(p.page_number) + 1, 0) FROM maat_document_pages p WHERE p.document_id = d.id)",
+      nativeQuery = true)
+  int complete(
+      @Param("customerIdentifier") String customerIdentifier, @Param("documentIdentifier") String documentIdentifier,
+      @Param("createdBy") String createdBy, @Param("createdOn") Timestamp createdOn);
 }
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.repository;
+
+import io.mifos.core.mariadb.util.LocalDateTimeConverter;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "maat_event_dead_letters")
+public class EventDeadLetterEntity {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @Column(name = "id")
+  private Long id;
+  @Column(name = "outbox_id")
+  private Long outboxId;
+  @Column(name = "selector_name")
+  private String selectorName;
+  @Column(name = "selector_value")
+  private String selectorValue;
+  @Column(name = "payload")
+  private String payload;
+  @Column(name = "created_on")
+  @Convert(converter = LocalDateTimeConverter.class)
+  private LocalDateTime createdOn;
+  @Column(name = "attempts")
+  private Integer attempts;
+  @Column(name = "last_error")
+  private String lastError;
+  @Column(name = "dead_lettered_on")
+  @Convert(converter = LocalDateTimeConverter.class)
+  private LocalDateTime deadLetteredOn;
+
+  public EventDeadLetterEntity() {
+    super();
+  }
+
+  public Long getId() {
+    return this.id;
+  }
+
+  public void setId(final Long id) {
+    this.id = id;
+  }
+
+  public Long getOutboxId() {
+    return this.outboxId;
+  }
+
+  public void setOutboxId(final Long outboxId) {
+    this.outboxId = outboxId;
+  }
+
+  public String getSelectorName() {
+    return this.selectorName;
+  }
+
+  public void setSelectorName(final String selectorName) {
+    this.selectorName = selectorName;
+  }
+
+  public String getSelectorValue() {
+    return this.selectorValue;
+  }
+
+  public void setSelectorValue(final String selectorValue) {
+    this.selectorValue = selectorValue;
+  }
+
+  public String getPayload() {
+    return this.payload;
+  }
+
+  public void setPayload(final String payload) {
+    this.payload = payload;
+  }
+
+  public LocalDateTime getCreatedOn() {
+    return this.createdOn;
+  }
+
+  public void setCreatedOn(final LocalDateTime createdOn) {
+    this.createdOn = createdOn;
+  }
+
+  public Integer getAttempts() {
+    return this.attempts;
+  }
+
+  public void setAttempts(final Integer attempts) {
+    this.attempts = attempts;
+  }
+
+  public String getLastError() {
+    return this.lastError;
+  }
+
+  public void setLastError(final String lastError) {
+    this.lastError = lastError;
+  }
+
+  public LocalDateTime getDeadLetteredOn() {
+    return this.deadLetteredOn;
+  }
+
+  public void setDeadLetteredOn(final LocalDateTime deadLetteredOn) {
+    this.deadLetteredOn = deadLetteredOn;
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.repository;
+
+import io.mifos.core.mariadb.util.LocalDateTimeConverter;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "maat_event_outbox")
+public class EventOutboxEntity {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @Column(name = "id")
+  private Long id;
+  @Column(name = "selector_name")
+  private String selectorName;
+  @Column(name = "selector_value")
+  private String selectorValue;
+  @Column(name = "payload")
+  private String payload;
+  @Column(name = "created_on")
+  @Convert(converter = LocalDateTimeConverter.class)
+  private LocalDateTime createdOn;
+  @Column(name = "attempts")
+  private Integer attempts = 0;
+  @Column(name = "next_attempt_on")
+  @Convert(converter = LocalDateTimeConverter.class)
+  private LocalDateTime nextAttemptOn;
+  @Column(name = "ordering_key")
+  private String orderingKey;
+
+  public EventOutboxEntity() {
+    super();
+  }
+
+  public Long getId() {
+    return this.id;
+  }
+
+  public void setId(final Long id) {
+    this.id = id;
+  }
+
+  public String getSelectorName() {
+    return this.selectorName;
+  }
+
+  public void setSelectorName(final String selectorName) {
+    this.selectorName = selectorName;
+  }
+
+  public String getSelectorValue() {
+    return this.selectorValue;
+  }
+
+  public void setSelectorValue(final String selectorValue) {
+    this.selectorValue = selectorValue;
+  }
+
+  public String getPayload() {
+    return this.payload;
+  }
+
+  public void setPayload(final String payload) {
+    this.payload = payload;
+  }
+
+  public LocalDateTime getCreatedOn() {
+    return this.createdOn;
+  }
+
+  public void setCreatedOn(final LocalDateTime createdOn) {
+    this.createdOn = createdOn;
+  }
+
+  public Integer getAttempts() {
+    return this.attempts;
+  }
+
+  public void setAttempts(final Integer attempts) {
+    this.attempts = attempts;
+  }
+
+  public LocalDateTime getNextAttemptOn() {
+    return this.nextAttemptOn;
+  }
+
+  public void setNextAttemptOn(final LocalDateTime nextAttemptOn) {
+    this.nextAttemptOn = nextAttemptOn;
+  }
+
+  public String getOrderingKey() {
+    return this.orderingKey;
+  }
+
+  public void setOrderingKey(final String orderingKey) {
+    this.orderingKey = orderingKey;
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EventOutboxRepository extends JpaRepository<EventOutboxEntity, Long> {
+
+  /**
+   * Returns the entries due for publishing, skipping entries whose last attempt failed or which
+   * are claimed by a relay until their next attempt is due.  An entry is not due either while an
+   * earlier entry with the same ordering key is waiting, so the events of a customer never
+   * overtake each other.
+   *
+   * Locks the returned entries until the end of the transaction, which is only meant to claim
+   * them, so relays running in other instances skip them instead of publishing them a second time.
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT e FROM EventOutboxEntity e " +
+      "WHERE (e.nextAttemptOn IS NULL OR e.nextAttemptOn <= :now) " +
+      "AND NOT EXISTS (SELECT p.id FROM EventOutboxEntity p " +
+      "WHERE p.orderingKey = e.orderingKey AND p.id < e.id AND p.nextAttemptOn > :now) " +
+      "ORDER BY e.id ASC")
+  List<EventOutboxEntity> findDue(@Param("now") final LocalDateTime now, final Pageable pageable);
+}
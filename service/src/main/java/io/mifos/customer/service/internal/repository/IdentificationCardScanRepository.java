@@ -15,11 +15,15 @@
  */
 package io.mifos.customer.service.internal.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -32,4 +36,21 @@ public interface IdentificationCardScanRepository extends JpaRepository<Identifi
   Optional<IdentificationCardScanEntity> findByIdentifierAndIdentificationCard(final String identifier, final IdentificationCardEntity identificationCardEntity);
 
   List<IdentificationCardScanEntity> findByIdentificationCard(final IdentificationCardEntity identificationCardEntity);
+
+  List<IdentificationCardScanEntity> findByBlobIdIsNullAndArchiveIdIsNullAndImageIsNotNullOrderByIdAsc(final Pageable pageable);
+
+  @Query("SELECT s FROM IdentificationCardScanEntity s JOIN s.identificationCard i JOIN i.customer c " +
+      "WHERE s.archiveId IS NULL AND c.currentState = :state AND c.closedOn < :before ORDER BY s.id")
+  List<IdentificationCardScanEntity> findUnarchivedByCustomerStateClosedBefore(@Param("state") final String state,
+                                                                               @Param("before") final LocalDateTime before,
+                                                                               final Pageable pageable);
+
+  @Query("SELECT COUNT(s) FROM IdentificationCardScanEntity s JOIN s.identificationCard i JOIN i.customer c " +
+      "WHERE s.archiveId IS NULL AND c.currentState = :state AND c.closedOn < :before")
+  Long countUnarchivedByCustomerStateClosedBefore(@Param("state") final String state,
+                                                  @Param("before") final LocalDateTime before);
+
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT s FROM IdentificationCardScanEntity s WHERE s.identificationCard.customer = :customer AND s.archiveId IS NOT NULL")
+  List<IdentificationCardScanEntity> findArchivedByCustomer(@Param("customer") final CustomerEntity customerEntity);
 }
@@ -15,11 +15,18 @@
  */
 package io.mifos.customer.service.internal.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface PortraitRepository extends JpaRepository<PortraitEntity, Long> {
 
@@ -28,5 +35,25 @@ public interface PortraitRepository extends JpaRepository<PortraitEntity, Long>
 
   PortraitEntity findByCustomer(final CustomerEntity customerEntity);
 
+  @Query("SELECT COALESCE(p.size, 0) FROM PortraitEntity p WHERE p.customer.identifier = :identifier")
+  Optional<Long> findSizeByCustomerIdentifier(@Param("identifier") final String customerIdentifier);
+
   void deleteByCustomer(final CustomerEntity customerEntity);
+
+  List<PortraitEntity> findByBlobIdIsNullAndArchiveIdIsNullAndImageIsNotNullOrderByIdAsc(final Pageable pageable);
+
+  @Query("SELECT p FROM PortraitEntity p JOIN p.customer c " +
+      "WHERE p.archiveId IS NULL AND c.currentState = :state AND c.closedOn < :before ORDER BY p.id")
+  List<PortraitEntity> findUnarchivedByCustomerStateClosedBefore(@Param("state") final String state,
+                                                                 @Param("before") final LocalDateTime before,
+                                                                 final Pageable pageable);
+
+  @Query("SELECT COUNT(p) FROM PortraitEntity p JOIN p.customer c " +
+      "WHERE p.archiveId IS NULL AND c.currentState = :state AND c.closedOn < :before")
+  Long countUnarchivedByCustomerStateClosedBefore(@Param("state") final String state,
+                                                  @Param("before") final LocalDateTime before);
+
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT p FROM PortraitEntity p WHERE p.customer = :customer AND p.archiveId IS NOT NULL")
+  List<PortraitEntity> findArchivedByCustomer(@Param("customer") final CustomerEntity customerEntity);
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.repository;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.Lob;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+
+@Entity
+@Table(name = "maat_renditions")
+public class RenditionEntity {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @Column(name = "id")
+  private Long id;
+  @ManyToOne(fetch = FetchType.LAZY, optional = true)
+  @JoinColumn(name = "portrait_id")
+  private PortraitEntity portrait;
+  @ManyToOne(fetch = FetchType.LAZY, optional = true)
+  @JoinColumn(name = "scan_id")
+  private IdentificationCardScanEntity scan;
+  @Column(name = "a_size")
+  private Integer size;
+  @Column(name = "content_type")
+  private String contentType;
+  @Lob
+  @Column(name = "image")
+  private byte[] image;
+
+  public RenditionEntity() {
+    super();
+  }
+
+  public Long getId() {
+    return this.id;
+  }
+
+  public void setId(final Long id) {
+    this.id = id;
+  }
+
+  public PortraitEntity getPortrait() {
+    return this.portrait;
+  }
+
+  public void setPortrait(final PortraitEntity portrait) {
+    this.portrait = portrait;
+  }
+
+  public IdentificationCardScanEntity getScan() {
+    return this.scan;
+  }
+
+  public void setScan(final IdentificationCardScanEntity scan) {
+    this.scan = scan;
+  }
+
+  public Integer getSize() {
+    return this.size;
+  }
+
+  public void setSize(final Integer size) {
+    this.size = size;
+  }
+
+  public String getContentType() {
+    return this.contentType;
+  }
+
+  public void setContentType(final String contentType) {
+    this.contentType = contentType;
+  }
+
+  public byte[] getImage() {
+    return this.image;
+  }
+
+  public void setImage(final byte[] image) {
+    this.image = image;
+  }
+}
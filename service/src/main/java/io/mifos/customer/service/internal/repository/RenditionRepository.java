@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Optional;
+
+@Repository
+public interface RenditionRepository extends JpaRepository<RenditionEntity, Long> {
+
+  @Query("SELECT r FROM RenditionEntity r WHERE r.portrait.customer.identifier = :identifier AND r.size = :size")
+  Optional<RenditionEntity> findPortraitRendition(@Param("identifier") final String customerIdentifier,
+                                                  @Param("size") final Integer size);
+
+  @Modifying
+  @Query("DELETE FROM RenditionEntity r WHERE r.portrait.id IN :portraitIds")
+  int deleteByPortraitIdIn(@Param("portraitIds") final Collection<Long> portraitIds);
+
+  @Modifying
+  @Query("DELETE FROM RenditionEntity r WHERE r.scan.id IN :scanIds")
+  int deleteByScanIdIn(@Param("scanIds") final Collection<Long> scanIds);
+
+  @Query("SELECT r FROM RenditionEntity r " +
+      "WHERE r.scan.identificationCard.number = :number AND r.scan.identifier = :scanIdentifier AND r.size = :size")
+  Optional<RenditionEntity> findScanRendition(@Param("number") final String number,
+                                              @Param("scanIdentifier") final String scanIdentifier,
+                                              @Param("size") final Integer size);
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.repository;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * The number and size of the portraits, scans and document pages stored for a customer, kept
+ * up to date as they are created and deleted.  Sizes are those uploaded, before content shared
+ * between rows is deduplicated.
+ */
+@Entity
+@Table(name = "maat_storage_usage")
+public class StorageUsageEntity {
+
+  @Id
+  @Column(name = "customer_id")
+  private Long customerId;
+
+  @Column(name = "object_count")
+  private Long objectCount;
+
+  @Column(name = "byte_count")
+  private Long byteCount;
+
+  public StorageUsageEntity() {
+    super();
+  }
+
+  public Long getCustomerId() {
+    return this.customerId;
+  }
+
+  public void setCustomerId(final Long customerId) {
+    this.customerId = customerId;
+  }
+
+  public Long getObjectCount() {
+    return this.objectCount;
+  }
+
+  public void setObjectCount(final Long objectCount) {
+    this.objectCount = objectCount;
+  }
+
+  public Long getByteCount() {
+    return this.byteCount;
+  }
+
+  public void setByteCount(final Long byteCount) {
+    this.byteCount = byteCount;
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StorageUsageRepository extends JpaRepository<StorageUsageEntity, Long> {
+
+  /**
+   * Adds to the usage of the customer, negative values subtract.  Locks the customer's row until
+   * the transaction ends, so concurrent changes are applied one after the other.
+   */
+  @Modifying
+  @Query(value = "INSERT INTO maat_storage_usage (customer_id, object_count, byte_count) " +
+      "VALUES (:customerId, :objects, :bytes) " +
+      "ON DUPLICATE KEY UPDATE object_count = object_count + VALUES(object_count), byte_count = byte_count + VALUES(byte_count)",
+      nativeQuery = true)
+  int add(@Param("customerId") final Long customerId, @Param("objects") final long objects,
+          @Param("bytes") final long bytes);
+
+  /**
+   * Reads the object and byte count of the customer from the table, also when its entity was
+   * loaded before, so the usage is current after {@link #add(Long, long, long)} locked the row.
+   */
+  @Query("SELECT s.objectCount, s.byteCount FROM StorageUsageEntity s WHERE s.customerId = :customerId")
+  List<Object[]> findCountsByCustomerId(@Param("customerId") final Long customerId);
+
+  @Query("SELECT s FROM StorageUsageEntity s, CustomerEntity c WHERE c.id = s.customerId AND c.identifier = :identifier")
+  Optional<StorageUsageEntity> findByCustomerIdentifier(@Param("identifier") final String customerIdentifier);
+}
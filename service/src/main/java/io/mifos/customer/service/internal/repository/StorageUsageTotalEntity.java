@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.repository;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * One stripe of the tenant's storage usage.  Each customer's usage is added to the stripe of its
+ * id, so writes for different customers rarely wait for each other, and the stripes are summed
+ * to get the tenant's total.
+ */
+@Entity
+@Table(name = "maat_storage_usage_totals")
+public class StorageUsageTotalEntity {
+
+  @Id
+  @Column(name = "stripe")
+  private Integer stripe;
+
+  @Column(name = "object_count")
+  private Long objectCount;
+
+  @Column(name = "byte_count")
+  private Long byteCount;
+
+  public StorageUsageTotalEntity() {
+    super();
+  }
+
+  public Integer getStripe() {
+    return this.stripe;
+  }
+
+  public void setStripe(final Integer stripe) {
+    this.stripe = stripe;
+  }
+
+  public Long getObjectCount() {
+    return this.objectCount;
+  }
+
+  public void setObjectCount(final Long objectCount) {
+    this.objectCount = objectCount;
+  }
+
+  public Long getByteCount() {
+    return this.byteCount;
+  }
+
+  public void setByteCount(final Long byteCount) {
+    this.byteCount = byteCount;
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface StorageUsageTotalRepository extends JpaRepository<StorageUsageTotalEntity, Integer> {
+
+  /**
+   * The number of stripes the tenant's total is spread over, the stripe of a customer is its id
+   * modulo this number.
+   */
+  int STRIPES = 16;
+
+  /**
+   * Adds to the stripe, negative values subtract.  Locks only the stripe's row until the
+   * transaction ends.
+   */
+  @Modifying
+  @Query(value = "INSERT INTO maat_storage_usage_totals (stripe, object_count, byte_count) " +
+      "VALUES (:stripe, :objects, :bytes) " +
+      "ON DUPLICATE KEY UPDATE object_count = object_count + VALUES(object_count), byte_count = byte_count + VALUES(byte_count)",
+      nativeQuery = true)
+  int add(@Param("stripe") final int stripe, @Param("objects") final long objects, @Param("bytes") final long bytes);
+
+  @Query(value = "SELECT COALESCE(SUM(byte_count), 0) FROM maat_storage_usage_totals", nativeQuery = true)
+  Number sumByteCount();
+
+  /**
+   * Like {@link #sumByteCount()}, but waits for the changes other transactions made to any stripe,
+   * and keeps all stripes locked until the transaction ends.
+   */
+  @Query(value = "SELECT COALESCE(SUM(byte_count), 0) FROM maat_storage_usage_totals FOR UPDATE", nativeQuery = true)
+  Number lockAndSumByteCount();
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.repository;
+
+/**
+ * The MariaDB database a tenant was provisioned with.
+ */
+public class TenantDatabase {
+
+  private final String host;
+  private final String port;
+  private final String databaseName;
+  private final String user;
+  private final String password;
+
+  public TenantDatabase(final String host, final String port, final String databaseName, final String user,
+                        final String password) {
+    super();
+    this.host = host;
+    this.port = port;
+    this.databaseName = databaseName;
+    this.user = user;
+    this.password = password;
+  }
+
+  public String getHost() {
+    return this.host;
+  }
+
+  public String getPort() {
+    return this.port;
+  }
+
+  public String getDatabaseName() {
+    return this.databaseName;
+  }
+
+  public String getUser() {
+    return this.user;
+  }
+
+  public String getPassword() {
+    return this.password;
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.repository;
+
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Statement;
+import io.mifos.core.cassandra.core.CassandraSessionProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.select;
+
+/**
+ * Reads the tenants which have been provisioned from the admin keyspace, so background jobs can
+ * visit every tenant, not only the ones written to since start up, and the replica of a tenant's
+ * database can be reached the way its primary database is.
+ */
+@Repository
+public class TenantRepository {
+
+  static final String TABLE_NAME = "tenants";
+
+  // the columns the provisioner stores a tenant's MariaDB settings in
+  private static final String HOST_COLUMN = "host";
+  private static final String PORT_COLUMN = "port";
+  private static final String DATABASE_NAME_COLUMN = "database_name";
+  private static final String USER_COLUMN = "a_user";
+  private static final String PASSWORD_COLUMN = "pwd";
+
+  private final CassandraSessionProvider cassandraSessionProvider;
+
+  @Autowired
+  public TenantRepository(final CassandraSessionProvider cassandraSessionProvider) {
+    super();
+    this.cassandraSessionProvider = cassandraSessionProvider;
+  }
+
+  public Set<String> findAllIdentifiers() {
+    final Statement query = select("identifier").from(TABLE_NAME);
+
+    final Set<String> identifiers = new HashSet<>();
+    for (final Row row : this.cassandraSessionProvider.getAdminSession().execute(query)) {
+      identifiers.add(row.getString("identifier"));
+    }
+    return identifiers;
+  }
+
+  public Optional<TenantDatabase> findDatabase(final String tenantIdentifier) {
+    final Statement query = select(HOST_COLUMN, PORT_COLUMN, DATABASE_NAME_COLUMN, USER_COLUMN, PASSWORD_COLUMN)
+        .from(TABLE_NAME)
+        .where(eq("identifier", tenantIdentifier));
+
+    final Row row = this.cassandraSessionProvider.getAdminSession().execute(query).one();
+    if (row == null) {
+      return Optional.empty();
+    }
+    return Optional.of(new TenantDatabase(row.getString(HOST_COLUMN), String.valueOf(row.getObject(PORT_COLUMN)),
+        row.getString(DATABASE_NAME_COLUMN), row.getString(USER_COLUMN), row.getString(PASSWORD_COLUMN)));
+  }
+}
@@ -20,6 +20,9 @@ import io.mifos.customer.catalog.api.v1.domain.Value;
 import io.mifos.customer.catalog.service.internal.repository.FieldEntity;
 import io.mifos.customer.catalog.service.internal.repository.FieldValueEntity;
 import io.mifos.customer.catalog.service.internal.repository.FieldValueRepository;
+import io.mifos.customer.service.internal.archive.ImageArchive;
+import io.mifos.customer.service.internal.image.RenditionGenerator;
+import io.mifos.customer.service.internal.jdbc.ReplicaRead;
 import io.mifos.customer.service.internal.mapper.*;
 import io.mifos.customer.service.internal.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,25 +30,57 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import javax.persistence.Tuple;
+import java.time.Clock;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 @Service
 public class CustomerService {
 
+  public static final String CONTACT_DETAILS = "contactDetails";
+  public static final String CUSTOM_VALUES = "customValues";
+
+  public static final Set<String> FIELDS;
+
+  static {
+    final Set<String> fields = new HashSet<>(CustomerProjectionRepository.ATTRIBUTES);
+    fields.add(CONTACT_DETAILS);
+    fields.add(CUSTOM_VALUES);
+    FIELDS = Collections.unmodifiableSet(fields);
+  }
+
+  private static final Set<String> LIFECYCLE_ACTIONS = Stream.of(Command.Action.values())
+      .map(Command.Action::name)
+      .collect(Collectors.toSet());
+
   private final CustomerRepository customerRepository;
   private final IdentificationCardRepository identificationCardRepository;
   private final IdentificationCardScanRepository identificationCardScanRepository;
   private final PortraitRepository portraitRepository;
   private final ContactDetailRepository contactDetailRepository;
   private final FieldValueRepository fieldValueRepository;
-  private final CommandRepository commandRepository;
   private final TaskDefinitionRepository taskDefinitionRepository;
   private final TaskInstanceRepository taskInstanceRepository;
+  private final CommandLogRepository commandLogRepository;
+  private final CustomerSnapshotRepository customerSnapshotRepository;
+  private final CustomerProjectionRepository customerProjectionRepository;
+  private final RenditionRepository renditionRepository;
+  private final RenditionGenerator renditionGenerator;
+  private final ImageArchive imageArchive;
 
   @Autowired
   public CustomerService(final CustomerRepository customerRepository,
@@ -54,9 +89,14 @@ public class CustomerService {
                          final PortraitRepository portraitRepository,
                          final ContactDetailRepository contactDetailRepository,
                          final FieldValueRepository fieldValueRepository,
-                         final CommandRepository commandRepository,
                          final TaskDefinitionRepository taskDefinitionRepository,
-                         final TaskInstanceRepository taskInstanceRepository) {
+                         final TaskInstanceRepository taskInstanceRepository,
+                         final CommandLogRepository commandLogRepository,
+                         final CustomerSnapshotRepository customerSnapshotRepository,
+                         final CustomerProjectionRepository customerProjectionRepository,
+                         final RenditionRepository renditionRepository,
+                         final RenditionGenerator renditionGenerator,
+                         final ImageArchive imageArchive) {
     super();
     this.customerRepository = customerRepository;
     this.identificationCardRepository = identificationCardRepository;
@@ -64,9 +104,14 @@ public class CustomerService {
     this.portraitRepository = portraitRepository;
     this.contactDetailRepository = contactDetailRepository;
     this.fieldValueRepository = fieldValueRepository;
-    this.commandRepository = commandRepository;
     this.taskDefinitionRepository = taskDefinitionRepository;
     this.taskInstanceRepository = taskInstanceRepository;
+    this.commandLogRepository = commandLogRepository;
+    this.customerSnapshotRepository = customerSnapshotRepository;
+    this.customerProjectionRepository = customerProjectionRepository;
+    this.renditionRepository = renditionRepository;
+    this.renditionGenerator = renditionGenerator;
+    this.imageArchive = imageArchive;
   }
 
   public Boolean customerExists(final String identifier) {
@@ -83,42 +128,114 @@ public class CustomerService {
             .orElse(false);
   }
 
+  @ReplicaRead
   public Optional<Customer> findCustomer(final String identifier) {
     return customerRepository.findByIdentifier(identifier)
-        .map(customerEntity -> {
-          final Customer customer = CustomerMapper.map(customerEntity);
-          customer.setAddress(AddressMapper.map(customerEntity.getAddress()));
-
-          final List<ContactDetailEntity> contactDetailEntities = this.contactDetailRepository.findByCustomer(customerEntity);
-          if (contactDetailEntities != null) {
-            customer.setContactDetails(
-                contactDetailEntities
-                    .stream()
-                    .map(ContactDetailMapper::map)
-                    .collect(Collectors.toList())
-            );
-          }
+        .map(customerEntity -> this.assemble(customerEntity,
+            this.contactDetailRepository.findByCustomer(customerEntity),
+            this.fieldValueRepository.findByCustomer(customerEntity)));
+  }
 
-          final List<FieldValueEntity> fieldValueEntities = this.fieldValueRepository.findByCustomer(customerEntity);
-          if (fieldValueEntities != null) {
-            customer.setCustomValues(
-                fieldValueEntities
-                    .stream()
-                    .map(fieldValueEntity -> {
-                      final Value value = new Value();
-                      value.setValue(fieldValueEntity.getValue());
-                      final FieldEntity fieldEntity = fieldValueEntity.getField();
-                      value.setCatalogIdentifier(fieldEntity.getCatalog().getIdentifier());
-                      value.setFieldIdentifier(fieldEntity.getIdentifier());
-                      return value;
-                    }).collect(Collectors.toList())
-            );
-          }
+  /**
+   * Looks up all given customers with one query per child collection instead of one lookup per
+   * customer.  Customers are returned in the order requested, unknown identifiers are skipped.
+   */
+  @ReplicaRead
+  public List<Customer> findCustomers(final Collection<String> identifiers) {
+    if (identifiers.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    final List<CustomerEntity> customerEntities = this.customerRepository.findByIdentifierIn(identifiers);
+    if (customerEntities.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    final Map<Long, List<ContactDetailEntity>> contactDetailsByCustomer =
+        this.contactDetailRepository.findByCustomerIn(customerEntities)
+            .stream()
+            .collect(Collectors.groupingBy(contactDetailEntity -> contactDetailEntity.getCustomer().getId()));
+    final Map<Long, List<FieldValueEntity>> fieldValuesByCustomer =
+        this.fieldValueRepository.findByCustomerIn(customerEntities)
+            .stream()
+            .collect(Collectors.groupingBy(fieldValueEntity -> fieldValueEntity.getCustomer().getId()));
+
+    final Map<String, Customer> customersByIdentifier = customerEntities
+        .stream()
+        .collect(Collectors.toMap(CustomerEntity::getIdentifier, customerEntity -> this.assemble(customerEntity,
+            contactDetailsByCustomer.getOrDefault(customerEntity.getId(), Collections.emptyList()),
+            fieldValuesByCustomer.getOrDefault(customerEntity.getId(), Collections.emptyList()))));
+
+    return identifiers
+        .stream()
+        .map(customersByIdentifier::get)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList());
+  }
+
+  private Customer assemble(final CustomerEntity customerEntity,
+                            final List<ContactDetailEntity> contactDetailEntities,
+                            final List<FieldValueEntity> fieldValueEntities) {
+    final Customer customer = CustomerMapper.map(customerEntity);
+    customer.setAddress(AddressMapper.map(customerEntity.getAddress()));
+
+    if (contactDetailEntities != null) {
+      customer.setContactDetails(
+          contactDetailEntities
+              .stream()
+              .map(ContactDetailMapper::map)
+              .collect(Collectors.toList())
+      );
+    }
+
+    if (fieldValueEntities != null) {
+      customer.setCustomValues(
+          fieldValueEntities
+              .stream()
+              .map(CustomerService::map)
+              .collect(Collectors.toList())
+      );
+    }
+
+    return customer;
+  }
+
+  private static Value map(final FieldValueEntity fieldValueEntity) {
+    final Value value = new Value();
+    value.setValue(fieldValueEntity.getValue());
+    final FieldEntity fieldEntity = fieldValueEntity.getField();
+    value.setCatalogIdentifier(fieldEntity.getCatalog().getIdentifier());
+    value.setFieldIdentifier(fieldEntity.getIdentifier());
+    return value;
+  }
 
+  /**
+   * Reads only the given {@link #FIELDS} of the customer, child collections are loaded only if
+   * requested.
+   */
+  @ReplicaRead
+  public Optional<Customer> findCustomer(final String identifier, final Set<String> fields) {
+    return this.customerProjectionRepository.findByIdentifier(identifier, this.attributes(fields))
+        .map(CustomerMapper::map)
+        .map(customer -> {
+          this.loadChildren(Collections.singletonList(customer), fields);
           return customer;
         });
   }
 
+  /**
+   * Rebuilds the customer as it was at the given point in time from the nearest snapshot written
+   * at or before it.  Empty if the customer did not exist then, or no history was recorded yet.
+   */
+  @ReplicaRead
+  public Optional<Customer> findCustomerAsOf(final String identifier, final LocalDateTime asOf) {
+    return customerRepository.findByIdentifier(identifier)
+        .flatMap(customerEntity ->
+            this.customerSnapshotRepository.findFirstByCustomerAndCreatedOnLessThanEqualOrderByVersionDesc(customerEntity, asOf))
+        .map(CustomerSnapshotMapper::map);
+  }
+
+  @ReplicaRead
   public CustomerPage fetchCustomer(final String term, final Boolean includeClosed, final Pageable pageable) {
     final Page<CustomerEntity> customerEntities;
     if (includeClosed) {
@@ -150,32 +267,134 @@ public class CustomerService {
     return customerPage;
   }
 
-  public final Stream<Command> fetchCommandsByCustomer(final String identifier) {
+  @ReplicaRead
+  public CustomerPage fetchCustomer(final String term, final Boolean includeClosed, final Pageable pageable,
+                                    final Set<String> fields) {
+    final Page<Tuple> tuples =
+        this.customerProjectionRepository.fetch(term, includeClosed, this.attributes(fields), pageable);
+
+    final CustomerPage customerPage = new CustomerPage();
+    customerPage.setTotalPages(tuples.getTotalPages());
+    customerPage.setTotalElements(tuples.getTotalElements());
+    if (tuples.getSize() > 0) {
+      final List<Customer> customers = tuples.getContent()
+          .stream()
+          .map(CustomerMapper::map)
+          .collect(Collectors.toList());
+      this.loadChildren(customers, fields);
+      customerPage.setCustomers(customers);
+    }
+
+    return customerPage;
+  }
+
+  private Set<String> attributes(final Set<String> fields) {
+    final Set<String> attributes = new LinkedHashSet<>();
+    attributes.add("identifier");
+    fields.stream()
+        .filter(CustomerProjectionRepository.ATTRIBUTES::contains)
+        .forEach(attributes::add);
+    return attributes;
+  }
+
+  private void loadChildren(final List<Customer> customers, final Set<String> fields) {
+    if (customers.isEmpty()) {
+      return;
+    }
+
+    final Map<String, Customer> customersByIdentifier = customers
+        .stream()
+        .collect(Collectors.toMap(Customer::getIdentifier, Function.identity()));
+
+    if (fields.contains(CONTACT_DETAILS)) {
+      customers.forEach(customer -> customer.setContactDetails(new ArrayList<>()));
+      this.contactDetailRepository.findByCustomerIdentifierIn(customersByIdentifier.keySet())
+          .forEach(contactDetailEntity -> customersByIdentifier.get(contactDetailEntity.getCustomer().getIdentifier())
+              .getContactDetails().add(ContactDetailMapper.map(contactDetailEntity)));
+    }
+
+    if (fields.contains(CUSTOM_VALUES)) {
+      customers.forEach(customer -> customer.setCustomValues(new ArrayList<>()));
+      this.fieldValueRepository.findByCustomerIdentifierIn(customersByIdentifier.keySet())
+          .forEach(fieldValueEntity -> customersByIdentifier.get(fieldValueEntity.getCustomer().getIdentifier())
+              .getCustomValues().add(CustomerService.map(fieldValueEntity)));
+    }
+  }
+
+  /**
+   * Reads the lifecycle commands of the customer from the command log, oldest first.
+   */
+  @ReplicaRead
+  public Stream<Command> fetchCommandsByCustomer(final String identifier) {
     return customerRepository.findByIdentifier(identifier)
-        .map(commandRepository::findByCustomer)
+        .map(customerEntity -> this.commandLogRepository.fetchAll(identifier, customerEntity.getCreatedOn(),
+            LocalDateTime.now(Clock.systemUTC())).stream())
         .orElse(Stream.empty())
+        .filter(commandLogEntity -> LIFECYCLE_ACTIONS.contains(commandLogEntity.getAction()))
         .map(CommandMapper::map);
   }
 
-  public final Optional<PortraitEntity> findPortrait(final String identifier) {
+  @ReplicaRead
+  public Optional<AuditEntryPage> fetchAuditByCustomer(final String identifier,
+                                                       final LocalDateTime from,
+                                                       final LocalDateTime to,
+                                                       final UUID before,
+                                                       final int size) {
+    return customerRepository.findByIdentifier(identifier)
+        .map(customerEntity -> {
+          final LocalDateTime fromToUse = from != null ? from : customerEntity.getCreatedOn();
+          final LocalDateTime toToUse = to != null ? to : LocalDateTime.now(Clock.systemUTC());
+
+          final List<CommandLogEntity> commandLogEntities =
+              this.commandLogRepository.fetch(identifier, fromToUse, toToUse, before, size);
+
+          final AuditEntryPage auditEntryPage = new AuditEntryPage();
+          auditEntryPage.setEntries(commandLogEntities.stream().map(AuditEntryMapper::map).collect(Collectors.toList()));
+          if (commandLogEntities.size() == size) {
+            auditEntryPage.setNextCursor(commandLogEntities.get(size - 1).getEntryId().toString());
+          }
+          return auditEntryPage;
+        });
+  }
+
+  @ReplicaRead
+  public Optional<PortraitEntity> findPortrait(final String identifier) {
     return customerRepository.findByIdentifier(identifier)
-        .map(portraitRepository::findByCustomer);
+        .map(portraitRepository::findByCustomer)
+        .map(this.imageArchive::load);
   }
 
-  public final Stream<IdentificationCard> fetchIdentificationCardsByCustomer(final String identifier) {
+  /**
+   * Renditions are generated on upload.  Portraits uploaded before are scaled on each request,
+   * the result is not stored.
+   */
+  @ReplicaRead
+  public Optional<RenditionEntity> findPortraitRendition(final String identifier, final Integer size) {
+    final Optional<RenditionEntity> renditionEntity = this.renditionRepository.findPortraitRendition(identifier, size);
+    if (renditionEntity.isPresent()) {
+      return renditionEntity;
+    }
+    return this.findPortrait(identifier)
+        .flatMap(portraitEntity -> this.render(portraitEntity.getImage(), size));
+  }
+
+  @ReplicaRead
+  public Stream<IdentificationCard> fetchIdentificationCardsByCustomer(final String identifier) {
     return customerRepository.findByIdentifier(identifier)
         .map(identificationCardRepository::findByCustomer)
         .orElse(Stream.empty())
         .map(IdentificationCardMapper::map);
   }
 
+  @ReplicaRead
   public Optional<IdentificationCard> findIdentificationCard(final String number) {
     final Optional<IdentificationCardEntity> identificationCardEntity = this.identificationCardRepository.findByNumber(number);
 
     return identificationCardEntity.map(IdentificationCardMapper::map);
   }
 
-  public final List<IdentificationCardScan> fetchScansByIdentificationCard(final String number) {
+  @ReplicaRead
+  public List<IdentificationCardScan> fetchScansByIdentificationCard(final String number) {
     final Optional<IdentificationCardEntity> identificationCard = this.identificationCardRepository.findByNumber(number);
 
     return identificationCard.map(this.identificationCardScanRepository::findByIdentificationCard)
@@ -188,12 +407,40 @@ public class CustomerService {
     return cardEntity.flatMap(card -> this.identificationCardScanRepository.findByIdentifierAndIdentificationCard(identifier, card));
   }
 
+  @ReplicaRead
   public Optional<IdentificationCardScan> findIdentificationCardScan(final String number, final String identifier) {
     return this.findIdentificationCardEntity(number, identifier).map(IdentificationCardScanMapper::map);
   }
 
+  @ReplicaRead
   public Optional<byte[]> findIdentificationCardScanImage(final String number, final String identifier) {
-    return this.findIdentificationCardEntity(number, identifier).map(IdentificationCardScanEntity::getImage);
+    return this.findIdentificationCardEntity(number, identifier)
+        .map(this.imageArchive::load)
+        .map(IdentificationCardScanEntity::getImage);
+  }
+
+  @ReplicaRead
+  public Optional<RenditionEntity> findIdentificationCardScanRendition(final String number,
+                                                                       final String identifier,
+                                                                       final Integer size) {
+    final Optional<RenditionEntity> renditionEntity =
+        this.renditionRepository.findScanRendition(number, identifier, size);
+    if (renditionEntity.isPresent()) {
+      return renditionEntity;
+    }
+    return this.findIdentificationCardScanImage(number, identifier)
+        .flatMap(image -> this.render(image, size));
+  }
+
+  private Optional<RenditionEntity> render(final byte[] image, final Integer size) {
+    return this.renditionGenerator.render(image, size)
+        .map(renderedImage -> {
+          final RenditionEntity renditionEntity = new RenditionEntity();
+          renditionEntity.setSize(size);
+          renditionEntity.setContentType(RenditionGenerator.CONTENT_TYPE);
+          renditionEntity.setImage(renderedImage);
+          return renditionEntity;
+        });
   }
 
   public List<ProcessStep> getProcessSteps(final String customerIdentifier) {
@@ -16,18 +16,28 @@
 package io.mifos.customer.service.internal.service;
 
 import io.mifos.customer.api.v1.domain.CustomerDocument;
+import io.mifos.customer.service.internal.archive.ImageArchive;
+import io.mifos.customer.service.internal.jdbc.ReplicaRead;
 import io.mifos.customer.service.internal.mapper.DocumentMapper;
+import io.mifos.customer.service.internal.repository.DocumentCompletion;
 import io.mifos.customer.service.internal.repository.DocumentEntity;
+import io.mifos.customer.service.internal.repository.DocumentPageContent;
 import io.mifos.customer.service.internal.repository.DocumentPageEntity;
 import io.mifos.customer.service.internal.repository.DocumentPageRepository;
 import io.mifos.customer.service.internal.repository.DocumentRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
 import java.util.Optional;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 /**
  * @author Myrle Krantz
@@ -36,15 +46,19 @@ import java.util.stream.Stream;
 public class DocumentService {
   private final DocumentRepository documentRepository;
   private final DocumentPageRepository documentPageRepository;
+  private final ImageArchive imageArchive;
 
   @Autowired
   public DocumentService(
       final DocumentRepository documentRepository,
-      final DocumentPageRepository documentPageRepository) {
+      final DocumentPageRepository documentPageRepository,
+      final ImageArchive imageArchive) {
     this.documentRepository = documentRepository;
     this.documentPageRepository = documentPageRepository;
+    this.imageArchive = imageArchive;
   }
 
+  @ReplicaRead
   public Optional<DocumentPageEntity> findPage(
       final String customerIdentifier,
       final String documentIdentifier,
@@ -52,14 +66,17 @@ public class DocumentService {
     return this.documentPageRepository.findByCustomerIdAndDocumentIdentifierAndPageNumber(
         customerIdentifier,
         documentIdentifier,
-        pageNumber);
+        pageNumber)
+        .map(this.imageArchive::load);
   }
 
+  @ReplicaRead
   public Stream<CustomerDocument> find(final String customerIdentifier) {
     final Stream<DocumentEntity> preMappedRet = this.documentRepository.findByCustomerId(customerIdentifier);
     return preMappedRet.map(DocumentMapper::map);
   }
 
+  @ReplicaRead
   public Optional<CustomerDocument> findDocument(
       final String customerIdentifier,
       final String documentIdentifier) {
@@ -73,6 +90,7 @@ public class DocumentService {
     return findDocument(customerIdentifier, documentIdentifier).isPresent();
   }
 
+  @ReplicaRead
   public Stream<Integer> findPageNumbers(
       final String customerIdentifier,
       final String documentIdentifier) {
@@ -80,6 +98,40 @@ public class DocumentService {
         .map(DocumentPageEntity::getPageNumber);
   }
 
+  /**
+   * Writes all pages of the document to the given stream as a ZIP archive, one entry per page,
+   * reading them from a cursor so that neither the result nor the archive is buffered.  Pages
+   * are stored uncompressed, the images are compressed already.  Archived pages are read from
+   * the image archive one at a time.
+   */
+  @Transactional(readOnly = true)
+  public void writeArchive(
+      final String customerIdentifier,
+      final String documentIdentifier,
+      final OutputStream outputStream) throws IOException {
+    final ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream);
+    zipOutputStream.setMethod(ZipOutputStream.STORED);
+    try (final Stream<DocumentPageContent> pages =
+             documentPageRepository.streamContentByCustomerIdAndDocumentIdentifier(customerIdentifier, documentIdentifier)) {
+      final Iterator<DocumentPageContent> iterator = pages.iterator();
+      while (iterator.hasNext()) {
+        final DocumentPageContent page = iterator.next();
+        final byte[] image = page.getArchiveId() != null ? this.imageArchive.read(page.getArchiveId()) : page.getImage();
+        final CRC32 crc = new CRC32();
+        crc.update(image);
+
+        final ZipEntry zipEntry = new ZipEntry(entryName(page));
+        zipEntry.setSize(image.length);
+        zipEntry.setCompressedSize(image.length);
+        zipEntry.setCrc(crc.getValue());
+        zipOutputStream.putNextEntry(zipEntry);
+        zipOutputStream.write(image);
+        zipOutputStream.closeEntry();
+      }
+    }
+    zipOutputStream.finish();
+  }
+
   public boolean isDocumentCompleted(
       final String customerIdentifier,
       final String documentIdentifier) {
@@ -87,17 +139,24 @@ public class DocumentService {
         .map(DocumentEntity::getCompleted).orElse(true);
   }
 
-  public boolean isDocumentMissingPages(
+  /**
+   * Read from the primary, as it decides whether the document may be completed.
+   */
+  public Optional<DocumentCompletion> findCompletion(
       final String customerIdentifier,
       final String documentIdentifier) {
-    final List<Integer> pageNumbers = findPageNumbers(customerIdentifier, documentIdentifier)
-        .sorted(Integer::compareTo)
-        .collect(Collectors.toList());
-    for (int i = 0; i < pageNumbers.size(); i++) {
-      if (i != pageNumbers.get(i))
-        return true;
-    }
+    return documentRepository.findCompletion(customerIdentifier, documentIdentifier);
+  }
 
-    return false;
+  private static String entryName(final DocumentPageContent page) {
+    final String extension;
+    if (page.getContentType().contains(MediaType.IMAGE_JPEG_VALUE)) {
+      extension = ".jpg";
+    } else if (page.getContentType().contains(MediaType.IMAGE_PNG_VALUE)) {
+      extension = ".png";
+    } else {
+      extension = "";
+    }
+    return String.format("page-%04d%s", page.getPageNumber(), extension);
   }
 }
\ No newline at end of file
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.service;
+
+import io.mifos.core.lang.ServiceError;
+import io.mifos.core.lang.ServiceException;
+import io.mifos.core.lang.TenantContextHolder;
+import io.mifos.customer.api.v1.domain.StorageUsage;
+import io.mifos.customer.service.internal.config.StorageQuotaProperties;
+import io.mifos.customer.service.internal.jdbc.ReplicaRead;
+import io.mifos.customer.service.internal.repository.CustomerEntity;
+import io.mifos.customer.service.internal.repository.PortraitRepository;
+import io.mifos.customer.service.internal.repository.StorageUsageEntity;
+import io.mifos.customer.service.internal.repository.StorageUsageRepository;
+import io.mifos.customer.service.internal.repository.StorageUsageTotalEntity;
+import io.mifos.customer.service.internal.repository.StorageUsageTotalRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.text.MessageFormat;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Reports and limits the storage taken by portraits, scans and document pages from the usage
+ * the command handlers keep per customer, without reading the images themselves.
+ *
+ * The tenant's total is spread over striped rows which are summed on read, so that image writes
+ * of different customers don't all wait for one row.
+ */
+@Service
+public class StorageService {
+
+  private static final int PAYLOAD_TOO_LARGE = 413;
+
+  private final StorageUsageRepository storageUsageRepository;
+  private final StorageUsageTotalRepository storageUsageTotalRepository;
+  private final StorageQuotaProperties storageQuotaProperties;
+  private final PortraitRepository portraitRepository;
+
+  @Autowired
+  public StorageService(final StorageUsageRepository storageUsageRepository,
+                        final StorageUsageTotalRepository storageUsageTotalRepository,
+                        final StorageQuotaProperties storageQuotaProperties,
+                        final PortraitRepository portraitRepository) {
+    super();
+    this.storageUsageRepository = storageUsageRepository;
+    this.storageUsageTotalRepository = storageUsageTotalRepository;
+    this.storageQuotaProperties = storageQuotaProperties;
+    this.portraitRepository = portraitRepository;
+  }
+
+  @ReplicaRead
+  public StorageUsage findTenantUsage() {
+    final List<StorageUsageTotalEntity> stripes = this.storageUsageTotalRepository.findAll();
+    return usage(stripes.stream().mapToLong(StorageUsageTotalEntity::getObjectCount).sum(),
+        stripes.stream().mapToLong(StorageUsageTotalEntity::getByteCount).sum(), 0L, this.tenantMaxBytes());
+  }
+
+  @ReplicaRead
+  public StorageUsage findCustomerUsage(final String customerIdentifier) {
+    final StorageUsageEntity storageUsageEntity = this.findOrEmpty(customerIdentifier);
+    return usage(storageUsageEntity.getObjectCount(), storageUsageEntity.getByteCount(),
+        this.storageQuotaProperties.getCustomerMaxObjects(), this.storageQuotaProperties.getCustomerMaxBytes());
+  }
+
+  /**
+   * Rejects an upload early, when it is accepted and before its content is queued.  Uploads
+   * accepted at the same time may pass together, the command handler enforces the limits with
+   * {@link #reserve(CustomerEntity, long, long)}.
+   */
+  public void throwIfQuotaExceeded(final String customerIdentifier, final long objects, final long bytes) {
+    final StorageUsageEntity storageUsageEntity = this.findOrEmpty(customerIdentifier);
+    this.throwIfCustomerQuotaExceeded(customerIdentifier, storageUsageEntity.getObjectCount() + objects,
+        storageUsageEntity.getByteCount() + bytes);
+
+    final long tenantMaxBytes = this.tenantMaxBytes();
+    if (tenantMaxBytes > 0L && this.storageUsageTotalRepository.sumByteCount().longValue() + bytes > tenantMaxBytes) {
+      throw tenantQuotaExceeded(tenantMaxBytes);
+    }
+  }
+
+  /**
+   * Adds images to the usage of the customer and the tenant within the command's transaction, and
+   * throws if that exceeds a limit, which rolls the command back.
+   *
+   * The customer's usage is locked, so its limits hold exactly.  The tenant's total is only locked
+   * once it comes within the configured margin of its limit, so the tenant limit holds as long as
+   * the uploads in flight at once stay below that margin.
+   */
+  public void reserve(final CustomerEntity customerEntity, final long objects, final long bytes) {
+    this.storageUsageRepository.add(customerEntity.getId(), objects, bytes);
+    final List<Object[]> counts = this.storageUsageRepository.findCountsByCustomerId(customerEntity.getId());
+    this.throwIfCustomerQuotaExceeded(customerEntity.getIdentifier(), (Long) counts.get(0)[0], (Long) counts.get(0)[1]);
+
+    final long tenantMaxBytes = this.tenantMaxBytes();
+    if (tenantMaxBytes > 0L && bytes > 0L) {
+      final long lockThreshold = tenantMaxBytes - this.storageQuotaProperties.getTenantLockMargin();
+      if (this.storageUsageTotalRepository.sumByteCount().longValue() + bytes > lockThreshold
+          && this.storageUsageTotalRepository.lockAndSumByteCount().longValue() + bytes > tenantMaxBytes) {
+        throw tenantQuotaExceeded(tenantMaxBytes);
+      }
+    }
+
+    this.storageUsageTotalRepository.add(stripe(customerEntity.getId()), objects, bytes);
+  }
+
+  /**
+   * Removes images from the usage of the customer and the tenant within the caller's transaction.
+   */
+  public void release(final Long customerId, final long objects, final long bytes) {
+    this.storageUsageRepository.add(customerId, -objects, -bytes);
+    this.storageUsageTotalRepository.add(stripe(customerId), -objects, -bytes);
+  }
+
+  /**
+   * Like {@link #throwIfQuotaExceeded(String, long, long)} for a portrait, which replaces the
+   * customer's current portrait, if there is one.
+   */
+  public void throwIfPortraitQuotaExceeded(final String customerIdentifier, final long bytes) {
+    final Optional<Long> replacedBytes = this.portraitRepository.findSizeByCustomerIdentifier(customerIdentifier);
+    this.throwIfQuotaExceeded(customerIdentifier, replacedBytes.isPresent() ? 0L : 1L, bytes - replacedBytes.orElse(0L));
+  }
+
+  private StorageUsageEntity findOrEmpty(final String customerIdentifier) {
+    return this.storageUsageRepository.findByCustomerIdentifier(customerIdentifier).orElseGet(StorageService::empty);
+  }
+
+  private void throwIfCustomerQuotaExceeded(final String customerIdentifier, final long objects, final long bytes) {
+    final long customerMaxObjects = this.storageQuotaProperties.getCustomerMaxObjects();
+    if (customerMaxObjects > 0L && objects > customerMaxObjects) {
+      throw quotaExceeded("Customer ''{0}'' can''t store more than {1} images.", customerIdentifier, customerMaxObjects);
+    }
+
+    final long customerMaxBytes = this.storageQuotaProperties.getCustomerMaxBytes();
+    if (customerMaxBytes > 0L && bytes > customerMaxBytes) {
+      throw quotaExceeded("Customer ''{0}'' can''t store more than {1} bytes.", customerIdentifier, customerMaxBytes);
+    }
+  }
+
+  private static int stripe(final Long customerId) {
+    return (int) (customerId % StorageUsageTotalRepository.STRIPES);
+  }
+
+  private static StorageUsageEntity empty() {
+    final StorageUsageEntity storageUsageEntity = new StorageUsageEntity();
+    storageUsageEntity.setObjectCount(0L);
+    storageUsageEntity.setByteCount(0L);
+    return storageUsageEntity;
+  }
+
+  private long tenantMaxBytes() {
+    return this.storageQuotaProperties.getTenantMaxBytes(TenantContextHolder.checkedGetIdentifier());
+  }
+
+  private static StorageUsage usage(final long objects, final long bytes, final long maxObjects, final long maxBytes) {
+    final StorageUsage storageUsage = new StorageUsage();
+    storageUsage.setObjects(objects);
+    storageUsage.setBytes(bytes);
+    storageUsage.setMaxObjects(maxObjects > 0L ? maxObjects : null);
+    storageUsage.setMaxBytes(maxBytes > 0L ? maxBytes : null);
+    return storageUsage;
+  }
+
+  private static ServiceException tenantQuotaExceeded(final long tenantMaxBytes) {
+    return quotaExceeded("Tenant can''t store more than {0} bytes.", tenantMaxBytes);
+  }
+
+  private static ServiceException quotaExceeded(final String message, final Object... args) {
+    return new ServiceException(ServiceError.create(PAYLOAD_TOO_LARGE).message(MessageFormat.format(message, args)).build());
+  }
+}
@@ -16,6 +16,7 @@
 package io.mifos.customer.service.internal.service;
 
 import io.mifos.customer.api.v1.domain.TaskDefinition;
+import io.mifos.customer.service.internal.jdbc.ReplicaRead;
 import io.mifos.customer.service.internal.mapper.TaskDefinitionMapper;
 import io.mifos.customer.service.internal.repository.CustomerRepository;
 import io.mifos.customer.service.internal.repository.TaskDefinitionEntity;
@@ -50,6 +51,7 @@ public class TaskService {
     return this.taskDefinitionRepository.existsByIdentifier(identifier);
   }
 
+  @ReplicaRead
   public Optional<TaskDefinition> findByIdentifier(final String identifier) {
     final TaskDefinitionEntity taskDefinitionEntity = this.taskDefinitionRepository.findByIdentifier(identifier);
     if (taskDefinitionEntity != null) {
@@ -59,6 +61,7 @@ public class TaskService {
     }
   }
 
+  @ReplicaRead
   public List<TaskDefinition> fetchAll() {
     return this.taskDefinitionRepository.findAll()
         .stream()
@@ -66,6 +69,7 @@ public class TaskService {
         .collect(Collectors.toList());
   }
 
+  @ReplicaRead
   public List<TaskDefinition> findTasksByCustomer(final String customerIdentifier, Boolean includeExecuted) {
     return customerRepository.findByIdentifier(customerIdentifier)
         .map(taskInstanceRepository::findByCustomer)
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.upload;
+
+/**
+ * What a resumable upload was initiated for, kept next to the spooled content.
+ */
+public class UploadSession {
+
+  public enum Target {
+    DOCUMENT_PAGE,
+    IDENTIFICATION_CARD_SCAN
+  }
+
+  private String identifier;
+  private String customerIdentifier;
+  private Target target;
+  private String documentIdentifier;
+  private Integer pageNumber;
+  private String number;
+  private String scanIdentifier;
+  private String description;
+  private String contentType;
+  private long size;
+
+  public UploadSession() {
+    super();
+  }
+
+  public String getIdentifier() {
+    return this.identifier;
+  }
+
+  public void setIdentifier(final String identifier) {
+    this.identifier = identifier;
+  }
+
+  public String getCustomerIdentifier() {
+    return this.customerIdentifier;
+  }
+
+  public void setCustomerIdentifier(final String customerIdentifier) {
+    this.customerIdentifier = customerIdentifier;
+  }
+
+  public Target getTarget() {
+    return this.target;
+  }
+
+  public void setTarget(final Target target) {
+    this.target = target;
+  }
+
+  public String getDocumentIdentifier() {
+    return this.documentIdentifier;
+  }
+
+  public void setDocumentIdentifier(final String documentIdentifier) {
+    this.documentIdentifier = documentIdentifier;
+  }
+
+  public Integer getPageNumber() {
+    return this.pageNumber;
+  }
+
+  public void setPageNumber(final Integer pageNumber) {
+    this.pageNumber = pageNumber;
+  }
+
+  public String getNumber() {
+    return this.number;
+  }
+
+  public void setNumber(final String number) {
+    this.number = number;
+  }
+
+  public String getScanIdentifier() {
+    return this.scanIdentifier;
+  }
+
+  public void setScanIdentifier(final String scanIdentifier) {
+    this.scanIdentifier = scanIdentifier;
+  }
+
+  public String getDescription() {
+    return this.description;
+  }
+
+  public void setDescription(final String description) {
+    this.description = description;
+  }
+
+  public String getContentType() {
+    return this.contentType;
+  }
+
+  public void setContentType(final String contentType) {
+    this.contentType = contentType;
+  }
+
+  public long getSize() {
+    return this.size;
+  }
+
+  public void setSize(final long size) {
+    this.size = size;
+  }
+}
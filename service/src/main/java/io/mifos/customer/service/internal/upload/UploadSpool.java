@@ -0,0 +1,255 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.upload;
+
+import com.google.gson.Gson;
+import io.mifos.core.lang.ServiceException;
+import io.mifos.core.lang.TenantContextHolder;
+import io.mifos.customer.service.ServiceConstants;
+import io.mifos.customer.service.internal.config.UploadSpoolProperties;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spools resumable uploads to disk, one directory per tenant, so chunks never pile up on the
+ * heap.  Each upload is a {@code <identifier>.json} holding its {@link UploadSession} and a
+ * {@code <identifier>.part} holding the bytes received so far; the length of the part file is
+ * the offset the next chunk has to start at.
+ *
+ * The chunks of an upload may arrive at any instance of the service, so if more than one instance
+ * runs behind the same load balancer, {@code upload.spool.directory} has to be a directory all of
+ * them share, e.g. a network file system.  Chunks are appended under a file lock, so two instances
+ * never append to the same upload at once.
+ *
+ * Uploads not touched within {@code upload.spool.expiry} are removed by a periodic sweep, unless
+ * they are being finalized.
+ */
+@Component
+public class UploadSpool {
+
+  private static final String SESSION_SUFFIX = ".json";
+  private static final String PART_SUFFIX = ".part";
+
+  private final Logger logger;
+  private final UploadSpoolProperties uploadSpoolProperties;
+  private final Gson gson;
+  private final ConcurrentHashMap<String, Object> locks = new ConcurrentHashMap<>();
+  private final Set<String> finalizing = ConcurrentHashMap.newKeySet();
+  private ScheduledExecutorService executorService;
+
+  @Autowired
+  public UploadSpool(@Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger,
+                     final UploadSpoolProperties uploadSpoolProperties) {
+    super();
+    this.logger = logger;
+    this.uploadSpoolProperties = uploadSpoolProperties;
+    this.gson = new Gson();
+  }
+
+  @PostConstruct
+  public void start() {
+    this.executorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      final Thread thread = new Thread(runnable, "upload-spool-sweep");
+      thread.setDaemon(true);
+      return thread;
+    });
+    final long sweepInterval = this.uploadSpoolProperties.getSweepInterval();
+    this.executorService.scheduleWithFixedDelay(this::sweep, sweepInterval, sweepInterval, TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void stop() {
+    this.executorService.shutdownNow();
+  }
+
+  public UploadSession create(final UploadSession uploadSession) {
+    uploadSession.setIdentifier(UUID.randomUUID().toString());
+    try {
+      final Path tenantDirectory = Files.createDirectories(this.tenantDirectory());
+      Files.write(tenantDirectory.resolve(uploadSession.getIdentifier() + SESSION_SUFFIX),
+          this.gson.toJson(uploadSession).getBytes(StandardCharsets.UTF_8));
+      Files.createFile(tenantDirectory.resolve(uploadSession.getIdentifier() + PART_SUFFIX));
+    } catch (final IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+    return uploadSession;
+  }
+
+  public Optional<UploadSession> find(final String identifier) {
+    if (!isUuid(identifier)) {
+      return Optional.empty();
+    }
+    try {
+      final byte[] session = Files.readAllBytes(this.tenantDirectory().resolve(identifier + SESSION_SUFFIX));
+      return Optional.of(this.gson.fromJson(new String(session, StandardCharsets.UTF_8), UploadSession.class));
+    } catch (final NoSuchFileException ex) {
+      return Optional.empty();
+    } catch (final IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  public long received(final UploadSession uploadSession) {
+    try {
+      return Files.size(this.part(uploadSession));
+    } catch (final IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  /**
+   * Appends the chunk if it starts at the current end of the upload, and returns the new end.
+   * A chunk which is too large is discarded entirely; a chunk interrupted in transfer is kept
+   * as far as it was received.
+   */
+  public long append(final UploadSession uploadSession, final long offset, final InputStream chunk) throws IOException {
+    final Path part = this.part(uploadSession);
+    synchronized (this.lock(uploadSession)) {
+      try (final FileChannel channel = FileChannel.open(part, StandardOpenOption.WRITE);
+           final FileLock ignored = channel.lock()) {
+        final long received = channel.size();
+        if (offset != received) {
+          throw ServiceException.conflict("Upload {0} continues at offset {1}.", uploadSession.getIdentifier(), received);
+        }
+
+        final long limit = Math.min(this.uploadSpoolProperties.getMaxChunkSize(), uploadSession.getSize() - received);
+        final byte[] buffer = new byte[8192];
+        long written = 0L;
+        int read;
+        channel.position(received);
+        while ((read = chunk.read(buffer)) != -1) {
+          written += read;
+          if (written > limit) {
+            channel.truncate(received);
+            throw ServiceException.badRequest("Chunk exceeds the upload size or the maximum chunk size of {0} bytes.",
+                this.uploadSpoolProperties.getMaxChunkSize());
+          }
+          channel.write(ByteBuffer.wrap(buffer, 0, read));
+        }
+        return received + written;
+      }
+    }
+  }
+
+  public byte[] read(final UploadSession uploadSession) {
+    synchronized (this.lock(uploadSession)) {
+      try {
+        return Files.readAllBytes(this.part(uploadSession));
+      } catch (final IOException ex) {
+        throw new UncheckedIOException(ex);
+      }
+    }
+  }
+
+  /**
+   * Marks the upload as being finalized, false if it already is.
+   */
+  public boolean beginFinalize(final String identifier) {
+    return this.finalizing.add(identifier);
+  }
+
+  public void endFinalize(final String identifier) {
+    this.finalizing.remove(identifier);
+  }
+
+  public void delete(final UploadSession uploadSession) {
+    synchronized (this.lock(uploadSession)) {
+      final Path tenantDirectory = this.tenantDirectory();
+      this.delete(tenantDirectory.resolve(uploadSession.getIdentifier() + PART_SUFFIX));
+      this.delete(tenantDirectory.resolve(uploadSession.getIdentifier() + SESSION_SUFFIX));
+    }
+    this.locks.remove(uploadSession.getIdentifier());
+  }
+
+  private void sweep() {
+    final Path root = Paths.get(this.uploadSpoolProperties.getDirectory());
+    if (!Files.isDirectory(root)) {
+      return;
+    }
+    final long expiredBefore = System.currentTimeMillis() - this.uploadSpoolProperties.getExpiry();
+    try (final DirectoryStream<Path> tenantDirectories = Files.newDirectoryStream(root)) {
+      for (final Path tenantDirectory : tenantDirectories) {
+        try (final DirectoryStream<Path> files = Files.newDirectoryStream(tenantDirectory, "*" + PART_SUFFIX)) {
+          for (final Path part : files) {
+            final String fileName = part.getFileName().toString();
+            final String identifier = fileName.substring(0, fileName.length() - PART_SUFFIX.length());
+            if (Files.getLastModifiedTime(part).toMillis() < expiredBefore && !this.finalizing.contains(identifier)) {
+              this.delete(part);
+              this.delete(tenantDirectory.resolve(identifier + SESSION_SUFFIX));
+              this.locks.remove(identifier);
+            }
+          }
+        }
+      }
+    } catch (final IOException | RuntimeException ex) {
+      this.logger.warn("Could not sweep expired uploads.", ex);
+    }
+  }
+
+  private Path tenantDirectory() {
+    final String tenantIdentifier = TenantContextHolder.checkedGetIdentifier();
+    return Paths.get(this.uploadSpoolProperties.getDirectory(), tenantIdentifier.replaceAll("[^A-Za-z0-9_-]", "_"));
+  }
+
+  private Path part(final UploadSession uploadSession) {
+    return this.tenantDirectory().resolve(uploadSession.getIdentifier() + PART_SUFFIX);
+  }
+
+  private Object lock(final UploadSession uploadSession) {
+    return this.locks.computeIfAbsent(uploadSession.getIdentifier(), identifier -> new Object());
+  }
+
+  private void delete(final Path path) {
+    try {
+      Files.deleteIfExists(path);
+    } catch (final IOException ex) {
+      this.logger.warn("Could not delete spooled upload file {}.", path, ex);
+    }
+  }
+
+  private static boolean isUuid(final String identifier) {
+    try {
+      return UUID.fromString(identifier).toString().equals(identifier);
+    } catch (final IllegalArgumentException ex) {
+      return false;
+    }
+  }
+}
@@ -26,9 +26,14 @@ import io.mifos.core.lang.config.EnableTenantContext;
 import io.mifos.customer.catalog.service.rest.config.CatalogRestConfiguration;
 import io.mifos.customer.service.ServiceConstants;
 import io.mifos.customer.service.internal.config.CustomerServiceConfiguration;
+import io.mifos.customer.service.internal.jdbc.SqlTraceInterceptor;
+import io.mifos.customer.service.internal.jdbc.SqlTracer;
+import io.mifos.customer.service.internal.metrics.RestMetricsInterceptor;
+import io.mifos.customer.service.internal.metrics.ServiceMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.context.embedded.FilterRegistrationBean;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
 import org.springframework.context.annotation.Bean;
@@ -37,6 +42,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 import org.springframework.web.servlet.config.annotation.PathMatchConfigurer;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+import org.springframework.web.servlet.handler.MappedInterceptor;
 
 @Configuration
 @EnableAutoConfiguration
@@ -67,6 +73,23 @@ public class CustomerRestConfiguration extends WebMvcConfigurerAdapter {
     return LoggerFactory.getLogger(applicationName.getServiceName());
   }
 
+  @Bean
+  public FilterRegistrationBean entityTagFilter() {
+    final FilterRegistrationBean filterRegistrationBean = new FilterRegistrationBean(new EntityTagFilter());
+    filterRegistrationBean.addUrlPatterns("/customers/*", "/catalogs/*");
+    return filterRegistrationBean;
+  }
+
+  @Bean
+  public MappedInterceptor restMetricsInterceptor(final ServiceMetrics serviceMetrics) {
+    return new MappedInterceptor(null, new RestMetricsInterceptor(serviceMetrics));
+  }
+
+  @Bean
+  public MappedInterceptor sqlTraceInterceptor(final SqlTracer sqlTracer) {
+    return new MappedInterceptor(null, new SqlTraceInterceptor(sqlTracer));
+  }
+
   @Override
   public void configurePathMatch(final PathMatchConfigurer configurer) {
     configurer.setUseSuffixPatternMatch(Boolean.FALSE);
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.rest.config;
+
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.regex.Pattern;
+
+/**
+ * Tags single customers and catalogs with an entity tag, and answers a matching
+ * {@code If-None-Match} with {@code 304 Not Modified}, so clients can revalidate cached copies
+ * without receiving them again.  Other resources are left alone, the filter buffers the response.
+ */
+public class EntityTagFilter extends ShallowEtagHeaderFilter {
+
+  private static final Pattern TAGGED_RESOURCES = Pattern.compile(".*/(customers|catalogs)/[^/]+$");
+
+  public EntityTagFilter() {
+    super();
+  }
+
+  @Override
+  protected boolean shouldNotFilter(final HttpServletRequest request) {
+    return !"GET".equals(request.getMethod()) || !TAGGED_RESOURCES.matcher(request.getRequestURI()).matches();
+  }
+}
@@ -15,14 +15,19 @@
  */
 package io.mifos.customer.service.rest.controller;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.mifos.anubis.annotation.AcceptedTokenType;
 import io.mifos.anubis.annotation.Permittable;
 import io.mifos.core.api.util.UserContextHolder;
-import io.mifos.core.command.gateway.CommandGateway;
+import io.mifos.core.lang.DateConverter;
+import io.mifos.core.lang.ServiceError;
 import io.mifos.core.lang.ServiceException;
 import io.mifos.core.lang.validation.constraints.ValidIdentifier;
 import io.mifos.customer.PermittableGroupIds;
 import io.mifos.customer.api.v1.domain.Address;
+import io.mifos.customer.api.v1.domain.AuditEntryPage;
 import io.mifos.customer.api.v1.domain.Command;
 import io.mifos.customer.api.v1.domain.ContactDetail;
 import io.mifos.customer.api.v1.domain.Customer;
@@ -30,6 +35,7 @@ import io.mifos.customer.api.v1.domain.CustomerPage;
 import io.mifos.customer.api.v1.domain.IdentificationCard;
 import io.mifos.customer.api.v1.domain.IdentificationCardScan;
 import io.mifos.customer.api.v1.domain.ProcessStep;
+import io.mifos.customer.api.v1.domain.StorageUsage;
 import io.mifos.customer.api.v1.domain.TaskDefinition;
 import io.mifos.customer.catalog.service.internal.service.FieldValueValidator;
 import io.mifos.customer.service.ServiceConstants;
@@ -54,8 +60,14 @@ import io.mifos.customer.service.internal.command.UpdateContactDetailsCommand;
 import io.mifos.customer.service.internal.command.UpdateCustomerCommand;
 import io.mifos.customer.service.internal.command.UpdateIdentificationCardCommand;
 import io.mifos.customer.service.internal.command.UpdateTaskDefinitionCommand;
+import io.mifos.customer.service.internal.command.scheduler.CommandScheduler;
+import io.mifos.customer.service.internal.config.HistoryProperties;
+import io.mifos.customer.service.internal.image.RenditionGenerator;
+import io.mifos.customer.service.internal.image.UploadProcessor;
 import io.mifos.customer.service.internal.repository.PortraitEntity;
+import io.mifos.customer.service.internal.repository.RenditionEntity;
 import io.mifos.customer.service.internal.service.CustomerService;
+import io.mifos.customer.service.internal.service.StorageService;
 import io.mifos.customer.service.internal.service.TaskService;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -77,8 +89,13 @@ import org.springframework.web.multipart.MultipartFile;
 
 import javax.validation.Valid;
 import javax.validation.constraints.Size;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -86,27 +103,45 @@ import java.util.stream.Stream;
 @RequestMapping("/")
 public class CustomerRestController {
 
+  private static final int NOT_IMPLEMENTED = 501;
+
   private final Logger logger;
-  private final CommandGateway commandGateway;
+  private final CommandScheduler commandScheduler;
   private final CustomerService customerService;
   private final FieldValueValidator fieldValueValidator;
   private final TaskService taskService;
   private final Environment environment;
+  private final RenditionGenerator renditionGenerator;
+  private final UploadProcessor uploadProcessor;
+  private final StorageService storageService;
+  private final HistoryProperties historyProperties;
+  private final ObjectMapper projectionMapper;
 
   @Autowired
   public CustomerRestController(@Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger,
-                                final CommandGateway commandGateway,
+                                final CommandScheduler commandScheduler,
                                 final CustomerService customerService,
                                 final FieldValueValidator fieldValueValidator,
                                 final TaskService taskService,
-                                final Environment environment) {
+                                final Environment environment,
+                                final RenditionGenerator renditionGenerator,
+                                final UploadProcessor uploadProcessor,
+                                final StorageService storageService,
+                                final HistoryProperties historyProperties,
+                                final ObjectMapper objectMapper) {
     super();
     this.logger = logger;
-    this.commandGateway = commandGateway;
+    this.commandScheduler = commandScheduler;
     this.customerService = customerService;
     this.fieldValueValidator = fieldValueValidator;
     this.taskService = taskService;
     this.environment = environment;
+    this.renditionGenerator = renditionGenerator;
+    this.uploadProcessor = uploadProcessor;
+    this.storageService = storageService;
+    this.historyProperties = historyProperties;
+    // projected customers leave out what was not asked for instead of sending it as null
+    this.projectionMapper = objectMapper.copy().setSerializationInclusion(JsonInclude.Include.NON_NULL);
   }
 
   @Permittable(value = AcceptedTokenType.SYSTEM)
@@ -119,7 +154,7 @@ public class CustomerRestController {
   public
   ResponseEntity<Void>
   initialize() throws InterruptedException {
-    this.commandGateway.process(new InitializeServiceCommand());
+    this.commandScheduler.process(new InitializeServiceCommand());
     return ResponseEntity.accepted().build();
   }
 
@@ -141,7 +176,7 @@ public class CustomerRestController {
       this.fieldValueValidator.validateValues(customer.getCustomValues());
     }
 
-    this.commandGateway.process(new CreateCustomerCommand(customer));
+    this.commandScheduler.process(new CreateCustomerCommand(customer));
     return ResponseEntity.accepted().build();
   }
 
@@ -154,15 +189,20 @@ public class CustomerRestController {
   )
   public
   @ResponseBody
-  ResponseEntity<CustomerPage> fetchCustomers(@RequestParam(value = "term", required = false) final String term,
-                                              @RequestParam(value = "includeClosed", required = false) final Boolean includeClosed,
-                                              @RequestParam(value = "pageIndex", required = false) final Integer pageIndex,
-                                              @RequestParam(value = "size", required = false) final Integer size,
-                                              @RequestParam(value = "sortColumn", required = false) final String sortColumn,
-                                              @RequestParam(value = "sortDirection", required = false) final String sortDirection) {
-    return ResponseEntity.ok(this.customerService.fetchCustomer(
-        term, (includeClosed != null ? includeClosed : Boolean.FALSE),
-        this.createPageRequest(pageIndex, size, sortColumn, sortDirection)));
+  ResponseEntity<?> fetchCustomers(@RequestParam(value = "term", required = false) final String term,
+                                   @RequestParam(value = "includeClosed", required = false) final Boolean includeClosed,
+                                   @RequestParam(value = "pageIndex", required = false) final Integer pageIndex,
+                                   @RequestParam(value = "size", required = false) final Integer size,
+                                   @RequestParam(value = "sortColumn", required = false) final String sortColumn,
+                                   @RequestParam(value = "sortDirection", required = false) final String sortDirection,
+                                   @RequestParam(value = "fields", required = false) final String fields) {
+    final Boolean includeClosedToUse = includeClosed != null ? includeClosed : Boolean.FALSE;
+    final Pageable pageRequest = this.createPageRequest(pageIndex, size, sortColumn, sortDirection);
+    if (fields != null) {
+      return ResponseEntity.ok(this.projection(this.customerService.fetchCustomer(term, includeClosedToUse, pageRequest,
+          this.parseFields(fields))));
+    }
+    return ResponseEntity.ok(this.customerService.fetchCustomer(term, includeClosedToUse, pageRequest));
   }
 
   @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.CUSTOMER)
@@ -174,15 +214,50 @@ public class CustomerRestController {
   )
   public
   @ResponseBody
-  ResponseEntity<Customer> findCustomer(@PathVariable("identifier") final String identifier) {
-    final Optional<Customer> customer = this.customerService.findCustomer(identifier);
+  ResponseEntity<?> findCustomer(@PathVariable("identifier") final String identifier,
+                                 @RequestParam(value = "asOf", required = false) final String asOf,
+                                 @RequestParam(value = "fields", required = false) final String fields) {
+    final Optional<Customer> customer;
+    if (asOf != null) {
+      if (fields != null) {
+        throw ServiceException.badRequest("Fields can''t be combined with asOf.");
+      }
+      if (!this.historyProperties.isEnabled()) {
+        throw new ServiceException(ServiceError.create(NOT_IMPLEMENTED)
+            .message("History is disabled, set history.enabled to look up customers asOf a point in time.").build());
+      }
+      customer = this.customerService.findCustomerAsOf(identifier, this.parseDateTime("asOf", asOf));
+    } else if (fields != null) {
+      customer = this.customerService.findCustomer(identifier, this.parseFields(fields));
+    } else {
+      customer = this.customerService.findCustomer(identifier);
+    }
     if (customer.isPresent()) {
-      return ResponseEntity.ok(customer.get());
+      return ResponseEntity.ok(fields != null ? this.projection(customer.get()) : customer.get());
     } else {
       throw ServiceException.notFound("Customer {0} not found.", identifier);
     }
   }
 
+  @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.CUSTOMER)
+  @RequestMapping(
+      value = "/customers:batchGet",
+      method = RequestMethod.POST,
+      produces = MediaType.APPLICATION_JSON_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  public
+  @ResponseBody
+  ResponseEntity<List<Customer>> batchGetCustomers(@RequestBody final List<String> identifiers) {
+    final Integer maxSize = this.environment.getProperty("batch.get.max-size", Integer.class, 100);
+    final Set<String> distinctIdentifiers = new LinkedHashSet<>(identifiers);
+    if (distinctIdentifiers.size() > maxSize) {
+      throw ServiceException.badRequest("Can''t fetch more than {0} customers at once.", maxSize);
+    }
+
+    return ResponseEntity.ok(this.customerService.findCustomers(distinctIdentifiers));
+  }
+
   @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.CUSTOMER)
   @RequestMapping(
       value = "/customers/{identifier}",
@@ -198,7 +273,7 @@ public class CustomerRestController {
       if (customer.getCustomValues() != null) {
         this.fieldValueValidator.validateValues(customer.getCustomValues());
       }
-      this.commandGateway.process(new UpdateCustomerCommand(customer));
+      this.commandScheduler.process(new UpdateCustomerCommand(customer));
     } else {
       throw ServiceException.notFound("Customer {0} not found.", identifier);
     }
@@ -224,29 +299,29 @@ public class CustomerRestController {
       switch (action) {
         case ACTIVATE:
           if (Customer.State.PENDING.name().equals(currentState)) {
-            this.commandGateway.process(new ActivateCustomerCommand(identifier, command.getComment()));
+            this.commandScheduler.process(new ActivateCustomerCommand(identifier, command.getComment()));
           }
           break;
         case LOCK:
           if (Customer.State.ACTIVE.name().equals(currentState)) {
-            this.commandGateway.process(new LockCustomerCommand(identifier, command.getComment()));
+            this.commandScheduler.process(new LockCustomerCommand(identifier, command.getComment()));
           }
           break;
         case UNLOCK:
           if (Customer.State.LOCKED.name().equals(currentState)) {
-            this.commandGateway.process(new UnlockCustomerCommand(identifier, command.getComment()));
+            this.commandScheduler.process(new UnlockCustomerCommand(identifier, command.getComment()));
           }
           break;
         case CLOSE:
           if (Customer.State.ACTIVE.name().equals(currentState)
               || Customer.State.LOCKED.name().equals(currentState)
               || Customer.State.PENDING.name().equals(currentState)) {
-            this.commandGateway.process(new CloseCustomerCommand(identifier, command.getComment()));
+            this.commandScheduler.process(new CloseCustomerCommand(identifier, command.getComment()));
           }
           break;
         case REOPEN:
           if (Customer.State.CLOSED.name().equals(currentState)) {
-            this.commandGateway.process(new ReopenCustomerCommand(identifier, command.getComment()));
+            this.commandScheduler.process(new ReopenCustomerCommand(identifier, command.getComment()));
           }
           break;
         default:
@@ -275,6 +350,31 @@ public class CustomerRestController {
     }
   }
 
+  @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.CUSTOMER)
+  @RequestMapping(
+      value = "/customers/{identifier}/audit",
+      method = RequestMethod.GET,
+      produces = MediaType.APPLICATION_JSON_VALUE,
+      consumes = MediaType.ALL_VALUE
+  )
+  public
+  @ResponseBody
+  ResponseEntity<AuditEntryPage> fetchCustomerAudit(@PathVariable("identifier") final String identifier,
+                                                    @RequestParam(value = "from", required = false) final String from,
+                                                    @RequestParam(value = "to", required = false) final String to,
+                                                    @RequestParam(value = "cursor", required = false) final String cursor,
+                                                    @RequestParam(value = "size", required = false) final Integer size) {
+    final Integer sizeToUse = size != null ? size : 20;
+    if (sizeToUse < 1 || sizeToUse > 1000) {
+      throw ServiceException.badRequest("Size {0} must be between 1 and 1000.", sizeToUse);
+    }
+
+    return this.customerService.fetchAuditByCustomer(identifier,
+        this.parseDateTime("from", from), this.parseDateTime("to", to), this.parseCursor(cursor), sizeToUse)
+        .map(ResponseEntity::ok)
+        .orElseThrow(() -> ServiceException.notFound("Customer {0} not found.", identifier));
+  }
+
   @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.CUSTOMER)
   @RequestMapping(
       value = "/customers/{identifier}/tasks/{taskIdentifier}",
@@ -288,7 +388,7 @@ public class CustomerRestController {
                                          @PathVariable("taskIdentifier") final String taskIdentifier) {
     if (this.customerService.customerExists(identifier)) {
       if (this.taskService.taskDefinitionExists(taskIdentifier)) {
-        this.commandGateway.process(new AddTaskDefinitionToCustomerCommand(identifier, taskIdentifier));
+        this.commandScheduler.process(new AddTaskDefinitionToCustomerCommand(identifier, taskIdentifier));
       } else {
         throw ServiceException.notFound("Task definition {0} not found.", taskIdentifier);
       }
@@ -328,7 +428,7 @@ public class CustomerRestController {
             }
             break;
         }
-        this.commandGateway.process(new ExecuteTaskForCustomerCommand(identifier, taskIdentifier));
+        this.commandScheduler.process(new ExecuteTaskForCustomerCommand(identifier, taskIdentifier));
       } else {
         throw ServiceException.notFound("Task definition {0} not found.", taskIdentifier);
       }
@@ -368,7 +468,7 @@ public class CustomerRestController {
   ResponseEntity<Void> putAddress(@PathVariable("identifier") final String identifier,
                                   @RequestBody @Valid final Address address) {
     if (this.customerService.customerExists(identifier)) {
-      this.commandGateway.process(new UpdateAddressCommand(identifier, address));
+      this.commandScheduler.process(new UpdateAddressCommand(identifier, address));
     } else {
       throw ServiceException.notFound("Customer {0} not found.", identifier);
     }
@@ -387,7 +487,7 @@ public class CustomerRestController {
   ResponseEntity<Void> putContactDetails(@PathVariable("identifier") final String identifier,
                                          @RequestBody final List<ContactDetail> contactDetails) {
     if (this.customerService.customerExists(identifier)) {
-      this.commandGateway.process(new UpdateContactDetailsCommand(identifier, contactDetails));
+      this.commandScheduler.process(new UpdateContactDetailsCommand(identifier, contactDetails));
     } else {
       throw ServiceException.notFound("Customer {0} not found.", identifier);
     }
@@ -443,7 +543,7 @@ public class CustomerRestController {
         throw ServiceException.conflict("IdentificationCard {0} already exists.", identificationCard.getNumber());
       }
 
-      this.commandGateway.process(new CreateIdentificationCardCommand(identifier, identificationCard));
+      this.commandScheduler.process(new CreateIdentificationCardCommand(identifier, identificationCard));
     } else {
       throw ServiceException.notFound("Customer {0} not found.", identifier);
     }
@@ -470,7 +570,7 @@ public class CustomerRestController {
       throw ServiceException.badRequest("Number in path is different from number in request body");
     }
 
-    this.commandGateway.process(new UpdateIdentificationCardCommand(identifier, identificationCard.getNumber(), identificationCard));
+    this.commandScheduler.process(new UpdateIdentificationCardCommand(identifier, identificationCard.getNumber(), identificationCard));
 
     return ResponseEntity.accepted().build();
   }
@@ -488,7 +588,7 @@ public class CustomerRestController {
                                 @PathVariable("number") final String number) {
     this.throwIfCustomerNotExists(identifier);
 
-    this.commandGateway.process(new DeleteIdentificationCardCommand(number));
+    this.commandScheduler.process(new DeleteIdentificationCardCommand(number));
 
     return ResponseEntity.accepted().build();
   }
@@ -545,12 +645,20 @@ public class CustomerRestController {
   @ResponseBody
   ResponseEntity<byte[]> fetchIdentificationCardScanImage(@PathVariable("identifier") final String identifier,
                                           @PathVariable("number") final String number,
-                                          @PathVariable("scanIdentifier") final String scanIdentifier) {
+                                          @PathVariable("scanIdentifier") final String scanIdentifier,
+                                          @RequestParam(value = "size", required = false) final Integer size) {
     this.throwIfCustomerNotExists(identifier);
     this.throwIfIdentificationCardNotExists(number);
     this.throwIfIdentificationCardScanNotExists(number, scanIdentifier);
 
-    final Optional<byte[]> image = this.customerService.findIdentificationCardScanImage(number, scanIdentifier);
+    final Optional<byte[]> image;
+    if (size != null) {
+      this.throwIfUnsupportedRenditionSize(size);
+      image = this.customerService.findIdentificationCardScanRendition(number, scanIdentifier, size)
+          .map(RenditionEntity::getImage);
+    } else {
+      image = this.customerService.findIdentificationCardScanImage(number, scanIdentifier);
+    }
 
     return image.map(ResponseEntity::ok)
             .orElseThrow(() -> ServiceException.notFound("Identification card scan {0} not found.", number));
@@ -571,18 +679,20 @@ public class CustomerRestController {
                                   @RequestBody final MultipartFile image) throws Exception {
     this.throwIfCustomerNotExists(identifier);
     this.throwIfIdentificationCardNotExists(number);
-    this.throwIfInvalidSize(image.getSize());
     this.throwIfInvalidContentType(image.getContentType());
+    final MultipartFile processedImage = this.uploadProcessor.process("scan", image);
+    this.throwIfInvalidSize(processedImage.getSize());
 
     if (this.customerService.identificationCardScanExists(number, scanIdentifier)) {
       throw ServiceException.conflict("Scan {0} already exists.", scanIdentifier);
     }
+    this.storageService.throwIfQuotaExceeded(identifier, 1L, processedImage.getSize());
 
     final IdentificationCardScan scan = new IdentificationCardScan();
     scan.setIdentifier(scanIdentifier);
     scan.setDescription(description);
 
-    this.commandGateway.process(new CreateIdentificationCardScanCommand(number, scan, image));
+    this.commandScheduler.process(new CreateIdentificationCardScanCommand(number, scan, processedImage));
 
     return ResponseEntity.accepted().build();
   }
@@ -602,7 +712,7 @@ public class CustomerRestController {
     throwIfCustomerNotExists(identifier);
     throwIfIdentificationCardNotExists(number);
 
-    this.commandGateway.process(new DeleteIdentificationCardScanCommand(number, scanIdentifier));
+    this.commandScheduler.process(new DeleteIdentificationCardScanCommand(number, scanIdentifier));
 
     return ResponseEntity.accepted().build();
   }
@@ -613,7 +723,20 @@ public class CustomerRestController {
       method = RequestMethod.GET,
       consumes = MediaType.ALL_VALUE
   )
-  public ResponseEntity<byte[]> getPortrait(@PathVariable("identifier") final String identifier) {
+  public ResponseEntity<byte[]> getPortrait(@PathVariable("identifier") final String identifier,
+                                            @RequestParam(value = "size", required = false) final Integer size) {
+    if (size != null) {
+      this.throwIfUnsupportedRenditionSize(size);
+      final RenditionEntity rendition = this.customerService.findPortraitRendition(identifier, size)
+          .orElseThrow(() -> ServiceException.notFound("Portrait for Customer ''{0}'' not found.", identifier));
+
+      return ResponseEntity
+          .ok()
+          .contentType(MediaType.parseMediaType(rendition.getContentType()))
+          .contentLength(rendition.getImage().length)
+          .body(rendition.getImage());
+    }
+
     final PortraitEntity portrait = this.customerService.findPortrait(identifier)
         .orElseThrow(() -> ServiceException.notFound("Portrait for Customer ''{0}'' not found.", identifier));
 
@@ -638,16 +761,18 @@ public class CustomerRestController {
     }
 
     this.throwIfCustomerNotExists(identifier);
-    this.throwIfInvalidSize(portrait.getSize());
     this.throwIfInvalidContentType(portrait.getContentType());
+    final MultipartFile processedPortrait = this.uploadProcessor.process("portrait", portrait);
+    this.throwIfInvalidSize(processedPortrait.getSize());
+    this.storageService.throwIfPortraitQuotaExceeded(identifier, processedPortrait.getSize());
 
     try {
-      this.commandGateway.process(new DeletePortraitCommand(identifier), String.class).get();
+      this.commandScheduler.process(new DeletePortraitCommand(identifier), String.class).get();
     } catch (Throwable e) {
       logger.warn("Could not delete portrait: {0}", e.getMessage());
     }
 
-    this.commandGateway.process(new CreatePortraitCommand(identifier, portrait));
+    this.commandScheduler.process(new CreatePortraitCommand(identifier, processedPortrait));
 
     return ResponseEntity.accepted().build();
   }
@@ -660,7 +785,7 @@ public class CustomerRestController {
       consumes = MediaType.ALL_VALUE
   )
   public @ResponseBody ResponseEntity<Void> deletePortrait(@PathVariable("identifier") final String identifier) {
-    this.commandGateway.process(new DeletePortraitCommand(identifier));
+    this.commandScheduler.process(new DeletePortraitCommand(identifier));
 
     return ResponseEntity.accepted().build();
   }
@@ -678,7 +803,7 @@ public class CustomerRestController {
     if (this.taskService.taskDefinitionExists(taskDefinition.getIdentifier())) {
       throw ServiceException.conflict("Task definition {0} already exists.", taskDefinition.getIdentifier());
     } else {
-      this.commandGateway.process(new CreateTaskDefinitionCommand(taskDefinition));
+      this.commandScheduler.process(new CreateTaskDefinitionCommand(taskDefinition));
     }
     return ResponseEntity.accepted().build();
   }
@@ -725,7 +850,7 @@ public class CustomerRestController {
   @ResponseBody
   ResponseEntity<Void> updateTask(@PathVariable("identifier") final String identifier, @RequestBody final TaskDefinition taskDefinition) {
     if (this.taskService.taskDefinitionExists(identifier)) {
-      this.commandGateway.process(new UpdateTaskDefinitionCommand(identifier, taskDefinition));
+      this.commandScheduler.process(new UpdateTaskDefinitionCommand(identifier, taskDefinition));
     } else {
       throw ServiceException.notFound("Task {0} not found.", identifier);
     }
@@ -746,6 +871,33 @@ public class CustomerRestController {
     return ResponseEntity.ok(this.customerService.getProcessSteps(customerIdentifier));
   }
 
+  @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.CUSTOMER)
+  @RequestMapping(
+      value = "/storage",
+      method = RequestMethod.GET,
+      produces = MediaType.APPLICATION_JSON_VALUE,
+      consumes = MediaType.ALL_VALUE
+  )
+  public
+  @ResponseBody
+  ResponseEntity<StorageUsage> getStorageUsage() {
+    return ResponseEntity.ok(this.storageService.findTenantUsage());
+  }
+
+  @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.CUSTOMER)
+  @RequestMapping(
+      value = "/customers/{identifier}/storage",
+      method = RequestMethod.GET,
+      produces = MediaType.APPLICATION_JSON_VALUE,
+      consumes = MediaType.ALL_VALUE
+  )
+  public
+  @ResponseBody
+  ResponseEntity<StorageUsage> getCustomerStorageUsage(@PathVariable("identifier") final String identifier) {
+    this.throwIfCustomerNotExists(identifier);
+    return ResponseEntity.ok(this.storageService.findCustomerUsage(identifier));
+  }
+
   private Pageable createPageRequest(final Integer pageIndex, final Integer size, final String sortColumn, final String sortDirection) {
     final Integer pageIndexToUse = pageIndex != null ? pageIndex : 0;
     final Integer sizeToUse = size != null ? size : 20;
@@ -754,6 +906,51 @@ public class CustomerRestController {
     return new PageRequest(pageIndexToUse, sizeToUse, direction, sortColumnToUse);
   }
 
+  private LocalDateTime parseDateTime(final String name, final String value) {
+    if (value == null) {
+      return null;
+    }
+    try {
+      return DateConverter.fromIsoString(value);
+    } catch (final DateTimeParseException ex) {
+      throw ServiceException.badRequest("Parameter {0} is not a valid date: {1}.", name, value);
+    }
+  }
+
+  private JsonNode projection(final Object projectedValue) {
+    return this.projectionMapper.valueToTree(projectedValue);
+  }
+
+  private Set<String> parseFields(final String fields) {
+    final Set<String> parsedFields = new LinkedHashSet<>();
+    for (final String field : fields.split(",")) {
+      final String trimmedField = field.trim();
+      if (trimmedField.isEmpty()) {
+        continue;
+      }
+      if (!CustomerService.FIELDS.contains(trimmedField)) {
+        throw ServiceException.badRequest("Unknown field {0}.", trimmedField);
+      }
+      parsedFields.add(trimmedField);
+    }
+    return parsedFields;
+  }
+
+  private UUID parseCursor(final String cursor) {
+    if (cursor == null) {
+      return null;
+    }
+    try {
+      final UUID entryId = UUID.fromString(cursor);
+      if (entryId.version() == 1) {
+        return entryId;
+      }
+    } catch (final IllegalArgumentException ignored) {
+      // fall through
+    }
+    throw ServiceException.badRequest("Cursor {0} is not valid.", cursor);
+  }
+
   private void throwIfCustomerNotExists(final String identifier) {
     if (!this.customerService.customerExists(identifier)) {
       throw ServiceException.notFound("Customer {0} not found.", identifier);
@@ -780,6 +977,12 @@ public class CustomerRestController {
     }
   }
 
+  private void throwIfUnsupportedRenditionSize(final Integer size) {
+    if (!this.renditionGenerator.isSupported(size)) {
+      throw ServiceException.badRequest("Size {0} not supported, use one of {1}.", size, this.renditionGenerator.sizes());
+    }
+  }
+
   private void throwIfInvalidContentType(final String contentType) {
     if(!contentType.contains(MediaType.IMAGE_JPEG_VALUE)
             && !contentType.contains(MediaType.IMAGE_PNG_VALUE)) {
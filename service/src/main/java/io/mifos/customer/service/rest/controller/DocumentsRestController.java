@@ -17,22 +17,29 @@ package io.mifos.customer.service.rest.controller;
 
 import io.mifos.anubis.annotation.AcceptedTokenType;
 import io.mifos.anubis.annotation.Permittable;
-import io.mifos.core.command.gateway.CommandGateway;
 import io.mifos.core.lang.ServiceException;
 import io.mifos.customer.PermittableGroupIds;
 import io.mifos.customer.api.v1.domain.CustomerDocument;
 import io.mifos.customer.service.internal.command.*;
+import io.mifos.customer.service.internal.command.scheduler.CommandScheduler;
+import io.mifos.customer.service.internal.image.UploadProcessor;
+import io.mifos.customer.service.internal.repository.DocumentCompletion;
 import io.mifos.customer.service.internal.repository.DocumentPageEntity;
 import io.mifos.customer.service.internal.service.CustomerService;
 import io.mifos.customer.service.internal.service.DocumentService;
+import io.mifos.customer.service.internal.service.StorageService;
 import org.hibernate.validator.constraints.Range;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -42,18 +49,29 @@ import java.util.stream.Collectors;
 @RestController
 @RequestMapping("/customers/{customeridentifier}/documents")
 public class DocumentsRestController {
-  private final CommandGateway commandGateway;
+  private static final String ARCHIVE_CONTENT_TYPE = "application/zip";
+
+  private final CommandScheduler commandScheduler;
   private final CustomerService customerService;
   private final DocumentService documentService;
+  private final UploadProcessor uploadProcessor;
+  private final StorageService storageService;
+  private final Environment environment;
 
   @Autowired
   public DocumentsRestController(
-      final CommandGateway commandGateway,
+      final CommandScheduler commandScheduler,
       final CustomerService customerService,
-      final DocumentService documentService) {
-    this.commandGateway = commandGateway;
+      final DocumentService documentService,
+      final UploadProcessor uploadProcessor,
+      final StorageService storageService,
+      final Environment environment) {
+    this.commandScheduler = commandScheduler;
     this.customerService = customerService;
     this.documentService = documentService;
+    this.uploadProcessor = uploadProcessor;
+    this.storageService = storageService;
+    this.environment = environment;
   }
 
   @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.DOCUMENTS)
@@ -104,7 +122,7 @@ public class DocumentsRestController {
     if (!instance.getIdentifier().equals(documentIdentifier))
       throw ServiceException.badRequest("Document identifier in request body must match document identifier in request path.");
 
-    commandGateway.process(new CreateDocumentCommand(customerIdentifier, instance));
+    commandScheduler.process(new CreateDocumentCommand(customerIdentifier, instance));
 
     return ResponseEntity.accepted().build();
   }
@@ -130,7 +148,7 @@ public class DocumentsRestController {
     if (!instance.getIdentifier().equals(documentIdentifier))
       throw ServiceException.badRequest("Document identifier in request body must match document identifier in request path.");
 
-    commandGateway.process(new ChangeDocumentCommand(customerIdentifier, instance));
+    commandScheduler.process(new ChangeDocumentCommand(customerIdentifier, instance));
 
     return ResponseEntity.accepted().build();
   }
@@ -152,7 +170,7 @@ public class DocumentsRestController {
 
     throwIfDocumentCompleted(customerIdentifier, documentIdentifier);
 
-    commandGateway.process(new DeleteDocumentCommand(customerIdentifier, documentIdentifier));
+    commandScheduler.process(new DeleteDocumentCommand(customerIdentifier, documentIdentifier));
 
     return ResponseEntity.accepted().build();
   }
@@ -170,15 +188,20 @@ public class DocumentsRestController {
       @PathVariable("customeridentifier") final String customerIdentifier,
       @PathVariable("documentidentifier") final String documentIdentifier,
       @RequestBody final @Valid Boolean completed) {
-    throwIfCustomerDocumentNotExists(customerIdentifier, documentIdentifier);
+    final DocumentCompletion documentCompletion = documentService.findCompletion(customerIdentifier, documentIdentifier)
+        .orElseThrow(() -> ServiceException.notFound("Document ''{0}'' for customer ''{1}'' not found.",
+            documentIdentifier, customerIdentifier));
 
-    if (!completed)
-      throwIfDocumentCompleted(customerIdentifier, documentIdentifier);
+    if (!completed && documentCompletion.isCompleted())
+      throw ServiceException.conflict("The document ''{0}'' for customer ''{1}'' is completed and cannot be uncompleted.",
+          documentIdentifier, customerIdentifier);
 
-    throwIfPagesMissing(customerIdentifier, documentIdentifier);
+    if (documentCompletion.isMissingPages())
+      throw ServiceException.badRequest("The document ''{0}'' for customer ''{1}'' is missing pages.",
+          documentIdentifier, customerIdentifier);
 
     if (completed)
-      commandGateway.process(new CompleteDocumentCommand(customerIdentifier, documentIdentifier));
+      commandScheduler.process(new CompleteDocumentCommand(customerIdentifier, documentIdentifier));
 
     return ResponseEntity.accepted().build();
   }
@@ -201,6 +224,25 @@ public class DocumentsRestController {
   }
 
 
+  @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.DOCUMENTS)
+  @RequestMapping(
+      value = "/{documentidentifier}/archive",
+      method = RequestMethod.GET,
+      produces = ARCHIVE_CONTENT_TYPE,
+      consumes = MediaType.ALL_VALUE
+  )
+  public void getDocumentArchive(
+      @PathVariable("customeridentifier") final String customerIdentifier,
+      @PathVariable("documentidentifier") final String documentIdentifier,
+      final HttpServletResponse response) throws IOException {
+    throwIfCustomerDocumentNotExists(customerIdentifier, documentIdentifier);
+
+    response.setContentType(ARCHIVE_CONTENT_TYPE);
+    response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + documentIdentifier + ".zip\"");
+    documentService.writeArchive(customerIdentifier, documentIdentifier, response.getOutputStream());
+  }
+
+
   @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.DOCUMENTS)
   @RequestMapping(
       value = "/{documentidentifier}/pages/{pagenumber}",
@@ -245,7 +287,63 @@ public class DocumentsRestController {
     throwIfDocumentCompleted(customerIdentifier, documentIdentifier);
     throwIfInvalidContentType(page.getContentType());
 
-    commandGateway.process(new CreateDocumentPageCommand(customerIdentifier, documentIdentifier, pageNumber, page));
+    final MultipartFile processedPage = uploadProcessor.process("page", page);
+    storageService.throwIfQuotaExceeded(customerIdentifier, 1L, processedPage.getSize());
+
+    commandScheduler.process(new CreateDocumentPageCommand(customerIdentifier, documentIdentifier, pageNumber, processedPage));
+
+    return ResponseEntity.accepted().build();
+  }
+
+  @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.DOCUMENTS)
+  @RequestMapping(
+      value = "/{documentidentifier}/pages",
+      method = RequestMethod.POST,
+      produces = MediaType.APPLICATION_JSON_VALUE,
+      consumes = MediaType.MULTIPART_FORM_DATA_VALUE
+  )
+  public @ResponseBody
+  ResponseEntity<Void> createDocumentPages(
+      @PathVariable("customeridentifier") final String customerIdentifier,
+      @PathVariable("documentidentifier") final String documentIdentifier,
+      @RequestParam(value = "firstPageNumber", required = false, defaultValue = "0") @Range(min=0) final Integer firstPageNumber,
+      @RequestParam(value = "complete", required = false, defaultValue = "false") final Boolean complete,
+      @RequestParam("pages") final List<MultipartFile> pages) {
+    final Integer maxSize = this.environment.getProperty("batch.pages.max-size", Integer.class, 50);
+    if (pages.isEmpty() || pages.size() > maxSize) {
+      throw ServiceException.badRequest("Between 1 and {0} pages can be uploaded at once.", maxSize);
+    }
+
+    throwIfCustomerNotExists(customerIdentifier);
+    final DocumentCompletion documentCompletion = documentService.findCompletion(customerIdentifier, documentIdentifier)
+        .orElseThrow(() -> ServiceException.notFound("Document ''{0}'' for customer ''{1}'' not found.",
+            documentIdentifier, customerIdentifier));
+    if (documentCompletion.isCompleted())
+      throw ServiceException.conflict("The document ''{0}'' for customer ''{1}'' is completed and cannot be uncompleted.",
+          documentIdentifier, customerIdentifier);
+    pages.forEach(page -> throwIfInvalidContentType(page.getContentType()));
+
+    final int lastPageNumber = firstPageNumber + pages.size() - 1;
+    documentService.findPageNumbers(customerIdentifier, documentIdentifier)
+        .filter(pageNumber -> pageNumber >= firstPageNumber && pageNumber <= lastPageNumber)
+        .findFirst()
+        .ifPresent(pageNumber -> {
+          throw ServiceException.conflict("Page ''{0}'' of document ''{1}'' for customer ''{2}'' already exists.",
+              pageNumber, documentIdentifier, customerIdentifier);
+        });
+    if (complete && documentCompletion.isMissingPagesWith(firstPageNumber, pages.size())) {
+      throw ServiceException.badRequest("The document ''{0}'' for customer ''{1}'' is missing pages.",
+          documentIdentifier, customerIdentifier);
+    }
+
+    final List<MultipartFile> processedPages = pages.stream()
+        .map(page -> uploadProcessor.process("page", page))
+        .collect(Collectors.toList());
+    storageService.throwIfQuotaExceeded(customerIdentifier, processedPages.size(),
+        processedPages.stream().mapToLong(MultipartFile::getSize).sum());
+
+    commandScheduler.process(new CreateDocumentPagesCommand(customerIdentifier, documentIdentifier, firstPageNumber,
+        processedPages, complete));
 
     return ResponseEntity.accepted().build();
   }
@@ -266,7 +364,7 @@ public class DocumentsRestController {
 
     throwIfDocumentCompleted(customerIdentifier, documentIdentifier);
 
-    commandGateway.process(new DeleteDocumentPageCommand(customerIdentifier, documentIdentifier, pageNumber));
+    commandScheduler.process(new DeleteDocumentPageCommand(customerIdentifier, documentIdentifier, pageNumber));
 
     return ResponseEntity.accepted().build();
   }
@@ -279,7 +377,8 @@ public class DocumentsRestController {
 
   private void throwIfCustomerDocumentNotExists(final String customerIdentifier, final String documentIdentifier) {
     if (!this.documentService.documentExists(customerIdentifier, documentIdentifier)) {
-      throw ServiceException.notFound("Customer ''{0}'' not found.", customerIdentifier);
+      throw ServiceException.notFound("Document ''{0}'' for customer ''{1}'' not found.",
+          documentIdentifier, customerIdentifier);
     }
   }
 
@@ -296,10 +395,4 @@ public class DocumentsRestController {
       throw ServiceException.conflict("The document ''{0}'' for customer ''{1}'' is completed and cannot be uncompleted.",
           documentIdentifier, customerIdentifier);
   }
-
-  private void throwIfPagesMissing(final String customerIdentifier, final String documentIdentifier) {
-    if (documentService.isDocumentMissingPages(customerIdentifier, documentIdentifier))
-      throw ServiceException.badRequest("The document ''{0}'' for customer ''{1}'' is missing pages.",
-          documentIdentifier, customerIdentifier);
-  }
 }
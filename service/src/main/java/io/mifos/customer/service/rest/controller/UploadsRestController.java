@@ -0,0 +1,449 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.rest.controller;
+
+import io.mifos.anubis.annotation.AcceptedTokenType;
+import io.mifos.anubis.annotation.Permittable;
+import io.mifos.core.lang.ServiceException;
+import io.mifos.customer.PermittableGroupIds;
+import io.mifos.customer.api.v1.domain.IdentificationCardScan;
+import io.mifos.customer.api.v1.domain.Upload;
+import io.mifos.customer.api.v1.events.DocumentPageEvent;
+import io.mifos.customer.api.v1.events.ScanEvent;
+import io.mifos.core.lang.validation.constraints.ValidIdentifier;
+import io.mifos.customer.service.internal.command.CreateDocumentPageCommand;
+import io.mifos.customer.service.internal.command.CreateIdentificationCardScanCommand;
+import io.mifos.customer.service.internal.command.scheduler.CommandScheduler;
+import io.mifos.customer.service.internal.config.UploadSpoolProperties;
+import io.mifos.customer.service.internal.image.ProcessedUpload;
+import io.mifos.customer.service.internal.image.UploadProcessor;
+import io.mifos.customer.service.internal.service.CustomerService;
+import io.mifos.customer.service.internal.service.DocumentService;
+import io.mifos.customer.service.internal.service.StorageService;
+import io.mifos.customer.service.internal.upload.UploadSession;
+import io.mifos.customer.service.internal.upload.UploadSpool;
+import org.hibernate.validator.constraints.Range;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.Valid;
+import javax.validation.constraints.Size;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Resumable uploads of document pages and identification card scans: the client initiates an
+ * upload for the page or scan, sends the content in chunks at increasing offsets, and finalizes
+ * it once all bytes are received.  An upload is only reachable under the page or scan it was
+ * initiated for, and with the permissions of that page or scan.  An interrupted chunk only costs the chunk, the client asks
+ * for the upload to learn where to continue.  Finalizing stores the content and removes the
+ * upload only once it is stored, a failed finalize can be repeated.
+ */
+@RestController
+@RequestMapping("/customers/{customeridentifier}")
+public class UploadsRestController {
+  private final CommandScheduler commandScheduler;
+  private final CustomerService customerService;
+  private final DocumentService documentService;
+  private final UploadProcessor uploadProcessor;
+  private final UploadSpool uploadSpool;
+  private final UploadSpoolProperties uploadSpoolProperties;
+  private final StorageService storageService;
+  private final Environment environment;
+
+  @Autowired
+  public UploadsRestController(
+      final CommandScheduler commandScheduler,
+      final CustomerService customerService,
+      final DocumentService documentService,
+      final UploadProcessor uploadProcessor,
+      final UploadSpool uploadSpool,
+      final UploadSpoolProperties uploadSpoolProperties,
+      final StorageService storageService,
+      final Environment environment) {
+    this.commandScheduler = commandScheduler;
+    this.customerService = customerService;
+    this.documentService = documentService;
+    this.uploadProcessor = uploadProcessor;
+    this.uploadSpool = uploadSpool;
+    this.uploadSpoolProperties = uploadSpoolProperties;
+    this.storageService = storageService;
+    this.environment = environment;
+  }
+
+  @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.DOCUMENTS)
+  @RequestMapping(
+      value = "/documents/{documentidentifier}/pages/{pagenumber}/uploads",
+      method = RequestMethod.POST,
+      produces = MediaType.APPLICATION_JSON_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  public @ResponseBody
+  ResponseEntity<Upload> initiateDocumentPageUpload(
+      @PathVariable("customeridentifier") final String customerIdentifier,
+      @PathVariable("documentidentifier") final String documentIdentifier,
+      @PathVariable("pagenumber") @Range(min=0) final Integer pageNumber,
+      @RequestBody final @Valid Upload upload) {
+    throwIfCustomerNotExists(customerIdentifier);
+    throwIfDocumentCompleted(customerIdentifier, documentIdentifier);
+    throwIfInvalidUpload(upload);
+    storageService.throwIfQuotaExceeded(customerIdentifier, 1L, upload.getSize());
+
+    final UploadSession uploadSession = newSession(customerIdentifier, UploadSession.Target.DOCUMENT_PAGE, upload);
+    uploadSession.setDocumentIdentifier(documentIdentifier);
+    uploadSession.setPageNumber(pageNumber);
+
+    return ResponseEntity.ok(map(uploadSpool.create(uploadSession), 0L));
+  }
+
+  @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.IDENTIFICATIONS)
+  @RequestMapping(
+      value = "/identifications/{number}/scans/{scanidentifier}/uploads",
+      method = RequestMethod.POST,
+      produces = MediaType.APPLICATION_JSON_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  public @ResponseBody
+  ResponseEntity<Upload> initiateIdentificationCardScanUpload(
+      @PathVariable("customeridentifier") final String customerIdentifier,
+      @PathVariable("number") final String number,
+      @PathVariable("scanidentifier") @ValidIdentifier final String scanIdentifier,
+      @RequestParam("description") @Size(max = 4096) final String description,
+      @RequestBody final @Valid Upload upload) {
+    throwIfCustomerNotExists(customerIdentifier);
+    if (!customerService.identificationCardExists(number)) {
+      throw ServiceException.notFound("Identification card {0} not found.", number);
+    }
+    throwIfScanExists(number, scanIdentifier);
+    throwIfInvalidUpload(upload);
+    storageService.throwIfQuotaExceeded(customerIdentifier, 1L, upload.getSize());
+
+    final UploadSession uploadSession = newSession(customerIdentifier, UploadSession.Target.IDENTIFICATION_CARD_SCAN, upload);
+    uploadSession.setNumber(number);
+    uploadSession.setScanIdentifier(scanIdentifier);
+    uploadSession.setDescription(description);
+
+    return ResponseEntity.ok(map(uploadSpool.create(uploadSession), 0L));
+  }
+
+  @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.DOCUMENTS)
+  @RequestMapping(
+      value = "/documents/{documentidentifier}/pages/{pagenumber}/uploads/{uploadidentifier}",
+      method = RequestMethod.GET,
+      produces = MediaType.APPLICATION_JSON_VALUE,
+      consumes = MediaType.ALL_VALUE
+  )
+  public @ResponseBody
+  ResponseEntity<Upload> getDocumentPageUpload(
+      @PathVariable("customeridentifier") final String customerIdentifier,
+      @PathVariable("documentidentifier") final String documentIdentifier,
+      @PathVariable("pagenumber") final Integer pageNumber,
+      @PathVariable("uploadidentifier") final String uploadIdentifier) {
+    final UploadSession uploadSession = findDocumentPageSession(customerIdentifier, documentIdentifier, pageNumber, uploadIdentifier);
+
+    return ResponseEntity.ok(map(uploadSession, uploadSpool.received(uploadSession)));
+  }
+
+  @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.DOCUMENTS)
+  @RequestMapping(
+      value = "/documents/{documentidentifier}/pages/{pagenumber}/uploads/{uploadidentifier}",
+      method = RequestMethod.PUT,
+      produces = MediaType.APPLICATION_JSON_VALUE,
+      consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE
+  )
+  public @ResponseBody
+  ResponseEntity<Upload> uploadDocumentPageChunk(
+      @PathVariable("customeridentifier") final String customerIdentifier,
+      @PathVariable("documentidentifier") final String documentIdentifier,
+      @PathVariable("pagenumber") final Integer pageNumber,
+      @PathVariable("uploadidentifier") final String uploadIdentifier,
+      @RequestParam("offset") @Range(min=0) final Long offset,
+      final HttpServletRequest request) throws IOException {
+    final UploadSession uploadSession = findDocumentPageSession(customerIdentifier, documentIdentifier, pageNumber, uploadIdentifier);
+
+    final long received = uploadSpool.append(uploadSession, offset, request.getInputStream());
+
+    return ResponseEntity.ok(map(uploadSession, received));
+  }
+
+  @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.DOCUMENTS)
+  @RequestMapping(
+      value = "/documents/{documentidentifier}/pages/{pagenumber}/uploads/{uploadidentifier}/finalize",
+      method = RequestMethod.POST,
+      produces = MediaType.APPLICATION_JSON_VALUE,
+      consumes = MediaType.ALL_VALUE
+  )
+  public @ResponseBody
+  ResponseEntity<Void> finalizeDocumentPageUpload(
+      @PathVariable("customeridentifier") final String customerIdentifier,
+      @PathVariable("documentidentifier") final String documentIdentifier,
+      @PathVariable("pagenumber") final Integer pageNumber,
+      @PathVariable("uploadidentifier") final String uploadIdentifier) {
+    finalizeUpload(uploadIdentifier,
+        () -> findDocumentPageSession(customerIdentifier, documentIdentifier, pageNumber, uploadIdentifier));
+
+    return ResponseEntity.accepted().build();
+  }
+
+  @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.DOCUMENTS)
+  @RequestMapping(
+      value = "/documents/{documentidentifier}/pages/{pagenumber}/uploads/{uploadidentifier}",
+      method = RequestMethod.DELETE,
+      produces = MediaType.APPLICATION_JSON_VALUE,
+      consumes = MediaType.ALL_VALUE
+  )
+  public @ResponseBody
+  ResponseEntity<Void> cancelDocumentPageUpload(
+      @PathVariable("customeridentifier") final String customerIdentifier,
+      @PathVariable("documentidentifier") final String documentIdentifier,
+      @PathVariable("pagenumber") final Integer pageNumber,
+      @PathVariable("uploadidentifier") final String uploadIdentifier) {
+    uploadSpool.delete(findDocumentPageSession(customerIdentifier, documentIdentifier, pageNumber, uploadIdentifier));
+
+    return ResponseEntity.accepted().build();
+  }
+
+  @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.IDENTIFICATIONS)
+  @RequestMapping(
+      value = "/identifications/{number}/scans/{scanidentifier}/uploads/{uploadidentifier}",
+      method = RequestMethod.GET,
+      produces = MediaType.APPLICATION_JSON_VALUE,
+      consumes = MediaType.ALL_VALUE
+  )
+  public @ResponseBody
+  ResponseEntity<Upload> getIdentificationCardScanUpload(
+      @PathVariable("customeridentifier") final String customerIdentifier,
+      @PathVariable("number") final String number,
+      @PathVariable("scanidentifier") final String scanIdentifier,
+      @PathVariable("uploadidentifier") final String uploadIdentifier) {
+    final UploadSession uploadSession = findScanSession(customerIdentifier, number, scanIdentifier, uploadIdentifier);
+
+    return ResponseEntity.ok(map(uploadSession, uploadSpool.received(uploadSession)));
+  }
+
+  @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.IDENTIFICATIONS)
+  @RequestMapping(
+      value = "/identifications/{number}/scans/{scanidentifier}/uploads/{uploadidentifier}",
+      method = RequestMethod.PUT,
+      produces = MediaType.APPLICATION_JSON_VALUE,
+      consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE
+  )
+  public @ResponseBody
+  ResponseEntity<Upload> uploadIdentificationCardScanChunk(
+      @PathVariable("customeridentifier") final String customerIdentifier,
+      @PathVariable("number") final String number,
+      @PathVariable("scanidentifier") final String scanIdentifier,
+      @PathVariable("uploadidentifier") final String uploadIdentifier,
+      @RequestParam("offset") @Range(min=0) final Long offset,
+      final HttpServletRequest request) throws IOException {
+    final UploadSession uploadSession = findScanSession(customerIdentifier, number, scanIdentifier, uploadIdentifier);
+
+    final long received = uploadSpool.append(uploadSession, offset, request.getInputStream());
+
+    return ResponseEntity.ok(map(uploadSession, received));
+  }
+
+  @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.IDENTIFICATIONS)
+  @RequestMapping(
+      value = "/identifications/{number}/scans/{scanidentifier}/uploads/{uploadidentifier}/finalize",
+      method = RequestMethod.POST,
+      produces = MediaType.APPLICATION_JSON_VALUE,
+      consumes = MediaType.ALL_VALUE
+  )
+  public @ResponseBody
+  ResponseEntity<Void> finalizeIdentificationCardScanUpload(
+      @PathVariable("customeridentifier") final String customerIdentifier,
+      @PathVariable("number") final String number,
+      @PathVariable("scanidentifier") final String scanIdentifier,
+      @PathVariable("uploadidentifier") final String uploadIdentifier) {
+    finalizeUpload(uploadIdentifier,
+        () -> findScanSession(customerIdentifier, number, scanIdentifier, uploadIdentifier));
+
+    return ResponseEntity.accepted().build();
+  }
+
+  @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.IDENTIFICATIONS)
+  @RequestMapping(
+      value = "/identifications/{number}/scans/{scanidentifier}/uploads/{uploadidentifier}",
+      method = RequestMethod.DELETE,
+      produces = MediaType.APPLICATION_JSON_VALUE,
+      consumes = MediaType.ALL_VALUE
+  )
+  public @ResponseBody
+  ResponseEntity<Void> cancelIdentificationCardScanUpload(
+      @PathVariable("customeridentifier") final String customerIdentifier,
+      @PathVariable("number") final String number,
+      @PathVariable("scanidentifier") final String scanIdentifier,
+      @PathVariable("uploadidentifier") final String uploadIdentifier) {
+    uploadSpool.delete(findScanSession(customerIdentifier, number, scanIdentifier, uploadIdentifier));
+
+    return ResponseEntity.accepted().build();
+  }
+
+  private void finalizeUpload(final String uploadIdentifier, final Supplier<UploadSession> uploadSession) {
+    if (!uploadSpool.beginFinalize(uploadIdentifier)) {
+      throw ServiceException.conflict("Upload {0} is already being finalized.", uploadIdentifier);
+    }
+    try {
+      storeUpload(uploadSession.get());
+    } finally {
+      uploadSpool.endFinalize(uploadIdentifier);
+    }
+  }
+
+  private void storeUpload(final UploadSession uploadSession) {
+    final String customerIdentifier = uploadSession.getCustomerIdentifier();
+    final String uploadIdentifier = uploadSession.getIdentifier();
+    final long received = uploadSpool.received(uploadSession);
+    if (received != uploadSession.getSize()) {
+      throw ServiceException.badRequest("Upload {0} received {1} of {2} bytes.",
+          uploadIdentifier, received, uploadSession.getSize());
+    }
+
+    final MultipartFile content = new ProcessedUpload("upload", uploadIdentifier,
+        uploadSession.getContentType(), uploadSpool.read(uploadSession));
+
+    switch (uploadSession.getTarget()) {
+      case DOCUMENT_PAGE: {
+        throwIfDocumentCompleted(customerIdentifier, uploadSession.getDocumentIdentifier());
+        final MultipartFile processedPage = uploadProcessor.process("page", content);
+        storageService.throwIfQuotaExceeded(customerIdentifier, 1L, processedPage.getSize());
+        processAndWait(new CreateDocumentPageCommand(customerIdentifier,
+            uploadSession.getDocumentIdentifier(), uploadSession.getPageNumber(), processedPage), DocumentPageEvent.class);
+        break;
+      }
+      case IDENTIFICATION_CARD_SCAN: {
+        throwIfScanExists(uploadSession.getNumber(), uploadSession.getScanIdentifier());
+        final MultipartFile processedImage = uploadProcessor.process("scan", content);
+        final Long maxSize = environment.getProperty("upload.image.max-size", Long.class);
+        if (processedImage.getSize() > maxSize) {
+          throw ServiceException.badRequest("Image can''t exceed size of {0}", maxSize);
+        }
+        storageService.throwIfQuotaExceeded(customerIdentifier, 1L, processedImage.getSize());
+        final IdentificationCardScan scan = new IdentificationCardScan();
+        scan.setIdentifier(uploadSession.getScanIdentifier());
+        scan.setDescription(uploadSession.getDescription());
+        processAndWait(new CreateIdentificationCardScanCommand(uploadSession.getNumber(), scan, processedImage),
+            ScanEvent.class);
+        break;
+      }
+    }
+
+    uploadSpool.delete(uploadSession);
+  }
+
+  private void processAndWait(final Object command, final Class<?> eventClass) {
+    try {
+      commandScheduler.process(command, eventClass).get();
+    } catch (final InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while storing upload.", ex);
+    } catch (final ExecutionException ex) {
+      Throwable cause = ex.getCause();
+      while (cause != null && !(cause instanceof ServiceException)) {
+        cause = cause.getCause();
+      }
+      if (cause != null) {
+        throw (ServiceException) cause;
+      }
+      throw new IllegalStateException("Could not store upload.", ex.getCause());
+    }
+  }
+
+  private UploadSession newSession(final String customerIdentifier, final UploadSession.Target target,
+                                   final Upload upload) {
+    final UploadSession uploadSession = new UploadSession();
+    uploadSession.setCustomerIdentifier(customerIdentifier);
+    uploadSession.setTarget(target);
+    uploadSession.setContentType(upload.getContentType());
+    uploadSession.setSize(upload.getSize());
+    return uploadSession;
+  }
+
+  /**
+   * Only finds the upload under the page it was initiated for, so it can't be reached through
+   * the permissions of another target.
+   */
+  private UploadSession findDocumentPageSession(final String customerIdentifier, final String documentIdentifier,
+                                                final Integer pageNumber, final String uploadIdentifier) {
+    return findSession(customerIdentifier, uploadIdentifier, uploadSession ->
+        uploadSession.getTarget() == UploadSession.Target.DOCUMENT_PAGE
+            && documentIdentifier.equals(uploadSession.getDocumentIdentifier())
+            && pageNumber.equals(uploadSession.getPageNumber()));
+  }
+
+  private UploadSession findScanSession(final String customerIdentifier, final String number,
+                                        final String scanIdentifier, final String uploadIdentifier) {
+    return findSession(customerIdentifier, uploadIdentifier, uploadSession ->
+        uploadSession.getTarget() == UploadSession.Target.IDENTIFICATION_CARD_SCAN
+            && number.equals(uploadSession.getNumber())
+            && scanIdentifier.equals(uploadSession.getScanIdentifier()));
+  }
+
+  private UploadSession findSession(final String customerIdentifier, final String uploadIdentifier,
+                                    final Predicate<UploadSession> target) {
+    return uploadSpool.find(uploadIdentifier)
+        .filter(uploadSession -> uploadSession.getCustomerIdentifier().equals(customerIdentifier))
+        .filter(target)
+        .orElseThrow(() -> ServiceException.notFound("Upload ''{0}'' for customer ''{1}'' not found.",
+            uploadIdentifier, customerIdentifier));
+  }
+
+  private static Upload map(final UploadSession uploadSession, final long received) {
+    final Upload upload = new Upload();
+    upload.setIdentifier(uploadSession.getIdentifier());
+    upload.setContentType(uploadSession.getContentType());
+    upload.setSize(uploadSession.getSize());
+    upload.setReceived(received);
+    return upload;
+  }
+
+  private void throwIfCustomerNotExists(final String customerIdentifier) {
+    if (!this.customerService.customerExists(customerIdentifier)) {
+      throw ServiceException.notFound("Customer ''{0}'' not found.", customerIdentifier);
+    }
+  }
+
+  private void throwIfDocumentCompleted(final String customerIdentifier, final String documentIdentifier) {
+    if (documentService.isDocumentCompleted(customerIdentifier, documentIdentifier))
+      throw ServiceException.conflict("The document ''{0}'' for customer ''{1}'' is completed and cannot be uncompleted.",
+          documentIdentifier, customerIdentifier);
+  }
+
+  private void throwIfScanExists(final String number, final String scanIdentifier) {
+    if (this.customerService.identificationCardScanExists(number, scanIdentifier)) {
+      throw ServiceException.conflict("Scan {0} already exists.", scanIdentifier);
+    }
+  }
+
+  private void throwIfInvalidUpload(final Upload upload) {
+    if(!upload.getContentType().contains(MediaType.IMAGE_JPEG_VALUE)
+        && !upload.getContentType().contains(MediaType.IMAGE_PNG_VALUE)) {
+      throw ServiceException.badRequest("Image has contentType ''{0}'', but only content types ''{1}'' and ''{2}'' allowed.",
+          upload.getContentType(), MediaType.IMAGE_JPEG_VALUE, MediaType.IMAGE_PNG_VALUE);
+    }
+    if (upload.getSize() > this.uploadSpoolProperties.getMaxSize()) {
+      throw ServiceException.badRequest("Upload can''t exceed size of {0}", this.uploadSpoolProperties.getMaxSize());
+    }
+  }
+}
@@ -0,0 +1,23 @@
+--
+-- Copyright 2017 The Mifos Initiative.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--    http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+CREATE TABLE maat_event_outbox (
+  id BIGINT NOT NULL AUTO_INCREMENT,
+  selector_value VARCHAR(64) NOT NULL,
+  payload MEDIUMTEXT NOT NULL,
+  created_on TIMESTAMP(3) NOT NULL,
+  CONSTRAINT maat_event_outbox_pk PRIMARY KEY (id)
+);
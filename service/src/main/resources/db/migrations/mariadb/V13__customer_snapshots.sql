@@ -0,0 +1,29 @@
+--
+-- Copyright 2017 The Mifos Initiative.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--    http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+CREATE TABLE maat_customer_snapshots (
+  id BIGINT NOT NULL AUTO_INCREMENT,
+  customer_id BIGINT NOT NULL,
+  a_version INT NOT NULL,
+  payload MEDIUMTEXT NOT NULL,
+  created_by VARCHAR(32) NOT NULL,
+  created_on TIMESTAMP(3) NOT NULL,
+  CONSTRAINT maat_customer_snapshots_pk PRIMARY KEY (id),
+  CONSTRAINT maat_customer_snapshots_uq UNIQUE (customer_id, a_version),
+  CONSTRAINT maat_customer_snapshots_customers_fk FOREIGN KEY (customer_id) REFERENCES maat_customers (id)
+);
+
+CREATE INDEX maat_customer_snapshots_created_on_idx ON maat_customer_snapshots (customer_id, created_on);
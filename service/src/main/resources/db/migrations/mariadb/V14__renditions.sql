@@ -0,0 +1,29 @@
+--
+-- Copyright 2017 The Mifos Initiative.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--    http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+CREATE TABLE maat_renditions (
+  id BIGINT NOT NULL AUTO_INCREMENT,
+  portrait_id BIGINT NULL,
+  scan_id BIGINT NULL,
+  a_size INT NOT NULL,
+  content_type VARCHAR(256) NOT NULL,
+  image MEDIUMBLOB NOT NULL,
+  CONSTRAINT maat_renditions_pk PRIMARY KEY (id),
+  CONSTRAINT maat_renditions_portrait_uq UNIQUE (portrait_id, a_size),
+  CONSTRAINT maat_renditions_scan_uq UNIQUE (scan_id, a_size),
+  CONSTRAINT maat_renditions_portraits_fk FOREIGN KEY (portrait_id) REFERENCES maat_portraits (id) ON DELETE CASCADE,
+  CONSTRAINT maat_renditions_scans_fk FOREIGN KEY (scan_id) REFERENCES maat_identification_card_scans (id) ON DELETE CASCADE
+);
@@ -0,0 +1,36 @@
+--
+-- Copyright 2017 The Mifos Initiative.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--    http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+CREATE TABLE maat_blobs (
+  id BIGINT NOT NULL AUTO_INCREMENT,
+  hash CHAR(64) NOT NULL,
+  size BIGINT NOT NULL,
+  content MEDIUMBLOB NOT NULL,
+  ref_count INT NOT NULL,
+  CONSTRAINT maat_blobs_pk PRIMARY KEY (id),
+  CONSTRAINT maat_blobs_hash_uq UNIQUE (hash)
+);
+
+ALTER TABLE maat_portraits ADD blob_id BIGINT NULL;
+ALTER TABLE maat_portraits MODIFY image MEDIUMBLOB NULL;
+ALTER TABLE maat_portraits ADD CONSTRAINT maat_portraits_blobs_fk FOREIGN KEY (blob_id) REFERENCES maat_blobs (id);
+
+ALTER TABLE maat_identification_card_scans ADD blob_id BIGINT NULL;
+ALTER TABLE maat_identification_card_scans MODIFY image MEDIUMBLOB NULL;
+ALTER TABLE maat_identification_card_scans ADD CONSTRAINT maat_ident_card_scans_blobs_fk FOREIGN KEY (blob_id) REFERENCES maat_blobs (id);
+
+ALTER TABLE maat_document_pages ADD blob_id BIGINT NULL;
+ALTER TABLE maat_document_pages MODIFY image MEDIUMBLOB NULL;
+ALTER TABLE maat_document_pages ADD CONSTRAINT maat_document_pages_blobs_fk FOREIGN KEY (blob_id) REFERENCES maat_blobs (id);
@@ -0,0 +1,36 @@
+--
+-- Copyright 2017 The Mifos Initiative.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--    http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+-- the content itself is kept in Cassandra, see ArchivedContentRepository
+CREATE TABLE maat_archived_images (
+  id BIGINT NOT NULL AUTO_INCREMENT,
+  size BIGINT NOT NULL,
+  stored_size BIGINT NOT NULL,
+  deflated BOOLEAN NOT NULL,
+  archived_on TIMESTAMP(3) NOT NULL,
+  CONSTRAINT maat_archived_images_pk PRIMARY KEY (id)
+);
+
+ALTER TABLE maat_customers ADD closed_on TIMESTAMP(3) NULL;
+UPDATE maat_customers SET closed_on = last_modified_on WHERE current_state = 'CLOSED';
+
+ALTER TABLE maat_portraits ADD archive_id BIGINT NULL;
+ALTER TABLE maat_portraits ADD CONSTRAINT maat_portraits_archive_fk FOREIGN KEY (archive_id) REFERENCES maat_archived_images (id);
+
+ALTER TABLE maat_identification_card_scans ADD archive_id BIGINT NULL;
+ALTER TABLE maat_identification_card_scans ADD CONSTRAINT maat_ident_card_scans_archive_fk FOREIGN KEY (archive_id) REFERENCES maat_archived_images (id);
+
+ALTER TABLE maat_document_pages ADD archive_id BIGINT NULL;
+ALTER TABLE maat_document_pages ADD CONSTRAINT maat_document_pages_archive_fk FOREIGN KEY (archive_id) REFERENCES maat_archived_images (id);
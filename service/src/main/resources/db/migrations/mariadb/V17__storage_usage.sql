@@ -0,0 +1,33 @@
+--
+-- Copyright 2017 The Mifos Initiative.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--    http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+CREATE TABLE maat_storage_usage (
+  customer_id BIGINT NOT NULL,
+  object_count BIGINT NOT NULL,
+  byte_count BIGINT NOT NULL,
+  CONSTRAINT maat_storage_usage_pk PRIMARY KEY (customer_id),
+  CONSTRAINT maat_storage_usage_customers_fk FOREIGN KEY (customer_id) REFERENCES maat_customers (id)
+);
+
+INSERT INTO maat_storage_usage (customer_id, object_count, byte_count)
+  SELECT u.customer_id, COUNT(*), COALESCE(SUM(u.size), 0) FROM (
+    SELECT p.customer_id, p.size FROM maat_portraits p
+    UNION ALL
+    SELECT c.customer_id, s.size FROM maat_identification_card_scans s
+      JOIN maat_identification_cards c ON c.id = s.identification_card_id
+    UNION ALL
+    SELECT d.customer_id, g.size FROM maat_document_pages g
+      JOIN maat_documents d ON d.id = g.document_id
+  ) u GROUP BY u.customer_id;
@@ -0,0 +1,27 @@
+--
+-- Copyright 2017 The Mifos Initiative.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--    http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- the total of the tenant, striped by customer id so concurrent writes rarely meet on a row
+CREATE TABLE maat_storage_usage_totals (
+  stripe INT NOT NULL,
+  object_count BIGINT NOT NULL,
+  byte_count BIGINT NOT NULL,
+  CONSTRAINT maat_storage_usage_totals_pk PRIMARY KEY (stripe)
+);
+
+INSERT INTO maat_storage_usage_totals (stripe, object_count, byte_count)
+  SELECT MOD(u.customer_id, 16), SUM(u.object_count), SUM(u.byte_count) FROM maat_storage_usage u
+  GROUP BY MOD(u.customer_id, 16);
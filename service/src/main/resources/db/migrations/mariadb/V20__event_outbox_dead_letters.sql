@@ -0,0 +1,34 @@
+--
+-- Copyright 2017 The Mifos Initiative.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--    http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+ALTER TABLE maat_event_outbox ADD attempts INT NOT NULL DEFAULT 0;
+ALTER TABLE maat_event_outbox ADD next_attempt_on TIMESTAMP(3) NULL;
+ALTER TABLE maat_event_outbox ADD ordering_key VARCHAR(64) NULL;
+
+CREATE INDEX maat_event_outbox_ordering_key_ix ON maat_event_outbox (ordering_key, id);
+
+CREATE TABLE maat_event_dead_letters (
+  id BIGINT NOT NULL AUTO_INCREMENT,
+  outbox_id BIGINT NOT NULL,
+  selector_name VARCHAR(64) NOT NULL,
+  selector_value VARCHAR(64) NOT NULL,
+  payload MEDIUMTEXT NOT NULL,
+  created_on TIMESTAMP(3) NOT NULL,
+  attempts INT NOT NULL,
+  last_error VARCHAR(512) NULL,
+  dead_lettered_on TIMESTAMP(3) NOT NULL,
+  CONSTRAINT maat_event_dead_letters_pk PRIMARY KEY (id)
+);
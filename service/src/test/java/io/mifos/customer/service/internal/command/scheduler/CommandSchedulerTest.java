@@ -0,0 +1,223 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.command.scheduler;
+
+import io.mifos.core.command.gateway.CommandGateway;
+import io.mifos.core.lang.ServiceException;
+import io.mifos.core.lang.TenantContextHolder;
+import io.mifos.customer.service.internal.config.CommandSchedulerProperties;
+import io.mifos.customer.service.internal.jdbc.ReplicaRouter;
+import io.mifos.customer.service.internal.metrics.ServiceMetrics;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.core.task.TaskRejectedException;
+
+public class CommandSchedulerTest {
+
+  private CommandGateway commandGateway;
+  private CommandSchedulerProperties commandSchedulerProperties;
+  private CounterService counterService;
+  private CommandScheduler testSubject;
+
+  @Before
+  public void setUp() {
+    this.commandGateway = Mockito.mock(CommandGateway.class);
+    this.commandSchedulerProperties = new CommandSchedulerProperties();
+    this.commandSchedulerProperties.setCapacity(4);
+    this.commandSchedulerProperties.setTenantMinimum(1);
+    this.commandSchedulerProperties.setExpectedTenants(2);
+    this.commandSchedulerProperties.setRetryDelay(10L);
+    this.counterService = Mockito.mock(CounterService.class);
+    this.testSubject = new CommandScheduler(Mockito.mock(Logger.class), this.commandGateway,
+        this.commandSchedulerProperties, Mockito.mock(GaugeService.class), this.counterService,
+        Mockito.mock(ServiceMetrics.class), Mockito.mock(ReplicaRouter.class));
+    this.testSubject.start();
+  }
+
+  @After
+  public void tearDown() {
+    this.testSubject.stop();
+    TenantContextHolder.clear();
+  }
+
+  @Test
+  public void shouldRejectWithServiceUnavailableIfSaturated() {
+    this.commandSchedulerProperties.setTenantMinimum(4);
+
+    for (int i = 0; i < 4; i++) {
+      this.process("first", new Object());
+    }
+
+    assertRejected(503, () -> this.process("second", new Object()));
+  }
+
+  @Test
+  public void shouldShareCapacityBetweenTenants() {
+    this.process("first", new Object());
+    this.process("first", new Object());
+    this.process("second", new Object());
+
+    assertRejected(429, () -> this.process("first", new Object()));
+
+    this.process("second", new Object());
+  }
+
+  @Test
+  public void shouldAdmitOtherTenantWhileOneIsSaturating() {
+    for (int i = 0; i < 3; i++) {
+      this.process("first", new Object());
+    }
+    assertRejected(429, () -> this.process("first", new Object()));
+
+    this.process("second", new Object());
+  }
+
+  @Test
+  public void shouldDispatchRoundRobinAcrossTenants() throws Throwable {
+    this.commandSchedulerProperties.setCapacity(8);
+    this.commandSchedulerProperties.setDispatchLimit(1);
+    final CommandDispatchAspect dispatchAspect = new CommandDispatchAspect(this.testSubject);
+    final ProceedingJoinPoint joinPoint = Mockito.mock(ProceedingJoinPoint.class);
+
+    final Object firstA = new Object();
+    final Object secondA = new Object();
+    final Object thirdA = new Object();
+    final Object firstB = new Object();
+    this.process("first", firstA);
+    this.process("first", secondA);
+    this.process("first", thirdA);
+    this.process("second", firstB);
+
+    Mockito.verify(this.commandGateway).process(firstA);
+    Mockito.verifyNoMoreInteractions(this.commandGateway);
+
+    dispatchAspect.aroundDispatch(joinPoint, firstA);
+    dispatchAspect.aroundDispatch(joinPoint, secondA);
+    dispatchAspect.aroundDispatch(joinPoint, firstB);
+
+    final InOrder inOrder = Mockito.inOrder(this.commandGateway);
+    inOrder.verify(this.commandGateway).process(firstA);
+    inOrder.verify(this.commandGateway).process(secondA);
+    inOrder.verify(this.commandGateway).process(firstB);
+    inOrder.verify(this.commandGateway).process(thirdA);
+  }
+
+  @Test
+  public void shouldReleaseSlotOnceDispatched() throws Throwable {
+    this.commandSchedulerProperties.setCapacity(1);
+    final CommandDispatchAspect dispatchAspect = new CommandDispatchAspect(this.testSubject);
+
+    final Object command = new Object();
+    this.process("first", command);
+    assertRejected(429, () -> this.process("first", new Object()));
+
+    final ProceedingJoinPoint joinPoint = Mockito.mock(ProceedingJoinPoint.class);
+    Mockito.when(joinPoint.proceed()).thenReturn(null);
+    dispatchAspect.aroundDispatch(joinPoint, command);
+
+    this.process("first", new Object());
+  }
+
+  @Test
+  public void shouldReleaseSlotIfDispatchFails() throws Throwable {
+    this.commandSchedulerProperties.setCapacity(1);
+    final CommandDispatchAspect dispatchAspect = new CommandDispatchAspect(this.testSubject);
+
+    final Object command = new Object();
+    this.process("first", command);
+
+    final ProceedingJoinPoint joinPoint = Mockito.mock(ProceedingJoinPoint.class);
+    Mockito.when(joinPoint.proceed()).thenThrow(new IllegalArgumentException("No handler found."));
+    try {
+      dispatchAspect.aroundDispatch(joinPoint, command);
+      Assert.fail();
+    } catch (final IllegalArgumentException ex) {
+      // expected
+    }
+
+    this.process("first", new Object());
+  }
+
+  @Test
+  public void shouldReleaseSlotIfExecutorRejects() {
+    this.commandSchedulerProperties.setCapacity(1);
+
+    final Object rejectedCommand = new Object();
+    Mockito.doThrow(new TaskRejectedException("Queue full.")).when(this.commandGateway).process(rejectedCommand);
+    assertRejected(503, () -> this.process("first", rejectedCommand));
+
+    this.process("first", new Object());
+  }
+
+  @Test
+  public void shouldRetryAcceptedCommandIfExecutorRejects() throws Throwable {
+    this.commandSchedulerProperties.setCapacity(8);
+    this.commandSchedulerProperties.setDispatchLimit(1);
+    final CommandDispatchAspect dispatchAspect = new CommandDispatchAspect(this.testSubject);
+
+    final Object runningCommand = new Object();
+    final Object queuedCommand = new Object();
+    Mockito.doThrow(new TaskRejectedException("Queue full.")).doNothing().when(this.commandGateway).process(queuedCommand);
+    this.process("first", runningCommand);
+    this.process("first", queuedCommand);
+
+    dispatchAspect.aroundDispatch(Mockito.mock(ProceedingJoinPoint.class), runningCommand);
+
+    Mockito.verify(this.commandGateway, Mockito.timeout(1000L).times(2)).process(queuedCommand);
+    Mockito.verify(this.counterService).increment("customer.commands.retried");
+    Mockito.verify(this.counterService, Mockito.never()).increment("customer.commands.lost");
+  }
+
+  @Test
+  public void shouldCountAcceptedCommandAsLostIfDispatchFails() throws Throwable {
+    this.commandSchedulerProperties.setCapacity(8);
+    this.commandSchedulerProperties.setDispatchLimit(1);
+    final CommandDispatchAspect dispatchAspect = new CommandDispatchAspect(this.testSubject);
+
+    final Object runningCommand = new Object();
+    final Object queuedCommand = new Object();
+    Mockito.doThrow(new IllegalStateException("Broken.")).when(this.commandGateway).process(queuedCommand);
+    this.process("first", runningCommand);
+    this.process("first", queuedCommand);
+
+    dispatchAspect.aroundDispatch(Mockito.mock(ProceedingJoinPoint.class), runningCommand);
+
+    Mockito.verify(this.counterService).increment("customer.commands.lost");
+  }
+
+  private void process(final String tenantIdentifier, final Object command) {
+    TenantContextHolder.clear();
+    TenantContextHolder.setIdentifier(tenantIdentifier);
+    this.testSubject.process(command);
+  }
+
+  private static void assertRejected(final int expectedCode, final Runnable submit) {
+    try {
+      submit.run();
+      Assert.fail();
+    } catch (final ServiceException ex) {
+      Assert.assertEquals(expectedCode, ex.serviceError().getCode());
+    }
+  }
+}
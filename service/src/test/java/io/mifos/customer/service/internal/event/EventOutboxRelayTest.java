@@ -0,0 +1,224 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.event;
+
+import io.mifos.customer.service.internal.config.OutboxProperties;
+import io.mifos.customer.service.internal.metrics.ServiceMetrics;
+import io.mifos.customer.service.internal.repository.CommandLogEntity;
+import io.mifos.customer.service.internal.repository.CommandLogRepository;
+import io.mifos.customer.service.internal.repository.EventDeadLetterEntity;
+import io.mifos.customer.service.internal.repository.EventDeadLetterRepository;
+import io.mifos.customer.service.internal.repository.EventOutboxEntity;
+import io.mifos.customer.service.internal.repository.EventOutboxRepository;
+import io.mifos.customer.service.internal.repository.TenantRepository;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.core.MessagePostProcessor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyDouble;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+
+public class EventOutboxRelayTest {
+
+  private static final String TENANT = "tenant";
+  private static final long TIMEOUT = 5000L;
+
+  private EventOutboxRepository eventOutboxRepository;
+  private EventDeadLetterRepository eventDeadLetterRepository;
+  private TenantRepository tenantRepository;
+  private CommandLogRepository commandLogRepository;
+  private JmsTemplate jmsTemplate;
+  private CounterService counterService;
+  private GaugeService gaugeService;
+  private EventOutboxRelay testSubject;
+
+  @Before
+  public void setUp() {
+    this.eventOutboxRepository = Mockito.mock(EventOutboxRepository.class);
+    this.eventDeadLetterRepository = Mockito.mock(EventDeadLetterRepository.class);
+    this.tenantRepository = Mockito.mock(TenantRepository.class);
+    this.commandLogRepository = Mockito.mock(CommandLogRepository.class);
+    this.jmsTemplate = Mockito.mock(JmsTemplate.class);
+    this.counterService = Mockito.mock(CounterService.class);
+
+    final OutboxProperties outboxProperties = new OutboxProperties();
+    // keep the scheduled sweep out of the way, the tests sweep explicitly
+    outboxProperties.getRelay().setPollInterval(3600000L);
+    outboxProperties.getRelay().setMaxAttempts(3);
+
+    this.gaugeService = Mockito.mock(GaugeService.class);
+    this.testSubject = new EventOutboxRelay(Mockito.mock(Logger.class), this.eventOutboxRepository, this.eventDeadLetterRepository,
+        this.tenantRepository, this.commandLogRepository, Mockito.mock(PlatformTransactionManager.class), this.jmsTemplate, this.gaugeService,
+        this.counterService, outboxProperties, new ServiceMetrics(this.gaugeService));
+    this.testSubject.start();
+  }
+
+  @After
+  public void tearDown() throws InterruptedException {
+    this.testSubject.stop();
+  }
+
+  @Test
+  public void shouldPublishEntriesOfProvisionedTenantWithoutSignal() {
+    final EventOutboxEntity entry = entry();
+    Mockito.when(this.tenantRepository.findAllIdentifiers()).thenReturn(Collections.singleton(TENANT));
+    Mockito.when(this.eventOutboxRepository.findDue(any(LocalDateTime.class), any(Pageable.class)))
+        .thenReturn(Collections.singletonList(entry))
+        .thenReturn(Collections.emptyList());
+
+    this.testSubject.sweep();
+
+    Mockito.verify(this.jmsTemplate, Mockito.timeout(TIMEOUT))
+        .convertAndSend(eq((Object) entry.getPayload()), any(MessagePostProcessor.class));
+    Mockito.verify(this.eventOutboxRepository, Mockito.timeout(TIMEOUT))
+        .deleteInBatch(Collections.singletonList(entry));
+    Mockito.verify(this.gaugeService, Mockito.timeout(TIMEOUT)).submit(eq("customer.outbox.lag." + TENANT), anyDouble());
+  }
+
+  @Test
+  public void shouldKeepEntriesIfPublishingFails() {
+    final EventOutboxEntity entry = entry();
+    Mockito.when(this.tenantRepository.findAllIdentifiers()).thenReturn(Collections.emptySet());
+    Mockito.when(this.eventOutboxRepository.findDue(any(LocalDateTime.class), any(Pageable.class)))
+        .thenReturn(Collections.singletonList(entry));
+    Mockito.doThrow(new IllegalStateException("broker down"))
+        .when(this.jmsTemplate).convertAndSend(eq((Object) entry.getPayload()), any(MessagePostProcessor.class));
+
+    this.testSubject.signal(TENANT);
+
+    Mockito.verify(this.counterService, Mockito.timeout(TIMEOUT)).increment("customer.outbox.failed");
+    Mockito.verify(this.eventOutboxRepository, Mockito.timeout(TIMEOUT)).save(entry);
+    Mockito.verify(this.eventOutboxRepository, Mockito.never()).deleteInBatch(anyListOf(EventOutboxEntity.class));
+    Assert.assertEquals(Integer.valueOf(1), entry.getAttempts());
+    Assert.assertNotNull(entry.getNextAttemptOn());
+  }
+
+  @Test
+  public void shouldHoldBackLaterEntriesOfCustomerIfOneEntryFails() {
+    final EventOutboxEntity poisoned = entry();
+    poisoned.setPayload("\"poisoned\"");
+    final EventOutboxEntity later = entry();
+    later.setId(2L);
+    later.setSelectorValue("put-customer");
+    final EventOutboxEntity other = entry();
+    other.setId(3L);
+    other.setPayload("\"other\"");
+    other.setOrderingKey("other");
+    Mockito.when(this.tenantRepository.findAllIdentifiers()).thenReturn(Collections.emptySet());
+    Mockito.when(this.eventOutboxRepository.findDue(any(LocalDateTime.class), any(Pageable.class)))
+        .thenReturn(Arrays.asList(poisoned, later, other))
+        .thenReturn(Collections.emptyList());
+    Mockito.doThrow(new IllegalStateException("cannot convert"))
+        .when(this.jmsTemplate).convertAndSend(eq((Object) poisoned.getPayload()), any(MessagePostProcessor.class));
+
+    this.testSubject.signal(TENANT);
+
+    Mockito.verify(this.eventOutboxRepository, Mockito.timeout(TIMEOUT))
+        .deleteInBatch(Collections.singletonList(other));
+    Mockito.verify(this.eventOutboxRepository).save(poisoned);
+    Mockito.verify(this.eventOutboxRepository).save(Collections.singletonList(later));
+    Mockito.verify(this.jmsTemplate, Mockito.never()).convertAndSend(eq((Object) later.getPayload()), any(MessagePostProcessor.class));
+    Assert.assertNull(later.getNextAttemptOn());
+    Mockito.verify(this.counterService, Mockito.timeout(TIMEOUT)).increment("customer.outbox.published");
+  }
+
+  @Test
+  public void shouldMoveEntryToDeadLettersAfterMaxAttempts() {
+    final EventOutboxEntity entry = entry();
+    entry.setAttempts(2);
+    Mockito.when(this.tenantRepository.findAllIdentifiers()).thenReturn(Collections.emptySet());
+    Mockito.when(this.eventOutboxRepository.findDue(any(LocalDateTime.class), any(Pageable.class)))
+        .thenReturn(Collections.singletonList(entry))
+        .thenReturn(Collections.emptyList());
+    Mockito.doThrow(new IllegalStateException("cannot convert"))
+        .when(this.jmsTemplate).convertAndSend(eq((Object) entry.getPayload()), any(MessagePostProcessor.class));
+
+    this.testSubject.signal(TENANT);
+
+    Mockito.verify(this.eventOutboxRepository, Mockito.timeout(TIMEOUT))
+        .deleteInBatch(Collections.singletonList(entry));
+    final ArgumentCaptor<EventDeadLetterEntity> deadLetter = ArgumentCaptor.forClass(EventDeadLetterEntity.class);
+    Mockito.verify(this.eventDeadLetterRepository).save(deadLetter.capture());
+    Assert.assertEquals(entry.getId(), deadLetter.getValue().getOutboxId());
+    Assert.assertEquals(entry.getPayload(), deadLetter.getValue().getPayload());
+    Assert.assertEquals(Integer.valueOf(3), deadLetter.getValue().getAttempts());
+    Mockito.verify(this.counterService, Mockito.timeout(TIMEOUT)).increment("customer.outbox.dead-lettered");
+  }
+
+  @Test
+  public void shouldAppendCommandLogEntriesInsteadOfPublishing() {
+    final UUID entryId = UUID.randomUUID();
+    final EventOutboxEntity entry = entry();
+    entry.setSelectorName(EventOutbox.COMMAND_LOG_SELECTOR_NAME);
+    entry.setSelectorValue("ACTIVATE");
+    entry.setPayload("{\"customerIdentifier\":\"customer\",\"entryId\":\"" + entryId + "\",\"action\":\"ACTIVATE\"}");
+    Mockito.when(this.tenantRepository.findAllIdentifiers()).thenReturn(Collections.emptySet());
+    Mockito.when(this.eventOutboxRepository.findDue(any(LocalDateTime.class), any(Pageable.class)))
+        .thenReturn(Collections.singletonList(entry))
+        .thenReturn(Collections.emptyList());
+
+    this.testSubject.signal(TENANT);
+
+    final ArgumentCaptor<CommandLogEntity> appended = ArgumentCaptor.forClass(CommandLogEntity.class);
+    Mockito.verify(this.commandLogRepository, Mockito.timeout(TIMEOUT)).append(appended.capture());
+    Assert.assertEquals(entryId, appended.getValue().getEntryId());
+    Assert.assertEquals("customer", appended.getValue().getCustomerIdentifier());
+    Mockito.verify(this.eventOutboxRepository, Mockito.timeout(TIMEOUT))
+        .deleteInBatch(Collections.singletonList(entry));
+    Mockito.verify(this.jmsTemplate, Mockito.never()).convertAndSend(any(Object.class), any(MessagePostProcessor.class));
+  }
+
+  @Test
+  public void shouldKeepSignalledTenantsIfDiscoveryFails() {
+    Mockito.when(this.tenantRepository.findAllIdentifiers()).thenThrow(new IllegalStateException("no admin keyspace"));
+    Mockito.when(this.eventOutboxRepository.findDue(any(LocalDateTime.class), any(Pageable.class)))
+        .thenReturn(Collections.emptyList());
+
+    this.testSubject.signal(TENANT);
+    this.testSubject.sweep();
+
+    Assert.assertEquals(Collections.singleton(TENANT), this.testSubject.knownTenants());
+  }
+
+  private static EventOutboxEntity entry() {
+    final EventOutboxEntity entry = new EventOutboxEntity();
+    entry.setId(1L);
+    entry.setSelectorName("action");
+    entry.setSelectorValue("post-customer");
+    entry.setPayload("\"customer\"");
+    entry.setOrderingKey("customer");
+    entry.setCreatedOn(LocalDateTime.now(Clock.systemUTC()));
+    return entry;
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.event;
+
+import com.google.gson.Gson;
+import io.mifos.core.lang.TenantContextHolder;
+import io.mifos.customer.api.v1.CustomerEventConstants;
+import io.mifos.customer.api.v1.domain.Customer;
+import io.mifos.customer.api.v1.events.CustomerSnapshotEvent;
+import io.mifos.customer.service.internal.config.OutboxProperties;
+import io.mifos.customer.service.internal.repository.EventOutboxEntity;
+import io.mifos.customer.service.internal.repository.EventOutboxRepository;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.mockito.Matchers.any;
+
+public class EventOutboxTest {
+
+  private static final String TENANT = "tenant";
+
+  private EventOutboxRepository eventOutboxRepository;
+  private EventOutboxRelay eventOutboxRelay;
+  private OutboxProperties outboxProperties;
+  private EventOutbox testSubject;
+
+  @Before
+  public void setUp() {
+    this.eventOutboxRepository = Mockito.mock(EventOutboxRepository.class);
+    this.eventOutboxRelay = Mockito.mock(EventOutboxRelay.class);
+    this.outboxProperties = new OutboxProperties();
+    this.testSubject = new EventOutbox(this.eventOutboxRepository, this.eventOutboxRelay, this.outboxProperties);
+
+    TenantContextHolder.clear();
+    TenantContextHolder.setIdentifier(TENANT);
+    TransactionSynchronizationManager.initSynchronization();
+  }
+
+  @After
+  public void tearDown() {
+    TransactionSynchronizationManager.clearSynchronization();
+    TenantContextHolder.clear();
+  }
+
+  @Test
+  public void shouldPublishSnapshotAfterCommit() {
+    this.outboxProperties.setSnapshots(true);
+    final Customer customer = new Customer();
+    customer.setIdentifier("customer");
+    customer.setLastModifiedOn("2017-01-01T00:00:00Z");
+    final CustomerSnapshotEvent snapshot = new CustomerSnapshotEvent(CustomerEventConstants.SNAPSHOT_VERSION, customer);
+
+    this.testSubject.enqueueSnapshot(CustomerEventConstants.PUT_CUSTOMER, () -> snapshot);
+
+    final ArgumentCaptor<EventOutboxEntity> saved = ArgumentCaptor.forClass(EventOutboxEntity.class);
+    Mockito.verify(this.eventOutboxRepository).save(saved.capture());
+    Assert.assertEquals(CustomerEventConstants.SNAPSHOT_SELECTOR_NAME, saved.getValue().getSelectorName());
+    Assert.assertEquals(CustomerEventConstants.PUT_CUSTOMER, saved.getValue().getSelectorValue());
+    Assert.assertEquals(snapshot, new Gson().fromJson(saved.getValue().getPayload(), CustomerSnapshotEvent.class));
+    Assert.assertEquals("customer", saved.getValue().getOrderingKey());
+
+    Mockito.verify(this.eventOutboxRelay, Mockito.never()).signal(TENANT);
+    TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+    Mockito.verify(this.eventOutboxRelay).signal(TENANT);
+  }
+
+  @Test
+  public void shouldKeyEventByCustomerIdentifier() {
+    this.testSubject.enqueue(CustomerEventConstants.PUT_CUSTOMER, "customer");
+
+    final ArgumentCaptor<EventOutboxEntity> saved = ArgumentCaptor.forClass(EventOutboxEntity.class);
+    Mockito.verify(this.eventOutboxRepository).save(saved.capture());
+    Assert.assertEquals("\"customer\"", saved.getValue().getPayload());
+    Assert.assertEquals("customer", saved.getValue().getOrderingKey());
+  }
+
+  @Test
+  public void shouldNotBuildSnapshotIfDisabled() {
+    this.testSubject.enqueueSnapshot(CustomerEventConstants.PUT_CUSTOMER, () -> {
+      throw new AssertionError("snapshot must not be built");
+    });
+
+    Mockito.verify(this.eventOutboxRepository, Mockito.never()).save(any(EventOutboxEntity.class));
+    Assert.assertTrue(TransactionSynchronizationManager.getSynchronizations().isEmpty());
+  }
+}
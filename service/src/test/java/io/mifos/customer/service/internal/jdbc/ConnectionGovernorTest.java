@@ -0,0 +1,173 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.jdbc;
+
+import io.mifos.core.lang.TenantContextHolder;
+import io.mifos.customer.service.internal.config.ConnectionPoolProperties;
+import io.mifos.customer.service.internal.metrics.ServiceMetrics;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class ConnectionGovernorTest {
+
+  private static final long SHORT_TIMEOUT = 100L;
+  private static final long LONG_TIMEOUT = 10000L;
+
+  private ConnectionPoolProperties connectionPoolProperties;
+  private MockEnvironment environment;
+
+  @Before
+  public void setUp() {
+    this.connectionPoolProperties = new ConnectionPoolProperties();
+    this.connectionPoolProperties.setAcquireTimeout(SHORT_TIMEOUT);
+    this.environment = new MockEnvironment();
+  }
+
+  @After
+  public void tearDown() {
+    TenantContextHolder.clear();
+  }
+
+  @Test
+  public void shouldLimitEachTenantToItsOwnPool() throws Exception {
+    this.tenantPoolSize(2);
+    final ConnectionGovernor testSubject = this.governor();
+
+    this.acquire(testSubject, "a").get();
+    this.acquire(testSubject, "a").get();
+    assertTimesOut(this.acquire(testSubject, "a"));
+
+    // the pool of another tenant is not affected
+    Assert.assertEquals(2, testSubject.limit("b"));
+    this.acquire(testSubject, "b").get();
+    this.acquire(testSubject, "b").get();
+  }
+
+  @Test
+  public void shouldTimeOutIfLimitIsReached() throws Exception {
+    this.tenantPoolSize(1);
+    final ConnectionGovernor testSubject = this.governor();
+
+    this.acquire(testSubject, "a").get();
+
+    final long start = System.nanoTime();
+    assertTimesOut(this.acquire(testSubject, "a"));
+    Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(SHORT_TIMEOUT));
+  }
+
+  @Test
+  public void shouldGrantNestedLeaseOfSameThread() throws Exception {
+    this.tenantPoolSize(1);
+    final ConnectionGovernor testSubject = this.governor();
+
+    final Future<Boolean> nested = inNewThread(() -> {
+      TenantContextHolder.clear();
+      TenantContextHolder.setIdentifier("a");
+      final ConnectionGovernor.Lease outer = testSubject.acquire();
+      final ConnectionGovernor.Lease inner = testSubject.acquire();
+      testSubject.release(inner, 0L);
+      testSubject.release(outer, 0L);
+      return true;
+    });
+    Assert.assertTrue(nested.get(LONG_TIMEOUT, TimeUnit.MILLISECONDS));
+
+    // once released, other threads are not exempted
+    this.acquire(testSubject, "a").get();
+    assertTimesOut(this.acquire(testSubject, "a"));
+  }
+
+  @Test
+  public void shouldAdaptLimitToDemand() throws Exception {
+    this.connectionPoolProperties.setAdaptive(true);
+    this.connectionPoolProperties.setMinConnections(2);
+    this.connectionPoolProperties.setAcquireTimeout(LONG_TIMEOUT);
+    this.tenantPoolSize(10);
+    final ConnectionGovernor testSubject = this.governor();
+
+    // without demand the limit shrinks to the minimum
+    testSubject.release(this.acquire(testSubject, "a").get(), 0L);
+    testSubject.adjust();
+    testSubject.adjust();
+    testSubject.adjust();
+    testSubject.adjust();
+    Assert.assertEquals(2, testSubject.limit("a"));
+
+    this.acquire(testSubject, "a").get();
+    this.acquire(testSubject, "a").get();
+    final Future<ConnectionGovernor.Lease> waiting = this.acquire(testSubject, "a");
+    Thread.sleep(SHORT_TIMEOUT);
+    Assert.assertFalse(waiting.isDone());
+
+    // two leased and one waiting, the limit grows and lets the waiting lease through
+    testSubject.adjust();
+    Assert.assertEquals(3, testSubject.limit("a"));
+    Assert.assertNotNull(waiting.get(LONG_TIMEOUT, TimeUnit.MILLISECONDS));
+  }
+
+  private void tenantPoolSize(final int size) {
+    this.environment.setProperty("bonecp.partitionCount", "1");
+    this.environment.setProperty("bonecp.maxConnectionsPerPartition", Integer.toString(size));
+  }
+
+  private ConnectionGovernor governor() {
+    final GaugeService gaugeService = Mockito.mock(GaugeService.class);
+    return new ConnectionGovernor(Mockito.mock(Logger.class), this.connectionPoolProperties, gaugeService,
+        Mockito.mock(CounterService.class), new ServiceMetrics(gaugeService), this.environment);
+  }
+
+  private Future<ConnectionGovernor.Lease> acquire(final ConnectionGovernor testSubject, final String tenant) {
+    // every lease in a thread of its own, so none of them counts as nested
+    return inNewThread(() -> {
+      TenantContextHolder.clear();
+      TenantContextHolder.setIdentifier(tenant);
+      return testSubject.acquire();
+    });
+  }
+
+  private static <T> Future<T> inNewThread(final Callable<T> callable) {
+    final FutureTask<T> task = new FutureTask<>(callable);
+    final Thread thread = new Thread(task);
+    thread.setDaemon(true);
+    thread.start();
+    return task;
+  }
+
+  private static void assertTimesOut(final Future<ConnectionGovernor.Lease> lease) throws InterruptedException {
+    try {
+      lease.get(LONG_TIMEOUT, TimeUnit.MILLISECONDS);
+      Assert.fail("Lease should have timed out.");
+    } catch (final ExecutionException ex) {
+      Assert.assertTrue(ex.getCause() instanceof SQLTransientConnectionException);
+    } catch (final TimeoutException ex) {
+      Assert.fail("Lease did not time out.");
+    }
+  }
+}
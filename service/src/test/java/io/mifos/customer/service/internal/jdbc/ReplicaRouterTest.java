@@ -0,0 +1,219 @@
+/*
+ * Copyright 2017 The Mifos Initiative.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.mifos.customer.service.internal.jdbc;
+
+import com.jolbox.bonecp.BoneCPDataSource;
+import io.mifos.core.lang.TenantContextHolder;
+import io.mifos.customer.service.internal.config.ReplicaProperties;
+import io.mifos.customer.service.internal.repository.ClientWriteRepository;
+import io.mifos.customer.service.internal.repository.TenantRepository;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class ReplicaRouterTest {
+
+  private static final String CLIENT = "test/";
+
+  private ReplicaProperties replicaProperties;
+  private ClientWriteRepository clientWriteRepository;
+  private BoneCPDataSource replicaDataSource;
+  private Map<String, Boolean> sharedWrites;
+
+  @Before
+  public void setUp() {
+    this.replicaProperties = new ReplicaProperties();
+    this.replicaProperties.setEnabled(true);
+    this.replicaProperties.setMaxStaleness(2000L);
+    this.replicaProperties.setReadYourWritesWindow(5000L);
+    this.replicaProperties.setLagCheckInterval(0L);
+
+    this.sharedWrites = new ConcurrentHashMap<>();
+    this.clientWriteRepository = Mockito.mock(ClientWriteRepository.class);
+    Mockito.doAnswer(invocation -> this.sharedWrites.put(invocation.getArgumentAt(0, String.class), Boolean.TRUE))
+        .when(this.clientWriteRepository).record(Mockito.anyString(), Mockito.anyInt());
+    Mockito.when(this.clientWriteRepository.exists(Mockito.anyString()))
+        .thenAnswer(invocation -> this.sharedWrites.containsKey(invocation.getArgumentAt(0, String.class)));
+
+    this.replicaDataSource = Mockito.mock(BoneCPDataSource.class);
+
+    TenantContextHolder.clear();
+    TenantContextHolder.setIdentifier("test");
+  }
+
+  @After
+  public void tearDown() {
+    TenantContextHolder.clear();
+    RequestContextHolder.resetRequestAttributes();
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+  }
+
+  @Test
+  public void shouldReadFromReplicaOnlyInReadOnlyTransaction() {
+    final ReplicaRouter testSubject = this.router();
+
+    Assert.assertFalse(testSubject.isReplicaRead());
+
+    final boolean enclosing = testSubject.beginRead();
+    try {
+      Assert.assertFalse(testSubject.isReplicaRead());
+
+      TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+      Assert.assertTrue(testSubject.isReplicaRead());
+    } finally {
+      testSubject.endRead(enclosing);
+    }
+
+    Assert.assertFalse(testSubject.isReplicaRead());
+  }
+
+  @Test
+  public void shouldReadOwnWritesOnEveryInstance() {
+    // without handing back the last write, other instances only see it once a cached look up expires
+    this.replicaProperties.setWriteLookupCacheTime(0L);
+    final ReplicaRouter writingInstance = this.router();
+    final ReplicaRouter readingInstance = this.router();
+
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    final boolean enclosing = readingInstance.beginRead();
+    try {
+      Assert.assertTrue(readingInstance.isReplicaRead());
+
+      writingInstance.recordWrite();
+
+      Mockito.verify(this.clientWriteRepository).record(CLIENT, 5);
+      Assert.assertFalse(writingInstance.isReplicaRead());
+      Assert.assertFalse(readingInstance.isReplicaRead());
+
+      this.sharedWrites.clear();
+      Assert.assertTrue(readingInstance.isReplicaRead());
+    } finally {
+      readingInstance.endRead(enclosing);
+    }
+  }
+
+  @Test
+  public void shouldHandBackLastWriteAndRouteByItWithoutLookup() {
+    final ReplicaRouter testSubject = this.router();
+    final MockHttpServletResponse writeResponse = new MockHttpServletResponse();
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest(), writeResponse));
+    this.router().recordWrite();
+    final String lastWrite = writeResponse.getHeader(ReplicaRouter.LAST_WRITE_HEADER);
+    Assert.assertNotNull(lastWrite);
+    Assert.assertEquals(lastWrite, writeResponse.getCookie(ReplicaRouter.LAST_WRITE_COOKIE).getValue());
+
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    final boolean enclosing = testSubject.beginRead();
+    try {
+      final MockHttpServletRequest recentRequest = new MockHttpServletRequest();
+      recentRequest.addHeader(ReplicaRouter.LAST_WRITE_HEADER, lastWrite);
+      RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(recentRequest));
+      Assert.assertFalse(testSubject.isReplicaRead());
+
+      final MockHttpServletRequest staleRequest = new MockHttpServletRequest();
+      staleRequest.addHeader(ReplicaRouter.LAST_WRITE_HEADER, Long.toString(System.currentTimeMillis() - 10000L));
+      RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(staleRequest));
+      Assert.assertTrue(testSubject.isReplicaRead());
+
+      Mockito.verify(this.clientWriteRepository, Mockito.never()).exists(Mockito.anyString());
+    } finally {
+      testSubject.endRead(enclosing);
+    }
+  }
+
+  @Test
+  public void shouldCacheLookupsWithoutWrite() {
+    final ReplicaRouter testSubject = this.router();
+
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    final boolean enclosing = testSubject.beginRead();
+    try {
+      Assert.assertTrue(testSubject.isReplicaRead());
+      Assert.assertTrue(testSubject.isReplicaRead());
+      Mockito.verify(this.clientWriteRepository, Mockito.times(1)).exists(CLIENT);
+    } finally {
+      testSubject.endRead(enclosing);
+    }
+  }
+
+  @Test
+  public void shouldUsePrimaryIfWritesCannotBeLookedUp() {
+    final ReplicaRouter testSubject = this.router();
+    Mockito.when(this.clientWriteRepository.exists(Mockito.anyString())).thenThrow(new IllegalStateException());
+
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    final boolean enclosing = testSubject.beginRead();
+    try {
+      Assert.assertFalse(testSubject.isReplicaRead());
+    } finally {
+      testSubject.endRead(enclosing);
+    }
+  }
+
+  @Test
+  public void shouldFallBackToPrimaryIfReplicaLags() throws Exception {
+    final ReplicaRouter testSubject = this.router();
+
+    final Connection laggingConnection = this.replicaConnection(10L);
+    Assert.assertFalse(testSubject.replicaConnection("test").isPresent());
+    Mockito.verify(laggingConnection).close();
+
+    final Connection currentConnection = this.replicaConnection(0L);
+    Assert.assertEquals(currentConnection, testSubject.replicaConnection("test").orElse(null));
+    Mockito.verify(currentConnection, Mockito.never()).close();
+  }
+
+  private ReplicaRouter router() {
+    return new ReplicaRouter(Mockito.mock(Logger.class), this.replicaProperties, Mockito.mock(CounterService.class),
+        this.clientWriteRepository, Mockito.mock(TenantRepository.class)) {
+      @Override
+      BoneCPDataSource createReplica(final String tenantIdentifier) {
+        return replicaDataSource;
+      }
+    };
+  }
+
+  private Connection replicaConnection(final long secondsBehindMaster) throws Exception {
+    final ResultSet resultSet = Mockito.mock(ResultSet.class);
+    Mockito.when(resultSet.next()).thenReturn(true);
+    Mockito.when(resultSet.getLong("Seconds_Behind_Master")).thenReturn(secondsBehindMaster);
+    Mockito.when(resultSet.wasNull()).thenReturn(false);
+
+    final Statement statement = Mockito.mock(Statement.class);
+    Mockito.when(statement.executeQuery("SHOW SLAVE STATUS")).thenReturn(resultSet);
+
+    final Connection connection = Mockito.mock(Connection.class);
+    Mockito.when(connection.createStatement()).thenReturn(statement);
+
+    Mockito.when(this.replicaDataSource.getConnection()).thenReturn(connection);
+    return connection;
+  }
+}